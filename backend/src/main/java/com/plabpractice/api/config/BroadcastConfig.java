@@ -0,0 +1,60 @@
+package com.plabpractice.api.config;
+
+import com.plabpractice.api.service.BroadcastTransport;
+import com.plabpractice.api.service.LoopbackBroadcastTransport;
+import com.plabpractice.api.service.PostgresBroadcastTransport;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Transport for cross-node WebSocket fan-out (see ClusterBroadcaster):
+ * {@code loopback} for a single node and tests, {@code postgres} for
+ * LISTEN/NOTIFY between replicas sharing one database.
+ *
+ * The postgres transport keeps its two connections open for as long as the
+ * application runs, so they are opened with the pool's settings but outside
+ * the pool: held pool connections would shrink the pool and trip Hikari's
+ * leak detection.
+ */
+@Configuration
+public class BroadcastConfig {
+
+    @Bean
+    public BroadcastTransport broadcastTransport(DataSource dataSource,
+            @Value("${broadcast.transport:loopback}") String transport,
+            @Value("${broadcast.postgres.channel:plab_broadcast}") String channel,
+            @Value("${broadcast.postgres.queue-capacity:10000}") int queueCapacity) {
+        if ("postgres".equalsIgnoreCase(transport)) {
+            PostgresBroadcastTransport postgres = new PostgresBroadcastTransport(unpooled(dataSource), channel,
+                    queueCapacity);
+            postgres.start();
+            return postgres;
+        }
+        if (!"loopback".equalsIgnoreCase(transport)) {
+            throw new IllegalArgumentException("Unknown broadcast.transport '" + transport + "'");
+        }
+        return new LoopbackBroadcastTransport();
+    }
+
+    // Same database and credentials as the pool, but every getConnection() opens a new connection
+    private static DataSource unpooled(DataSource dataSource) {
+        HikariDataSource pool;
+        try {
+            pool = dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("broadcast.transport=postgres needs a Hikari data source", e);
+        }
+        DriverManagerDataSource unpooled = new DriverManagerDataSource(pool.getJdbcUrl(), pool.getUsername(),
+                pool.getPassword());
+        if (pool.getDriverClassName() != null) {
+            unpooled.setDriverClassName(pool.getDriverClassName());
+        }
+        return unpooled;
+    }
+}
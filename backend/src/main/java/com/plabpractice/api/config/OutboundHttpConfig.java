@@ -0,0 +1,36 @@
+package com.plabpractice.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Shared HTTP clients for Supabase, Google and Resend calls, with connect and
+ * read timeouts so a hung downstream releases its thread (and its
+ * DownstreamLimiter permit) instead of holding it indefinitely.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    @Bean
+    public RestTemplate outboundRestTemplate(RestTemplateBuilder builder,
+            @Value("${outbound.connect-timeout-ms:5000}") long connectTimeoutMillis,
+            @Value("${outbound.read-timeout-ms:15000}") long readTimeoutMillis) {
+        return builder
+                .setConnectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .setReadTimeout(Duration.ofMillis(readTimeoutMillis))
+                .build();
+    }
+
+    @Bean
+    public HttpClient outboundHttpClient(@Value("${outbound.connect-timeout-ms:5000}") long connectTimeoutMillis) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+    }
+}
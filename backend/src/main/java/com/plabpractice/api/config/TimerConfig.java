@@ -0,0 +1,25 @@
+package com.plabpractice.api.config;
+
+import com.plabpractice.api.service.HashedTimingWheel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Timing wheel used for session phase timers, feedback timeouts and
+ * disconnect detection.
+ */
+@Configuration
+public class TimerConfig {
+
+    @Bean(destroyMethod = "stop")
+    public HashedTimingWheel sessionTimingWheel(
+            @Value("${session.timer.tick-ms:100}") long tickMillis,
+            @Value("${session.timer.wheel-size:512}") int wheelSize,
+            @Value("${session.timer.worker-threads:8}") int workerThreads,
+            @Value("${session.timer.worker-queue-capacity:10000}") int workerQueueCapacity,
+            @Value("${session.timer.virtual-workers:false}") boolean virtualWorkers) {
+        return new HashedTimingWheel("session-timer", tickMillis, wheelSize, workerThreads, workerQueueCapacity,
+                virtualWorkers);
+    }
+}
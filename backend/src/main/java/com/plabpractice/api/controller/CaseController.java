@@ -7,16 +7,23 @@ import com.plabpractice.api.repository.CaseRepository;
 import com.plabpractice.api.repository.CategoryRepository;
 import com.plabpractice.api.repository.SessionRepository;
 import com.plabpractice.api.exception.ResourceNotFoundException;
+import com.plabpractice.api.service.CaseSampler;
+import com.plabpractice.api.service.CaseViewCache;
+import com.plabpractice.api.service.RecallDateIndex;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -38,6 +45,15 @@ public class CaseController {
     @Autowired
     private SessionRepository sessionRepository;
 
+    @Autowired
+    private CaseViewCache caseViewCache;
+
+    @Autowired
+    private CaseSampler caseSampler;
+
+    @Autowired
+    private RecallDateIndex recallDateIndex;
+
     @GetMapping
     public ResponseEntity<List<Case>> getAllCases() {
         List<Case> cases = caseRepository.findAll();
@@ -76,20 +92,15 @@ public class CaseController {
 
     @GetMapping("/random")
     public ResponseEntity<Case> getRandomCase(@RequestParam(required = false) List<String> topics) {
-        List<Case> availableCases;
+        Optional<Case> randomCase;
 
         if (topics == null || topics.isEmpty() || topics.contains("Random")) {
-            availableCases = caseRepository.findAll();
+            randomCase = caseSampler.randomCase(Set.of());
         } else {
-            availableCases = caseRepository.findByCategoryNameIn(topics);
-        }
-
-        if (availableCases.isEmpty()) {
-            return ResponseEntity.notFound().build();
+            randomCase = caseSampler.randomCaseInCategories(topics, Set.of());
         }
 
-        Case randomCase = availableCases.get((int) (Math.random() * availableCases.size()));
-        return ResponseEntity.ok(randomCase);
+        return randomCase.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
     // Recall-specific endpoints
@@ -105,98 +116,53 @@ public class CaseController {
     }
 
     @GetMapping("/recall/dates")
-    @Cacheable(value = "recallDates", unless = "#result.body == null || #result.body.isEmpty()")
     public ResponseEntity<List<String>> getAllRecallDates() {
-        List<Case> recallCases = caseRepository.findByIsRecallCaseTrue();
-        List<String> dates = recallCases.stream()
-                .filter(c -> c.getRecallDates() != null)
-                .flatMap(c -> c.getRecallDates().stream())
-                .distinct()
-                .sorted()
+        List<String> dates = recallDateIndex.dates().stream()
+                .map(LocalDate::toString)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(dates);
     }
 
+    // Number of recall cases per date, for the recall calendar
+    @GetMapping("/recall/date-counts")
+    public ResponseEntity<Map<String, Integer>> getRecallDateCounts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        recallDateIndex.histogram(startDate, endDate).forEach((date, count) -> counts.put(date.toString(), count));
+        return ResponseEntity.ok(counts);
+    }
+
     @GetMapping("/recall/by-date")
-    public ResponseEntity<List<Case>> getRecallCasesByDate(@RequestParam String date) {
-        List<Case> recallCases = caseRepository.findByIsRecallCaseTrue();
-        List<Case> filteredCases = recallCases.stream()
-                .filter(c -> c.getRecallDates() != null && c.getRecallDates().contains(date))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(filteredCases);
+    public ResponseEntity<List<Case>> getRecallCasesByDate(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(caseRepository.findAllById(recallDateIndex.caseIdsOn(date)));
     }
 
     @GetMapping("/recall/by-date-range")
     public ResponseEntity<List<Case>> getRecallCasesByDateRange(
-            @RequestParam String startDate,
-            @RequestParam String endDate) {
-        System.out.println("🔍 Recall date range query: " + startDate + " to " + endDate);
-
-        List<Case> recallCases = caseRepository.findByIsRecallCaseTrue();
-        System.out.println("📊 Total recall cases found: " + recallCases.size());
-
-        // Debug: Print all recall cases and their dates
-        for (Case c : recallCases) {
-            System.out
-                    .println("📝 Case " + c.getId() + " (" + c.getTitle() + ") - Recall dates: " + c.getRecallDates());
-        }
-
-        List<Case> filteredCases = recallCases.stream()
-                .filter(c -> {
-                    if (c.getRecallDates() == null || c.getRecallDates().isEmpty()) {
-                        return false;
-                    }
-
-                    boolean hasDateInRange = c.getRecallDates().stream().anyMatch(date -> {
-                        boolean inRange = date.compareTo(startDate) >= 0 && date.compareTo(endDate) <= 0;
-                        System.out.println("🔍 Checking date " + date + " against range [" + startDate + ", " + endDate
-                                + "] = " + inRange);
-                        return inRange;
-                    });
-
-                    System.out.println("📋 Case " + c.getId() + " has dates in range: " + hasDateInRange);
-                    return hasDateInRange;
-                })
-                .collect(Collectors.toList());
-
-        System.out.println("✅ Filtered cases count: " + filteredCases.size());
-        return ResponseEntity.ok(filteredCases);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.ok(caseRepository.findAllById(recallDateIndex.caseIdsInRange(startDate, endDate)));
     }
 
     @GetMapping("/recall/random")
-    public ResponseEntity<Case> getRandomRecallCase(@RequestParam String date) {
-        List<Case> recallCases = caseRepository.findByIsRecallCaseTrue();
-        List<Case> availableCases = recallCases.stream()
-                .filter(c -> c.getRecallDates() != null && c.getRecallDates().contains(date))
-                .collect(Collectors.toList());
-
-        if (availableCases.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Case randomCase = availableCases.get((int) (Math.random() * availableCases.size()));
-        return ResponseEntity.ok(randomCase);
+    public ResponseEntity<Case> getRandomRecallCase(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return caseSampler.randomRecallCase(date, date, Set.of())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/recall/random-from-range")
     public ResponseEntity<Case> getRandomRecallCaseFromRange(
-            @RequestParam String startDate,
-            @RequestParam String endDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) List<Long> excludeCaseIds) {
-        List<Case> recallCases = caseRepository.findByIsRecallCaseTrue();
-        List<Case> availableCases = recallCases.stream()
-                .filter(c -> c.getRecallDates() != null &&
-                        c.getRecallDates().stream()
-                                .anyMatch(date -> date.compareTo(startDate) >= 0 && date.compareTo(endDate) <= 0))
-                .filter(c -> excludeCaseIds == null || !excludeCaseIds.contains(c.getId()))
-                .collect(Collectors.toList());
-
-        if (availableCases.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Case randomCase = availableCases.get((int) (Math.random() * availableCases.size()));
-        return ResponseEntity.ok(randomCase);
+        Set<Long> excluded = excludeCaseIds != null ? new HashSet<>(excludeCaseIds) : Set.of();
+        return caseSampler.randomRecallCase(startDate, endDate, excluded)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     // Debug endpoint to test date filtering
@@ -212,6 +178,15 @@ public class CaseController {
         List<Case> allRecallCases = caseRepository.findByIsRecallCaseTrue();
         debug.put("totalRecallCases", allRecallCases.size());
 
+        // Range matches from the case_recall_dates table, next to the in-memory index
+        Set<Long> idsInRange = new HashSet<>();
+        if (startDate != null && endDate != null) {
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
+            idsInRange.addAll(caseRepository.findRecallCaseIdsInDateRange(start, end));
+            debug.put("indexedCaseIdsInRange", recallDateIndex.caseIdsInRange(start, end));
+        }
+
         List<Map<String, Object>> caseDetails = allRecallCases.stream().map(c -> {
             Map<String, Object> caseInfo = new HashMap<>();
             caseInfo.put("id", c.getId());
@@ -219,10 +194,8 @@ public class CaseController {
             caseInfo.put("isRecallCase", c.getIsRecallCase());
             caseInfo.put("recallDates", c.getRecallDates());
 
-            if (startDate != null && endDate != null && c.getRecallDates() != null) {
-                boolean hasDateInRange = c.getRecallDates().stream()
-                        .anyMatch(date -> date.compareTo(startDate) >= 0 && date.compareTo(endDate) <= 0);
-                caseInfo.put("hasDateInRange", hasDateInRange);
+            if (startDate != null && endDate != null) {
+                caseInfo.put("hasDateInRange", idsInRange.contains(c.getId()));
             }
 
             return caseInfo;
@@ -234,7 +207,6 @@ public class CaseController {
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @CacheEvict(value = { "recallDates" }, allEntries = true)
     public Case createCase(@RequestBody Case caseData) {
         Category category = categoryRepository.findById(caseData.getCategory().getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
@@ -243,12 +215,14 @@ public class CaseController {
         // Handle visual data and maintain backward compatibility
         handleVisualData(caseData);
 
-        return caseRepository.save(caseData);
+        Case savedCase = caseRepository.save(caseData);
+        caseSampler.invalidate();
+        recallDateIndex.index(savedCase);
+        return savedCase;
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    @CacheEvict(value = { "recallDates" }, allEntries = true)
     public Case updateCase(@PathVariable Long id, @RequestBody Case caseData) {
         Case existingCase = caseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Case not found"));
@@ -275,7 +249,11 @@ public class CaseController {
         // Handle visual data and maintain backward compatibility
         handleVisualData(existingCase);
 
-        return caseRepository.save(existingCase);
+        Case savedCase = caseRepository.save(existingCase);
+        caseViewCache.evict(id);
+        caseSampler.invalidate();
+        recallDateIndex.index(savedCase);
+        return savedCase;
     }
 
     /**
@@ -303,7 +281,6 @@ public class CaseController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    @CacheEvict(value = { "recallDates" }, allEntries = true)
     public ResponseEntity<?> deleteCase(@PathVariable Long id) {
         return caseRepository.findById(id)
                 .map(case_ -> {
@@ -341,6 +318,9 @@ public class CaseController {
                     }
 
                     caseRepository.delete(case_);
+                    caseViewCache.evict(id);
+                    caseSampler.invalidate();
+                    recallDateIndex.remove(id);
 
                     Map<String, Object> successResponse = new HashMap<>();
                     successResponse.put("message", "Case deleted successfully");
@@ -2,13 +2,20 @@ package com.plabpractice.api.controller;
 
 import com.plabpractice.api.model.*;
 import com.plabpractice.api.repository.*;
+import com.plabpractice.api.service.CaseDeckService;
 import com.plabpractice.api.service.FeedbackService;
+import com.plabpractice.api.service.SessionEventLog;
+import com.plabpractice.api.service.SessionArchiveService;
+import com.plabpractice.api.service.SessionMailbox;
+import com.plabpractice.api.service.SessionMetrics;
 import com.plabpractice.api.service.SessionService;
 import com.plabpractice.api.service.SessionWebSocketService;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -32,18 +39,45 @@ public class FeedbackController {
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private SessionRepository sessionRepository;
-
     @Autowired
     private SessionParticipantRepository participantRepository;
 
     @Autowired
     private CaseRepository caseRepository;
 
+    @Autowired
+    private CaseDeckService caseDeckService;
+
+    @Autowired
+    private SessionMetrics sessionMetrics;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
+    @Autowired
+    private SessionMailbox sessionMailbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SessionEventLog sessionEventLog;
+
     @PostMapping("/submit")
-    @Transactional
     public ResponseEntity<?> submitFeedback(@RequestBody Map<String, Object> feedbackData, Authentication auth) {
+        if (!(feedbackData.get("sessionCode") instanceof String sessionCode)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Missing required fields");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        // Submission and any round advancement it triggers run as one transaction on the
+        // session's mailbox, serialized with the session's other commands
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return sessionMailbox.call(sessionCode,
+                () -> transactionTemplate.execute(status -> submitFeedbackInSession(feedbackData, auth)));
+    }
+
+    private ResponseEntity<?> submitFeedbackInSession(Map<String, Object> feedbackData, Authentication auth) {
         try {
 
             User user = userRepository.findByEmail(auth.getName())
@@ -64,12 +98,12 @@ public class FeedbackController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
-            Session session = sessionRepository.findByCode(sessionCode)
+            Session session = sessionService.findSessionByCode(sessionCode)
                     .orElseThrow(() -> new RuntimeException("Session not found"));
 
             // Find the doctor (recipient) from session participants
-            Optional<SessionParticipant> doctorParticipant = participantRepository
-                    .findBySessionIdAndRole(session.getId(), SessionParticipant.Role.DOCTOR)
+            Optional<SessionParticipant> doctorParticipant = sessionService
+                    .getParticipantsWithRole(session, SessionParticipant.Role.DOCTOR)
                     .stream()
                     .findFirst();
 
@@ -110,15 +144,16 @@ public class FeedbackController {
 
             // Create feedback - this must be saved first before any role changes
             Feedback feedback = feedbackService.createFeedback(session, user, recipient, comment, criteriaScores);
+            sessionEventLog.append(session.getId(), SessionEventLog.EventType.FEEDBACK_SUBMITTED, user.getId(),
+                    recipient.getId(), null);
 
             // Track the current case as used when feedback is submitted
             if (session.getSelectedCase() != null) {
                 if (session.getUsedCaseIds() == null) {
-                    session.setUsedCaseIds(new ArrayList<>());
+                    session.setUsedCaseIds(new CaseIdSet());
                 }
-                if (!session.getUsedCaseIds().contains(session.getSelectedCase().getId())) {
-                    session.getUsedCaseIds().add(session.getSelectedCase().getId());
-                    sessionRepository.save(session);
+                if (session.getUsedCaseIds().add(session.getSelectedCase().getId())) {
+                    sessionService.saveSession(session);
                 }
             }
 
@@ -189,7 +224,7 @@ public class FeedbackController {
                     session.setStatus(Session.Status.COMPLETED);
                     session.setPhase(Session.Phase.COMPLETED);
                     session.setEndTime(LocalDateTime.now());
-                    sessionRepository.save(session);
+                    sessionService.saveSession(session);
 
                     // Notify all participants that session is complete
                     webSocketService.endSession(session.getCode(),
@@ -206,57 +241,24 @@ public class FeedbackController {
     }
 
     private boolean startNewCaseAutomatically(Session session) {
+        Timer.Sample sample = sessionMetrics.start();
         try {
             // Get a new random case based on session type and exclusions
             Case currentCase = session.getSelectedCase();
-            Case newCase = null;
 
             if (session.getSessionType() == Session.SessionType.RECALL) {
-                // For recall sessions, select from recall cases within date range
-                if (session.getRecallStartDate() != null && session.getRecallEndDate() != null) {
-                    // Date range mode
-                    List<Case> allRecallCases = caseRepository.findByIsRecallCaseTrue();
-                    // Use consistent filtering logic (same as SessionController)
-                    List<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds()
-                            : new ArrayList<>();
-                    List<Case> availableCases = allRecallCases.stream()
-                            .filter(c -> c.getRecallDates() != null &&
-                                    c.getRecallDates().stream().anyMatch(
-                                            date -> date.compareTo(session.getRecallStartDate().toString()) >= 0 &&
-                                                    date.compareTo(session.getRecallEndDate().toString()) <= 0))
-                            .filter(c -> !usedIds.contains(c.getId()))
-                            .collect(Collectors.toList());
-
-                    if (!availableCases.isEmpty()) {
-                        newCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                    }
-                } else {
+                // For recall sessions, draw from the deck of recall cases within date range
+                if (session.getRecallStartDate() == null || session.getRecallEndDate() == null) {
                     // No date range info available
                     return false;
                 }
-            } else {
-                // For topic-based sessions, select from same category but exclude used cases
-                if (currentCase == null || currentCase.getCategory() == null) {
-                    return false;
-                }
-
-                // Get all cases in the same category excluding used ones
-                List<Case> categoryCases = caseRepository.findByCategoryId(currentCase.getCategory().getId());
-
-                // Use consistent filtering logic (same as SessionController)
-                List<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds() : new ArrayList<>();
-                List<Case> availableCases = categoryCases.stream()
-                        .filter(c -> !usedIds.contains(c.getId()))
-                        .collect(Collectors.toList());
-
-                if (!availableCases.isEmpty()) {
-                    newCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                } else {
-                    // No more cases available in this category - don't reset, just return false
-                    return false;
-                }
+            } else if (currentCase == null || currentCase.getCategory() == null) {
+                // Topic-based sessions draw from the current case's category
+                return false;
             }
 
+            Case newCase = caseDeckService.drawNextCase(session).orElse(null);
+
             if (newCase == null) {
                 return false;
             }
@@ -268,11 +270,9 @@ public class FeedbackController {
 
             // Track the new case as used
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
-            }
-            if (!session.getUsedCaseIds().contains(newCase.getId())) {
-                session.getUsedCaseIds().add(newCase.getId());
+                session.setUsedCaseIds(new CaseIdSet());
             }
+            session.getUsedCaseIds().add(newCase.getId());
 
             // Reset session participants' completion status
             sessionService.resetParticipantStatus(session.getCode());
@@ -286,6 +286,7 @@ public class FeedbackController {
             // Start the timer for the new reading phase - saves session internally
             webSocketService.startTimer(session);
 
+            sessionMetrics.stop(sample, SessionMetrics.NEW_CASE, session);
             return true;
         } catch (Exception e) {
             return false;
@@ -293,66 +294,30 @@ public class FeedbackController {
     }
 
     private boolean startNewCaseWithRoleChange(Session session, User requestingUser) {
+        Timer.Sample sample = sessionMetrics.start();
         try {
             // Get a new random case based on session type and exclusions
             Case currentCase = session.getSelectedCase();
-            Case newCase = null;
 
             if (session.getSessionType() == Session.SessionType.RECALL) {
-                // For recall sessions, select from recall cases within date range
-                if (session.getRecallStartDate() != null && session.getRecallEndDate() != null) {
-                    // Date range mode
-                    List<Case> allRecallCases = caseRepository.findByIsRecallCaseTrue();
-                    // Use consistent filtering logic (same as SessionController)
-                    List<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds()
-                            : new ArrayList<>();
-                    List<Case> availableCases = allRecallCases.stream()
-                            .filter(c -> c.getRecallDates() != null &&
-                                    c.getRecallDates().stream().anyMatch(
-                                            date -> date.compareTo(session.getRecallStartDate().toString()) >= 0 &&
-                                                    date.compareTo(session.getRecallEndDate().toString()) <= 0))
-                            .filter(c -> !usedIds.contains(c.getId()))
-                            .collect(Collectors.toList());
-
-                    if (!availableCases.isEmpty()) {
-                        newCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                    }
-                } else {
+                // For recall sessions, draw from the deck of recall cases within date range
+                if (session.getRecallStartDate() == null || session.getRecallEndDate() == null) {
                     // No date range info available
                     return false;
                 }
-            } else {
-                // For topic-based sessions, select from same category but exclude used cases
-                if (currentCase == null || currentCase.getCategory() == null) {
-                    return false;
-                }
-
-                // Get all cases in the same category excluding used ones
-                List<Case> categoryCases = caseRepository.findByCategoryId(currentCase.getCategory().getId());
-
-                // Use consistent filtering logic (same as SessionController)
-                List<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds() : new ArrayList<>();
-                List<Case> availableCases = categoryCases.stream()
-                        .filter(c -> !usedIds.contains(c.getId()))
-                        .collect(Collectors.toList());
-
-                if (!availableCases.isEmpty()) {
-                    newCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                } else {
-                    // No more cases available in this category - don't reset, just return false
-                    System.out.println("❌ No more cases available in category " + currentCase.getCategory().getName()
-                            + " for role change");
-                    return false;
-                }
+            } else if (currentCase == null || currentCase.getCategory() == null) {
+                // Topic-based sessions draw from the current case's category
+                return false;
             }
 
+            Case newCase = caseDeckService.drawNextCase(session).orElse(null);
+
             if (newCase == null) {
                 return false;
             }
 
             // Find and swap doctor and patient roles
-            List<SessionParticipant> participants = participantRepository.findBySessionIdAndIsActive(session.getId(),
-                    true);
+            List<SessionParticipant> participants = sessionService.getActiveParticipants(session);
 
             SessionParticipant doctorParticipant = null;
             SessionParticipant patientParticipant = null;
@@ -370,11 +335,7 @@ public class FeedbackController {
                 String doctorName = doctorParticipant.getUser().getName();
                 String patientName = patientParticipant.getUser().getName();
 
-                doctorParticipant.setRole(SessionParticipant.Role.PATIENT);
-                patientParticipant.setRole(SessionParticipant.Role.DOCTOR);
-
-                participantRepository.save(doctorParticipant);
-                participantRepository.save(patientParticipant);
+                sessionService.swapDoctorAndPatientRoles(session);
 
                 // Broadcast role change notification
                 webSocketService.broadcastRoleChange(session.getCode(),
@@ -389,11 +350,9 @@ public class FeedbackController {
 
             // Track the new case as used
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
-            }
-            if (!session.getUsedCaseIds().contains(newCase.getId())) {
-                session.getUsedCaseIds().add(newCase.getId());
+                session.setUsedCaseIds(new CaseIdSet());
             }
+            session.getUsedCaseIds().add(newCase.getId());
 
             // Reset session participants' completion status
             sessionService.resetParticipantStatus(session.getCode());
@@ -407,6 +366,7 @@ public class FeedbackController {
             // Start the timer for the new reading phase - saves session internally
             webSocketService.startTimer(session);
 
+            sessionMetrics.stop(sample, SessionMetrics.NEW_CASE, session);
             return true;
         } catch (Exception e) {
             return false;
@@ -427,7 +387,12 @@ public class FeedbackController {
             List<Map<String, Object>> allFeedback = new ArrayList<>();
 
             for (Feedback feedback : allUserFeedback) {
-                Session session = feedback.getSession();
+                // Sessions past retention live in the archive
+                Session session = feedback.getSession() != null ? feedback.getSession()
+                        : sessionArchiveService.findSession(feedback.getSessionId()).orElse(null);
+                if (session == null) {
+                    continue;
+                }
                 Map<String, Object> feedbackInfo = new HashMap<>();
                 feedbackInfo.put("id", feedback.getId());
                 feedbackInfo.put("sessionId", session.getId());
@@ -441,12 +406,14 @@ public class FeedbackController {
                 feedbackInfo.put("toUserEmail", feedback.getRecipient().getEmail());
 
                 // Find the role of the feedback giver in that session
-                Optional<SessionParticipant> feedbackGiverParticipation = participantRepository
-                        .findBySessionIdAndUserId(session.getId(), feedback.getSender().getId());
-
-                if (feedbackGiverParticipation.isPresent()) {
-                    feedbackInfo.put("fromUserRole",
-                            feedbackGiverParticipation.get().getRole().toString().toLowerCase());
+                Long senderId = feedback.getSender().getId();
+                Optional<SessionParticipant.Role> feedbackGiverRole = participantRepository
+                        .findBySessionIdAndUserId(session.getId(), senderId)
+                        .map(SessionParticipant::getRole)
+                        .or(() -> sessionArchiveService.findRole(feedback.getSessionId(), senderId));
+
+                if (feedbackGiverRole.isPresent()) {
+                    feedbackInfo.put("fromUserRole", feedbackGiverRole.get().toString().toLowerCase());
                 } else {
                     feedbackInfo.put("fromUserRole", "unknown");
                 }
@@ -512,12 +479,18 @@ public class FeedbackController {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Session session = sessionRepository.findByCode(sessionCode)
+            // Codes are reused once a session is archived: a live session with this code is only the
+            // right one if the user took part in it, otherwise look for an archived one they were in
+            Optional<Session> liveSession = sessionService.findSessionByCode(sessionCode)
+                    .filter(live -> sessionService.findParticipant(live, user.getId()).isPresent());
+            Session session = liveSession
+                    .or(() -> sessionArchiveService.findSessionForParticipant(sessionCode, user.getId()))
                     .orElseThrow(() -> new RuntimeException("Session not found"));
 
             // Check if user was a participant in this session
-            Optional<SessionParticipant> participation = participantRepository
-                    .findBySessionIdAndUserId(session.getId(), user.getId());
+            Optional<SessionParticipant.Role> participation = liveSession.isPresent()
+                    ? sessionService.findParticipant(session, user.getId()).map(SessionParticipant::getRole)
+                    : sessionArchiveService.findRole(session.getId(), user.getId());
 
             if (participation.isEmpty()) {
                 Map<String, Object> errorResponse = new HashMap<>();
@@ -0,0 +1,95 @@
+package com.plabpractice.api.controller;
+
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.UserRepository;
+import com.plabpractice.api.service.MatchmakingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/matchmaking")
+@CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001", "http://localhost:5173" })
+public class MatchmakingController {
+
+    @Autowired
+    private MatchmakingService matchmakingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PostMapping
+    public ResponseEntity<?> enqueue(@RequestBody Map<String, Object> requestData, Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            String role = (String) requestData.get("role");
+            if (role == null) {
+                throw new RuntimeException("Role is required");
+            }
+            @SuppressWarnings("unchecked")
+            List<String> topics = (List<String>) requestData.getOrDefault("topics", List.of());
+
+            SessionParticipant.Role preferredRole;
+            try {
+                preferredRole = SessionParticipant.Role.valueOf(role.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Role must be DOCTOR, PATIENT or OBSERVER");
+            }
+            matchmakingService.enqueue(user, preferredRole, topics);
+
+            // Already matched if the ticket is gone - the session code arrives on the user queue
+            Map<String, Object> response = new HashMap<>();
+            Optional<Map<String, Object>> status = matchmakingService.getStatus(user);
+            response.put("queued", status.isPresent());
+            status.ifPresent(response::putAll);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to join matchmaking: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> leave(Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("cancelled", matchmakingService.cancel(user));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to leave matchmaking: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getStatus(Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            Map<String, Object> response = new HashMap<>();
+            Optional<Map<String, Object>> status = matchmakingService.getStatus(user);
+            response.put("queued", status.isPresent());
+            status.ifPresent(response::putAll);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to get matchmaking status: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package com.plabpractice.api.controller;
 
+import com.plabpractice.api.dto.CohortSessionRequest;
+import com.plabpractice.api.dto.LobbySnapshotDTO;
 import com.plabpractice.api.dto.SessionParticipantDTO;
 import com.plabpractice.api.model.Session;
 import com.plabpractice.api.model.SessionParticipant;
 import com.plabpractice.api.model.User;
 import com.plabpractice.api.model.Category;
 import com.plabpractice.api.model.Case;
-import com.plabpractice.api.repository.SessionRepository;
+import com.plabpractice.api.model.CaseIdSet;
 import com.plabpractice.api.repository.UserRepository;
 import com.plabpractice.api.repository.CategoryRepository;
 import com.plabpractice.api.repository.CaseRepository;
 import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.service.CaseDeckService;
+import com.plabpractice.api.service.CaseSampler;
+import com.plabpractice.api.service.ClusterBroadcaster;
+import com.plabpractice.api.service.SessionArchiveService;
+import com.plabpractice.api.service.SessionCohortService;
+import com.plabpractice.api.service.SessionEventLog;
+import com.plabpractice.api.service.SessionLobby;
+import com.plabpractice.api.service.SessionMetrics;
+import com.plabpractice.api.service.SessionMailbox;
 import com.plabpractice.api.service.SessionService;
 import com.plabpractice.api.service.SessionWebSocketService;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.security.core.Authentication;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -29,7 +46,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -40,9 +56,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @CrossOrigin(origins = { "http://localhost:3000", "http://localhost:3001", "http://localhost:5173" })
 public class SessionController {
 
-    @Autowired
-    private SessionRepository sessionRepository;
-
     @Autowired
     private CategoryRepository categoryRepository;
 
@@ -61,9 +74,36 @@ public class SessionController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
     @Autowired
     private SessionWebSocketService webSocketService;
 
+    @Autowired
+    private CaseDeckService caseDeckService;
+
+    @Autowired
+    private CaseSampler caseSampler;
+
+    @Autowired
+    private SessionMetrics sessionMetrics;
+
+    @Autowired
+    private SessionLobby sessionLobby;
+
+    @Autowired
+    private SessionMailbox sessionMailbox;
+
+    @Autowired
+    private SessionCohortService sessionCohortService;
+
+    @Autowired
+    private SessionEventLog sessionEventLog;
+
+    @Autowired
+    private SessionArchiveService sessionArchiveService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -103,7 +143,8 @@ public class SessionController {
 
             // Notify other sessions about user leaving
             for (Session leftSession : leftSessions) {
-                webSocketService.handleUserLeave(leftSession.getCode(), user);
+                sessionMailbox.execute(leftSession.getCode(),
+                        () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
             }
 
             Map<String, Object> response = new HashMap<>();
@@ -119,6 +160,59 @@ public class SessionController {
         }
     }
 
+    @PostMapping("/cohort")
+    public ResponseEntity<?> createCohortSessions(@RequestBody CohortSessionRequest request, Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            List<SessionCohortService.CohortSession> sessions = sessionCohortService.createCohort(request, user);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("sessionCodes", sessions.stream().map(SessionCohortService.CohortSession::code).toList());
+            response.put("sessions", sessions);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to create cohort sessions: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Replay a session's event log - joins, role and phase changes, cases and
+     * feedback - oldest first. Also works after the session has been archived.
+     */
+    @GetMapping("/{sessionCode}/timeline")
+    public ResponseEntity<?> getSessionTimeline(@PathVariable String sessionCode, Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            // Only people who took part, the host (or admins) may replay a session. Codes are reused
+            // once a session is archived: a live session with this code is only the right one if the
+            // user took part in or hosts it, otherwise look for an archived one they were in or hosted
+            boolean admin = user.getRole() == User.Role.ADMIN;
+            Session session = sessionService.findSessionByCode(sessionCode)
+                    .filter(live -> admin || sessionService.isUserHost(sessionCode, user)
+                            || sessionService.findParticipant(live, user.getId()).isPresent())
+                    .or(() -> sessionArchiveService.findSessionForParticipant(sessionCode, user.getId()))
+                    .or(() -> sessionArchiveService.findSessionForHost(sessionCode, user.getId()))
+                    .orElseThrow(() -> new RuntimeException("Session not found"));
+
+            List<SessionEventLog.SessionEvent> events = sessionEventLog.timeline(session.getId());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("sessionCode", sessionCode);
+            response.put("events", events);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to get session timeline: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     @PostMapping("/create")
     public ResponseEntity<?> createSessionOld(@RequestBody CreateSessionRequest request, Authentication auth) {
         try {
@@ -132,7 +226,8 @@ public class SessionController {
 
             // Notify other sessions about user leaving
             for (Session leftSession : leftSessions) {
-                webSocketService.handleUserLeave(leftSession.getCode(), user);
+                sessionMailbox.execute(leftSession.getCode(),
+                        () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
             }
 
             Map<String, Object> response = new HashMap<>();
@@ -210,6 +305,11 @@ public class SessionController {
     public ResponseEntity<?> joinSessionWithRole(@PathVariable String sessionCode,
             @RequestBody Map<String, String> roleData,
             Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> joinSessionWithRoleInSession(sessionCode, roleData, auth));
+    }
+
+    private ResponseEntity<?> joinSessionWithRoleInSession(String sessionCode, Map<String, String> roleData,
+            Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -221,7 +321,8 @@ public class SessionController {
 
             // Notify other sessions about user leaving
             for (Session leftSession : leftSessions) {
-                webSocketService.handleUserLeave(leftSession.getCode(), user);
+                sessionMailbox.execute(leftSession.getCode(),
+                        () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
             }
 
             Session session = sessionService.joinSessionWithRole(sessionCode, role, user);
@@ -276,6 +377,11 @@ public class SessionController {
     @PostMapping("/{sessionCode}/configure")
     public ResponseEntity<?> configureSession(@PathVariable String sessionCode,
             @RequestBody Map<String, Object> config, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> configureSessionInSession(sessionCode, config, auth));
+    }
+
+    private ResponseEntity<?> configureSessionInSession(String sessionCode, Map<String, Object> config,
+            Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -299,45 +405,23 @@ public class SessionController {
                     String recallStartDate = (String) config.get("recallStartDate");
                     String recallEndDate = (String) config.get("recallEndDate");
 
-                    List<Case> allRecallCases = caseRepository.findByIsRecallCaseTrue();
-
-                    List<Case> filteredCases = new ArrayList<>();
+                    Set<Long> usedIds = existingSession.getUsedCaseIds() != null
+                            ? existingSession.getUsedCaseIds()
+                            : Set.of();
 
+                    Optional<Case> picked = Optional.empty();
                     if (recallStartDate != null && recallEndDate != null) {
                         // Date range mode
-
-                        filteredCases = allRecallCases.stream()
-                                .filter(c -> {
-                                    if (c.getRecallDates() == null) {
-                                        return false;
-                                    }
-
-                                    boolean hasDateInRange = c.getRecallDates().stream()
-                                            .anyMatch(date -> date.compareTo(recallStartDate) >= 0 &&
-                                                    date.compareTo(recallEndDate) <= 0);
-
-                                    return hasDateInRange;
-                                })
-                                .filter(c -> {
-                                    boolean notUsed = existingSession.getUsedCaseIds() == null ||
-                                            !existingSession.getUsedCaseIds().contains(c.getId());
-                                    return notUsed;
-                                })
-                                .collect(Collectors.toList());
+                        picked = caseSampler.randomRecallCase(LocalDate.parse(recallStartDate),
+                                LocalDate.parse(recallEndDate), usedIds);
                     } else if (recallDate != null && !recallDate.isEmpty()) {
                         // Single date mode (backward compatibility)
-                        System.out.println("🔍 Using single date mode: " + recallDate);
-                        filteredCases = allRecallCases.stream()
-                                .filter(c -> c.getRecallDates() != null && c.getRecallDates().contains(recallDate))
-                                .filter(c -> existingSession.getUsedCaseIds() == null ||
-                                        !existingSession.getUsedCaseIds().contains(c.getId()))
-                                .collect(Collectors.toList());
+                        LocalDate date = LocalDate.parse(recallDate);
+                        picked = caseSampler.randomRecallCase(date, date, usedIds);
                     }
 
-                    System.out.println("✅ Filtered cases count: " + filteredCases.size());
-
-                    if (!filteredCases.isEmpty()) {
-                        selectedCase = filteredCases.get((int) (Math.random() * filteredCases.size()));
+                    if (picked.isPresent()) {
+                        selectedCase = picked.get();
                         System.out.println(
                                 "🎯 Selected case: " + selectedCase.getId() + " (" + selectedCase.getTitle() + ")");
                     } else {
@@ -349,40 +433,15 @@ public class SessionController {
                     List<String> selectedTopics = (List<String>) config.get("selectedTopics");
 
                     if (selectedTopics != null && !selectedTopics.isEmpty()) {
-                        List<Case> allTopicCases;
-
-                        if (selectedTopics.contains("Random")) {
-                            allTopicCases = caseRepository.findAll();
-                        } else {
-                            allTopicCases = caseRepository.findByCategoryNameIn(selectedTopics);
-                        }
-
-                        // Filter out cases that have already been used (same logic as new case)
-                        List<Long> usedIds = existingSession.getUsedCaseIds() != null
+                        Set<Long> usedIds = existingSession.getUsedCaseIds() != null
                                 ? existingSession.getUsedCaseIds()
-                                : new ArrayList<>();
-
-                        List<Case> availableCases = allTopicCases.stream()
-                                .filter(c -> !usedIds.contains(c.getId()))
-                                .collect(Collectors.toList());
-
-                        System.out.println("🔍 Initial case selection for topic-based session:");
-                        System.out.println("   Total cases for topics " + selectedTopics + ": " + allTopicCases.size());
-                        System.out.println("   Used case IDs to exclude: " + usedIds);
-                        System.out.println("   Available cases after filtering: " + availableCases.size());
-
-                        if (!availableCases.isEmpty()) {
-                            selectedCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                            System.out.println("🎯 Selected initial case: " + selectedCase.getId() + " ("
-                                    + selectedCase.getTitle() + ")");
-                        } else if (!allTopicCases.isEmpty()) {
-                            // If all cases for these topics have been used, reset and use any case
-                            System.out.println(
-                                    "🔄 All cases for selected topics used, resetting and selecting random case");
-                            selectedCase = allTopicCases.get((int) (Math.random() * allTopicCases.size()));
-                            System.out.println("🔄 Reset scenario - selected: " + selectedCase.getId() + " ("
-                                    + selectedCase.getTitle() + ")");
-                        }
+                                : Set.of();
+
+                        // Prefer a case not used yet; if every case for these topics has been
+                        // used, start over with any of them
+                        selectedCase = pickTopicCase(selectedTopics, usedIds)
+                                .or(() -> pickTopicCase(selectedTopics, Set.of()))
+                                .orElse(null);
                     }
                 }
             }
@@ -427,6 +486,11 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/start")
     public ResponseEntity<?> startSession(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> startSessionInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> startSessionInSession(String sessionCode, Authentication auth) {
+        Timer.Sample sample = sessionMetrics.start();
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -456,6 +520,7 @@ public class SessionController {
             // Start the timer - this will save the session internally
             webSocketService.startTimer(session);
 
+            sessionMetrics.stop(sample, SessionMetrics.START, session);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
@@ -466,6 +531,10 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/skip-phase")
     public ResponseEntity<?> skipPhase(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> skipPhaseInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> skipPhaseInSession(String sessionCode, Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -484,6 +553,11 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/new-case")
     public ResponseEntity<?> requestNewCase(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> requestNewCaseInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> requestNewCaseInSession(String sessionCode, Authentication auth) {
+        Timer.Sample sample = sessionMetrics.start();
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -511,17 +585,16 @@ public class SessionController {
             // CRITICAL: Ensure usedCaseIds is initialized and current case is marked as
             // used
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
+                session.setUsedCaseIds(new CaseIdSet());
             }
 
             // IMPORTANT: Mark the current case as used BEFORE selecting a new case
             if (currentCase != null) {
-                if (!session.getUsedCaseIds().contains(currentCase.getId())) {
-                    session.getUsedCaseIds().add(currentCase.getId());
+                if (session.getUsedCaseIds().add(currentCase.getId())) {
                     System.out.println("🔒 Marked current case " + currentCase.getId() + " (" + currentCase.getTitle()
                             + ") as used");
                     // Save immediately to ensure persistence
-                    sessionRepository.save(session);
+                    sessionService.saveSession(session);
                     System.out.println("💾 Session saved. Used cases: " + session.getUsedCaseIds());
                 } else {
                     System.out.println("ℹ️ Current case " + currentCase.getId() + " (" + currentCase.getTitle()
@@ -530,58 +603,22 @@ public class SessionController {
             }
 
             if (session.getSessionType() == Session.SessionType.RECALL) {
-                // For recall sessions, select from recall cases within date range
+                // For recall sessions, draw from the deck of recall cases within date range
                 if (session.getRecallStartDate() != null && session.getRecallEndDate() != null) {
-                    // Date range mode
-                    List<Case> allRecallCases = caseRepository.findByIsRecallCaseTrue();
-                    List<Case> availableCases = allRecallCases.stream()
-                            .filter(c -> c.getRecallDates() != null &&
-                                    c.getRecallDates().stream().anyMatch(
-                                            date -> date.compareTo(session.getRecallStartDate().toString()) >= 0 &&
-                                                    date.compareTo(session.getRecallEndDate().toString()) <= 0))
-                            .filter(c -> session.getUsedCaseIds() == null ||
-                                    !session.getUsedCaseIds().contains(c.getId()))
-                            .collect(Collectors.toList());
-
-                    if (!availableCases.isEmpty()) {
-                        newCase = availableCases.get((int) (Math.random() * availableCases.size()));
-                    }
+                    newCase = caseDeckService.drawNextCase(session).orElse(null);
                 } else {
                     // Single date mode (if somehow still using old format)
                     throw new RuntimeException("Recall session missing date range information");
                 }
             } else {
-                // For topic-based sessions, select from same category but exclude used cases
+                // For topic-based sessions, draw the next unused case of the same category
                 if (currentCase == null || currentCase.getCategory() == null) {
                     throw new RuntimeException("No category information available");
                 }
 
-                // Get all cases in the same category excluding used ones
-                List<Case> categoryCases = caseRepository.findByCategoryId(currentCase.getCategory().getId());
-                System.out.println("📋 Total cases in category " + currentCase.getCategory().getId() + ": "
-                        + categoryCases.size());
-                System.out.println("📋 Used cases to exclude: " + session.getUsedCaseIds());
-
-                // Filter out cases that have already been used (BULLETPROOF LOGIC)
-                List<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds() : new ArrayList<>();
-                List<Case> availableCases = categoryCases.stream()
-                        .filter(c -> !usedIds.contains(c.getId()))
-                        .collect(Collectors.toList());
-
-                System.out.println("🔍 Filtering logic:");
-                System.out.println("   Used case IDs to exclude: " + usedIds);
-                categoryCases.forEach(c -> {
-                    boolean isUsed = usedIds.contains(c.getId());
-                    System.out.println("   Case " + c.getId() + " (" + c.getTitle() + "): " +
-                            (isUsed ? "❌ EXCLUDED (used)" : "✅ AVAILABLE"));
-                });
-
-                System.out.println("✅ Available cases after filtering: " + availableCases.size());
-                availableCases
-                        .forEach(c -> System.out.println("   - Case ID: " + c.getId() + ", Title: " + c.getTitle()));
-
-                if (!availableCases.isEmpty()) {
-                    newCase = availableCases.get((int) (Math.random() * availableCases.size()));
+                newCase = caseDeckService.drawNextCase(session).orElse(null);
+
+                if (newCase != null) {
                     System.out.println("🎯 Selected new case: " + newCase.getId() + " (" + newCase.getTitle() + ")");
                 } else {
                     // No more cases available in this category - offer new topic selection
@@ -610,7 +647,7 @@ public class SessionController {
                         session.setStatus(Session.Status.COMPLETED);
                         session.setPhase(Session.Phase.COMPLETED);
                         session.setEndTime(LocalDateTime.now());
-                        sessionRepository.save(session);
+                        sessionService.saveSession(session);
 
                         // Notify all participants that session is complete
                         webSocketService.endSession(sessionCode,
@@ -633,7 +670,7 @@ public class SessionController {
                     session.setStatus(Session.Status.COMPLETED);
                     session.setPhase(Session.Phase.COMPLETED);
                     session.setEndTime(LocalDateTime.now());
-                    sessionRepository.save(session);
+                    sessionService.saveSession(session);
 
                     // Notify all participants that session is complete
                     webSocketService.endSession(sessionCode,
@@ -659,11 +696,9 @@ public class SessionController {
 
             // Track the new case as used
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
-            }
-            if (!session.getUsedCaseIds().contains(newCase.getId())) {
-                session.getUsedCaseIds().add(newCase.getId());
+                session.setUsedCaseIds(new CaseIdSet());
             }
+            session.getUsedCaseIds().add(newCase.getId());
 
             // Reset session participants' completion status
             sessionService.resetParticipantStatus(sessionCode);
@@ -677,6 +712,7 @@ public class SessionController {
             // Start the timer for the new reading phase - saves session internally
             webSocketService.startTimer(session);
 
+            sessionMetrics.stop(sample, SessionMetrics.NEW_CASE, session);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
@@ -687,6 +723,10 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/complete")
     public ResponseEntity<?> completeSession(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> completeSessionInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> completeSessionInSession(String sessionCode, Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -750,6 +790,10 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/leave")
     public ResponseEntity<?> leaveSession(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> leaveSessionInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> leaveSessionInSession(String sessionCode, Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -775,19 +819,19 @@ public class SessionController {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Session session = sessionRepository.findByCode(sessionCode)
+            Session session = sessionService.findSessionByCode(sessionCode)
                     .orElseThrow(() -> new RuntimeException("Session not found"));
 
             // Check if user is a participant in this session
-            if (!sessionParticipantRepository.existsBySessionIdAndUserId(session.getId(), user.getId())) {
+            if (sessionService.findParticipant(session, user.getId()).isEmpty()) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", "You are not a participant in this session");
                 return ResponseEntity.badRequest().body(errorResponse);
             }
 
             // Check if there's an active observer in the session
-            List<SessionParticipant> observers = sessionParticipantRepository
-                    .findBySessionIdAndRole(session.getId(), SessionParticipant.Role.OBSERVER)
+            List<SessionParticipant> observers = sessionService
+                    .getParticipantsWithRole(session, SessionParticipant.Role.OBSERVER)
                     .stream()
                     .filter(SessionParticipant::getIsActive)
                     .collect(Collectors.toList());
@@ -817,6 +861,64 @@ public class SessionController {
         }
     }
 
+    /**
+     * Full SESSION_UPDATE snapshot with its state version, for the initial
+     * load. State versions are numbered per node and this request may reach a
+     * node other than the one holding the client's WebSocket, so clients
+     * resync after a missed SESSION_DELTA through resyncSessionState instead.
+     */
+    @GetMapping("/{sessionCode}/state")
+    public ResponseEntity<?> getSessionState(@PathVariable String sessionCode, Authentication auth) {
+        try {
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
+            if (!sessionOpt.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            Session session = sessionOpt.get();
+
+            if (sessionService.findParticipant(session, user.getId()).isEmpty()) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "You are not a participant in this session");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+
+            sessionService.updateSessionTimerInfo(session);
+            return ResponseEntity.ok(webSocketService.getSessionSnapshot(session));
+
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to get session state: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Resync over the WebSocket: answered by the node the client is connected
+     * to, on that connection only, so the snapshot version is in the same
+     * numbering as the SESSION_UPDATE/SESSION_DELTA stream the client holds.
+     */
+    @MessageMapping("/session/{sessionCode}/state")
+    @SendToUser(destinations = "/queue/session-state", broadcast = false)
+    public Map<String, Object> resyncSessionState(@DestinationVariable String sessionCode,
+            SimpMessageHeaderAccessor headers) {
+        Map<String, Object> attributes = headers.getSessionAttributes();
+        Object username = attributes != null ? attributes.get("username") : null;
+        if (username == null) {
+            return null;
+        }
+        Optional<User> user = userRepository.findByEmail(username.toString());
+        Optional<Session> session = sessionService.findSessionByCode(sessionCode);
+        if (user.isEmpty() || session.isEmpty()
+                || sessionService.findParticipant(session.get(), user.get().getId()).isEmpty()) {
+            return null;
+        }
+        sessionService.updateSessionTimerInfo(session.get());
+        return webSocketService.getSessionSnapshot(session.get());
+    }
+
     @GetMapping("/{sessionCode}")
     public ResponseEntity<?> getSessionByCode(@PathVariable String sessionCode, Authentication auth) {
         try {
@@ -940,6 +1042,10 @@ public class SessionController {
 
     @PostMapping("/join/{sessionCode}")
     public ResponseEntity<?> joinSessionOld(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> joinSessionOldInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> joinSessionOldInSession(String sessionCode, Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -949,7 +1055,8 @@ public class SessionController {
 
             // Notify other sessions about user leaving
             for (Session leftSession : leftSessions) {
-                webSocketService.handleUserLeave(leftSession.getCode(), user);
+                sessionMailbox.execute(leftSession.getCode(),
+                        () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
             }
 
             Optional<Session> sessionOpt = sessionService.joinSession(sessionCode, user);
@@ -997,36 +1104,18 @@ public class SessionController {
 
     @MessageMapping("/session.message")
     public void handleSessionMessage(@Payload SessionMessage message) {
-        messagingTemplate.convertAndSend(
-                "/topic/session/" + message.getSessionCode() + "/messages",
-                message);
+        String destination = "/topic/session/" + message.getSessionCode() + "/messages";
+        messagingTemplate.convertAndSend(destination, message, converted -> {
+            clusterBroadcaster.publish(destination, converted);
+            return converted;
+        });
     }
 
     @GetMapping("/active")
     public ResponseEntity<?> getActiveSessions() {
         try {
-            // Use optimized method that avoids loading heavy session data
-            List<Session> activeSessions = sessionService.getActiveSessionsOptimized();
-
-            // Convert to DTOs using optimized participant count
-            List<Map<String, Object>> sessionDTOs = activeSessions.stream()
-                    .map(session -> {
-                        Map<String, Object> sessionData = new HashMap<>();
-                        sessionData.put("id", session.getId());
-                        sessionData.put("title", session.getTitle());
-                        sessionData.put("code", session.getCode());
-                        sessionData.put("status", session.getStatus());
-                        sessionData.put("phase", session.getPhase());
-                        sessionData.put("createdAt", session.getCreatedAt());
-                        sessionData.put("startTime", session.getStartTime());
-                        // Use optimized count method to avoid N+1 queries
-                        long participantCount = sessionParticipantRepository
-                                .countBySessionIdAndIsActive(session.getId(), true);
-                        sessionData.put("participantCount", participantCount);
-                        return sessionData;
-                    })
-                    .toList();
-            return ResponseEntity.ok(sessionDTOs);
+            // Served from the in-memory lobby - no database queries
+            return ResponseEntity.ok(sessionLobby.snapshot().getSessions());
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to get active sessions: " + e.getMessage());
@@ -1034,12 +1123,42 @@ public class SessionController {
         }
     }
 
+    /**
+     * Lobby snapshot with its version, for listing sessions without a
+     * WebSocket. Lobby versions are numbered per node, so clients applying
+     * /topic/lobby deltas take their snapshot through subscribeLobby instead.
+     */
+    @GetMapping("/lobby")
+    public ResponseEntity<?> getLobby() {
+        try {
+            return ResponseEntity.ok(sessionLobby.snapshot());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to get lobby: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Lobby snapshot sent back on subscribing to /app/lobby - from the node
+     * holding the connection, so its version matches the /topic/lobby deltas
+     * that connection receives. Subscribe to /topic/lobby first.
+     */
+    @SubscribeMapping("/lobby")
+    public LobbySnapshotDTO subscribeLobby() {
+        return sessionLobby.snapshot();
+    }
+
     @GetMapping("/history")
-    public ResponseEntity<?> getSessionHistory(Authentication auth) {
+    public ResponseEntity<?> getSessionHistory(Authentication auth,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
         try {
-            // For now, return empty list
-            // TODO: Implement user-specific session history
-            return ResponseEntity.ok(List.of());
+            User user = userRepository.findByEmail(auth.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            // Keyset-paginated, newest first - pass nextCursor back for the following page
+            return ResponseEntity.ok(sessionService.getSessionHistory(user.getId(), cursor, limit));
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to fetch session history: " + e.getMessage());
@@ -1153,6 +1272,11 @@ public class SessionController {
     public ResponseEntity<?> selectNewTopic(@PathVariable String sessionCode,
             @RequestBody Map<String, String> requestData,
             Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> selectNewTopicInSession(sessionCode, requestData, auth));
+    }
+
+    private ResponseEntity<?> selectNewTopicInSession(String sessionCode, Map<String, String> requestData,
+            Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -1192,23 +1316,23 @@ public class SessionController {
                 throw new RuntimeException("Error updating topics: " + e.getMessage());
             }
 
-            // Select a random case from the new topic
-            List<Case> topicCases = caseRepository.findByCategoryNameIn(List.of(newTopic));
-            if (topicCases.isEmpty()) {
-                throw new RuntimeException("No cases found for topic: " + newTopic);
-            }
-
-            Case newCase = topicCases.get((int) (Math.random() * topicCases.size()));
+            // Select a random unused case from the new topic, or any of its cases if all were used
+            Set<Long> usedIds = session.getUsedCaseIds() != null ? session.getUsedCaseIds() : Set.of();
+            List<String> newTopics = List.of(newTopic);
+            Case newCase = pickTopicCase(newTopics, usedIds)
+                    .or(() -> pickTopicCase(newTopics, Set.of()))
+                    .orElseThrow(() -> new RuntimeException("No cases found for topic: " + newTopic));
             session.setSelectedCase(newCase);
             session.setPhase(Session.Phase.READING);
 
             // Track the new case as used
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
-            }
-            if (!session.getUsedCaseIds().contains(newCase.getId())) {
-                session.getUsedCaseIds().add(newCase.getId());
+                session.setUsedCaseIds(new CaseIdSet());
             }
+            session.getUsedCaseIds().add(newCase.getId());
+
+            // Next cases come from the new topic's deck
+            caseDeckService.prepareDeck(session);
 
             // Reset participant status
             sessionService.resetParticipantStatus(sessionCode);
@@ -1236,6 +1360,10 @@ public class SessionController {
 
     @PostMapping("/{sessionCode}/end")
     public ResponseEntity<?> endSession(@PathVariable String sessionCode, Authentication auth) {
+        return sessionMailbox.call(sessionCode, () -> endSessionInSession(sessionCode, auth));
+    }
+
+    private ResponseEntity<?> endSessionInSession(String sessionCode, Authentication auth) {
         try {
             User user = userRepository.findByEmail(auth.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
@@ -1254,7 +1382,7 @@ public class SessionController {
             session.setStatus(Session.Status.COMPLETED);
             session.setPhase(Session.Phase.COMPLETED);
             session.setEndTime(LocalDateTime.now());
-            sessionRepository.save(session);
+            sessionService.saveSession(session);
 
             System.out.println("🏁 Session " + sessionCode + " ended by doctor " + user.getName());
 
@@ -1273,6 +1401,18 @@ public class SessionController {
         }
     }
 
+    /**
+     * Random case from the given topics ("Random" means any category),
+     * skipping excluded IDs - picked by the case sampler rather than loading
+     * every candidate case.
+     */
+    private Optional<Case> pickTopicCase(List<String> topics, Set<Long> excludeIds) {
+        if (topics.contains("Random")) {
+            return caseSampler.randomCase(excludeIds);
+        }
+        return caseSampler.randomCaseInCategories(topics, excludeIds);
+    }
+
     private List<String> getAvailableTopics(Session session, String excludeTopic) {
         try {
             // Get all categories
@@ -1302,11 +1442,6 @@ public class SessionController {
         }
     }
 
-    private String generateSessionCode() {
-        Random random = new Random();
-        return String.format("%06d", random.nextInt(999999));
-    }
-
     public static class CreateSessionRequest {
         private String title;
 
@@ -0,0 +1,35 @@
+package com.plabpractice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Bulk creation of sessions for a class. Sessions are titled
+ * "{title} 1".."{title} N"; roster triads (user emails, any role may be left
+ * empty) are assigned to the sessions in order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CohortSessionRequest {
+    private String title;
+    private Integer count;
+    private String sessionType = "TOPIC";
+    private Double readingTime = 2.0;
+    private Double consultationTime = 8.0;
+    private String timingType = "COUNTDOWN";
+    private List<String> selectedTopics = List.of("Random");
+    private List<Triad> roster = List.of();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Triad {
+        private String doctor;
+        private String patient;
+        private String observer;
+    }
+}
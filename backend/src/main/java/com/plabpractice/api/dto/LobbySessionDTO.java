@@ -0,0 +1,25 @@
+package com.plabpractice.api.dto;
+
+import com.plabpractice.api.model.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A joinable session as listed in the lobby.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LobbySessionDTO {
+    private Long id;
+    private String title;
+    private String code;
+    private Session.Status status;
+    private Session.Phase phase;
+    private LocalDateTime createdAt;
+    private LocalDateTime startTime;
+    private long participantCount;
+}
@@ -0,0 +1,19 @@
+package com.plabpractice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The lobby at a given version. Deltas on {@code /topic/lobby} with a version
+ * at or below this one are already reflected in the snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LobbySnapshotDTO {
+    private long version;
+    private List<LobbySessionDTO> sessions;
+}
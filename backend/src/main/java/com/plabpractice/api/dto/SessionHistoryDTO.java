@@ -0,0 +1,29 @@
+package com.plabpractice.api.dto;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's session history - the session, the user's role in it
+ * and its participant count, read by a single projection query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionHistoryDTO {
+    private Long id;
+    private String title;
+    private String code;
+    private Session.Status status;
+    private Session.SessionType sessionType;
+    private LocalDateTime createdAt;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private SessionParticipant.Role role;
+    private long participantCount;
+}
@@ -0,0 +1,19 @@
+package com.plabpractice.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of session history, newest first. Pass {@code nextCursor} back to
+ * get the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionHistoryPageDTO {
+    private List<SessionHistoryDTO> sessions;
+    private String nextCursor;
+}
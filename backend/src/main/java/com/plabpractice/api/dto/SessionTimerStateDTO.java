@@ -0,0 +1,24 @@
+package com.plabpractice.api.dto;
+
+import com.plabpractice.api.model.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Timer fields of an in-progress session, read in one projection query to
+ * re-arm phase timers after a restart.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionTimerStateDTO {
+    private String code;
+    private Session.Phase phase;
+    private Double readingTime;
+    private Double consultationTime;
+    private LocalDateTime phaseStartTime;
+    private Long timerStartTimestamp;
+}
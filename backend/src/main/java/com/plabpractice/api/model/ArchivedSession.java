@@ -0,0 +1,84 @@
+package com.plabpractice.api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A finished session moved out of {@code sessions} by the archival job.
+ * Read-only; kept so feedback on old sessions still resolves.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "sessions_archive", indexes = {
+        @Index(name = "idx_sessions_archive_code", columnList = "session_code")
+})
+public class ArchivedSession {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(name = "session_code", nullable = false)
+    private String code;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Session.Status status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "session_type", nullable = false)
+    private Session.SessionType sessionType;
+
+    @Column(name = "case_id")
+    private Long caseId;
+
+    @Column(name = "current_round", nullable = false)
+    private Integer currentRound;
+
+    @Column(name = "recall_start_date")
+    private LocalDate recallStartDate;
+
+    @Column(name = "recall_end_date")
+    private LocalDate recallEndDate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalDateTime startTime;
+
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
+    @Column(name = "created_by")
+    private Long createdById;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * Detached {@link Session} carrying the archived fields, for code that
+     * renders sessions. Never save it.
+     */
+    public Session toSession() {
+        Session session = new Session();
+        session.setId(id);
+        session.setTitle(title);
+        session.setCode(code);
+        session.setStatus(status);
+        session.setPhase(Session.Phase.COMPLETED);
+        session.setSessionType(sessionType);
+        session.setCurrentRound(currentRound);
+        session.setRecallStartDate(recallStartDate);
+        session.setRecallEndDate(recallEndDate);
+        session.setCreatedAt(createdAt);
+        session.setStartTime(startTime);
+        session.setEndTime(endTime);
+        return session;
+    }
+}
@@ -0,0 +1,35 @@
+package com.plabpractice.api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A participant row moved to the archive together with its session.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "session_participants_archive", indexes = {
+        @Index(name = "idx_session_participants_archive_session_user", columnList = "session_id, user_id")
+})
+public class ArchivedSessionParticipant {
+    @Id
+    private Long id;
+
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SessionParticipant.Role role;
+
+    @Column(name = "has_completed", nullable = false)
+    private Boolean hasCompleted;
+
+    @Column(name = "has_given_feedback", nullable = false)
+    private Boolean hasGivenFeedback;
+}
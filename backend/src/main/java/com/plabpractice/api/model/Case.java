@@ -6,8 +6,13 @@ import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
@@ -108,6 +113,42 @@ public class Case {
     @Column(columnDefinition = "jsonb", name = "recall_dates")
     private List<String> recallDates; // Store dates as ISO strings (YYYY-MM-DD)
 
+    // Normalized copy of recallDates with a B-tree index on recall_date, so
+    // date-range queries don't have to expand the jsonb column row by row.
+    // Kept in sync by setRecallDates.
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "case_recall_dates", joinColumns = @JoinColumn(name = "case_id"))
+    @Column(name = "recall_date")
+    @JsonIgnore
+    private Set<LocalDate> recallDateValues = new HashSet<>();
+
+    // Last modification time - part of the cache key for role-filtered case views
+    @Column(name = "updated_at")
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void setRecallDates(List<String> recallDates) {
+        this.recallDates = recallDates;
+        // Replace rather than mutate, so an uninitialized lazy collection is never touched
+        Set<LocalDate> values = new HashSet<>();
+        if (recallDates != null) {
+            for (String date : recallDates) {
+                try {
+                    values.add(LocalDate.parse(date));
+                } catch (DateTimeParseException | NullPointerException e) {
+                    // Invalid dates stay in recallDates but are not indexed
+                }
+            }
+        }
+        this.recallDateValues = values;
+    }
+
     @Data
     @NoArgsConstructor
     public static class VisualData {
@@ -0,0 +1,48 @@
+package com.plabpractice.api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores a list of case IDs as a comma-separated string ("12,7,33") - more
+ * compact than a JSON array and cheap to parse.
+ */
+@Converter
+public class CaseIdListConverter implements AttributeConverter<List<Long>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(List<Long> ids) {
+        if (ids == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(ids.size() * 4);
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(ids.get(i));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public List<Long> convertToEntityAttribute(String value) {
+        List<Long> ids = new ArrayList<>();
+        if (value == null || value.isEmpty()) {
+            return ids;
+        }
+        int start = 0;
+        while (start < value.length()) {
+            int end = value.indexOf(',', start);
+            if (end < 0) {
+                end = value.length();
+            }
+            ids.add(Long.parseLong(value, start, end, 10));
+            start = end + 1;
+        }
+        return ids;
+    }
+}
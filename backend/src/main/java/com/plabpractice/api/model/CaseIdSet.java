@@ -0,0 +1,314 @@
+package com.plabpractice.api.model;
+
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compressed set of case IDs in the style of a Roaring bitmap.
+ *
+ * IDs are split into a high part (the container key) and their low 16 bits.
+ * Each key has a container holding the low bits: a sorted {@code char[]} while
+ * it has at most 4096 entries, a 1024-word bitmap once it is denser. Keys are
+ * kept sorted, so membership is a binary search over the keys plus a bit test
+ * or a binary search over at most 4096 chars - no boxing, no linear scan.
+ *
+ * Case IDs are sequential, so a session's used cases usually share a single
+ * container and serialize to a few bytes per ID (see {@link #toBytes()}).
+ * Removal is not supported - used cases are only ever added.
+ */
+public class CaseIdSet extends AbstractSet<Long> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final long MAX_ID = (1L << 47) - 1;
+
+    static final byte FORMAT_VERSION = 1;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private int[] keys = new int[0];
+    // char[] (sorted, possibly with spare capacity) or long[BITMAP_WORDS]
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int containerCount;
+    private int size;
+
+    public CaseIdSet() {
+    }
+
+    public CaseIdSet(Collection<Long> ids) {
+        addAll(ids);
+    }
+
+    public static CaseIdSet of(long... ids) {
+        CaseIdSet set = new CaseIdSet();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    public boolean contains(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, containerCount, (int) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && contains(id.longValue());
+    }
+
+    /**
+     * @return true if the ID was not in the set yet
+     */
+    public boolean add(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Case ID out of range: " + id);
+        }
+        int key = (int) (id >>> 16);
+        char low = (char) id;
+        int index = Arrays.binarySearch(keys, 0, containerCount, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key);
+        }
+
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+        } else {
+            char[] values = (char[]) container;
+            int cardinality = cardinalities[index];
+            int position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (cardinality == ARRAY_MAX) {
+                long[] bits = toBitmap(values, cardinality);
+                bits[low >>> 6] |= 1L << low;
+                containers[index] = bits;
+            } else {
+                if (cardinality == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+                    containers[index] = values;
+                }
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = low;
+            }
+        }
+        cardinalities[index]++;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        return add(id.longValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int index;
+            // Position in an array container, bit position in a bitmap
+            private int position;
+            private int remainingInContainer = containerCount > 0 ? cardinalities[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < containerCount;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long high = (long) keys[index] << 16;
+                long id;
+                if (containers[index] instanceof long[] bits) {
+                    int word = position >>> 6;
+                    long remaining = bits[word] & (-1L << position);
+                    while (remaining == 0) {
+                        remaining = bits[++word];
+                    }
+                    int bit = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                    id = high | bit;
+                    position = bit + 1;
+                } else {
+                    id = high | ((char[]) containers[index])[position++];
+                }
+                if (--remainingInContainer == 0) {
+                    index++;
+                    position = 0;
+                    remainingInContainer = index < containerCount ? cardinalities[index] : 0;
+                }
+                return id;
+            }
+        };
+    }
+
+    public CaseIdSet copy() {
+        CaseIdSet copy = new CaseIdSet();
+        copy.keys = Arrays.copyOf(keys, containerCount);
+        copy.cardinalities = Arrays.copyOf(cardinalities, containerCount);
+        copy.containers = new Object[containerCount];
+        for (int i = 0; i < containerCount; i++) {
+            copy.containers[i] = containers[i] instanceof long[] bits ? bits.clone()
+                    : Arrays.copyOf((char[]) containers[i], cardinalities[i]);
+        }
+        copy.containerCount = containerCount;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Serialized form: version (byte), container count (int), then per
+     * container its key (int), type (byte), cardinality - 1 (unsigned short)
+     * and either the sorted low bits (2 bytes each) or 1024 bitmap words.
+     */
+    public byte[] toBytes() {
+        int length = 1 + 4;
+        for (int i = 0; i < containerCount; i++) {
+            length += 4 + 1 + 2 + (containers[i] instanceof long[] ? BITMAP_WORDS * 8 : cardinalities[i] * 2);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(FORMAT_VERSION).putInt(containerCount);
+        for (int i = 0; i < containerCount; i++) {
+            buffer.putInt(keys[i]);
+            if (containers[i] instanceof long[] bits) {
+                buffer.put(BITMAP).putChar((char) (cardinalities[i] - 1));
+                for (long word : bits) {
+                    buffer.putLong(word);
+                }
+            } else {
+                buffer.put(ARRAY).putChar((char) (cardinalities[i] - 1));
+                char[] values = (char[]) containers[i];
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    buffer.putChar(values[j]);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Read the form written by {@link #toBytes()}. Array containers may hold
+     * more than 4096 entries (the SQL migration writes only arrays); they are
+     * turned into bitmaps here.
+     */
+    public static CaseIdSet fromBytes(byte[] bytes) {
+        CaseIdSet set = new CaseIdSet();
+        if (bytes == null || bytes.length == 0) {
+            return set;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported case ID set version: " + version);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / 7) {
+                throw new IllegalArgumentException("Invalid case ID set container count: " + count);
+            }
+            set.keys = new int[count];
+            set.containers = new Object[count];
+            set.cardinalities = new int[count];
+            for (int i = 0; i < count; i++) {
+                int key = buffer.getInt();
+                if (key < 0 || (i > 0 && key <= set.keys[i - 1])) {
+                    throw new IllegalArgumentException("Case ID set keys out of order");
+                }
+                byte type = buffer.get();
+                int cardinality = buffer.getChar() + 1;
+                if (type == BITMAP) {
+                    long[] bits = new long[BITMAP_WORDS];
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        bits[w] = buffer.getLong();
+                    }
+                    int bitCount = 0;
+                    for (long word : bits) {
+                        bitCount += Long.bitCount(word);
+                    }
+                    if (bitCount != cardinality) {
+                        throw new IllegalArgumentException("Case ID set bitmap cardinality mismatch");
+                    }
+                    set.containers[i] = bits;
+                } else if (type == ARRAY) {
+                    char[] values = new char[cardinality];
+                    for (int j = 0; j < cardinality; j++) {
+                        values[j] = buffer.getChar();
+                        if (j > 0 && values[j] <= values[j - 1]) {
+                            throw new IllegalArgumentException("Case ID set values out of order");
+                        }
+                    }
+                    set.containers[i] = cardinality > ARRAY_MAX ? toBitmap(values, cardinality) : values;
+                } else {
+                    throw new IllegalArgumentException("Unknown case ID set container type: " + type);
+                }
+                set.keys[i] = key;
+                set.cardinalities[i] = cardinality;
+                set.containerCount++;
+                set.size += cardinality;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated case ID set", e);
+        }
+        return set;
+    }
+
+    private void insertContainer(int index, int key) {
+        if (containerCount == keys.length) {
+            int capacity = Math.max(2, containerCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        int moved = containerCount - index;
+        System.arraycopy(keys, index, keys, index + 1, moved);
+        System.arraycopy(containers, index, containers, index + 1, moved);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, moved);
+        keys[index] = key;
+        containers[index] = new char[4];
+        cardinalities[index] = 0;
+        containerCount++;
+    }
+
+    private static long[] toBitmap(char[] values, int cardinality) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,25 @@
+package com.plabpractice.api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a {@link CaseIdSet} as bytea in its compressed form; an empty set is
+ * stored as NULL.
+ */
+@Converter
+public class CaseIdSetConverter implements AttributeConverter<CaseIdSet, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(CaseIdSet ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        return ids.toBytes();
+    }
+
+    @Override
+    public CaseIdSet convertToEntityAttribute(byte[] value) {
+        return CaseIdSet.fromBytes(value);
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
 import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,10 +20,16 @@ public class Feedback {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // No foreign key: feedback outlives its session row once the session is archived,
+    // and then resolves to null here - use sessionId with the archive instead
     @ManyToOne
-    @JoinColumn(name = "session_id", nullable = false)
+    @NotFound(action = NotFoundAction.IGNORE)
+    @JoinColumn(name = "session_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Session session;
 
+    @Column(name = "session_id", insertable = false, updatable = false)
+    private Long sessionId;
+
     @ManyToOne
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
@@ -4,8 +4,6 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -17,13 +15,18 @@ import java.util.List;
 @Table(name = "sessions", indexes = {
         @Index(name = "idx_session_code", columnList = "session_code"),
         @Index(name = "idx_session_status", columnList = "status"),
-        @Index(name = "idx_session_created_by", columnList = "created_by")
+        @Index(name = "idx_session_created_by", columnList = "created_by"),
+        @Index(name = "idx_session_created_at_id", columnList = "created_at, id")
 })
 public class Session {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Optimistic lock: a write based on a stale copy fails instead of overwriting
+    @Version
+    private Long version;
+
     @Column(nullable = false)
     private String title;
 
@@ -62,10 +65,21 @@ public class Session {
     @Column(name = "current_round", nullable = false)
     private Integer currentRound = 1; // Track which round/case iteration we're on
 
-    // Track used cases to prevent duplicates
-    @JdbcTypeCode(SqlTypes.JSON)
-    @Column(columnDefinition = "jsonb", name = "used_case_ids")
-    private List<Long> usedCaseIds = new ArrayList<>();
+    // Track used cases to prevent duplicates - a compressed bitmap, see CaseIdSet
+    @Convert(converter = CaseIdSetConverter.class)
+    @Column(columnDefinition = "bytea", name = "used_case_ids")
+    private CaseIdSet usedCaseIds = new CaseIdSet();
+
+    // Shuffled IDs of the cases still to be played, drawn from the end
+    @Convert(converter = CaseIdListConverter.class)
+    @Column(name = "case_deck", columnDefinition = "TEXT")
+    @JsonIgnore
+    private List<Long> caseDeck;
+
+    // Which case pool the deck was built from, e.g. "category:3"
+    @Column(name = "case_deck_source")
+    @JsonIgnore
+    private String caseDeckSource;
 
     // For recall mode - store date range
     @Column(name = "recall_start_date")
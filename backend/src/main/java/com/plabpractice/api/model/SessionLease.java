@@ -0,0 +1,28 @@
+package com.plabpractice.api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Which backend node owns the timers of a session, until {@code expiresAt}.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "session_leases", indexes = {
+        @Index(name = "idx_session_leases_owner", columnList = "owner_id"),
+        @Index(name = "idx_session_leases_expires_at", columnList = "expires_at")
+})
+public class SessionLease {
+    @Id
+    @Column(name = "session_code")
+    private String sessionCode;
+
+    @Column(name = "owner_id", nullable = false)
+    private String ownerId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
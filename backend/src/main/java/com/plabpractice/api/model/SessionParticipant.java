@@ -8,7 +8,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "session_participants")
+@Table(name = "session_participants", uniqueConstraints = @UniqueConstraint(
+        name = "uq_session_participants_session_user", columnNames = { "session_id", "user_id" }),
+        indexes = @Index(name = "idx_session_participants_user_session", columnList = "user_id, session_id"))
 public class SessionParticipant {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -37,6 +39,10 @@ public class SessionParticipant {
     @Column(nullable = false)
     private Boolean hasGivenFeedback = false;
 
+    // Rows are written behind by the lease owner and through by other nodes
+    @Version
+    private Long version;
+
     public enum Role {
         HOST,
         PARTICIPANT,
@@ -0,0 +1,24 @@
+package com.plabpractice.api.repository;
+
+import com.plabpractice.api.model.ArchivedSessionParticipant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedSessionParticipantRepository extends JpaRepository<ArchivedSessionParticipant, Long> {
+    Optional<ArchivedSessionParticipant> findFirstBySessionIdAndUserId(Long sessionId, Long userId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO session_participants_archive (id, session_id, user_id, role, has_completed, has_given_feedback)
+            SELECT sp.id, sp.session_id, sp.user_id, sp.role, sp.has_completed, sp.has_given_feedback
+            FROM session_participants sp WHERE sp.session_id IN (:sessionIds)
+            """, nativeQuery = true)
+    int copyFromParticipants(@Param("sessionIds") List<Long> sessionIds);
+}
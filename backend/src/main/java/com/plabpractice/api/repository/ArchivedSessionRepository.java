@@ -0,0 +1,46 @@
+package com.plabpractice.api.repository;
+
+import com.plabpractice.api.model.ArchivedSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchivedSessionRepository extends JpaRepository<ArchivedSession, Long> {
+    // Codes are released once a session is archived, so a code alone can name several archived
+    // sessions (and a live one). Resolve it through the user's own participation, newest first.
+    @Query("""
+            SELECT s FROM ArchivedSession s
+            WHERE s.code = :code AND EXISTS (
+                SELECT p.id FROM ArchivedSessionParticipant p WHERE p.sessionId = s.id AND p.userId = :userId)
+            ORDER BY s.archivedAt DESC, s.id DESC
+            """)
+    List<ArchivedSession> findByCodeAndParticipant(@Param("code") String code, @Param("userId") Long userId,
+            Pageable pageable);
+
+    // Same, for the host: a cohort session with a roster has no participant row for its host
+    @Query("""
+            SELECT s FROM ArchivedSession s
+            WHERE s.code = :code AND s.createdById = :userId
+            ORDER BY s.archivedAt DESC, s.id DESC
+            """)
+    List<ArchivedSession> findByCodeAndHost(@Param("code") String code, @Param("userId") Long userId,
+            Pageable pageable);
+
+    // Copy finished sessions into the archive; the caller deletes the originals in the same transaction
+    @Modifying
+    @Query(value = """
+            INSERT INTO sessions_archive (id, title, session_code, status, session_type, case_id, current_round,
+                    recall_start_date, recall_end_date, created_at, start_time, end_time, created_by, archived_at)
+            SELECT s.id, s.title, s.session_code, s.status, s.session_type, s.case_id, s.current_round,
+                    s.recall_start_date, s.recall_end_date, s.created_at, s.start_time, s.end_time, s.created_by,
+                    CURRENT_TIMESTAMP
+            FROM sessions s WHERE s.id IN (:ids)
+            """, nativeQuery = true)
+    int copyFromSessions(@Param("ids") List<Long> ids);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
@@ -27,17 +28,24 @@ public interface CaseRepository extends JpaRepository<Case, Long> {
 
     // NEW: Optimized queries for better performance
 
-    // Random case selection without loading all cases
-    @Query(value = "SELECT * FROM cases ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
-    Case findRandomCase();
+    // Catalog rows for CaseSampler (id, category id, category name) - no case bodies
+    @Query("SELECT c.id, cat.id, cat.name FROM Case c LEFT JOIN c.category cat")
+    List<Object[]> findSamplerRows();
 
-    // Random case from specific category
-    @Query(value = "SELECT c.* FROM cases c WHERE c.category_id = :categoryId ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
-    Case findRandomCaseByCategoryId(@Param("categoryId") Long categoryId);
+    // Recall rows for RecallDateIndex (case id, recall date) from case_recall_dates
+    @Query("SELECT c.id, d FROM Case c JOIN c.recallDateValues d WHERE c.isRecallCase = true")
+    List<Object[]> findRecallDateRows();
 
-    // Random case from multiple categories
-    @Query(value = "SELECT c.* FROM cases c INNER JOIN categories cat ON c.category_id = cat.id WHERE cat.name IN :categoryNames ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
-    Case findRandomCaseByCategoryNames(@Param("categoryNames") List<String> categoryNames);
+    // Recall date range queries - served by the case_recall_dates recall_date index
+    @Query("SELECT DISTINCT c.id FROM Case c JOIN c.recallDateValues d "
+            + "WHERE c.isRecallCase = true AND d BETWEEN :startDate AND :endDate")
+    List<Long> findRecallCaseIdsInDateRange(@Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT d, COUNT(DISTINCT c.id) FROM Case c JOIN c.recallDateValues d "
+            + "WHERE c.isRecallCase = true AND d BETWEEN :startDate AND :endDate GROUP BY d ORDER BY d")
+    List<Object[]> countRecallCasesByDate(@Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
 
     // Optimized query with JOIN FETCH to load topics in one query
     @Query("SELECT DISTINCT c FROM Case c LEFT JOIN FETCH c.topics WHERE c.category.name IN :categoryNames")
@@ -51,21 +59,9 @@ public interface CaseRepository extends JpaRepository<Case, Long> {
     @Query("SELECT COUNT(c) FROM Case c WHERE c.category.name IN :categoryNames")
     long countByCategoryNameIn(@Param("categoryNames") List<String> categoryNames);
 
-    // Random recall case within date range
-    @Query(value = """
-            SELECT c.* FROM cases c
-            WHERE c.is_recall_case = true
-            AND EXISTS (
-                SELECT 1 FROM jsonb_array_elements_text(c.recall_dates) AS rd
-                WHERE rd::date BETWEEN :startDate::date AND :endDate::date
-            )
-            AND (:excludeIds IS NULL OR c.id NOT IN :excludeIds)
-            ORDER BY RANDOM() LIMIT 1
-            """, nativeQuery = true)
-    Case findRandomRecallCaseInDateRange(
-            @Param("startDate") String startDate,
-            @Param("endDate") String endDate,
-            @Param("excludeIds") List<Long> excludeIds);
+    // ID-only query used to build per-session case decks without loading case bodies
+    @Query("SELECT c.id FROM Case c WHERE c.category.id = :categoryId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
 
     // Lightweight case projection for lists - only essential fields
     @Query("SELECT c.id, c.title, c.category.name FROM Case c WHERE c.category.name IN :categoryNames")
@@ -2,8 +2,12 @@ package com.plabpractice.api.repository;
 
 import com.plabpractice.api.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +15,7 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
 
     boolean existsByName(String name);
-}
\ No newline at end of file
+
+    @Query("SELECT c.name FROM Category c WHERE c.name IN :names")
+    List<String> findNamesIn(@Param("names") Collection<String> names);
+}
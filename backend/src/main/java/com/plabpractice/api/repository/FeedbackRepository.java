@@ -17,7 +17,7 @@ public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
 
     List<Feedback> findBySessionIdAndSenderId(Long sessionId, Long senderId);
 
-    @Query("SELECT AVG(f.overallPerformance) FROM Feedback f WHERE f.session.id = :sessionId")
+    @Query("SELECT AVG(f.overallPerformance) FROM Feedback f WHERE f.sessionId = :sessionId")
     Double getAverageScoreBySessionId(Long sessionId);
 
     @Query("SELECT AVG(f.overallPerformance) FROM Feedback f WHERE f.sender.id = :senderId")
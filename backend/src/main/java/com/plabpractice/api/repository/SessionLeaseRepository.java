@@ -0,0 +1,78 @@
+package com.plabpractice.api.repository;
+
+import com.plabpractice.api.model.SessionLease;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Plain JPQL and standard SQL only - leases must work on both H2 and Postgres
+@Repository
+public interface SessionLeaseRepository extends JpaRepository<SessionLease, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO session_leases (session_code, owner_id, expires_at) VALUES (:code, :owner, :expiresAt)",
+            nativeQuery = true)
+    int insert(@Param("code") String code, @Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Take the lease from whoever holds it
+    @Modifying
+    @Query("UPDATE SessionLease l SET l.ownerId = :owner, l.expiresAt = :expiresAt WHERE l.sessionCode = :code")
+    int transfer(@Param("code") String code, @Param("owner") String owner,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Take the lease only if it is already ours or has expired
+    @Modifying
+    @Query("""
+            UPDATE SessionLease l SET l.ownerId = :owner, l.expiresAt = :expiresAt
+            WHERE l.sessionCode = :code AND (l.ownerId = :owner OR l.expiresAt < :now)
+            """)
+    int claim(@Param("code") String code, @Param("owner") String owner, @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Batch claim: the existing leases among :codes that are ours or expired
+    @Modifying
+    @Query("""
+            UPDATE SessionLease l SET l.ownerId = :owner, l.expiresAt = :expiresAt
+            WHERE l.sessionCode IN :codes AND (l.ownerId = :owner OR l.expiresAt < :now)
+            """)
+    int claimAll(@Param("codes") Collection<String> codes, @Param("owner") String owner,
+            @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Batch insert: a lease for every session among :codes that has none yet
+    @Modifying
+    @Query(value = """
+            INSERT INTO session_leases (session_code, owner_id, expires_at)
+            SELECT s.session_code, :owner, :expiresAt FROM sessions s
+            WHERE s.session_code IN (:codes)
+            AND NOT EXISTS (SELECT 1 FROM session_leases l WHERE l.session_code = s.session_code)
+            """, nativeQuery = true)
+    int insertMissing(@Param("codes") Collection<String> codes, @Param("owner") String owner,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("SELECT l.sessionCode FROM SessionLease l WHERE l.sessionCode IN :codes AND l.ownerId = :owner AND l.expiresAt >= :now")
+    List<String> findCodesHeldBy(@Param("codes") Collection<String> codes, @Param("owner") String owner,
+            @Param("now") LocalDateTime now);
+
+    // Batch renewal: every lease of a node in one statement
+    @Modifying
+    @Query("UPDATE SessionLease l SET l.expiresAt = :expiresAt WHERE l.ownerId = :owner AND l.expiresAt >= :now")
+    int renewAll(@Param("owner") String owner, @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("SELECT COUNT(l) FROM SessionLease l WHERE l.sessionCode = :code AND l.ownerId = :owner AND l.expiresAt >= :now")
+    long countHeldBy(@Param("code") String code, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Query("SELECT l.sessionCode FROM SessionLease l WHERE l.expiresAt < :now ORDER BY l.expiresAt")
+    List<String> findExpiredCodes(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM SessionLease l WHERE l.sessionCode = :code AND l.ownerId = :owner")
+    int release(@Param("code") String code, @Param("owner") String owner);
+}
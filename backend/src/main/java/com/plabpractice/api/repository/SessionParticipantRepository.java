@@ -1,16 +1,23 @@
 package com.plabpractice.api.repository;
 
+import com.plabpractice.api.dto.SessionHistoryDTO;
 import com.plabpractice.api.model.SessionParticipant;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+// Joins (upsertWithRole, upsertKeepingRole) come from SessionParticipantUpserts
 @Repository
-public interface SessionParticipantRepository extends JpaRepository<SessionParticipant, Long> {
+public interface SessionParticipantRepository
+        extends JpaRepository<SessionParticipant, Long>, SessionParticipantUpserts {
     List<SessionParticipant> findBySessionId(Long sessionId);
 
     // Optimized query to prevent N+1 issue
@@ -37,6 +44,35 @@ public interface SessionParticipantRepository extends JpaRepository<SessionParti
 
     List<SessionParticipant> findByUserIdAndIsActive(Long userId, Boolean isActive);
 
+    @Query("SELECT sp FROM SessionParticipant sp JOIN FETCH sp.session WHERE sp.user.id IN :userIds AND sp.isActive = true")
+    List<SessionParticipant> findActiveByUserIdInWithSessions(@Param("userIds") Collection<Long> userIds);
+
+    // Session history, newest first, keyset-paginated on (created_at, id). Sessions, the user's
+    // role and participant counts come from one statement; the count subquery only runs for
+    // the rows of the page.
+
+    @Query("""
+            SELECT new com.plabpractice.api.dto.SessionHistoryDTO(s.id, s.title, s.code, s.status,
+                s.sessionType, s.createdAt, s.startTime, s.endTime, sp.role,
+                (SELECT COUNT(other) FROM SessionParticipant other WHERE other.session = s))
+            FROM SessionParticipant sp JOIN sp.session s
+            WHERE sp.user.id = :userId
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<SessionHistoryDTO> findHistoryFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("""
+            SELECT new com.plabpractice.api.dto.SessionHistoryDTO(s.id, s.title, s.code, s.status,
+                s.sessionType, s.createdAt, s.startTime, s.endTime, sp.role,
+                (SELECT COUNT(other) FROM SessionParticipant other WHERE other.session = s))
+            FROM SessionParticipant sp JOIN sp.session s
+            WHERE sp.user.id = :userId
+            AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :sessionId))
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<SessionHistoryDTO> findHistoryPageBefore(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("sessionId") Long sessionId, Pageable pageable);
+
     Optional<SessionParticipant> findBySessionIdAndUserId(Long sessionId, Long userId);
 
     List<SessionParticipant> findByRole(SessionParticipant.Role role);
@@ -57,4 +93,48 @@ public interface SessionParticipantRepository extends JpaRepository<SessionParti
     long countBySessionId(Long sessionId);
 
     long countBySessionIdAndIsActive(Long sessionId, Boolean isActive);
-}
\ No newline at end of file
+
+    // (session id, active participant count) for every created or in-progress session
+    @Query("""
+            SELECT sp.session.id, COUNT(sp) FROM SessionParticipant sp
+            WHERE sp.isActive = true AND sp.session.status IN ('CREATED', 'IN_PROGRESS')
+            GROUP BY sp.session.id
+            """)
+    List<Object[]> countActiveParticipantsInActiveSessions();
+
+    // Bulk updates - one statement regardless of how many participants are affected. VERSIONED
+    // bumps each row's version, so write-behind copies held elsewhere see the change.
+
+    @Modifying
+    @Query("UPDATE VERSIONED SessionParticipant sp SET sp.hasCompleted = false, sp.hasGivenFeedback = false WHERE sp.session.id = :sessionId")
+    int resetRoundFlagsBySessionId(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query("""
+            UPDATE VERSIONED SessionParticipant sp SET sp.role = CASE sp.role
+                WHEN com.plabpractice.api.model.SessionParticipant.Role.DOCTOR
+                    THEN com.plabpractice.api.model.SessionParticipant.Role.PATIENT
+                ELSE com.plabpractice.api.model.SessionParticipant.Role.DOCTOR END
+            WHERE sp.session.id = :sessionId AND sp.isActive = true
+            AND sp.role IN (com.plabpractice.api.model.SessionParticipant.Role.DOCTOR,
+                            com.plabpractice.api.model.SessionParticipant.Role.PATIENT)
+            """)
+    int swapDoctorAndPatientRoles(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query("UPDATE VERSIONED SessionParticipant sp SET sp.isActive = false WHERE sp.user.id = :userId AND sp.isActive = true AND sp.session.id IN :sessionIds")
+    int deactivateUserInSessions(@Param("userId") Long userId, @Param("sessionIds") List<Long> sessionIds);
+
+    @Modifying
+    @Query("UPDATE VERSIONED SessionParticipant sp SET sp.isActive = false WHERE sp.user.id IN :userIds AND sp.isActive = true AND sp.session.id IN :sessionIds")
+    int deactivateUsersInSessions(@Param("userIds") Collection<Long> userIds,
+            @Param("sessionIds") Collection<Long> sessionIds);
+
+    @Modifying
+    @Query("UPDATE VERSIONED SessionParticipant sp SET sp.isActive = false WHERE sp.id = :participantId")
+    int deactivate(@Param("participantId") Long participantId);
+
+    @Modifying
+    @Query(value = "DELETE FROM session_participants WHERE session_id IN (:sessionIds)", nativeQuery = true)
+    int deleteAllBySessionIdIn(@Param("sessionIds") List<Long> sessionIds);
+}
@@ -0,0 +1,14 @@
+package com.plabpractice.api.repository;
+
+/**
+ * Single-call joins: insert the (session, user) participant row or reactivate
+ * it, returning its id. A DOCTOR/PATIENT role held by another active
+ * participant fails with a DataIntegrityViolationException.
+ */
+public interface SessionParticipantUpserts {
+
+    Long upsertWithRole(Long sessionId, Long userId, String role);
+
+    // Keeps the existing role of a returning participant; role applies to new rows only
+    Long upsertKeepingRole(Long sessionId, Long userId, String role);
+}
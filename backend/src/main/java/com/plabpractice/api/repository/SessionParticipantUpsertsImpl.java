@@ -0,0 +1,134 @@
+package com.plabpractice.api.repository;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * On PostgreSQL a join is one INSERT ... ON CONFLICT statement and the role
+ * claim is enforced by uq_session_participants_exclusive_role. Other databases
+ * (the H2 profiles) have neither, so the row is looked up and then updated or
+ * inserted, with the role checked first. That check is not atomic on its own;
+ * joins to one session are serialized by SessionMailbox, which is enough for
+ * the single-node setups H2 is used in.
+ */
+public class SessionParticipantUpsertsImpl implements SessionParticipantUpserts {
+
+    private static final String UPSERT_WITH_ROLE = """
+            INSERT INTO session_participants (session_id, user_id, role, is_active, has_completed, has_given_feedback)
+            VALUES (:sessionId, :userId, :role, true, false, false)
+            ON CONFLICT (session_id, user_id) DO UPDATE SET role = EXCLUDED.role, is_active = true,
+                version = session_participants.version + 1
+            RETURNING id
+            """;
+
+    private static final String UPSERT_KEEPING_ROLE = """
+            INSERT INTO session_participants (session_id, user_id, role, is_active, has_completed, has_given_feedback)
+            VALUES (:sessionId, :userId, :role, true, false, false)
+            ON CONFLICT (session_id, user_id) DO UPDATE SET is_active = true, version = session_participants.version + 1
+            RETURNING id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public Long upsertWithRole(Long sessionId, Long userId, String role) {
+        return isPostgres()
+                ? nativeUpsert(UPSERT_WITH_ROLE, sessionId, userId, role)
+                : findThenUpsert(sessionId, userId, role, true);
+    }
+
+    @Override
+    @Transactional
+    public Long upsertKeepingRole(Long sessionId, Long userId, String role) {
+        return isPostgres()
+                ? nativeUpsert(UPSERT_KEEPING_ROLE, sessionId, userId, role)
+                : findThenUpsert(sessionId, userId, role, false);
+    }
+
+    private Long nativeUpsert(String sql, Long sessionId, Long userId, String role) {
+        Object id = entityManager.createNativeQuery(sql)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId)
+                .setParameter("role", role)
+                .getSingleResult();
+        return ((Number) id).longValue();
+    }
+
+    private Long findThenUpsert(Long sessionId, Long userId, String role, boolean overwriteRole) {
+        List<SessionParticipant> existing = entityManager.createQuery(
+                "SELECT sp FROM SessionParticipant sp WHERE sp.session.id = :sessionId AND sp.user.id = :userId",
+                SessionParticipant.class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId)
+                .getResultList();
+
+        SessionParticipant participant;
+        if (existing.isEmpty()) {
+            participant = new SessionParticipant();
+            participant.setSession(entityManager.getReference(Session.class, sessionId));
+            participant.setUser(entityManager.getReference(User.class, userId));
+            participant.setRole(SessionParticipant.Role.valueOf(role));
+        } else {
+            participant = existing.get(0);
+            if (overwriteRole) {
+                participant.setRole(SessionParticipant.Role.valueOf(role));
+            }
+        }
+        checkRoleAvailable(sessionId, userId, participant.getRole());
+
+        participant.setIsActive(true);
+        if (participant.getId() == null) {
+            participant.setHasCompleted(false);
+            participant.setHasGivenFeedback(false);
+            entityManager.persist(participant);
+        } else {
+            // Like the PostgreSQL upsert, every rejoin bumps the version
+            entityManager.lock(participant, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+        entityManager.flush();
+        return participant.getId();
+    }
+
+    private void checkRoleAvailable(Long sessionId, Long userId, SessionParticipant.Role role) {
+        if (role != SessionParticipant.Role.DOCTOR && role != SessionParticipant.Role.PATIENT) {
+            return;
+        }
+        Long holders = entityManager.createQuery("""
+                SELECT COUNT(sp) FROM SessionParticipant sp
+                WHERE sp.session.id = :sessionId AND sp.user.id <> :userId
+                AND sp.isActive = true AND sp.role = :role
+                """, Long.class)
+                .setParameter("sessionId", sessionId)
+                .setParameter("userId", userId)
+                .setParameter("role", role)
+                .getSingleResult();
+        if (holders > 0) {
+            throw new DataIntegrityViolationException(
+                    "uq_session_participants_exclusive_role: " + role + " is held in session " + sessionId);
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -51,6 +51,10 @@ public interface SessionRepository extends JpaRepository<Session, Long> {
     List<Session> findActiveSessionsByUserIdWithParticipants(@Param("userId") Long userId,
             @Param("isActive") Boolean isActive);
 
+    // All session codes, used to seed the in-memory code allocator at startup
+    @Query("SELECT s.code FROM Session s")
+    List<String> findAllCodes();
+
     // Find sessions created by a user
     List<Session> findByCreatedBy(com.plabpractice.api.model.User user);
 
@@ -58,4 +62,41 @@ public interface SessionRepository extends JpaRepository<Session, Long> {
     @org.springframework.data.jpa.repository.Modifying
     @Query("UPDATE Session s SET s.createdBy = null WHERE s.createdBy.id = :userId")
     void clearCreatorByUserId(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    // Compare-and-set phase transition: returns 1 for the caller that won, 0 if the phase already moved on
+    @org.springframework.data.jpa.repository.Modifying(clearAutomatically = true)
+    @Query("UPDATE Session s SET s.phase = :next, s.phaseStartTime = :phaseStartTime, s.version = s.version + 1 "
+            + "WHERE s.id = :id AND s.phase = :expected")
+    int compareAndSetPhase(@Param("id") Long id, @Param("expected") Session.Phase expected,
+            @Param("next") Session.Phase next, @Param("phaseStartTime") java.time.LocalDateTime phaseStartTime);
+
+    // Finished sessions past the retention cutoff, oldest first, for the archival job
+    @Query("SELECT s.id FROM Session s WHERE s.status IN :statuses AND s.createdAt < :cutoff ORDER BY s.id")
+    List<Long> findArchivableIds(@Param("statuses") java.util.Collection<Session.Status> statuses,
+            @Param("cutoff") java.time.LocalDateTime cutoff, org.springframework.data.domain.Pageable pageable);
+
+    @Query("SELECT s.code FROM Session s WHERE s.id IN :ids")
+    List<String> findCodesByIdIn(@Param("ids") List<Long> ids);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @Query(value = "DELETE FROM sessions WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+
+    // Timer state of every running session, for re-arming phase timers on startup
+    @Query("""
+            SELECT new com.plabpractice.api.dto.SessionTimerStateDTO(s.code, s.phase, s.readingTime,
+                    s.consultationTime, s.phaseStartTime, s.timerStartTimestamp)
+            FROM Session s
+            WHERE s.status = 'IN_PROGRESS' AND s.phase IN ('READING', 'CONSULTATION', 'FEEDBACK')
+            """)
+    List<com.plabpractice.api.dto.SessionTimerStateDTO> findRunningTimerStates();
+
+    @Query("""
+            SELECT new com.plabpractice.api.dto.SessionTimerStateDTO(s.code, s.phase, s.readingTime,
+                    s.consultationTime, s.phaseStartTime, s.timerStartTimestamp)
+            FROM Session s
+            WHERE s.code IN :codes AND s.status = 'IN_PROGRESS' AND s.phase IN ('READING', 'CONSULTATION', 'FEEDBACK')
+            """)
+    List<com.plabpractice.api.dto.SessionTimerStateDTO> findRunningTimerStatesByCodes(
+            @Param("codes") java.util.Collection<String> codes);
+}
@@ -73,6 +73,7 @@ public class WebSecurityConfig {
                             .requestMatchers("/ws/**").permitAll()
                             .requestMatchers("/ping").permitAll()
                             .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+                            .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                             .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll();
 
                     if (h2ConsoleEnabled) {
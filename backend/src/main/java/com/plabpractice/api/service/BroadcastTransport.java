@@ -0,0 +1,32 @@
+package com.plabpractice.api.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Shared channel that carries WebSocket broadcasts between backend nodes.
+ *
+ * Every node publishes each event once and receives every event, its own
+ * included; {@link ClusterBroadcaster} drops echoes and duplicates. A
+ * transport must hand events from one publisher to listeners in publish order.
+ */
+public interface BroadcastTransport {
+
+    void publish(BroadcastEvent event);
+
+    void subscribe(Consumer<BroadcastEvent> listener);
+
+    /**
+     * Whether published events can reach another node. False lets callers
+     * skip building payloads that only other nodes would read.
+     */
+    default boolean reachesOtherNodes() {
+        return true;
+    }
+
+    /**
+     * One broadcast: the STOMP destination and the already converted payload,
+     * stamped with the publishing node and its per-destination sequence number.
+     */
+    record BroadcastEvent(String origin, long sequence, String destination, byte[] payload) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.CaseIdSet;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.repository.CaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-session deck of case IDs, shuffled once and stored on the session.
+ *
+ * The deck is built from the IDs in the session's case pool (an ID-only query
+ * on the current case's category for topic sessions, the recall date index
+ * for recall sessions), so choosing the next case never loads other case bodies. Each
+ * round pops the last ID and loads just that case. IDs that were already
+ * used or whose case was deleted mid-session are skipped. When the deck runs
+ * out it is rebuilt from the pool minus the used cases, which picks up cases
+ * added since it was built; only if that is empty is the pool exhausted.
+ */
+@Service
+public class CaseDeckService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaseDeckService.class);
+
+    private final CaseRepository caseRepository;
+    private final RecallDateIndex recallDateIndex;
+
+    public CaseDeckService(CaseRepository caseRepository, RecallDateIndex recallDateIndex) {
+        this.caseRepository = caseRepository;
+        this.recallDateIndex = recallDateIndex;
+    }
+
+    /**
+     * (Re)build the session's deck for its current pool. Called at configure
+     * time, once the first case is known.
+     */
+    public void prepareDeck(Session session) {
+        String source = deckSource(session);
+        if (source == null) {
+            session.setCaseDeck(null);
+            session.setCaseDeckSource(null);
+            return;
+        }
+        session.setCaseDeck(buildDeck(session, source));
+        session.setCaseDeckSource(source);
+    }
+
+    /**
+     * Pop the next unused, still-existing case from the session's deck, or
+     * empty if every case in the pool has been used. The caller saves the
+     * session.
+     */
+    public Optional<Case> drawNextCase(Session session) {
+        String source = deckSource(session);
+        if (source == null) {
+            return Optional.empty();
+        }
+
+        // Pool changed (e.g. new topic selected) or no deck yet
+        if (!source.equals(session.getCaseDeckSource()) || session.getCaseDeck() == null) {
+            prepareDeck(session);
+        }
+
+        Optional<Case> next = popNext(session);
+        if (next.isEmpty()) {
+            // Deck exhausted - refill from the pool minus used cases
+            prepareDeck(session);
+            next = popNext(session);
+        }
+        return next;
+    }
+
+    private Optional<Case> popNext(Session session) {
+        List<Long> deck = new ArrayList<>(session.getCaseDeck());
+        CaseIdSet used = usedIds(session);
+        try {
+            while (!deck.isEmpty()) {
+                Long id = deck.remove(deck.size() - 1);
+                if (used.contains(id)) {
+                    continue;
+                }
+                Optional<Case> nextCase = caseRepository.findById(id);
+                if (nextCase.isPresent()) {
+                    return nextCase;
+                }
+                logger.debug("Skipping case {} in deck for session {} - case was deleted", id, session.getCode());
+            }
+            return Optional.empty();
+        } finally {
+            // Replace rather than mutate, so the change is always picked up on save
+            session.setCaseDeck(deck);
+        }
+    }
+
+    private List<Long> buildDeck(Session session, String source) {
+        List<Long> ids;
+        if (source.startsWith("recall:")) {
+            ids = new ArrayList<>(recallDateIndex.caseIdsInRange(session.getRecallStartDate(),
+                    session.getRecallEndDate()));
+        } else {
+            ids = caseRepository.findIdsByCategoryId(session.getSelectedCase().getCategory().getId());
+        }
+
+        CaseIdSet used = usedIds(session);
+        List<Long> deck = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!used.contains(id)) {
+                deck.add(id);
+            }
+        }
+        Collections.shuffle(deck);
+        return deck;
+    }
+
+    /**
+     * Identifies the case pool for the session, or null if it has none yet.
+     */
+    private String deckSource(Session session) {
+        if (session.getSessionType() == Session.SessionType.RECALL) {
+            if (session.getRecallStartDate() == null || session.getRecallEndDate() == null) {
+                return null;
+            }
+            return "recall:" + session.getRecallStartDate() + ":" + session.getRecallEndDate();
+        }
+        Case currentCase = session.getSelectedCase();
+        if (currentCase == null || currentCase.getCategory() == null) {
+            return null;
+        }
+        return "category:" + currentCase.getCategory().getId();
+    }
+
+    private CaseIdSet usedIds(Session session) {
+        // Copy, so adding the current case does not mark it used on the session
+        CaseIdSet used = session.getUsedCaseIds() != null ? session.getUsedCaseIds().copy() : new CaseIdSet();
+        if (session.getSelectedCase() != null) {
+            used.add(session.getSelectedCase().getId());
+        }
+        return used;
+    }
+}
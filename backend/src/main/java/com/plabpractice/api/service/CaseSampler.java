@@ -0,0 +1,255 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.CaseIdSet;
+import com.plabpractice.api.repository.CaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Uniform random case selection without {@code ORDER BY RANDOM()}.
+ *
+ * Keeps an in-memory catalog of case IDs - all cases and per category -
+ * loaded with one ID-only query; recall cases are picked through
+ * {@link RecallDateIndex}. A pick chooses an ID (rejecting excluded IDs) and
+ * then loads that one row by primary key, instead of scanning and sorting the
+ * whole cases table.
+ *
+ * The catalog is reloaded lazily after {@link #invalidate()} (called when
+ * cases are created, updated or deleted) and periodically, so changes made by
+ * other instances are picked up too. Each load is tagged with the
+ * invalidation generation it started in, so a load that was already running
+ * when invalidate() was called is never served afterwards.
+ */
+@Service
+public class CaseSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaseSampler.class);
+
+    // Random probes before falling back to filtering out the excluded IDs
+    private static final int REJECTION_ATTEMPTS = 16;
+    private static final long[] EMPTY = new long[0];
+
+    private final CaseRepository caseRepository;
+    private final RecallDateIndex recallDateIndex;
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // Bumped by invalidate(); a catalog is current only if loaded in the latest generation
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile LoadedCatalog catalog;
+
+    public CaseSampler(CaseRepository caseRepository, RecallDateIndex recallDateIndex) {
+        this.caseRepository = caseRepository;
+        this.recallDateIndex = recallDateIndex;
+    }
+
+    public Optional<Case> randomCase(Set<Long> excludeIds) {
+        return fetch(() -> pick(currentCatalog().allIds, excludeIds));
+    }
+
+    public Optional<Case> randomCaseInCategory(Long categoryId, Set<Long> excludeIds) {
+        return fetch(() -> pick(currentCatalog().idsByCategory.getOrDefault(categoryId, EMPTY), excludeIds));
+    }
+
+    public Optional<Case> randomCaseInCategories(Collection<String> categoryNames, Set<Long> excludeIds) {
+        return fetch(() -> {
+            Catalog catalog = currentCatalog();
+            List<long[]> pools = new ArrayList<>();
+            for (String name : categoryNames) {
+                Long categoryId = catalog.categoryIdsByName.get(name);
+                if (categoryId != null) {
+                    pools.add(catalog.idsByCategory.getOrDefault(categoryId, EMPTY));
+                }
+            }
+            return pickFromUnion(pools, excludeIds);
+        });
+    }
+
+    /**
+     * Random recall case with at least one recall date in [startDate, endDate]
+     * (inclusive), chosen from the recall date index.
+     */
+    public Optional<Case> randomRecallCase(LocalDate startDate, LocalDate endDate, Set<Long> excludeIds) {
+        return fetch(() -> recallDateIndex.randomCaseIdInRange(startDate, endDate, excludeIds).orElse(-1));
+    }
+
+    /**
+     * Mark the catalog stale - the next pick reloads it.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${case.sampler.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        invalidate();
+    }
+
+    private Optional<Case> fetch(LongSupplier picker) {
+        // Retry once with a fresh catalog if the picked case was deleted meanwhile
+        for (int attempt = 0; attempt < 2; attempt++) {
+            long id = picker.getAsLong();
+            if (id < 0) {
+                return Optional.empty();
+            }
+            Optional<Case> picked = caseRepository.findById(id);
+            if (picked.isPresent()) {
+                return picked;
+            }
+            invalidate();
+            recallDateIndex.remove(id);
+        }
+        return Optional.empty();
+    }
+
+    private Catalog currentCatalog() {
+        LoadedCatalog current = catalog;
+        if (current != null && current.generation() == generation.get()) {
+            return current.catalog();
+        }
+        loadLock.lock();
+        try {
+            while (true) {
+                current = catalog;
+                long loadGeneration = generation.get();
+                if (current != null && current.generation() == loadGeneration) {
+                    return current.catalog();
+                }
+                // Rows read here may predate a save whose invalidate() lands during the
+                // query; the generation check then makes the next pick load again
+                Catalog loaded = Catalog.load(caseRepository.findSamplerRows());
+                catalog = new LoadedCatalog(loadGeneration, loaded);
+                logger.debug("Case sampler catalog loaded: {} cases, {} categories",
+                        loaded.allIds.length, loaded.idsByCategory.size());
+                if (generation.get() == loadGeneration) {
+                    return loaded;
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Uniformly pick an ID that is not excluded, or -1 if there is none.
+     */
+    static long pick(long[] ids, Set<Long> excludeIds) {
+        return pickFromUnion(List.of(ids), excludeIds);
+    }
+
+    /**
+     * Uniformly pick across several disjoint ID arrays. Expected O(1) while
+     * most IDs are allowed; O(n) once the exclusions dominate.
+     */
+    static long pickFromUnion(List<long[]> pools, Set<Long> excludeIds) {
+        int total = 0;
+        for (long[] pool : pools) {
+            total += pool.length;
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        LongPredicate excluded = exclusionTest(excludeIds);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < REJECTION_ATTEMPTS; attempt++) {
+            long id = idAt(pools, random.nextInt(total));
+            if (!excluded.test(id)) {
+                return id;
+            }
+        }
+
+        // Most candidates are excluded - choose among the remaining ones
+        long[] remaining = pools.stream()
+                .flatMapToLong(Arrays::stream)
+                .filter(excluded.negate())
+                .toArray();
+        return remaining.length == 0 ? -1 : remaining[random.nextInt(remaining.length)];
+    }
+
+    /**
+     * Membership test for the excluded IDs - straight on the bitmap for a
+     * session's used cases, without boxing each candidate.
+     */
+    private static LongPredicate exclusionTest(Set<Long> excludeIds) {
+        if (excludeIds == null || excludeIds.isEmpty()) {
+            return id -> false;
+        }
+        if (excludeIds instanceof CaseIdSet usedCases) {
+            return usedCases::contains;
+        }
+        return excludeIds::contains;
+    }
+
+    private static long idAt(List<long[]> pools, int index) {
+        for (long[] pool : pools) {
+            if (index < pool.length) {
+                return pool[index];
+            }
+            index -= pool.length;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    private record LoadedCatalog(long generation, Catalog catalog) {
+    }
+
+    /**
+     * Immutable snapshot of the case IDs the sampler picks from.
+     */
+    static final class Catalog {
+        final long[] allIds;
+        final Map<Long, long[]> idsByCategory;
+        final Map<String, Long> categoryIdsByName;
+
+        private Catalog(long[] allIds, Map<Long, long[]> idsByCategory, Map<String, Long> categoryIdsByName) {
+            this.allIds = allIds;
+            this.idsByCategory = idsByCategory;
+            this.categoryIdsByName = categoryIdsByName;
+        }
+
+        /**
+         * @param caseRows (case id, category id, category name) per case
+         */
+        static Catalog load(List<Object[]> caseRows) {
+            long[] allIds = new long[caseRows.size()];
+            Map<Long, List<Long>> byCategory = new HashMap<>();
+            Map<String, Long> categoryIdsByName = new HashMap<>();
+            for (int i = 0; i < caseRows.size(); i++) {
+                Object[] row = caseRows.get(i);
+                long id = ((Number) row[0]).longValue();
+                allIds[i] = id;
+                if (row[1] != null) {
+                    Long categoryId = ((Number) row[1]).longValue();
+                    byCategory.computeIfAbsent(categoryId, k -> new ArrayList<>()).add(id);
+                    if (row[2] != null) {
+                        categoryIdsByName.put((String) row[2], categoryId);
+                    }
+                }
+            }
+
+            Map<Long, long[]> idsByCategory = new HashMap<>();
+            byCategory.forEach((categoryId, ids) -> idsByCategory.put(categoryId,
+                    ids.stream().mapToLong(Long::longValue).toArray()));
+
+            return new Catalog(allIds, idsByCategory, categoryIdsByName);
+        }
+    }
+}
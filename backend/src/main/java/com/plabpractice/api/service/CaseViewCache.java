@@ -0,0 +1,80 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.SessionParticipant;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-serialized CASE_DATA messages per (case, role, last modified).
+ *
+ * A case does not change while a session is using it, so the role-filtered
+ * view is built and serialized once and then sent as-is to every participant
+ * with that role. Entries for a case are evicted when the case is updated or
+ * deleted; the last-modified timestamp in the key also keeps a stale view from
+ * being served if an update bypasses the eviction.
+ */
+@Service
+public class CaseViewCache {
+
+    private final ObjectMapper objectMapper;
+    private final Map<ViewKey, String> views = new ConcurrentHashMap<>();
+
+    public CaseViewCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * JSON of the CASE_DATA message for a participant with {@code role}.
+     */
+    public String getCaseDataMessage(Case selectedCase, SessionParticipant.Role role) {
+        ViewKey key = new ViewKey(selectedCase.getId(), role, selectedCase.getUpdatedAt());
+        return views.computeIfAbsent(key, k -> serialize(selectedCase, role));
+    }
+
+    public void evict(Long caseId) {
+        views.keySet().removeIf(key -> key.caseId().equals(caseId));
+    }
+
+    public int size() {
+        return views.size();
+    }
+
+    private String serialize(Case selectedCase, SessionParticipant.Role role) {
+        Map<String, Object> caseData = new HashMap<>();
+        caseData.put("type", "CASE_DATA");
+        caseData.put("case", buildView(selectedCase, role));
+        try {
+            return objectMapper.writeValueAsString(caseData);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize case " + selectedCase.getId(), e);
+        }
+    }
+
+    private Object buildView(Case fullCase, SessionParticipant.Role role) {
+        if (role != SessionParticipant.Role.DOCTOR) {
+            // Patients and observers get the full case
+            return fullCase;
+        }
+
+        // Filter case for doctors - remove title
+        Map<String, Object> filteredCase = new HashMap<>();
+        filteredCase.put("id", fullCase.getId());
+        filteredCase.put("description", fullCase.getDescription());
+        filteredCase.put("sections", fullCase.getDoctorSections());
+        filteredCase.put("doctorNotes", fullCase.getDoctorNotes());
+        filteredCase.put("patientNotes", fullCase.getPatientNotes());
+        filteredCase.put("imageUrl", fullCase.getImageUrl());
+        filteredCase.put("feedbackCriteria", fullCase.getFeedbackCriteria());
+        return filteredCase;
+    }
+
+    private record ViewKey(Long caseId, SessionParticipant.Role role, LocalDateTime lastModified) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.service.BroadcastTransport.BroadcastEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fans WebSocket broadcasts out to the other backend nodes.
+ *
+ * Local subscribers are served by the simple broker as before; after Spring
+ * has converted a message, its payload is also published once on the
+ * {@link BroadcastTransport}. Every node delivers events from other nodes to
+ * its own subscribers with the same bytes.
+ *
+ * Each node numbers its events with one increasing sequence and hands them
+ * to the transport in that order, and transports preserve a publisher's
+ * order - so per session, events arrive in the order they were sent.
+ * Echoes of this node's own events and events whose sequence is not above
+ * the last one delivered from their origin are dropped as duplicates.
+ * Events lost by the transport are not replayed; clients notice the gap in
+ * the session state version and fetch a snapshot.
+ *
+ * The same channel carries short node-to-node notices (destinations under
+ * {@value #NOTICE_PREFIX}), which are handed to the listener registered with
+ * {@link #onNotice} instead of the broker.
+ */
+@Service
+public class ClusterBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterBroadcaster.class);
+
+    static final String NOTICE_PREFIX = "/internal/";
+
+    private final BroadcastTransport transport;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final String nodeId;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private long publishedSequence;
+    // origin node -> last sequence delivered from it
+    private final Map<String, Long> deliveredSequences = new ConcurrentHashMap<>();
+    // notice destination -> listener
+    private final Map<String, Consumer<String>> noticeListeners = new ConcurrentHashMap<>();
+
+    public ClusterBroadcaster(BroadcastTransport transport, SimpMessagingTemplate messagingTemplate,
+            @Value("${session.lease.node-id:}") String nodeId) {
+        this.transport = transport;
+        this.messagingTemplate = messagingTemplate;
+        // Unique per process: a restarted node starts its sequence again from zero
+        String incarnation = UUID.randomUUID().toString();
+        this.nodeId = nodeId == null || nodeId.isBlank() ? incarnation : nodeId + "-" + incarnation;
+        transport.subscribe(this::receive);
+    }
+
+    /**
+     * Publish a converted message to the other nodes. Never throws - local
+     * delivery must not fail because the shared channel is down.
+     */
+    public void publish(String destination, Message<?> converted) {
+        byte[] payload = payloadBytes(converted.getPayload());
+        if (payload != null) {
+            send(destination, payload);
+        }
+    }
+
+    /**
+     * Publish a notice to the other nodes' {@code topic} listeners. Never
+     * throws; like broadcasts, notices lost by the transport are not replayed.
+     */
+    public void publishNotice(String topic, String text) {
+        send(NOTICE_PREFIX + topic, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether anything published here can reach another node. False on a
+     * single node, where every event is dropped as an echo.
+     */
+    public boolean hasPeers() {
+        return transport.reachesOtherNodes();
+    }
+
+    /**
+     * Receive notices published on {@code topic} by other nodes.
+     */
+    public void onNotice(String topic, Consumer<String> listener) {
+        noticeListeners.put(NOTICE_PREFIX + topic, listener);
+    }
+
+    private void send(String destination, byte[] payload) {
+        // Sequence assignment and hand-off under one lock, so the transport sees sequence order
+        publishLock.lock();
+        try {
+            transport.publish(new BroadcastEvent(nodeId, ++publishedSequence, destination, payload));
+        } catch (Exception e) {
+            logger.warn("Failed to publish broadcast for {} to other nodes: {}", destination, e.getMessage());
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    void receive(BroadcastEvent event) {
+        if (nodeId.equals(event.origin())) {
+            return; // Already delivered locally
+        }
+        Long last = deliveredSequences.get(event.origin());
+        if (last != null && event.sequence() <= last) {
+            return; // Duplicate
+        }
+        deliveredSequences.put(event.origin(), event.sequence());
+
+        if (event.destination().startsWith(NOTICE_PREFIX)) {
+            Consumer<String> listener = noticeListeners.get(event.destination());
+            if (listener != null) {
+                try {
+                    listener.accept(new String(event.payload(), StandardCharsets.UTF_8));
+                } catch (Exception e) {
+                    logger.warn("Failed to handle notice {} from {}: {}", event.destination(), event.origin(),
+                            e.getMessage());
+                }
+            }
+            return;
+        }
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        try {
+            messagingTemplate.send(event.destination(),
+                    MessageBuilder.createMessage(event.payload(), headers.getMessageHeaders()));
+        } catch (Exception e) {
+            logger.warn("Failed to deliver broadcast from {} to {}: {}", event.origin(), event.destination(),
+                    e.getMessage());
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    private static byte[] payloadBytes(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (payload instanceof String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+}
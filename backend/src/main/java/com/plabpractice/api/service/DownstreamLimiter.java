@@ -0,0 +1,111 @@
+package com.plabpractice.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-downstream concurrency limits for blocking outbound HTTP calls.
+ *
+ * Each downstream gets its own fair semaphore. A call waits at most
+ * {@code outbound.acquire-timeout-ms} for a permit and otherwise fails with
+ * {@link DownstreamBusyException}, so a slow Supabase or Google endpoint can
+ * hold at most its own permits - not every request thread. With virtual
+ * threads enabled the waiting is cheap; the limit is what protects the
+ * downstream and the callers behind it.
+ *
+ * Exposes {@code plab.outbound.permits.available} and
+ * {@code plab.outbound.rejected} per downstream.
+ */
+@Service
+public class DownstreamLimiter {
+
+    public enum Downstream {
+        SUPABASE_STORAGE,
+        SUPABASE_AUTH,
+        GOOGLE,
+        EMAIL
+    }
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, Counter> rejections = new EnumMap<>(Downstream.class);
+    private final long acquireTimeoutMillis;
+
+    public DownstreamLimiter(MeterRegistry meterRegistry,
+            @Value("${outbound.supabase-storage.max-concurrent:8}") int supabaseStorage,
+            @Value("${outbound.supabase-auth.max-concurrent:4}") int supabaseAuth,
+            @Value("${outbound.google.max-concurrent:16}") int google,
+            @Value("${outbound.email.max-concurrent:4}") int email,
+            @Value("${outbound.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        register(meterRegistry, Downstream.SUPABASE_STORAGE, supabaseStorage);
+        register(meterRegistry, Downstream.SUPABASE_AUTH, supabaseAuth);
+        register(meterRegistry, Downstream.GOOGLE, google);
+        register(meterRegistry, Downstream.EMAIL, email);
+    }
+
+    /**
+     * Run a blocking call once a permit for {@code downstream} is available.
+     *
+     * @throws DownstreamBusyException if no permit frees up in time
+     */
+    public <T> T call(Downstream downstream, Callable<T> call) throws Exception {
+        Semaphore semaphore = permits.get(downstream);
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamBusyException(downstream);
+        }
+        if (!acquired) {
+            rejections.get(downstream).increment();
+            throw new DownstreamBusyException(downstream);
+        }
+        try {
+            return call.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public int availablePermits(Downstream downstream) {
+        return permits.get(downstream).availablePermits();
+    }
+
+    private void register(MeterRegistry meterRegistry, Downstream downstream, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("max-concurrent for " + downstream + " must be positive");
+        }
+        Semaphore semaphore = new Semaphore(maxConcurrent, true);
+        permits.put(downstream, semaphore);
+        String tag = downstream.name().toLowerCase(Locale.ROOT);
+        Gauge.builder("plab.outbound.permits.available", semaphore, Semaphore::availablePermits)
+                .description("Free concurrency permits for an outbound HTTP downstream")
+                .tag("downstream", tag)
+                .register(meterRegistry);
+        rejections.put(downstream, Counter.builder("plab.outbound.rejected")
+                .description("Outbound calls rejected because the downstream was at its concurrency limit")
+                .tag("downstream", tag)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Thrown when a downstream is at its concurrency limit.
+     */
+    public static class DownstreamBusyException extends RuntimeException {
+        public DownstreamBusyException(Downstream downstream) {
+            super(downstream.name().toLowerCase(Locale.ROOT).replace('_', ' ')
+                    + " is busy - please try again shortly");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.plabpractice.api.service;
 
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -10,6 +12,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +38,15 @@ public class EmailService {
     @Value("${APP_EMAIL_REPLY_TO:}")
     private String replyToEmail;
 
+    @Value("${outbound.read-timeout-ms:15000}")
+    private long readTimeoutMillis;
+
+    @Autowired
+    private HttpClient httpClient;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     public void sendPasswordResetEmail(String toEmail, String resetToken) {
         try {
             String subject = "Password Reset Request - PLAB 2 Practice";
@@ -62,8 +74,6 @@ public class EmailService {
 
     private void sendViaResend(String toEmail, String subject, String textBody, String htmlBody) {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-
             Map<String, Object> payload = new HashMap<>();
             // Use a branded from if possible (must be a verified sender in Resend)
             payload.put("from", String.format("PLAB 2 Practice <%s>", fromEmail));
@@ -82,10 +92,12 @@ public class EmailService {
                     .uri(URI.create("https://api.resend.com/emails"))
                     .header("Authorization", "Bearer " + resendApiKey)
                     .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMillis(readTimeoutMillis))
                     .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = downstreamLimiter.call(Downstream.EMAIL,
+                    () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
             int status = response.statusCode();
             if (status < 200 || status >= 300) {
                 logger.error("Resend API returned non-2xx status: {} body: {}", status, response.body());
@@ -1,5 +1,7 @@
 package com.plabpractice.api.service;
 
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -17,7 +19,12 @@ public class GoogleTokenVerifier {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleTokenVerifier.class);
     private static final String GOOGLE_TOKENINFO_URL = "https://oauth2.googleapis.com/tokeninfo?id_token=";
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Value("${google.oauth.enabled:false}")
@@ -65,7 +72,8 @@ public class GoogleTokenVerifier {
             String url = GOOGLE_TOKENINFO_URL + idTokenString;
             logger.info("Verifying Google token with tokeninfo endpoint (URL not logged for security)");
             @SuppressWarnings("unchecked")
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            Map<String, Object> response = downstreamLimiter.call(Downstream.GOOGLE,
+                    () -> restTemplate.getForObject(url, Map.class));
 
             if (response == null) {
                 throw new SecurityException("Empty response from Google tokeninfo API");
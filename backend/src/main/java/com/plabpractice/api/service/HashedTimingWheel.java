@@ -0,0 +1,404 @@
+package com.plabpractice.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel for session timers (phase expiry, feedback timeout,
+ * disconnect detection).
+ *
+ * Scheduling and cancelling are O(1): new timeouts and cancellations are
+ * queued and applied by a single tick thread, which owns the buckets. Expired
+ * tasks never run on the tick thread - they are handed to a bounded worker
+ * pool, so slow work (e.g. DB access during a phase transition) cannot delay
+ * other timers. When the worker queue is full the timeout is retried on the
+ * next tick instead of blocking the wheel.
+ *
+ * Timeouts created with {@link #scheduleAt(long, Runnable)} carry a wall-clock
+ * deadline; if the tick that picks them up is early relative to the wall
+ * clock, they are re-armed for the remainder instead of firing.
+ *
+ * With virtual workers each expired task gets its own virtual thread, and a
+ * semaphore caps how many run at once; tasks waiting for a permit count
+ * against the queue capacity. A task blocked on JDBC then parks a virtual
+ * thread instead of occupying one of a few platform threads.
+ */
+public class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final int ST_PENDING = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    // Platform worker pool, or null when expired tasks run on virtual threads
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService virtualWorkers;
+    private final Semaphore workerPermits;
+    private final AtomicInteger waitingTasks = new AtomicInteger();
+    private final int workerQueueCapacity;
+    private final Thread tickThread;
+    private final long startNanos;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    public HashedTimingWheel(String name, long tickMillis, int ticksPerWheel, int workerThreads,
+            int workerQueueCapacity) {
+        this(name, tickMillis, ticksPerWheel, workerThreads, workerQueueCapacity, false);
+    }
+
+    /**
+     * @param virtualWorkers run expired tasks on virtual threads, at most
+     *                       {@code workerThreads} at a time
+     */
+    public HashedTimingWheel(String name, long tickMillis, int ticksPerWheel, int workerThreads,
+            int workerQueueCapacity, boolean virtualWorkers) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        if (ticksPerWheel <= 0 || workerThreads <= 0 || workerQueueCapacity <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel, workerThreads and workerQueueCapacity must be positive");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+
+        this.workerQueueCapacity = workerQueueCapacity;
+        if (virtualWorkers) {
+            this.workers = null;
+            this.virtualWorkers = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name(name + "-vworker-", 1).factory());
+            this.workerPermits = new Semaphore(workerThreads);
+        } else {
+            AtomicInteger workerIds = new AtomicInteger();
+            this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(workerQueueCapacity), r -> {
+                        Thread t = new Thread(r, name + "-worker-" + workerIds.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+            this.virtualWorkers = null;
+            this.workerPermits = null;
+        }
+
+        this.startNanos = System.nanoTime();
+        this.tickThread = new Thread(this::run, name + "-tick");
+        this.tickThread.setDaemon(true);
+        this.tickThread.start();
+    }
+
+    /**
+     * Run {@code task} after {@code delay}. Returns a handle that can be
+     * cancelled in O(1).
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(task, System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay)), -1));
+    }
+
+    /**
+     * Run {@code task} at a wall-clock instant (epoch millis), e.g. a phase
+     * timer's {@code timerStartTimestamp + duration}. The task never runs
+     * before that instant according to {@link System#currentTimeMillis()}.
+     */
+    public Timeout scheduleAt(long deadlineEpochMillis, Runnable task) {
+        long delayMillis = Math.max(0, deadlineEpochMillis - System.currentTimeMillis());
+        return add(new Timeout(task, System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                deadlineEpochMillis));
+    }
+
+    /** Number of timeouts that have been scheduled but neither fired nor been cancelled. */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    /** Number of expired tasks waiting for a worker thread. */
+    public int queuedTasks() {
+        return workers != null ? workers.getQueue().size() : waitingTasks.get();
+    }
+
+    /**
+     * Stop ticking, drop all pending timeouts and let in-flight tasks finish.
+     */
+    public void stop() {
+        running = false;
+        tickThread.interrupt();
+        try {
+            tickThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ExecutorService executor = workers != null ? workers : virtualWorkers;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Timeout add(Timeout timeout) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+        pending.incrementAndGet();
+        additions.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            processCancellations();
+            transferAdditions();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Sleep until the next tick boundary. Boundaries are computed from the
+     * start time rather than the previous wake-up, so oversleeping never
+     * accumulates drift. Returns the elapsed time for the tick, or -1 on stop.
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long current = System.nanoTime() - startNanos;
+            long sleepMillis = (deadline - current + 999_999) / 1_000_000;
+            if (sleepMillis <= 0) {
+                return current;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferAdditions() {
+        // Bound the work per tick so a burst of additions cannot stall expiry
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = additions.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == ST_CANCELLED) {
+                continue;
+            }
+            long calculated = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancellations() {
+        Timeout timeout;
+        while ((timeout = cancellations.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void dispatch(Timeout timeout) {
+        if (timeout.wallDeadlineMillis > 0) {
+            long early = timeout.wallDeadlineMillis - System.currentTimeMillis();
+            if (early > 0) {
+                // Wall clock says we are early - re-arm for the remainder
+                timeout.deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(early);
+                additions.add(timeout);
+                return;
+            }
+        }
+        if (!timeout.state.compareAndSet(ST_PENDING, ST_EXPIRED)) {
+            return;
+        }
+        try {
+            execute(() -> {
+                try {
+                    timeout.task.run();
+                } catch (Throwable t) {
+                    logger.error("Timer task failed", t);
+                }
+            });
+            pending.decrementAndGet();
+        } catch (RejectedExecutionException e) {
+            if (!running) {
+                return;
+            }
+            // Worker queue is full - retry on the next tick rather than block the wheel
+            timeout.state.set(ST_PENDING);
+            timeout.deadlineNanos = System.nanoTime() - startNanos;
+            additions.add(timeout);
+        }
+    }
+
+    private void execute(Runnable task) {
+        if (workers != null) {
+            workers.execute(task);
+            return;
+        }
+        if (waitingTasks.incrementAndGet() > workerQueueCapacity) {
+            waitingTasks.decrementAndGet();
+            throw new RejectedExecutionException("Timer worker queue is full");
+        }
+        try {
+            virtualWorkers.execute(() -> {
+                try {
+                    workerPermits.acquire();
+                } catch (InterruptedException e) {
+                    waitingTasks.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                waitingTasks.decrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    workerPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waitingTasks.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long wallDeadlineMillis;
+        private final AtomicInteger state = new AtomicInteger(ST_PENDING);
+        private long deadlineNanos;
+        private long remainingRounds;
+
+        // Bucket linkage, only touched by the tick thread
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadlineNanos, long wallDeadlineMillis) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.wallDeadlineMillis = wallDeadlineMillis;
+        }
+
+        /**
+         * Cancel the task. Returns false if it already fired or was cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_PENDING, ST_CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancellations.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts hashed to one slot.
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long currentNanos) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() == ST_CANCELLED) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadlineNanos <= currentNanos) {
+                        dispatch(timeout);
+                    } else {
+                        // Placed in the wrong slot (should not happen) - reinsert
+                        additions.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.plabpractice.api.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM transport: hands every event straight to the subscribers of this
+ * instance. Used for a single node (where all events are echoes) and in
+ * tests that wire several broadcasters to one loopback.
+ */
+public class LoopbackBroadcastTransport implements BroadcastTransport {
+
+    private final List<Consumer<BroadcastEvent>> listeners = new CopyOnWriteArrayList<>();
+    // Deliveries are serialized so every listener sees events in publish order
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+
+    @Override
+    public void publish(BroadcastEvent event) {
+        deliveryLock.lock();
+        try {
+            for (Consumer<BroadcastEvent> listener : listeners) {
+                listener.accept(event);
+            }
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BroadcastEvent> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Only when several broadcasters share this loopback (tests); a single
+     * node's events all come back as echoes.
+     */
+    @Override
+    public boolean reachesOtherNodes() {
+        return listeners.size() > 1;
+    }
+}
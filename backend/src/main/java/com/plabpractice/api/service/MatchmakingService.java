@@ -0,0 +1,401 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.CategoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Matches users looking for practice partners into doctor/patient/observer
+ * triads and starts a session for each triad.
+ *
+ * Each topic has one lock-free queue per role. A ticket (one per user) sits
+ * in the role queue of every topic it asked for; its state is claimed with
+ * compare-and-set, so a ticket is matched at most once however many queues
+ * it is in, and tickets that were matched or cancelled elsewhere are
+ * dropped lazily when a scan reaches them. Forming a triad reserves the
+ * first waiting doctor, patient and observer in turn and backs out if one
+ * was taken meanwhile - no locks on the matching path.
+ *
+ * Session creation runs off the matching path: the doctor creates the
+ * session through {@link SessionService#createSessionWithConfig}, the
+ * others join it on the session's mailbox, and each user is told the code
+ * on their {@code /user/queue/matchmaking} queue.
+ *
+ * Queues live in this node's memory; with several replicas, users are
+ * matched with others queued on the same node.
+ */
+@Service
+public class MatchmakingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchmakingService.class);
+
+    static final String RANDOM_TOPIC = "Random";
+    static final String QUEUE_DESTINATION = "/queue/matchmaking";
+    private static final int MAX_TOPICS = 10;
+    private static final int MAX_TOPIC_LENGTH = 100;
+    private static final int MATCH_ATTEMPTS = 8;
+
+    private static final int WAITING = 0;
+    private static final int RESERVED = 1;
+    private static final int MATCHED = 2;
+    private static final int CANCELLED = 3;
+
+    private final SessionService sessionService;
+    private final CategoryRepository categoryRepository;
+    private final SessionWebSocketService webSocketService;
+    private final SessionMailbox sessionMailbox;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterBroadcaster clusterBroadcaster;
+    private final Executor sessionStarter;
+
+    private final ConcurrentHashMap<String, TopicQueues> queues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer matchTimer;
+    private final Counter matches;
+
+    @Autowired
+    public MatchmakingService(SessionService sessionService,
+            CategoryRepository categoryRepository,
+            SessionWebSocketService webSocketService,
+            SessionMailbox sessionMailbox,
+            SimpMessagingTemplate messagingTemplate,
+            ClusterBroadcaster clusterBroadcaster,
+            MeterRegistry meterRegistry,
+            @Value("${spring.threads.virtual.enabled:true}") boolean virtualThreads) {
+        this(sessionService, categoryRepository, webSocketService, sessionMailbox, messagingTemplate,
+                clusterBroadcaster, meterRegistry, virtualThreads
+                        ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("matchmaking-", 0).factory())
+                        : Executors.newFixedThreadPool(4));
+    }
+
+    MatchmakingService(SessionService sessionService,
+            CategoryRepository categoryRepository,
+            SessionWebSocketService webSocketService,
+            SessionMailbox sessionMailbox,
+            SimpMessagingTemplate messagingTemplate,
+            ClusterBroadcaster clusterBroadcaster,
+            MeterRegistry meterRegistry,
+            Executor sessionStarter) {
+        this.sessionService = sessionService;
+        this.categoryRepository = categoryRepository;
+        this.webSocketService = webSocketService;
+        this.sessionMailbox = sessionMailbox;
+        this.messagingTemplate = messagingTemplate;
+        this.clusterBroadcaster = clusterBroadcaster;
+        this.sessionStarter = sessionStarter;
+        Gauge.builder("plab.matchmaking.waiting", waiting, AtomicInteger::get)
+                .description("Users waiting for a match")
+                .register(meterRegistry);
+        this.matchTimer = Timer.builder("plab.matchmaking.match")
+                .description("Time spent looking for a triad after a user queues")
+                .register(meterRegistry);
+        this.matches = Counter.builder("plab.matchmaking.matches")
+                .description("Triads formed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A user waiting for partners. Only {@code state} changes after creation.
+     */
+    static final class Ticket {
+        private final User user;
+        private final SessionParticipant.Role role;
+        private final List<String> topics;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Ticket(User user, SessionParticipant.Role role, List<String> topics) {
+            this.user = user;
+            this.role = role;
+            this.topics = topics;
+        }
+
+        private boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+
+        private boolean isDone() {
+            int current = state.get();
+            return current == MATCHED || current == CANCELLED;
+        }
+    }
+
+    record Match(String topic, Ticket doctor, Ticket patient, Ticket observer) {
+        List<Ticket> tickets() {
+            return List.of(doctor, patient, observer);
+        }
+    }
+
+    private static final class TopicQueues {
+        private final Queue<Ticket> doctors = new ConcurrentLinkedQueue<>();
+        private final Queue<Ticket> patients = new ConcurrentLinkedQueue<>();
+        private final Queue<Ticket> observers = new ConcurrentLinkedQueue<>();
+
+        private Queue<Ticket> of(SessionParticipant.Role role) {
+            return switch (role) {
+                case DOCTOR -> doctors;
+                case PATIENT -> patients;
+                case OBSERVER -> observers;
+                default -> throw new IllegalArgumentException("No matchmaking queue for role " + role);
+            };
+        }
+    }
+
+    /**
+     * Queue {@code user} for {@code role} in each of {@code topics} (none
+     * means {@value #RANDOM_TOPIC}), replacing any earlier ticket, and try to
+     * form a triad straight away. Topics must name existing categories, so
+     * made-up names cannot grow the queue map.
+     */
+    public void enqueue(User user, SessionParticipant.Role role, List<String> topics) {
+        if (role != SessionParticipant.Role.DOCTOR && role != SessionParticipant.Role.PATIENT
+                && role != SessionParticipant.Role.OBSERVER) {
+            throw new RuntimeException("Role must be DOCTOR, PATIENT or OBSERVER");
+        }
+        Ticket ticket = new Ticket(user, role, normalizeTopics(topics));
+        Ticket previous = tickets.put(user.getId(), ticket);
+        if (previous != null) {
+            cancel(previous);
+        }
+        waiting.incrementAndGet();
+        for (String topic : ticket.topics) {
+            queues.computeIfAbsent(topic, key -> new TopicQueues()).of(role).add(ticket);
+        }
+        matchTimer.record(() -> tryMatch(ticket.topics));
+    }
+
+    /**
+     * Leave the queue. Returns false if the user was not waiting (or has
+     * just been matched).
+     */
+    public boolean cancel(User user) {
+        Ticket ticket = tickets.get(user.getId());
+        return ticket != null && cancel(ticket);
+    }
+
+    public Optional<Map<String, Object>> getStatus(User user) {
+        Ticket ticket = tickets.get(user.getId());
+        if (ticket == null || ticket.isDone()) {
+            return Optional.empty();
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("role", ticket.role.toString());
+        status.put("topics", ticket.topics);
+        status.put("waitingSeconds", (System.currentTimeMillis() - ticket.enqueuedAt) / 1000);
+        return Optional.of(status);
+    }
+
+    public int waitingUsers() {
+        return waiting.get();
+    }
+
+    /**
+     * Retry every topic. A match can be missed while a competing attempt
+     * briefly holds a ticket reserved; this picks it up.
+     */
+    @Scheduled(fixedDelayString = "${matchmaking.sweep-interval-ms:1000}")
+    public void sweep() {
+        if (waiting.get() >= 3) {
+            tryMatch(List.copyOf(queues.keySet()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sessionStarter instanceof ExecutorService executor) {
+            executor.shutdown();
+        }
+    }
+
+    private boolean cancel(Ticket ticket) {
+        while (true) {
+            int current = ticket.state.get();
+            if (current == RESERVED) {
+                // A match attempt holds it for a few instructions - wait for the outcome
+                Thread.onSpinWait();
+                continue;
+            }
+            if (current != WAITING) {
+                return false;
+            }
+            if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                waiting.decrementAndGet();
+                tickets.remove(ticket.user.getId(), ticket);
+                return true;
+            }
+        }
+    }
+
+    private void tryMatch(List<String> topics) {
+        for (String topic : topics) {
+            TopicQueues topicQueues = queues.get(topic);
+            if (topicQueues == null) {
+                continue;
+            }
+            int lostRaces = 0;
+            while (lostRaces < MATCH_ATTEMPTS) {
+                Ticket doctor = firstWaiting(topicQueues.doctors);
+                Ticket patient = doctor != null ? firstWaiting(topicQueues.patients) : null;
+                Ticket observer = patient != null ? firstWaiting(topicQueues.observers) : null;
+                if (observer == null) {
+                    break;
+                }
+                if (reserve(doctor, patient, observer)) {
+                    matched(new Match(topic, doctor, patient, observer));
+                } else {
+                    lostRaces++;
+                }
+            }
+        }
+    }
+
+    private static Ticket firstWaiting(Queue<Ticket> queue) {
+        for (Iterator<Ticket> it = queue.iterator(); it.hasNext();) {
+            Ticket ticket = it.next();
+            if (ticket.isWaiting()) {
+                return ticket;
+            }
+            if (ticket.isDone()) {
+                it.remove();
+            }
+        }
+        return null;
+    }
+
+    private static boolean reserve(Ticket doctor, Ticket patient, Ticket observer) {
+        if (!doctor.state.compareAndSet(WAITING, RESERVED)) {
+            return false;
+        }
+        if (!patient.state.compareAndSet(WAITING, RESERVED)) {
+            doctor.state.set(WAITING);
+            return false;
+        }
+        if (!observer.state.compareAndSet(WAITING, RESERVED)) {
+            patient.state.set(WAITING);
+            doctor.state.set(WAITING);
+            return false;
+        }
+        doctor.state.set(MATCHED);
+        patient.state.set(MATCHED);
+        observer.state.set(MATCHED);
+        return true;
+    }
+
+    private void matched(Match match) {
+        for (Ticket ticket : match.tickets()) {
+            tickets.remove(ticket.user.getId(), ticket);
+        }
+        waiting.addAndGet(-3);
+        matches.increment();
+        sessionStarter.execute(() -> startSession(match));
+    }
+
+    void startSession(Match match) {
+        try {
+            Session session = sessionService.createSessionWithConfig("Practice: " + match.topic(), "TOPIC", 2.0,
+                    8.0, "COUNTDOWN", List.of(match.topic()), match.doctor().user);
+            String sessionCode = session.getCode();
+            sessionMailbox.call(sessionCode, () -> {
+                for (Ticket ticket : match.tickets()) {
+                    User user = ticket.user;
+                    // Same auto-leave as joining by code
+                    for (Session leftSession : sessionService.leaveUserFromOtherActiveSessions(sessionCode, user)) {
+                        sessionMailbox.execute(leftSession.getCode(),
+                                () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
+                    }
+                    if (ticket.role != SessionParticipant.Role.DOCTOR) {
+                        sessionService.joinSessionWithRole(sessionCode, ticket.role.toString(), user);
+                    }
+                    webSocketService.startUserActivityTracking(sessionCode, user.getId());
+                }
+                webSocketService.broadcastParticipantUpdate(sessionCode);
+                return null;
+            });
+            for (Ticket ticket : match.tickets()) {
+                Map<String, Object> message = new HashMap<>();
+                message.put("type", "MATCH_FOUND");
+                message.put("sessionCode", sessionCode);
+                message.put("role", ticket.role.toString());
+                message.put("topic", match.topic());
+                notify(ticket.user, message);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to start matched session for topic {}: {}", match.topic(), e.getMessage());
+            for (Ticket ticket : match.tickets()) {
+                Map<String, Object> message = new HashMap<>();
+                message.put("type", "MATCH_FAILED");
+                message.put("error", "Could not start the matched session - please queue again");
+                notify(ticket.user, message);
+            }
+        }
+    }
+
+    private void notify(User user, Map<String, Object> message) {
+        messagingTemplate.convertAndSendToUser(user.getEmail(), QUEUE_DESTINATION, message, converted -> {
+            // The user may be connected to another node
+            clusterBroadcaster.publish("/user/" + user.getEmail() + QUEUE_DESTINATION, converted);
+            return converted;
+        });
+    }
+
+    private List<String> normalizeTopics(List<String> topics) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (topics != null) {
+            for (String topic : topics) {
+                if (topic != null && !topic.isBlank()) {
+                    normalized.add(topic.trim());
+                }
+            }
+        }
+        if (normalized.isEmpty()) {
+            normalized.add(RANDOM_TOPIC);
+        }
+        if (normalized.size() > MAX_TOPICS) {
+            throw new RuntimeException("At most " + MAX_TOPICS + " topics can be selected");
+        }
+        for (String topic : normalized) {
+            if (topic.length() > MAX_TOPIC_LENGTH) {
+                throw new RuntimeException("Topic name is too long");
+            }
+        }
+        Set<String> unknown = new LinkedHashSet<>(normalized);
+        unknown.remove(RANDOM_TOPIC);
+        if (!unknown.isEmpty()) {
+            unknown.removeAll(categoryRepository.findNamesIn(unknown));
+            if (!unknown.isEmpty()) {
+                throw new RuntimeException("Unknown topics: " + String.join(", ", unknown));
+            }
+        }
+        return new ArrayList<>(normalized);
+    }
+}
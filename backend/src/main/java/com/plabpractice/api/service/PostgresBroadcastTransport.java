@@ -0,0 +1,243 @@
+package com.plabpractice.api.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Broadcast transport over Postgres LISTEN/NOTIFY - cross-node fan-out
+ * without a separate message broker.
+ *
+ * Events are queued and sent by one thread on one dedicated connection, a
+ * drained batch per transaction, so a node's events are notified in publish
+ * order. Notification text is {@code origin|sequence|kind|destination|body}.
+ * Payloads too large for a NOTIFY (8000 bytes) are written to
+ * {@code broadcast_outbox} and the notification carries the row id instead
+ * (kind {@code R}); outbox rows are deleted after a few minutes. A second
+ * dedicated connection LISTENs and hands events to the subscribers on its
+ * own thread, in arrival order. Both connections reconnect on failure.
+ *
+ * Holds two connections for the lifetime of the application, so the data
+ * source should hand out dedicated connections rather than pooled ones.
+ */
+public class PostgresBroadcastTransport implements BroadcastTransport, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresBroadcastTransport.class);
+    private static final int MAX_INLINE_BYTES = 7000;
+    private static final int MAX_BATCH = 256;
+    private static final long OUTBOX_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final String channel;
+    private final BlockingQueue<BroadcastEvent> outgoing;
+    private final List<Consumer<BroadcastEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread sender;
+    private final Thread receiver;
+    private volatile boolean running = true;
+    private long lastOutboxCleanup;
+
+    public PostgresBroadcastTransport(DataSource dataSource, String channel, int queueCapacity) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("broadcast.postgres.channel must be a lowercase identifier");
+        }
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.outgoing = new ArrayBlockingQueue<>(queueCapacity);
+        this.sender = new Thread(this::sendLoop, "broadcast-notify");
+        this.receiver = new Thread(this::listenLoop, "broadcast-listen");
+        sender.setDaemon(true);
+        receiver.setDaemon(true);
+    }
+
+    public void start() {
+        receiver.start();
+        sender.start();
+    }
+
+    @Override
+    public void publish(BroadcastEvent event) {
+        if (!outgoing.offer(event)) {
+            // Remote clients recover through the state version; never block the caller
+            logger.warn("Broadcast queue full, dropping event for {}", event.destination());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BroadcastEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        sender.interrupt();
+        receiver.interrupt();
+    }
+
+    private void sendLoop() {
+        List<BroadcastEvent> batch = new ArrayList<>();
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                while (running) {
+                    if (batch.isEmpty()) {
+                        BroadcastEvent first = outgoing.poll(1, TimeUnit.SECONDS);
+                        if (first != null) {
+                            batch.add(first);
+                            outgoing.drainTo(batch, MAX_BATCH - 1);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        notifyAll(connection, batch);
+                        connection.commit();
+                        batch.clear();
+                    }
+                    cleanUpOutbox(connection);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException e) {
+                // The batch is retried on the new connection; receivers drop any duplicates
+                logger.warn("Broadcast notify failed, reconnecting: {}", e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private void notifyAll(Connection connection, List<BroadcastEvent> batch) throws SQLException {
+        try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (BroadcastEvent event : batch) {
+                String header = event.origin() + '|' + event.sequence() + '|';
+                String body = new String(event.payload(), StandardCharsets.UTF_8);
+                String text;
+                if (header.length() + event.destination().length() + event.payload().length + 3 <= MAX_INLINE_BYTES) {
+                    text = header + "D|" + event.destination() + '|' + body;
+                } else {
+                    text = header + "R|" + event.destination() + '|' + storeInOutbox(connection, event.payload());
+                }
+                notify.setString(1, channel);
+                notify.setString(2, text);
+                notify.execute();
+            }
+        }
+    }
+
+    private long storeInOutbox(Connection connection, byte[] payload) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO broadcast_outbox (payload) VALUES (?) RETURNING id")) {
+            insert.setBytes(1, payload);
+            try (ResultSet rs = insert.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void cleanUpOutbox(Connection connection) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastOutboxCleanup < OUTBOX_RETENTION_MILLIS) {
+            return;
+        }
+        lastOutboxCleanup = now;
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM broadcast_outbox WHERE created_at < ?")) {
+            delete.setTimestamp(1, new Timestamp(now - OUTBOX_RETENTION_MILLIS));
+            delete.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        BroadcastEvent event = parse(connection, notification.getParameter());
+                        if (event != null) {
+                            dispatch(event);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                // Notifications sent while disconnected are lost; clients resync via the state version
+                logger.warn("Broadcast listener failed, reconnecting: {}", e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private BroadcastEvent parse(Connection connection, String text) throws SQLException {
+        String[] parts = text.split("\\|", 5);
+        if (parts.length != 5) {
+            logger.warn("Ignoring malformed broadcast notification");
+            return null;
+        }
+        byte[] payload;
+        if ("R".equals(parts[2])) {
+            payload = loadFromOutbox(connection, Long.parseLong(parts[4]));
+            if (payload == null) {
+                return null;
+            }
+        } else {
+            payload = parts[4].getBytes(StandardCharsets.UTF_8);
+        }
+        return new BroadcastEvent(parts[0], Long.parseLong(parts[1]), parts[3], payload);
+    }
+
+    private byte[] loadFromOutbox(Connection connection, long id) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT payload FROM broadcast_outbox WHERE id = ?")) {
+            select.setLong(1, id);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getBytes(1) : null;
+            }
+        }
+    }
+
+    private void dispatch(BroadcastEvent event) {
+        for (Consumer<BroadcastEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                logger.warn("Broadcast listener failed for {}: {}", event.destination(), e.getMessage());
+            }
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.repository.CaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of recall cases by recall date.
+ *
+ * Recall dates are loaded from the normalized case_recall_dates table (and
+ * parsed once when a case is saved) into a
+ * {@code NavigableMap<LocalDate, case IDs>} plus the reverse mapping.
+ * Date, range, histogram and random-in-range lookups are then sub-map
+ * operations - no entities are loaded and no date strings are parsed per
+ * request.
+ *
+ * CaseController keeps the index up to date on create, update and delete. It
+ * is loaded lazily and reloaded periodically, so changes made by other
+ * instances are picked up too.
+ */
+@Service
+public class RecallDateIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecallDateIndex.class);
+
+    private final CaseRepository caseRepository;
+
+    // Replaced wholesale on reload, so readers never see a half-built index
+    private volatile ConcurrentSkipListMap<LocalDate, Set<Long>> casesByDate = new ConcurrentSkipListMap<>();
+    private volatile Map<Long, Set<LocalDate>> datesByCase = new ConcurrentHashMap<>();
+    // Serializes writers so the two maps stay consistent; readers are lock-free
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile boolean loaded;
+
+    public RecallDateIndex(CaseRepository caseRepository) {
+        this.caseRepository = caseRepository;
+    }
+
+    /** Recall case IDs with a recall on {@code date}. */
+    public Set<Long> caseIdsOn(LocalDate date) {
+        ensureLoaded();
+        Set<Long> ids = casesByDate.get(date);
+        return ids != null ? Set.copyOf(ids) : Set.of();
+    }
+
+    /** Recall case IDs with at least one recall date in [start, end]. */
+    public Set<Long> caseIdsInRange(LocalDate start, LocalDate end) {
+        ensureLoaded();
+        Set<Long> ids = new LinkedHashSet<>();
+        if (start.isAfter(end)) {
+            return ids;
+        }
+        casesByDate.subMap(start, true, end, true).values().forEach(ids::addAll);
+        return ids;
+    }
+
+    /** All distinct recall dates, ascending. */
+    public List<LocalDate> dates() {
+        ensureLoaded();
+        return new ArrayList<>(casesByDate.keySet());
+    }
+
+    /**
+     * Number of recall cases per date in [start, end], for calendar views.
+     * Null bounds are open.
+     */
+    public NavigableMap<LocalDate, Integer> histogram(LocalDate start, LocalDate end) {
+        ensureLoaded();
+        NavigableMap<LocalDate, Set<Long>> range = casesByDate;
+        if (start != null && end != null) {
+            if (start.isAfter(end)) {
+                return Collections.emptyNavigableMap();
+            }
+            range = casesByDate.subMap(start, true, end, true);
+        } else if (start != null) {
+            range = casesByDate.tailMap(start, true);
+        } else if (end != null) {
+            range = casesByDate.headMap(end, true);
+        }
+        NavigableMap<LocalDate, Integer> counts = new TreeMap<>();
+        range.forEach((date, ids) -> counts.put(date, ids.size()));
+        return counts;
+    }
+
+    /**
+     * Uniformly random recall case with a recall date in [start, end] that is
+     * not in {@code excludeIds}.
+     */
+    public OptionalLong randomCaseIdInRange(LocalDate start, LocalDate end, Set<Long> excludeIds) {
+        Set<Long> candidates = caseIdsInRange(start, end);
+        if (excludeIds != null && !excludeIds.isEmpty()) {
+            candidates.removeAll(excludeIds);
+        }
+        if (candidates.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        int index = ThreadLocalRandom.current().nextInt(candidates.size());
+        for (Long id : candidates) {
+            if (index-- == 0) {
+                return OptionalLong.of(id);
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Re-index a case after it was created or updated.
+     */
+    public void index(Case updatedCase) {
+        if (!loaded) {
+            return; // The next load reads the saved state
+        }
+        writeLock.lock();
+        try {
+            removeLocked(updatedCase.getId());
+            if (Boolean.TRUE.equals(updatedCase.getIsRecallCase())) {
+                add(casesByDate, datesByCase, updatedCase.getId(), updatedCase.getRecallDates());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long caseId) {
+        if (!loaded) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            removeLocked(caseId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${case.recall-index.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        loaded = false;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            ConcurrentSkipListMap<LocalDate, Set<Long>> byDate = new ConcurrentSkipListMap<>();
+            Map<Long, Set<LocalDate>> byCase = new ConcurrentHashMap<>();
+            for (Object[] row : caseRepository.findRecallDateRows()) {
+                Long caseId = ((Number) row[0]).longValue();
+                LocalDate date = (LocalDate) row[1];
+                byCase.computeIfAbsent(caseId, id -> new TreeSet<>()).add(date);
+                byDate.computeIfAbsent(date, d -> ConcurrentHashMap.newKeySet()).add(caseId);
+            }
+            casesByDate = byDate;
+            datesByCase = byCase;
+            loaded = true;
+            logger.debug("Recall date index loaded: {} cases over {} dates", byCase.size(), byDate.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void add(ConcurrentSkipListMap<LocalDate, Set<Long>> casesByDate,
+            Map<Long, Set<LocalDate>> datesByCase, Long caseId, Collection<String> recallDates) {
+        if (recallDates == null || recallDates.isEmpty()) {
+            return;
+        }
+        Set<LocalDate> dates = new TreeSet<>();
+        for (String value : recallDates) {
+            try {
+                dates.add(LocalDate.parse(value));
+            } catch (DateTimeParseException | NullPointerException e) {
+                logger.warn("Ignoring invalid recall date '{}' on case {}", value, caseId);
+            }
+        }
+        if (dates.isEmpty()) {
+            return;
+        }
+        datesByCase.put(caseId, dates);
+        for (LocalDate date : dates) {
+            casesByDate.computeIfAbsent(date, d -> ConcurrentHashMap.newKeySet()).add(caseId);
+        }
+    }
+
+    private void removeLocked(Long caseId) {
+        Set<LocalDate> dates = datesByCase.remove(caseId);
+        if (dates == null) {
+            return;
+        }
+        for (LocalDate date : dates) {
+            Set<Long> ids = casesByDate.get(date);
+            if (ids != null) {
+                ids.remove(caseId);
+                if (ids.isEmpty()) {
+                    casesByDate.remove(date);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.ArchivedSession;
+import com.plabpractice.api.model.ArchivedSessionParticipant;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.repository.ArchivedSessionParticipantRepository;
+import com.plabpractice.api.repository.ArchivedSessionRepository;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves finished sessions and their participants out of the hot tables.
+ *
+ * COMPLETED/CANCELLED sessions created before the retention cutoff are copied
+ * to {@code sessions_archive} / {@code session_participants_archive} and
+ * deleted, one chunk per transaction, so the indexes behind findByCode,
+ * findByUserId and the active-session counts stay small. Their codes go back
+ * to {@link SessionCodeAllocator} once the chunk has committed, so archived
+ * sessions are looked up by id (or by code through the user's own
+ * participation), never by code alone. Feedback rows are not moved; the
+ * feedback endpoints resolve their session through {@link #findSession(Long)}
+ * once it has been archived.
+ *
+ * Rows moved are logged per run and counted in {@code plab.archive.rows}.
+ */
+@Service
+public class SessionArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionArchiveService.class);
+    private static final Set<Session.Status> FINISHED = EnumSet.of(Session.Status.COMPLETED,
+            Session.Status.CANCELLED);
+
+    private final SessionRepository sessionRepository;
+    private final SessionParticipantRepository participantRepository;
+    private final ArchivedSessionRepository archivedSessionRepository;
+    private final ArchivedSessionParticipantRepository archivedParticipantRepository;
+    private final SessionCodeAllocator sessionCodeAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter sessionsMoved;
+    private final Counter participantsMoved;
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final int retentionDays;
+    private final int chunkSize;
+
+    public SessionArchiveService(SessionRepository sessionRepository,
+            SessionParticipantRepository participantRepository,
+            ArchivedSessionRepository archivedSessionRepository,
+            ArchivedSessionParticipantRepository archivedParticipantRepository,
+            SessionCodeAllocator sessionCodeAllocator,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${session.archive.retention-days:90}") int retentionDays,
+            @Value("${session.archive.chunk-size:500}") int chunkSize) {
+        if (retentionDays < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("session.archive.retention-days and chunk-size must be positive");
+        }
+        this.sessionRepository = sessionRepository;
+        this.participantRepository = participantRepository;
+        this.archivedSessionRepository = archivedSessionRepository;
+        this.archivedParticipantRepository = archivedParticipantRepository;
+        this.sessionCodeAllocator = sessionCodeAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+        this.sessionsMoved = Counter.builder("plab.archive.rows")
+                .description("Rows moved to the archive tables")
+                .tag("table", "sessions")
+                .register(meterRegistry);
+        this.participantsMoved = Counter.builder("plab.archive.rows")
+                .description("Rows moved to the archive tables")
+                .tag("table", "session_participants")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rows moved by one archival run.
+     */
+    public record ArchiveResult(long sessions, long participants, int chunks) {
+    }
+
+    private record Chunk(long sessions, long participants, List<String> codes) {
+    }
+
+    @Scheduled(cron = "${session.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        try {
+            archiveFinishedSessions();
+        } catch (Exception e) {
+            logger.error("Session archival failed", e);
+        }
+    }
+
+    /**
+     * Archive every finished session past the retention period, chunk by
+     * chunk. A failed chunk rolls back on its own; earlier chunks stay moved.
+     */
+    public ArchiveResult archiveFinishedSessions() {
+        if (!runLock.tryLock()) {
+            logger.info("Session archival already running, skipping");
+            return new ArchiveResult(0, 0, 0);
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            long sessions = 0;
+            long participants = 0;
+            int chunks = 0;
+            while (true) {
+                List<Long> ids = sessionRepository.findArchivableIds(FINISHED, cutoff, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Chunk moved = transactionTemplate.execute(status -> archiveChunk(ids));
+                // Only after commit - a rolled back chunk still owns its codes
+                moved.codes().forEach(sessionCodeAllocator::release);
+                sessions += moved.sessions();
+                participants += moved.participants();
+                chunks++;
+                sessionsMoved.increment(moved.sessions());
+                participantsMoved.increment(moved.participants());
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+            ArchiveResult result = new ArchiveResult(sessions, participants, chunks);
+            if (chunks > 0) {
+                logger.info("Archived {} sessions and {} participants older than {} days in {} chunks",
+                        sessions, participants, retentionDays, chunks);
+            }
+            return result;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private Chunk archiveChunk(List<Long> ids) {
+        List<String> codes = sessionRepository.findCodesByIdIn(ids);
+        long participants = archivedParticipantRepository.copyFromParticipants(ids);
+        participantRepository.deleteAllBySessionIdIn(ids);
+        long sessions = archivedSessionRepository.copyFromSessions(ids);
+        sessionRepository.deleteAllByIdIn(ids);
+        return new Chunk(sessions, participants, codes);
+    }
+
+    /**
+     * An archived session as a detached {@link Session}, for rendering old feedback.
+     */
+    public Optional<Session> findSession(Long sessionId) {
+        if (sessionId == null) {
+            return Optional.empty();
+        }
+        return archivedSessionRepository.findById(sessionId).map(ArchivedSession::toSession);
+    }
+
+    /**
+     * The newest archived session with {@code code} that {@code userId} took part in.
+     */
+    public Optional<Session> findSessionForParticipant(String code, Long userId) {
+        return archivedSessionRepository.findByCodeAndParticipant(code, userId, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(ArchivedSession::toSession);
+    }
+
+    /**
+     * The newest archived session with {@code code} that {@code userId} hosted.
+     */
+    public Optional<Session> findSessionForHost(String code, Long userId) {
+        return archivedSessionRepository.findByCodeAndHost(code, userId, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(ArchivedSession::toSession);
+    }
+
+    public Optional<SessionParticipant.Role> findRole(Long sessionId, Long userId) {
+        return archivedParticipantRepository.findFirstBySessionIdAndUserId(sessionId, userId)
+                .map(ArchivedSessionParticipant::getRole);
+    }
+}
@@ -0,0 +1,236 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.repository.SessionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out session codes from an in-memory occupancy bitmap of the
+ * 1,000,000 six-digit codes, so allocating a code never probes the database.
+ *
+ * The bitmap is loaded from the sessions table at startup. A code stays
+ * occupied for as long as its row exists ({@code session_code} is unique
+ * across all sessions, finished ones included), and is released when the row
+ * is deleted.
+ *
+ * With {@code session.code.check-digit=true} a Damm check digit is appended
+ * (seven characters), letting {@link #hasInvalidCheckDigit(String)} reject
+ * mistyped codes without a lookup. Six-digit codes issued before the check
+ * digit was enabled remain valid.
+ */
+@Service
+public class SessionCodeAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionCodeAllocator.class);
+
+    static final int CODE_SPACE = 1_000_000;
+    private static final int RANDOM_PROBES = 8;
+
+    // Damm quasigroup table (weakly totally anti-symmetric, order 10)
+    private static final int[][] DAMM = {
+            { 0, 3, 1, 7, 5, 9, 8, 6, 4, 2 },
+            { 7, 0, 9, 2, 1, 5, 4, 8, 6, 3 },
+            { 4, 2, 0, 6, 8, 7, 1, 3, 5, 9 },
+            { 1, 7, 5, 0, 9, 8, 3, 4, 2, 6 },
+            { 6, 1, 2, 3, 0, 4, 5, 9, 7, 8 },
+            { 3, 6, 7, 4, 2, 0, 9, 5, 8, 1 },
+            { 5, 8, 6, 9, 7, 2, 0, 1, 3, 4 },
+            { 8, 9, 4, 5, 3, 6, 2, 0, 1, 7 },
+            { 9, 4, 3, 8, 6, 1, 7, 2, 0, 5 },
+            { 2, 5, 8, 1, 4, 3, 6, 7, 9, 0 }
+    };
+
+    private final SessionRepository sessionRepository;
+    private final boolean checkDigitEnabled;
+
+    private final long[] occupied = new long[(CODE_SPACE + 63) / 64];
+    private final ReentrantLock lock = new ReentrantLock();
+    private int occupiedCount;
+
+    public SessionCodeAllocator(SessionRepository sessionRepository,
+            @Value("${session.code.check-digit:false}") boolean checkDigitEnabled) {
+        this.sessionRepository = sessionRepository;
+        this.checkDigitEnabled = checkDigitEnabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<String> codes = sessionRepository.findAllCodes();
+        lock.lock();
+        try {
+            for (String code : codes) {
+                int base = baseOf(code);
+                if (base >= 0) {
+                    markOccupied(base);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Session code allocator loaded: {} of {} codes in use", occupiedCount, CODE_SPACE);
+    }
+
+    /**
+     * Reserve a free code. Expected O(1): a few random probes, then a scan
+     * for a word with a clear bit once the space is nearly full.
+     */
+    public String allocate() {
+        lock.lock();
+        try {
+            return format(reserveFreeBase());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserve {@code count} distinct free codes at once.
+     */
+    public List<String> allocateBatch(int count) {
+        List<String> codes = new ArrayList<>(count);
+        lock.lock();
+        try {
+            if (CODE_SPACE - occupiedCount < count) {
+                throw new RuntimeException("Not enough session codes available");
+            }
+            for (int i = 0; i < count; i++) {
+                codes.add(format(reserveFreeBase()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return codes;
+    }
+
+    /**
+     * Return a code to the pool once its session row no longer exists.
+     */
+    public void release(String code) {
+        int base = baseOf(code);
+        if (base < 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            int word = base >>> 6;
+            long bit = 1L << (base & 63);
+            if ((occupied[word] & bit) != 0) {
+                occupied[word] &= ~bit;
+                occupiedCount--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when check digits are enabled and {@code code} is a seven-digit
+     * code whose check digit does not match - i.e. it cannot exist.
+     */
+    public boolean hasInvalidCheckDigit(String code) {
+        if (!checkDigitEnabled || code == null) {
+            return false;
+        }
+        if (code.length() == 6) {
+            // Issued before check digits were enabled
+            return false;
+        }
+        return code.length() != 7 || !isNumeric(code) || damm(code) != 0;
+    }
+
+    public int availableCodes() {
+        lock.lock();
+        try {
+            return CODE_SPACE - occupiedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int reserveFreeBase() {
+        if (occupiedCount >= CODE_SPACE) {
+            throw new RuntimeException("No session codes available");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < RANDOM_PROBES; i++) {
+            int candidate = random.nextInt(CODE_SPACE);
+            if (!isOccupied(candidate)) {
+                markOccupied(candidate);
+                return candidate;
+            }
+        }
+
+        // Dense space: scan words from a random start for a clear bit
+        int start = random.nextInt(occupied.length);
+        for (int i = 0; i < occupied.length; i++) {
+            int word = (start + i) % occupied.length;
+            long free = ~occupied[word];
+            if (free != 0) {
+                int candidate = (word << 6) + Long.numberOfTrailingZeros(free);
+                if (candidate < CODE_SPACE) {
+                    markOccupied(candidate);
+                    return candidate;
+                }
+            }
+        }
+        throw new RuntimeException("No session codes available");
+    }
+
+    private boolean isOccupied(int base) {
+        return (occupied[base >>> 6] & (1L << (base & 63))) != 0;
+    }
+
+    private void markOccupied(int base) {
+        int word = base >>> 6;
+        long bit = 1L << (base & 63);
+        if ((occupied[word] & bit) == 0) {
+            occupied[word] |= bit;
+            occupiedCount++;
+        }
+    }
+
+    private String format(int base) {
+        String code = String.format("%06d", base);
+        return checkDigitEnabled ? code + damm(code) : code;
+    }
+
+    /**
+     * Six-digit base of a stored code, or -1 if it is not one of ours.
+     */
+    private static int baseOf(String code) {
+        if (code == null || (code.length() != 6 && code.length() != 7) || !isNumeric(code)) {
+            return -1;
+        }
+        return Integer.parseInt(code.substring(0, 6));
+    }
+
+    private static boolean isNumeric(String code) {
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Damm interim digit: appending it to a string yields 0, and any
+     * single-digit error or adjacent transposition yields non-zero.
+     */
+    static int damm(String digits) {
+        int interim = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            interim = DAMM[interim][digits.charAt(i) - '0'];
+        }
+        return interim;
+    }
+}
@@ -0,0 +1,296 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.dto.CohortSessionRequest;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates a class's worth of sessions in one go.
+ *
+ * All codes are reserved from the allocator in a single call, then the
+ * session rows and participant rows are written with two JDBC batch inserts
+ * in one transaction (the IDENTITY ids rule out Hibernate insert batching).
+ * The instructor hosts every session through {@code created_by}. A session
+ * with a roster triad gets the triad as its participants; one without gets
+ * the instructor as host participant (doctor), as a single create does.
+ *
+ * The new sessions are not registered in the state registry; they are
+ * tracked on first access like any other session loaded from the database.
+ * Once they are written, roster users leave the live sessions they were
+ * active in, as when joining a session by code.
+ */
+@Service
+public class SessionCohortService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionCohortService.class);
+
+    private static final String INSERT_SESSION = "INSERT INTO sessions (title, session_code, status, phase, "
+            + "session_type, reading_time_minutes, consultation_time_minutes, timing_type, selected_topics, "
+            + "current_round, time_remaining, created_at, start_time, created_by, version) "
+            + "VALUES (:title, :code, :status, :phase, :sessionType, :readingTime, :consultationTime, :timingType, "
+            + ":selectedTopics, 1, 0, :createdAt, :startTime, :createdBy, 0)";
+    private static final String SELECT_IDS = "SELECT id, session_code FROM sessions WHERE session_code IN (:codes)";
+    private static final String INSERT_PARTICIPANT = "INSERT INTO session_participants (session_id, user_id, role, "
+            + "is_active, has_completed, has_given_feedback) VALUES (:sessionId, :userId, :role, TRUE, FALSE, FALSE)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionCodeAllocator sessionCodeAllocator;
+    private final UserRepository userRepository;
+    private final SessionLobby sessionLobby;
+    private final SessionService sessionService;
+    private final SessionWebSocketService webSocketService;
+    private final SessionMailbox sessionMailbox;
+    private final SessionEventLog sessionEventLog;
+    private final ObjectMapper objectMapper;
+    private final int maxSessions;
+
+    public SessionCohortService(NamedParameterJdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SessionCodeAllocator sessionCodeAllocator,
+            UserRepository userRepository,
+            SessionLobby sessionLobby,
+            SessionService sessionService,
+            SessionWebSocketService webSocketService,
+            SessionMailbox sessionMailbox,
+            SessionEventLog sessionEventLog,
+            ObjectMapper objectMapper,
+            @Value("${session.cohort.max-sessions:200}") int maxSessions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionCodeAllocator = sessionCodeAllocator;
+        this.userRepository = userRepository;
+        this.sessionLobby = sessionLobby;
+        this.sessionService = sessionService;
+        this.webSocketService = webSocketService;
+        this.sessionMailbox = sessionMailbox;
+        this.sessionEventLog = sessionEventLog;
+        this.objectMapper = objectMapper;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * One created session and the roster emails assigned to it (null when
+     * the role was left open).
+     */
+    public record CohortSession(Long id, String code, String title, String doctor, String patient,
+            String observer) {
+    }
+
+    public List<CohortSession> createCohort(CohortSessionRequest request, User instructor) {
+        long started = System.nanoTime();
+        int count = request.getCount() != null ? request.getCount() : 0;
+        if (count < 1 || count > maxSessions) {
+            throw new RuntimeException("Session count must be between 1 and " + maxSessions);
+        }
+        List<CohortSessionRequest.Triad> roster = request.getRoster() != null ? request.getRoster() : List.of();
+        if (roster.size() > count) {
+            throw new RuntimeException("Roster has more triads than sessions");
+        }
+        Session.SessionType sessionType = parse(Session.SessionType.class, request.getSessionType(), "session type");
+        Session.TimingType timingType = parse(Session.TimingType.class, request.getTimingType(), "timing type");
+        Map<String, User> rosterUsers = resolveRoster(roster);
+        String title = request.getTitle() != null && !request.getTitle().isBlank()
+                ? request.getTitle().trim()
+                : "Cohort session";
+
+        List<Session> sessions = new ArrayList<>(count);
+        List<String> codes = sessionCodeAllocator.allocateBatch(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Session session = new Session();
+            session.setTitle(title + " " + (i + 1));
+            session.setCode(codes.get(i));
+            session.setStatus(Session.Status.CREATED);
+            session.setPhase(Session.Phase.WAITING);
+            session.setSessionType(sessionType);
+            session.setReadingTime(request.getReadingTime() != null ? request.getReadingTime() : 2.0);
+            session.setConsultationTime(request.getConsultationTime() != null ? request.getConsultationTime() : 8.0);
+            session.setTimingType(timingType);
+            session.setSelectedTopics(toJson(request.getSelectedTopics()));
+            session.setCreatedAt(now);
+            session.setStartTime(now);
+            session.setCreatedBy(instructor);
+            sessions.add(session);
+        }
+
+        int participants;
+        try {
+            participants = transactionTemplate.execute(status -> insert(sessions, roster, rosterUsers, instructor));
+        } catch (RuntimeException e) {
+            codes.forEach(sessionCodeAllocator::release);
+            throw e;
+        }
+
+        List<CohortSession> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Session session = sessions.get(i);
+            CohortSessionRequest.Triad triad = i < roster.size() ? roster.get(i) : null;
+            Map<SessionParticipant.Role, User> joined = triad != null
+                    ? triadUsers(triad, rosterUsers)
+                    : Map.of(SessionParticipant.Role.DOCTOR, instructor);
+            sessionLobby.sessionCreated(session, joined.size());
+            joined.forEach((role, user) -> sessionEventLog.append(session.getId(),
+                    SessionEventLog.EventType.JOINED, user.getId(), 0, role.name()));
+            created.add(new CohortSession(session.getId(), session.getCode(), session.getTitle(),
+                    triad != null ? triad.getDoctor() : null,
+                    triad != null ? triad.getPatient() : null,
+                    triad != null ? triad.getObserver() : null));
+        }
+        leaveOtherSessions(rosterUsers.values(), sessions.stream().map(Session::getId).toList());
+        logger.info("Created {} cohort sessions ({} participants) for user {} in {} ms", count, participants,
+                instructor.getId(), (System.nanoTime() - started) / 1_000_000);
+        return created;
+    }
+
+    private int insert(List<Session> sessions, List<CohortSessionRequest.Triad> roster,
+            Map<String, User> rosterUsers, User instructor) {
+        SqlParameterSource[] sessionRows = new SqlParameterSource[sessions.size()];
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            sessionRows[i] = new MapSqlParameterSource()
+                    .addValue("title", session.getTitle())
+                    .addValue("code", session.getCode())
+                    .addValue("status", session.getStatus().name())
+                    .addValue("phase", session.getPhase().name())
+                    .addValue("sessionType", session.getSessionType().name())
+                    .addValue("readingTime", session.getReadingTime())
+                    .addValue("consultationTime", session.getConsultationTime())
+                    .addValue("timingType", session.getTimingType().name())
+                    .addValue("selectedTopics", session.getSelectedTopics())
+                    .addValue("createdAt", Timestamp.valueOf(session.getCreatedAt()))
+                    .addValue("startTime", Timestamp.valueOf(session.getStartTime()))
+                    .addValue("createdBy", instructor.getId());
+        }
+        jdbcTemplate.batchUpdate(INSERT_SESSION, sessionRows);
+
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(SELECT_IDS, Map.of("codes", sessions.stream().map(Session::getCode).toList()),
+                row -> {
+                    ids.put(row.getString("session_code"), row.getLong("id"));
+                });
+
+        List<SqlParameterSource> participantRows = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            Long sessionId = ids.get(session.getCode());
+            if (sessionId == null) {
+                throw new RuntimeException("Session " + session.getCode() + " was not inserted");
+            }
+            session.setId(sessionId);
+            session.setVersion(0L);
+            if (i < roster.size()) {
+                triadUsers(roster.get(i), rosterUsers).forEach(
+                        (role, user) -> participantRows.add(participantRow(sessionId, user, role)));
+            } else {
+                participantRows.add(participantRow(sessionId, instructor, SessionParticipant.Role.DOCTOR));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PARTICIPANT, participantRows.toArray(new SqlParameterSource[0]));
+        return participantRows.size();
+    }
+
+    private void leaveOtherSessions(Collection<User> users, List<Long> cohortSessionIds) {
+        Map<Long, List<Session>> left = sessionService.leaveUsersFromOtherActiveSessions(users, cohortSessionIds);
+        for (User user : users) {
+            for (Session leftSession : left.getOrDefault(user.getId(), List.of())) {
+                sessionMailbox.execute(leftSession.getCode(),
+                        () -> webSocketService.handleUserLeave(leftSession.getCode(), user));
+            }
+        }
+    }
+
+    private static SqlParameterSource participantRow(Long sessionId, User user, SessionParticipant.Role role) {
+        return new MapSqlParameterSource()
+                .addValue("sessionId", sessionId)
+                .addValue("userId", user.getId())
+                .addValue("role", role.name());
+    }
+
+    /**
+     * Look up every roster email in one query. A user may appear in only one
+     * triad - a user is active in one session at a time - and every triad
+     * needs at least one user.
+     */
+    private Map<String, User> resolveRoster(List<CohortSessionRequest.Triad> roster) {
+        Set<String> emails = new LinkedHashSet<>();
+        for (CohortSessionRequest.Triad triad : roster) {
+            if (triad == null || (triad.getDoctor() == null && triad.getPatient() == null
+                    && triad.getObserver() == null)) {
+                throw new RuntimeException("Roster triads need at least one user");
+            }
+            for (String email : new String[] { triad.getDoctor(), triad.getPatient(), triad.getObserver() }) {
+                if (email != null && !emails.add(email)) {
+                    throw new RuntimeException(email + " appears more than once in the roster");
+                }
+            }
+        }
+        if (emails.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, User> users = userRepository.findAllByEmailIn(emails).stream()
+                .collect(Collectors.toMap(User::getEmail, Function.identity()));
+        List<String> unknown = emails.stream().filter(email -> !users.containsKey(email)).toList();
+        if (!unknown.isEmpty()) {
+            throw new RuntimeException("Unknown roster users: " + String.join(", ", unknown));
+        }
+        return users;
+    }
+
+    private static Map<SessionParticipant.Role, User> triadUsers(CohortSessionRequest.Triad triad,
+            Map<String, User> users) {
+        Map<SessionParticipant.Role, User> assigned = new EnumMap<>(SessionParticipant.Role.class);
+        if (triad.getDoctor() != null) {
+            assigned.put(SessionParticipant.Role.DOCTOR, users.get(triad.getDoctor()));
+        }
+        if (triad.getPatient() != null) {
+            assigned.put(SessionParticipant.Role.PATIENT, users.get(triad.getPatient()));
+        }
+        if (triad.getObserver() != null) {
+            assigned.put(SessionParticipant.Role.OBSERVER, users.get(triad.getObserver()));
+        }
+        return assigned;
+    }
+
+    private String toJson(List<String> topics) {
+        try {
+            return objectMapper.writeValueAsString(topics != null ? topics : List.of("Random"));
+        } catch (JsonProcessingException e) {
+            return "[]";
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String what) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RuntimeException("Invalid " + what + ": " + value);
+        }
+    }
+}
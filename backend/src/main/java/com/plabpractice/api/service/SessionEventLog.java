@@ -0,0 +1,475 @@
+package com.plabpractice.api.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of session events (joins, role and phase changes, cases,
+ * feedback), kept so a session's timeline can be replayed after the rows
+ * have moved on.
+ *
+ * Events are appended to a memory-mapped, preallocated segment file: an
+ * append encodes straight into the mapping under a short lock - no
+ * allocation, no system call - and the mapping is forced to disk every
+ * {@code session.events.fsync-interval-ms}. A full segment is forced,
+ * trimmed to its written length and closed, and a new one is started (also
+ * on every startup) and mapped read-only for replay. Closed segments older
+ * than {@code session.events.retention-days} are deleted.
+ *
+ * Record layout: length (int, of the bytes after the CRC), CRC32C (int),
+ * timestamp millis (long), type (byte), session id (long), user id (long),
+ * value (long), detail (length-prefixed ASCII). A zero length or a CRC
+ * mismatch ends a segment, so a torn write at a crash is dropped.
+ *
+ * Events are keyed by session id: codes are reused once a session has been
+ * archived. An in-memory index maps each session id to the span of the log
+ * holding its events - the segment and offset of its first event and the
+ * last segment it was seen in - and replay scans only that span.
+ */
+@Service
+public class SessionEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_TEXT = 255;
+
+    public enum EventType {
+        JOINED,
+        LEFT,
+        ROLE_CHANGED,
+        PHASE_CHANGED,
+        CASE_ASSIGNED,
+        FEEDBACK_SUBMITTED,
+        SESSION_ENDED
+    }
+
+    /**
+     * One replayed event. {@code value} is the case id for CASE_ASSIGNED and
+     * the recipient id for FEEDBACK_SUBMITTED; {@code detail} is the role or
+     * phase name.
+     */
+    public record SessionEvent(long timestamp, EventType type, long userId, long value, String detail) {
+    }
+
+    /**
+     * Where a session's events are: from {@code firstOffset} in segment
+     * {@code firstSegment} up to the end of segment {@code lastSegment}.
+     */
+    private record SessionSpan(long firstSegment, int firstOffset, long lastSegment) {
+
+        SessionSpan seenIn(long segment) {
+            return new SessionSpan(firstSegment, firstOffset, Math.max(lastSegment, segment));
+        }
+    }
+
+    /**
+     * A closed segment and its read-only mapping, trimmed to the written data.
+     */
+    private record ClosedSegment(Path path, ByteBuffer data) {
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int retentionDays;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private final ConcurrentSkipListMap<Long, ClosedSegment> closedSegments = new ConcurrentSkipListMap<>();
+    private final Map<Long, SessionSpan> spans = new ConcurrentHashMap<>();
+
+    private Path activePath;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private ByteBuffer crcView;
+    private long activeSequence;
+    private boolean dirty;
+
+    public SessionEventLog(@Value("${session.events.enabled:true}") boolean enabled,
+            @Value("${session.events.dir:./data/session-events}") String directory,
+            @Value("${session.events.segment-bytes:67108864}") int segmentBytes,
+            @Value("${session.events.retention-days:30}") int retentionDays) {
+        if (segmentBytes < 1024 || retentionDays < 1) {
+            throw new IllegalArgumentException(
+                    "session.events.segment-bytes must be at least 1024 and retention-days positive");
+        }
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            long lastSequence = 0;
+            for (Path segment : listSegments()) {
+                long sequence = sequenceOf(segment);
+                ByteBuffer data = map(segment);
+                int valid = indexInto(spans, sequence, data);
+                if (valid < data.limit()) {
+                    // Preallocated tail of a segment that was not closed cleanly (or a torn write)
+                    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                        channel.truncate(valid);
+                    }
+                    data = map(segment);
+                }
+                closedSegments.put(sequence, new ClosedSegment(segment, data));
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+            startSegment(lastSequence + 1);
+            logger.info("Session event log opened in {}: {} segments, {} sessions indexed", directory,
+                    closedSegments.size(), spans.size());
+        } catch (IOException e) {
+            // Events are an audit trail - the application keeps running without them
+            logger.error("Session event log disabled: cannot open {}", directory, e);
+            active = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append an event. Safe to call from broadcast paths: it encodes into
+     * the mapped segment and returns; {@code detail} must be ASCII.
+     */
+    public void append(Long sessionId, EventType type, long userId, long value, String detail) {
+        if (!enabled || sessionId == null) {
+            return;
+        }
+        int detailLength = detail != null ? Math.min(detail.length(), MAX_TEXT) : 0;
+        int bodyLength = 8 + 1 + 8 + 8 + 8 + 1 + detailLength;
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            if (active == null) {
+                return;
+            }
+            if (active.remaining() < HEADER_BYTES + bodyLength + 4 && !rollSegment()) {
+                return;
+            }
+            int start = active.position();
+            active.position(start + HEADER_BYTES);
+            active.putLong(now);
+            active.put((byte) type.ordinal());
+            active.putLong(sessionId);
+            active.putLong(userId);
+            active.putLong(value);
+            putAscii(detail, detailLength);
+
+            crc.reset();
+            crcView.limit(active.position()).position(start + HEADER_BYTES);
+            crc.update(crcView);
+            active.putInt(start + 4, (int) crc.getValue());
+            // Length last - a reader treats a zero length as the end of the segment
+            active.putInt(start, bodyLength);
+            dirty = true;
+
+            SessionSpan span = spans.get(sessionId);
+            if (span == null) {
+                spans.put(sessionId, new SessionSpan(activeSequence, start, activeSequence));
+            } else if (span.lastSegment() != activeSequence) {
+                spans.put(sessionId, span.seenIn(activeSequence));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * All logged events of a session, oldest first.
+     */
+    public List<SessionEvent> timeline(Long sessionId) {
+        List<SessionEvent> events = new ArrayList<>();
+        SessionSpan span = sessionId != null ? spans.get(sessionId) : null;
+        if (span == null) {
+            return events;
+        }
+        // Snapshot the active segment first; should it be closed after this, the snapshot
+        // covers its events and the closed segments scanned below end before it
+        ByteBuffer activeSnapshot = null;
+        long lastClosed = span.lastSegment();
+        lock.lock();
+        try {
+            if (active != null && activeSequence == span.lastSegment()) {
+                activeSnapshot = active.duplicate().flip();
+                lastClosed = activeSequence - 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (lastClosed >= span.firstSegment()) {
+            for (Map.Entry<Long, ClosedSegment> segment : closedSegments
+                    .subMap(span.firstSegment(), true, lastClosed, true).entrySet()) {
+                // A private view: the shared mapping's position is never moved
+                ByteBuffer data = segment.getValue().data().duplicate();
+                scan(data.position(startOffset(span, segment.getKey(), data)), sessionId, events);
+            }
+        }
+        if (activeSnapshot != null) {
+            // Bytes before the snapshot's limit are never rewritten
+            scan(activeSnapshot.position(startOffset(span, span.lastSegment(), activeSnapshot)), sessionId,
+                    events);
+        }
+        return events;
+    }
+
+    @Scheduled(fixedDelayString = "${session.events.fsync-interval-ms:1000}")
+    public void sync() {
+        MappedByteBuffer toForce;
+        lock.lock();
+        try {
+            if (active == null || !dirty) {
+                return;
+            }
+            dirty = false;
+            toForce = active;
+        } finally {
+            lock.unlock();
+        }
+        toForce.force();
+    }
+
+    /**
+     * Delete closed segments last written more than retention-days ago and
+     * rebuild the session index from what remains.
+     */
+    @Scheduled(cron = "${session.events.retention-cron:0 15 4 * * *}")
+    public void applyRetention() {
+        if (!enabled) {
+            return;
+        }
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        int deleted = 0;
+        for (Map.Entry<Long, ClosedSegment> segment : closedSegments.entrySet()) {
+            Path path = segment.getValue().path();
+            try {
+                if (Files.getLastModifiedTime(path).compareTo(cutoff) < 0) {
+                    // Replays already holding the mapping can still finish reading it
+                    closedSegments.remove(segment.getKey());
+                    Files.deleteIfExists(path);
+                    deleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to apply retention to event segment {}: {}", path, e.getMessage());
+            }
+        }
+        if (deleted == 0) {
+            return;
+        }
+        Map<Long, SessionSpan> rebuilt = new HashMap<>();
+        for (Map.Entry<Long, ClosedSegment> segment : closedSegments.entrySet()) {
+            indexInto(rebuilt, segment.getKey(), segment.getValue().data().duplicate());
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<Long, SessionSpan> entry : spans.entrySet()) {
+                SessionSpan span = entry.getValue();
+                SessionSpan kept = rebuilt.get(entry.getKey());
+                if (kept != null) {
+                    // Appends since the rebuild may have reached the active segment
+                    spans.put(entry.getKey(), kept.seenIn(span.lastSegment()));
+                } else if (span.lastSegment() == activeSequence) {
+                    // Only its events in the active segment are left
+                    if (span.firstSegment() != activeSequence) {
+                        spans.put(entry.getKey(), new SessionSpan(activeSequence, 0, activeSequence));
+                    }
+                } else {
+                    spans.remove(entry.getKey());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Session event log retention: deleted {} segments, {} sessions indexed", deleted,
+                spans.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (active != null) {
+                closeActive();
+                active = null;
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close session event log: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        return closedSegments.size() + (active != null ? 1 : 0);
+    }
+
+    private boolean rollSegment() {
+        try {
+            closeActive();
+            startSegment(activeSequence + 1);
+            return true;
+        } catch (IOException e) {
+            logger.error("Session event log disabled: cannot start a new segment", e);
+            active = null;
+            return false;
+        }
+    }
+
+    private void startSegment(long sequence) throws IOException {
+        activePath = directory.resolve(String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        crcView = active.duplicate();
+        activeSequence = sequence;
+        dirty = false;
+    }
+
+    private void closeActive() throws IOException {
+        active.force();
+        int written = active.position();
+        // The mapping is never touched again, so trimming the preallocated tail is safe
+        activeChannel.truncate(written);
+        activeChannel.close();
+        closedSegments.put(activeSequence, new ClosedSegment(activePath, map(activePath)));
+    }
+
+    private void putAscii(String text, int length) {
+        active.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            active.put(c < 128 ? (byte) c : (byte) '?');
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Read-only mapping of a whole segment file; pages are read on demand,
+     * and the mapping stays valid after the channel is closed.
+     */
+    private static ByteBuffer map(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int startOffset(SessionSpan span, long sequence, ByteBuffer data) {
+        return sequence == span.firstSegment() ? Math.min(span.firstOffset(), data.limit()) : 0;
+    }
+
+    /**
+     * Extend the span of every session with events in the segment (starting
+     * a span at its first record); returns the length of the valid prefix.
+     */
+    private static int indexInto(Map<Long, SessionSpan> index, long sequence, ByteBuffer buffer) {
+        CRC32C check = new CRC32C();
+        while (true) {
+            int start = buffer.position();
+            int bodyLength = validRecordLength(buffer, check);
+            if (bodyLength < 0) {
+                return start;
+            }
+            long sessionId = buffer.getLong(start + HEADER_BYTES + 8 + 1);
+            SessionSpan span = index.get(sessionId);
+            if (span == null) {
+                index.put(sessionId, new SessionSpan(sequence, start, sequence));
+            } else if (span.lastSegment() != sequence) {
+                index.put(sessionId, span.seenIn(sequence));
+            }
+            buffer.position(start + HEADER_BYTES + bodyLength);
+        }
+    }
+
+    private static void scan(ByteBuffer buffer, long sessionId, List<SessionEvent> events) {
+        CRC32C check = new CRC32C();
+        while (true) {
+            int start = buffer.position();
+            int bodyLength = validRecordLength(buffer, check);
+            if (bodyLength < 0) {
+                return;
+            }
+            buffer.position(start + HEADER_BYTES);
+            long timestamp = buffer.getLong();
+            int typeOrdinal = buffer.get();
+            long recordSessionId = buffer.getLong();
+            long userId = buffer.getLong();
+            long value = buffer.getLong();
+            if (recordSessionId == sessionId && typeOrdinal >= 0 && typeOrdinal < EventType.values().length) {
+                int detailLength = buffer.get() & 0xFF;
+                byte[] detail = new byte[detailLength];
+                buffer.get(detail);
+                events.add(new SessionEvent(timestamp, EventType.values()[typeOrdinal], userId, value,
+                        detailLength > 0 ? new String(detail, StandardCharsets.US_ASCII) : null));
+            }
+            buffer.position(start + HEADER_BYTES + bodyLength);
+        }
+    }
+
+    /**
+     * Length of the record at the buffer's position, or -1 at the end of
+     * the written data (zero length, truncated or failing its CRC).
+     */
+    private static int validRecordLength(ByteBuffer buffer, CRC32C check) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return -1;
+        }
+        int bodyLength = buffer.getInt(start);
+        if (bodyLength <= 0 || bodyLength > buffer.remaining() - HEADER_BYTES) {
+            return -1;
+        }
+        check.reset();
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + bodyLength);
+        check.update(body);
+        return (int) check.getValue() == buffer.getInt(start + 4) ? bodyLength : -1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.repository.SessionLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Session ownership leases, so several backend replicas can share the
+ * phase timers without firing a transition twice or not at all.
+ *
+ * Every session code with a running timer is leased to exactly one node in
+ * {@code session_leases}. The node that starts a phase timer takes the lease;
+ * restarts and failover only claim leases that are free or expired. Each
+ * node renews all of its leases in one statement every
+ * {@code session.lease.renew-interval-ms}. A node that dies stops renewing,
+ * and its leases are claimed by a survivor within {@code session.lease.ttl-ms}
+ * plus one renew interval. A timer checks that its node still holds the lease
+ * right before it fires.
+ *
+ * Expiry is compared against each node's clock, so node clocks must be kept
+ * in sync (NTP) to well within the TTL. With {@code session.lease.enabled=false}
+ * (single replica) every node owns every session and nothing is written.
+ */
+@Service
+public class SessionLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionLeaseManager.class);
+
+    // Codes per claiming statement, to keep IN lists bounded
+    static final int CLAIM_CHUNK = 500;
+
+    private final SessionLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long ttlMillis;
+
+    public SessionLeaseManager(SessionLeaseRepository leaseRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${session.lease.enabled:false}") boolean enabled,
+            @Value("${session.lease.node-id:}") String nodeId,
+            @Value("${session.lease.ttl-ms:15000}") long ttlMillis) {
+        this.leaseRepository = leaseRepository;
+        // Lease writes commit on their own: they must neither join nor roll back a caller's transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Make this node the owner of {@code sessionCode}, taking the lease from
+     * another node if necessary. Used when this node starts a phase timer.
+     */
+    public void take(String sessionCode) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime expiresAt = expiresAt(now());
+        if (inTransaction(() -> leaseRepository.transfer(sessionCode, nodeId, expiresAt)) == 0
+                && !insert(sessionCode, expiresAt)) {
+            // Inserted concurrently by another node - the latest timer start wins
+            inTransaction(() -> leaseRepository.transfer(sessionCode, nodeId, expiresAt));
+        }
+    }
+
+    /**
+     * Claim {@code sessionCode} if nobody holds a live lease on it.
+     * Returns whether this node owns it afterwards.
+     */
+    public boolean claim(String sessionCode) {
+        if (!enabled) {
+            return true;
+        }
+        LocalDateTime now = now();
+        LocalDateTime expiresAt = expiresAt(now);
+        return inTransaction(() -> leaseRepository.claim(sessionCode, nodeId, now, expiresAt)) > 0
+                || insert(sessionCode, expiresAt);
+    }
+
+    /**
+     * {@link #claim} for many sessions at once: one claiming UPDATE and one
+     * INSERT ... SELECT for sessions without a lease, per chunk of
+     * {@value #CLAIM_CHUNK} codes. Returns the codes this node owns afterwards.
+     */
+    public Set<String> claimAll(Collection<String> sessionCodes) {
+        if (!enabled) {
+            return new HashSet<>(sessionCodes);
+        }
+        List<String> codes = List.copyOf(new LinkedHashSet<>(sessionCodes));
+        Set<String> owned = new HashSet<>();
+        for (int from = 0; from < codes.size(); from += CLAIM_CHUNK) {
+            List<String> chunk = codes.subList(from, Math.min(codes.size(), from + CLAIM_CHUNK));
+            LocalDateTime now = now();
+            LocalDateTime expiresAt = expiresAt(now);
+            inTransaction(() -> leaseRepository.claimAll(chunk, nodeId, now, expiresAt));
+            try {
+                inTransaction(() -> leaseRepository.insertMissing(chunk, nodeId, expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                // Another node inserted some of them first - those are its leases now
+                logger.debug("Concurrent lease insert while claiming {} sessions", chunk.size());
+            }
+            owned.addAll(leaseRepository.findCodesHeldBy(chunk, nodeId, now));
+        }
+        return owned;
+    }
+
+    /**
+     * The codes among {@code sessionCodes} this node holds a live lease on,
+     * read in chunks of {@value #CLAIM_CHUNK}.
+     */
+    public Set<String> heldAmong(Collection<String> sessionCodes) {
+        if (!enabled) {
+            return new HashSet<>(sessionCodes);
+        }
+        List<String> codes = List.copyOf(sessionCodes);
+        Set<String> held = new HashSet<>();
+        LocalDateTime now = now();
+        for (int from = 0; from < codes.size(); from += CLAIM_CHUNK) {
+            held.addAll(leaseRepository.findCodesHeldBy(
+                    codes.subList(from, Math.min(codes.size(), from + CLAIM_CHUNK)), nodeId, now));
+        }
+        return held;
+    }
+
+    /**
+     * Whether this node holds a live lease on {@code sessionCode}. Checked
+     * against the database, so a lease lost to another node is seen at once.
+     */
+    public boolean owns(String sessionCode) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            return leaseRepository.countHeldBy(sessionCode, nodeId, now()) > 0;
+        } catch (RuntimeException e) {
+            logger.warn("Could not check lease for session {}: {}", sessionCode, e.getMessage());
+            return false;
+        }
+    }
+
+    public void release(String sessionCode) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            inTransaction(() -> leaseRepository.release(sessionCode, nodeId));
+        } catch (RuntimeException e) {
+            // The lease simply expires and is cleaned up by failover
+            logger.warn("Could not release lease for session {}: {}", sessionCode, e.getMessage());
+        }
+    }
+
+    /**
+     * Extend every live lease of this node in a single statement.
+     */
+    public int renew() {
+        if (!enabled) {
+            return 0;
+        }
+        return inTransaction(() -> {
+            LocalDateTime now = now();
+            return leaseRepository.renewAll(nodeId, now, expiresAt(now));
+        });
+    }
+
+    /**
+     * Claim up to {@code limit} expired leases left by nodes that stopped
+     * renewing. Returns the codes this node now owns.
+     */
+    public List<String> claimExpired(int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<String> claimed = new ArrayList<>();
+        for (String code : leaseRepository.findExpiredCodes(now(), PageRequest.of(0, limit))) {
+            LocalDateTime now = now();
+            if (inTransaction(() -> leaseRepository.claim(code, nodeId, now, expiresAt(now))) > 0) {
+                claimed.add(code);
+            }
+        }
+        return claimed;
+    }
+
+    private boolean insert(String sessionCode, LocalDateTime expiresAt) {
+        try {
+            return inTransaction(() -> leaseRepository.insert(sessionCode, nodeId, expiresAt)) > 0;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private int inTransaction(Supplier<Integer> write) {
+        Integer rows = transactionTemplate.execute(status -> write.get());
+        return rows != null ? rows : 0;
+    }
+
+    private LocalDateTime expiresAt(LocalDateTime now) {
+        return now.plus(ttlMillis, ChronoUnit.MILLIS);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now();
+    }
+}
@@ -0,0 +1,300 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.dto.LobbySessionDTO;
+import com.plabpractice.api.dto.LobbySnapshotDTO;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory lobby of joinable (created or in-progress) sessions.
+ *
+ * The lobby is loaded once - from the database, overlaid with the live
+ * sessions in {@link SessionStateRegistry} - and from then on kept up to date
+ * by SessionService as sessions are created, saved, joined, left and deleted.
+ * Each change is also sent to the other nodes as a cluster notice and applied
+ * to their lobbies, so every node's lobby follows changes made anywhere.
+ * Lobby reads never touch the database.
+ *
+ * Every change is pushed to {@code /topic/lobby} as a delta
+ * ({@code LOBBY_SESSION_ADDED}, {@code LOBBY_SESSION_UPDATED} or
+ * {@code LOBBY_SESSION_REMOVED}) carrying a version number. Versions are
+ * numbered per node, so clients subscribe first, then fetch
+ * {@link #snapshot()} from the same node (by subscribing to {@code /app/lobby}
+ * on the same connection) and drop deltas whose version is not newer than the
+ * snapshot's.
+ */
+@Service
+public class SessionLobby {
+
+    public static final String TOPIC = "/topic/lobby";
+
+    static final String CHANGE_NOTICE = "lobby-change";
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionLobby.class);
+
+    private static final Comparator<LobbySessionDTO> NEWEST_FIRST = Comparator
+            .comparing(LobbySessionDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(LobbySessionDTO::getId, Comparator.reverseOrder());
+
+    private final SessionRepository sessionRepository;
+    private final SessionParticipantRepository participantRepository;
+    private final SessionStateRegistry sessionStateRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterBroadcaster clusterBroadcaster;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, LobbySessionDTO> sessions = new ConcurrentHashMap<>();
+    // Serializes changes so versions and the order of published deltas agree
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long version;
+    private volatile boolean loaded;
+
+    public SessionLobby(SessionRepository sessionRepository, SessionParticipantRepository participantRepository,
+            SessionStateRegistry sessionStateRegistry, SimpMessagingTemplate messagingTemplate,
+            ClusterBroadcaster clusterBroadcaster, ObjectMapper objectMapper) {
+        this.sessionRepository = sessionRepository;
+        this.participantRepository = participantRepository;
+        this.sessionStateRegistry = sessionStateRegistry;
+        this.messagingTemplate = messagingTemplate;
+        this.clusterBroadcaster = clusterBroadcaster;
+        this.objectMapper = objectMapper;
+        clusterBroadcaster.onNotice(CHANGE_NOTICE, this::applyPeerChange);
+    }
+
+    /**
+     * Joinable sessions, newest first, with the version of the last delta they
+     * include.
+     */
+    public LobbySnapshotDTO snapshot() {
+        ensureLoaded();
+        lock.lock();
+        try {
+            List<LobbySessionDTO> entries = sessions.values().stream().sorted(NEWEST_FIRST).toList();
+            return new LobbySnapshotDTO(version, entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A session was created or saved - add, update or remove its lobby entry
+     * according to its status.
+     */
+    public void sessionChanged(Session session) {
+        if (!loaded || session == null || session.getId() == null) {
+            return; // The first snapshot loads the current state
+        }
+        lock.lock();
+        try {
+            if (!isJoinable(session)) {
+                removeLocked(session.getId(), true);
+                return;
+            }
+            LobbySessionDTO previous = sessions.get(session.getId());
+            long participantCount = activeParticipantCount(session.getId(),
+                    previous != null ? previous.getParticipantCount() : 0);
+            putLocked(toEntry(session, participantCount), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A session was inserted outside the registry (bulk creation) with
+     * {@code participantCount} active participants.
+     */
+    public void sessionCreated(Session session, long participantCount) {
+        if (!loaded || session == null || session.getId() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (isJoinable(session)) {
+                putLocked(toEntry(session, participantCount), true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Participants joined or left a session - refresh its count from the
+     * tracked participant list.
+     */
+    public void participantsChanged(Long sessionId) {
+        if (!loaded || sessionId == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            LobbySessionDTO entry = sessions.get(sessionId);
+            if (entry == null) {
+                return;
+            }
+            long participantCount = activeParticipantCount(sessionId, entry.getParticipantCount());
+            putLocked(new LobbySessionDTO(entry.getId(), entry.getTitle(), entry.getCode(), entry.getStatus(),
+                    entry.getPhase(), entry.getCreatedAt(), entry.getStartTime(), participantCount), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sessionRemoved(Long sessionId) {
+        if (!loaded || sessionId == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            removeLocked(sessionId, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply a lobby change made on another node and push it to this node's
+     * subscribers under this node's next version.
+     */
+    void applyPeerChange(String json) {
+        PeerChange change;
+        try {
+            change = objectMapper.readValue(json, PeerChange.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed lobby change", e);
+        }
+        if (!loaded) {
+            return; // The first snapshot loads the current state
+        }
+        lock.lock();
+        try {
+            if (change.session() != null) {
+                putLocked(change.session(), false);
+            } else if (change.removedSessionId() != null) {
+                removeLocked(change.removedSessionId(), false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocked(LobbySessionDTO entry, boolean local) {
+        LobbySessionDTO previous = sessions.put(entry.getId(), entry);
+        if (entry.equals(previous)) {
+            return;
+        }
+        publish(previous == null ? "LOBBY_SESSION_ADDED" : "LOBBY_SESSION_UPDATED", "session", entry);
+        if (local) {
+            forward(new PeerChange(entry, null));
+        }
+    }
+
+    private void removeLocked(Long sessionId, boolean local) {
+        if (sessions.remove(sessionId) != null) {
+            publish("LOBBY_SESSION_REMOVED", "sessionId", sessionId);
+            if (local) {
+                forward(new PeerChange(null, sessionId));
+            }
+        }
+    }
+
+    private void forward(PeerChange change) {
+        if (!clusterBroadcaster.hasPeers()) {
+            return;
+        }
+        try {
+            clusterBroadcaster.publishNotice(CHANGE_NOTICE, objectMapper.writeValueAsString(change));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to forward lobby change to other nodes: {}", e.getMessage());
+        }
+    }
+
+    private void publish(String type, String key, Object value) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", type);
+        message.put("version", ++version);
+        message.put(key, value);
+        message.put("timestamp", LocalDateTime.now());
+        try {
+            messagingTemplate.convertAndSend(TOPIC, message);
+        } catch (Exception e) {
+            // Clients resync from the snapshot when they see a version gap
+            logger.warn("Failed to publish lobby delta {} v{}: {}", type, version, e.getMessage());
+        }
+    }
+
+    private long activeParticipantCount(Long sessionId, long fallback) {
+        return sessionStateRegistry.getParticipants(sessionId)
+                .map(participants -> participants.stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsActive()))
+                        .count())
+                .orElse(fallback);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            Map<Long, Long> counts = new HashMap<>();
+            for (Object[] row : participantRepository.countActiveParticipantsInActiveSessions()) {
+                counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+            for (Object[] row : sessionRepository.findActiveSessionProjections()) {
+                Long id = (Long) row[0];
+                sessions.put(id, new LobbySessionDTO(id, (String) row[1], (String) row[2],
+                        (Session.Status) row[3], (Session.Phase) row[4], (LocalDateTime) row[5],
+                        (LocalDateTime) row[6], counts.getOrDefault(id, 0L)));
+            }
+            // Tracked sessions may have changes that are not written back yet
+            for (Session session : sessionStateRegistry.trackedSessions()) {
+                if (isJoinable(session)) {
+                    long fallback = counts.getOrDefault(session.getId(), 0L);
+                    sessions.put(session.getId(),
+                            toEntry(session, activeParticipantCount(session.getId(), fallback)));
+                } else {
+                    sessions.remove(session.getId());
+                }
+            }
+            loaded = true;
+            logger.debug("Session lobby loaded: {} joinable sessions", sessions.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A lobby change sent to the other nodes - the new entry, or the ID of a
+     * session that left the lobby.
+     */
+    record PeerChange(LobbySessionDTO session, Long removedSessionId) {
+    }
+
+    private static boolean isJoinable(Session session) {
+        return session.getStatus() == Session.Status.CREATED || session.getStatus() == Session.Status.IN_PROGRESS;
+    }
+
+    private static LobbySessionDTO toEntry(Session session, long participantCount) {
+        return new LobbySessionDTO(session.getId(), session.getTitle(), session.getCode(), session.getStatus(),
+                session.getPhase(), session.getCreatedAt(), session.getStartTime(), participantCount);
+    }
+}
@@ -0,0 +1,218 @@
+package com.plabpractice.api.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-session command mailboxes (actors).
+ *
+ * Every flow that mutates a live session - join, leave, skip, new case,
+ * feedback-driven round advancement, timer expiry, disconnect timeout -
+ * submits a command for the session code. Commands of one session run one
+ * at a time in submission order; different sessions run in parallel. A
+ * mailbox is a lock-free queue plus a "scheduled" flag: the submitter that
+ * flips the flag hands the mailbox to the executor, which drains a batch
+ * and yields if more arrived. Idle mailboxes are dropped.
+ *
+ * {@link #call} waits for the result (request threads); {@link #execute}
+ * does not (timers, and leaving other sessions from inside a command).
+ * A command may {@code call} its own session - it runs inline - but must
+ * not wait on another session's mailbox, which could deadlock two sessions
+ * on each other.
+ *
+ * Exposes {@code plab.session.mailbox.pending}, {@code plab.session.mailbox.sessions}
+ * and the per-session depth at submit, {@code plab.session.mailbox.depth}.
+ */
+@Service
+public class SessionMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionMailbox.class);
+    private static final int DRAIN_BATCH = 64;
+
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentSession = new ThreadLocal<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final ExecutorService executor;
+    private final DistributionSummary depthAtSubmit;
+    private final long callTimeoutMillis;
+
+    @Autowired
+    public SessionMailbox(MeterRegistry meterRegistry,
+            @Value("${spring.threads.virtual.enabled:true}") boolean virtualThreads,
+            @Value("${session.mailbox.platform-threads:16}") int platformThreads,
+            @Value("${session.mailbox.call-timeout-ms:30000}") long callTimeoutMillis) {
+        this(meterRegistry, virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-actor-", 0).factory())
+                : Executors.newFixedThreadPool(platformThreads, platformThreadFactory()),
+                callTimeoutMillis);
+    }
+
+    SessionMailbox(MeterRegistry meterRegistry, ExecutorService executor, long callTimeoutMillis) {
+        this.executor = executor;
+        this.callTimeoutMillis = callTimeoutMillis;
+        Gauge.builder("plab.session.mailbox.pending", pending, AtomicLong::get)
+                .description("Session commands queued or running")
+                .register(meterRegistry);
+        Gauge.builder("plab.session.mailbox.sessions", mailboxes, ConcurrentHashMap::size)
+                .description("Sessions with a non-idle mailbox")
+                .register(meterRegistry);
+        this.depthAtSubmit = DistributionSummary.builder("plab.session.mailbox.depth")
+                .description("Commands already queued for the session when a command is submitted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code command} on the session's mailbox and wait for its result.
+     * Exceptions thrown by the command are rethrown.
+     */
+    public <T> T call(String sessionCode, Supplier<T> command) {
+        String running = currentSession.get();
+        if (sessionCode.equals(running)) {
+            return command.get();
+        }
+        if (running != null) {
+            throw new IllegalStateException("Session " + running + " must not wait on session " + sessionCode);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(sessionCode, () -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        try {
+            return result.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for session " + sessionCode);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Session is busy - please try again");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Queue {@code command} on the session's mailbox without waiting.
+     * Failures are logged.
+     */
+    public void execute(String sessionCode, Runnable command) {
+        enqueue(sessionCode, () -> {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                logger.error("Session {} command failed", sessionCode, e);
+            }
+        });
+    }
+
+    public long pendingCommands() {
+        return pending.get();
+    }
+
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void enqueue(String sessionCode, Runnable command) {
+        pending.incrementAndGet();
+        // Enqueue inside compute so it cannot race with dropping an idle mailbox
+        Mailbox mailbox = mailboxes.compute(sessionCode, (code, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox(code);
+            depthAtSubmit.record(target.size.getAndIncrement());
+            target.commands.add(command);
+            return target;
+        });
+        if (mailbox.scheduled.compareAndSet(false, true)) {
+            executor.execute(mailbox::drain);
+        }
+    }
+
+    private final class Mailbox {
+        private final String sessionCode;
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(String sessionCode) {
+            this.sessionCode = sessionCode;
+        }
+
+        private void drain() {
+            currentSession.set(sessionCode);
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    Runnable command = commands.poll();
+                    if (command == null) {
+                        break;
+                    }
+                    size.decrementAndGet();
+                    try {
+                        command.run();
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            } finally {
+                currentSession.remove();
+            }
+            if (!commands.isEmpty()) {
+                // Yield the thread to other sessions, keep the mailbox scheduled
+                executor.execute(this::drain);
+                return;
+            }
+            scheduled.set(false);
+            if (!commands.isEmpty() && scheduled.compareAndSet(false, true)) {
+                // A command arrived between the last poll and clearing the flag
+                executor.execute(this::drain);
+                return;
+            }
+            mailboxes.computeIfPresent(sessionCode,
+                    (code, mailbox) -> mailbox == this && mailbox.commands.isEmpty() && !mailbox.scheduled.get()
+                            ? null
+                            : mailbox);
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "session-actor-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
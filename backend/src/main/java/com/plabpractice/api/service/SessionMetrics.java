@@ -0,0 +1,137 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation for the session lifecycle, exposed through the
+ * Actuator metrics endpoint.
+ *
+ * <ul>
+ * <li>{@code plab.session.operation} - latency of create / join / configure /
+ * start / skip / new-case / end</li>
+ * <li>{@code plab.session.phase.transition.lag} - how late a phase timer fired
+ * compared to its scheduled deadline</li>
+ * <li>{@code plab.session.broadcast.messages} and
+ * {@code plab.session.broadcast.payload} - messages sent and payload bytes per
+ * message type</li>
+ * <li>{@code plab.sessions.active} - live sessions per phase</li>
+ * <li>{@code plab.session.timers.pending} / {@code plab.session.timers.queued}
+ * - timing wheel backlog</li>
+ * </ul>
+ *
+ * Timers and lag are tagged with the session's {@code SessionType} and
+ * {@code TimingType}.
+ */
+@Service
+public class SessionMetrics {
+
+    public static final String CREATE = "create";
+    public static final String JOIN = "join";
+    public static final String CONFIGURE = "configure";
+    public static final String START = "start";
+    public static final String SKIP = "skip";
+    public static final String NEW_CASE = "new_case";
+    public static final String END = "end";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+
+    public SessionMetrics(MeterRegistry registry, SessionStateRegistry sessionStateRegistry,
+            HashedTimingWheel timingWheel) {
+        this.registry = registry;
+
+        for (Session.Phase phase : Session.Phase.values()) {
+            Gauge.builder("plab.sessions.active", sessionStateRegistry, r -> r.countTracked(phase))
+                    .description("Live sessions held in memory, by phase")
+                    .tag("phase", phase.name())
+                    .register(registry);
+        }
+        Gauge.builder("plab.session.timers.pending", timingWheel, HashedTimingWheel::pendingTimeouts)
+                .description("Session timers scheduled on the timing wheel and not yet fired")
+                .register(registry);
+        Gauge.builder("plab.session.timers.queued", timingWheel, HashedTimingWheel::queuedTasks)
+                .description("Expired session timers waiting for a worker thread")
+                .register(registry);
+    }
+
+    /**
+     * Start timing an operation; finish with {@link #stop}.
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stop(Timer.Sample sample, String operation, Session session) {
+        if (sample == null) {
+            return;
+        }
+        sample.stop(Timer.builder("plab.session.operation")
+                .description("Session lifecycle operation latency")
+                .tag("operation", operation)
+                .tags(sessionTags(session))
+                .register(registry));
+    }
+
+    /**
+     * Record how late a phase timer fired, for a timer that was due at
+     * {@code deadlineEpochMillis}.
+     */
+    public void recordPhaseTransitionLag(Session session, Session.Phase fromPhase, long deadlineEpochMillis) {
+        long lagMillis = Math.max(0, System.currentTimeMillis() - deadlineEpochMillis);
+        Timer.builder("plab.session.phase.transition.lag")
+                .description("Delay between a phase timer's scheduled and actual fire time")
+                .tag("phase", fromPhase != null ? fromPhase.name() : UNKNOWN)
+                .tags(sessionTags(session))
+                .register(registry)
+                .record(lagMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count a message sent to session subscribers. {@code payload} is the
+     * converted (serialized) message payload, whose size is recorded too.
+     */
+    public void recordBroadcast(String messageType, Object payload) {
+        String type = messageType != null ? messageType : UNKNOWN;
+        Counter.builder("plab.session.broadcast.messages")
+                .description("Messages sent to session subscribers")
+                .tag("type", type)
+                .register(registry)
+                .increment();
+
+        int bytes = payloadSize(payload);
+        if (bytes >= 0) {
+            DistributionSummary.builder("plab.session.broadcast.payload")
+                    .description("Serialized payload size of messages sent to session subscribers")
+                    .baseUnit("bytes")
+                    .tag("type", type)
+                    .register(registry)
+                    .record(bytes);
+        }
+    }
+
+    private static int payloadSize(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return -1;
+    }
+
+    private static Tags sessionTags(Session session) {
+        if (session == null) {
+            return Tags.of("sessionType", UNKNOWN, "timingType", UNKNOWN);
+        }
+        return Tags.of(
+                "sessionType", session.getSessionType() != null ? session.getSessionType().name() : UNKNOWN,
+                "timingType", session.getTimingType() != null ? session.getTimingType().name() : UNKNOWN);
+    }
+}
@@ -3,26 +3,49 @@ package com.plabpractice.api.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.plabpractice.api.dto.SessionDTO;
+import com.plabpractice.api.dto.SessionHistoryDTO;
+import com.plabpractice.api.dto.SessionHistoryPageDTO;
 import com.plabpractice.api.dto.SessionParticipantDTO;
 import com.plabpractice.api.dto.UserDTO;
 import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.CaseIdSet;
 import com.plabpractice.api.model.Session;
 import com.plabpractice.api.model.SessionParticipant;
 import com.plabpractice.api.model.User;
 import com.plabpractice.api.repository.CaseRepository;
 import com.plabpractice.api.repository.SessionRepository;
 import com.plabpractice.api.repository.SessionParticipantRepository;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import com.plabpractice.api.model.Feedback;
 import com.plabpractice.api.repository.FeedbackRepository;
 
@@ -30,6 +53,12 @@ import com.plabpractice.api.repository.FeedbackRepository;
 @Transactional
 public class SessionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SessionService.class);
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Inserts of a new session before giving up on code collisions with other nodes
+    private static final int CODE_ATTEMPTS = 3;
+
     @Autowired
     private SessionRepository sessionRepository;
 
@@ -45,83 +74,106 @@ public class SessionService {
     @Autowired
     private FeedbackRepository feedbackRepository;
 
-    public Session createSession(String title, User creator) {
-        Session session = new Session();
-        session.setTitle(title);
-        session.setCode(generateSessionCode());
-        session.setStatus(Session.Status.CREATED);
-        session.setCreatedBy(creator);
-        session.setCreatedAt(LocalDateTime.now());
-        session.setStartTime(LocalDateTime.now());
-
-        Session savedSession = sessionRepository.save(session);
-
-        // Add creator as doctor (host is always the doctor)
-        SessionParticipant host = new SessionParticipant();
-        host.setSession(savedSession);
-        host.setUser(creator);
-        host.setRole(SessionParticipant.Role.DOCTOR); // Changed from HOST to DOCTOR
-        sessionParticipantRepository.save(host);
+    @Autowired
+    private SessionStateRegistry sessionStateRegistry;
+
+    @Autowired
+    private SessionCodeAllocator sessionCodeAllocator;
+
+    @Autowired
+    private SessionLobby sessionLobby;
+
+    @Autowired
+    private CaseDeckService caseDeckService;
+
+    @Autowired
+    private CaseSampler caseSampler;
 
+    @Autowired
+    private SessionMetrics sessionMetrics;
+
+    @Autowired
+    private SessionEventLog sessionEventLog;
+
+    @Autowired
+    private SessionMailbox sessionMailbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Session createSession(String title, User creator) {
+        Timer.Sample sample = sessionMetrics.start();
+        Session savedSession = insertWithFreshCode(() -> {
+            Session session = new Session();
+            session.setTitle(title);
+            session.setStatus(Session.Status.CREATED);
+            session.setCreatedBy(creator);
+            session.setCreatedAt(LocalDateTime.now());
+            session.setStartTime(LocalDateTime.now());
+            return session;
+        }, creator);
+        sessionMetrics.stop(sample, SessionMetrics.CREATE, savedSession);
         return savedSession;
     }
 
     public Optional<Session> joinSession(String code, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(code);
+        Timer.Sample sample = sessionMetrics.start();
+        Optional<Session> sessionOpt = findSessionByCode(code);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
 
-            // Check if user has an existing participant record (active or inactive)
-            Optional<SessionParticipant> existingParticipant = sessionParticipantRepository
-                    .findBySessionIdAndUserId(session.getId(), user.getId());
-
-            if (existingParticipant.isPresent()) {
-                // Reactivate existing participant
-                SessionParticipant participant = existingParticipant.get();
-                participant.setIsActive(true);
-                sessionParticipantRepository.save(participant);
-            } else {
-                // Create new participant
-                SessionParticipant participant = new SessionParticipant();
-                participant.setSession(session);
-                participant.setUser(user);
-                participant.setRole(SessionParticipant.Role.PARTICIPANT);
-                participant.setIsActive(true);
-                sessionParticipantRepository.save(participant);
-            }
+            // Insert a PARTICIPANT row or reactivate the existing one (keeping its role)
+            Long participantId = upsertParticipant(() -> sessionParticipantRepository.upsertKeepingRole(
+                    session.getId(), user.getId(), SessionParticipant.Role.PARTICIPANT.name()), null);
+            syncJoinedParticipant(session, user, participantId, null);
+            sessionMetrics.stop(sample, SessionMetrics.JOIN, session);
         }
         return sessionOpt;
     }
 
     public void startSession(Long sessionId) {
-        Optional<Session> sessionOpt = sessionRepository.findById(sessionId);
+        Optional<Session> sessionOpt = findSessionById(sessionId);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
             session.setStatus(Session.Status.IN_PROGRESS);
             session.setStartTime(LocalDateTime.now());
-            sessionRepository.save(session);
+            saveSession(session);
         }
     }
 
     public void endSession(Long sessionId) {
-        Optional<Session> sessionOpt = sessionRepository.findById(sessionId);
+        Optional<Session> sessionOpt = findSessionById(sessionId);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
             session.setStatus(Session.Status.COMPLETED);
             session.setEndTime(LocalDateTime.now());
-            sessionRepository.save(session);
+            saveSession(session);
+        }
+    }
+
+    // Same as findSessionByCode: always hand out the tracked instance of a live session
+    private Optional<Session> findSessionById(Long sessionId) {
+        Optional<Session> cached = sessionStateRegistry.findById(sessionId);
+        if (cached.isPresent()) {
+            return cached;
         }
+        Optional<Session> loaded = sessionRepository.findById(sessionId);
+        loaded.ifPresent(sessionStateRegistry::track);
+        return loaded.map(session -> sessionStateRegistry.find(session.getCode()).orElse(session));
     }
 
     public List<SessionParticipant> getSessionParticipants(Long sessionId) {
-        return sessionParticipantRepository.findBySessionId(sessionId);
+        return sessionStateRegistry.getParticipants(sessionId)
+                .orElseGet(() -> sessionParticipantRepository.findBySessionId(sessionId));
     }
 
     @Transactional(readOnly = true)
     public List<SessionParticipantDTO> getSessionParticipantDTOs(Long sessionId) {
         // Use optimized query to get only ACTIVE participants
-        List<SessionParticipant> activeParticipants = sessionParticipantRepository
-                .findBySessionIdAndIsActiveWithUser(sessionId, true);
+        List<SessionParticipant> activeParticipants = sessionStateRegistry.getParticipants(sessionId)
+                .map(this::filterActive)
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndIsActiveWithUser(sessionId, true));
         return activeParticipants.stream()
                 .map(participant -> {
                     SessionParticipantDTO dto = new SessionParticipantDTO();
@@ -141,8 +193,12 @@ public class SessionService {
                 .toList();
     }
 
+    /**
+     * Every session the user ever took part in - use
+     * {@link #getSessionHistory} for anything user-facing.
+     */
     public List<Session> getUserSessions(Long userId) {
-        List<SessionParticipant> participations = sessionParticipantRepository.findByUserId(userId);
+        List<SessionParticipant> participations = sessionParticipantRepository.findByUserIdWithSessions(userId);
         return participations.stream()
                 .map(SessionParticipant::getSession)
                 .toList();
@@ -152,50 +208,206 @@ public class SessionService {
         return sessionRepository.findByStatus(Session.Status.IN_PROGRESS);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Session createSessionWithConfig(String title, String sessionType, Double readingTime,
             Double consultationTime, String timingType,
             List<String> selectedTopics, User creator) {
-        Session session = new Session();
-        session.setTitle(title);
-        session.setCode(generateSessionCode());
-        session.setStatus(Session.Status.CREATED);
-        session.setPhase(Session.Phase.WAITING);
-        session.setSessionType(Session.SessionType.valueOf(sessionType));
-        session.setReadingTime(readingTime);
-        session.setConsultationTime(consultationTime);
-        session.setTimingType(Session.TimingType.valueOf(timingType));
-        session.setCreatedBy(creator);
+        Timer.Sample sample = sessionMetrics.start();
 
         // Convert topics list to JSON string
+        String selectedTopicsJson = topicsToJson(selectedTopics);
+
+        Session savedSession = insertWithFreshCode(() -> {
+            Session session = new Session();
+            session.setTitle(title);
+            session.setStatus(Session.Status.CREATED);
+            session.setPhase(Session.Phase.WAITING);
+            session.setSessionType(Session.SessionType.valueOf(sessionType));
+            session.setReadingTime(readingTime);
+            session.setConsultationTime(consultationTime);
+            session.setTimingType(Session.TimingType.valueOf(timingType));
+            session.setCreatedBy(creator);
+            session.setSelectedTopics(selectedTopicsJson);
+            session.setCreatedAt(LocalDateTime.now());
+            session.setStartTime(LocalDateTime.now());
+            return session;
+        }, creator);
+        sessionMetrics.stop(sample, SessionMetrics.CREATE, savedSession);
+        return savedSession;
+    }
+
+    /**
+     * Insert a new session with its creator as host (DOCTOR - the host is
+     * always the doctor) under a freshly allocated code, in its own
+     * transaction.
+     *
+     * The allocator only sees codes handed out by this node, so another
+     * replica may have taken the code already: a unique-key violation on an
+     * existing code is retried with a new one. A code whose insert failed for
+     * any other reason is released again.
+     */
+    private Session insertWithFreshCode(Supplier<Session> newSession, User creator) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1;; attempt++) {
+            String code = sessionCodeAllocator.allocate();
+            boolean keepCode = false;
+            try {
+                SessionParticipant[] host = new SessionParticipant[1];
+                Session savedSession = transactionTemplate.execute(status -> {
+                    Session session = newSession.get();
+                    session.setCode(code);
+                    Session saved = sessionRepository.save(session);
+
+                    host[0] = new SessionParticipant();
+                    host[0].setSession(saved);
+                    host[0].setUser(creator);
+                    host[0].setRole(SessionParticipant.Role.DOCTOR);
+                    sessionParticipantRepository.save(host[0]);
+                    return saved;
+                });
+                keepCode = true;
+
+                sessionStateRegistry.register(savedSession, List.of(host[0]));
+                sessionLobby.sessionChanged(savedSession);
+                logJoin(savedSession, creator, SessionParticipant.Role.DOCTOR);
+                return savedSession;
+            } catch (DataIntegrityViolationException e) {
+                if (sessionRepository.findByCode(code).isEmpty()) {
+                    throw e;
+                }
+                // Taken by another node - the row exists, so the code stays occupied here
+                keepCode = true;
+                if (attempt >= CODE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.info("Session code {} was taken by another node, retrying with a new code", code);
+            } finally {
+                if (!keepCode) {
+                    sessionCodeAllocator.release(code);
+                }
+            }
+        }
+    }
+
+    private String topicsToJson(List<String> topics) {
         try {
-            session.setSelectedTopics(objectMapper.writeValueAsString(selectedTopics));
+            return objectMapper.writeValueAsString(topics);
         } catch (JsonProcessingException e) {
-            session.setSelectedTopics("[]");
+            return "[]";
         }
+    }
 
-        session.setCreatedAt(LocalDateTime.now());
-        session.setStartTime(LocalDateTime.now());
+    /**
+     * Find a session by code. Live sessions are served from the in-memory
+     * registry; a miss loads from the database and starts tracking the session.
+     */
+    public Optional<Session> findSessionByCode(String code) {
+        if (sessionCodeAllocator.hasInvalidCheckDigit(code)) {
+            // Mistyped code - it cannot exist, so skip the lookup
+            return Optional.empty();
+        }
+        Optional<Session> cached = sessionStateRegistry.find(code);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<Session> loaded = sessionRepository.findByCode(code);
+        loaded.ifPresent(sessionStateRegistry::track);
+        // Another caller may have registered its copy first - always hand out the tracked one
+        return loaded.map(session -> sessionStateRegistry.find(code).orElse(session));
+    }
 
-        Session savedSession = sessionRepository.save(session);
+    /**
+     * Persist session changes. Tracked sessions are written behind by the
+     * registry; anything else is saved immediately.
+     */
+    public Session saveSession(Session session) {
+        Session saved = session;
+        if (!sessionStateRegistry.markDirty(session)) {
+            saved = sessionRepository.save(session);
+            sessionStateRegistry.writtenThrough(session.getId());
+        }
+        sessionLobby.sessionChanged(saved);
+        return saved;
+    }
 
-        // Add creator as host with DOCTOR role (host is always the doctor)
-        SessionParticipant host = new SessionParticipant();
-        host.setSession(savedSession);
-        host.setUser(creator);
-        host.setRole(SessionParticipant.Role.DOCTOR); // Changed from HOST to DOCTOR
-        sessionParticipantRepository.save(host);
+    /**
+     * Move a session from {@code expected} to {@code next} if nobody else has
+     * already done so. Tracked sessions compare-and-set in memory (the registry
+     * is authoritative and writes behind); others use a conditional UPDATE on
+     * (id, phase). Returns false to the caller that lost - the session is not
+     * reloaded, so losers should simply return.
+     */
+    public boolean transitionPhase(Session session, Session.Phase expected, Session.Phase next) {
+        LocalDateTime now = LocalDateTime.now();
+        if (sessionStateRegistry.isTracked(session)) {
+            if (!sessionStateRegistry.compareAndSetPhase(session, expected, next)) {
+                return false;
+            }
+            session.setPhaseStartTime(now);
+        } else {
+            if (sessionRepository.compareAndSetPhase(session.getId(), expected, next, now) == 0) {
+                return false;
+            }
+            session.setPhase(next);
+            session.setPhaseStartTime(now);
+            if (session.getVersion() != null) {
+                session.setVersion(session.getVersion() + 1);
+            }
+            sessionStateRegistry.writtenThrough(session.getId());
+        }
+        sessionLobby.sessionChanged(session);
+        return true;
+    }
 
-        return savedSession;
+    /**
+     * Persist participant changes, written behind when the session is tracked.
+     */
+    public SessionParticipant saveParticipant(SessionParticipant participant) {
+        if (sessionStateRegistry.markDirty(participant)) {
+            return participant;
+        }
+        SessionParticipant saved = sessionParticipantRepository.save(participant);
+        if (participant.getSession() != null) {
+            sessionStateRegistry.writtenThrough(participant.getSession().getId());
+        }
+        return saved;
     }
 
-    public Optional<Session> findSessionByCode(String code) {
-        return sessionRepository.findByCode(code);
+    public Optional<SessionParticipant> findParticipant(Session session, Long userId) {
+        return sessionStateRegistry.getParticipants(session.getId())
+                .map(participants -> participants.stream()
+                        .filter(p -> p.getUser() != null && p.getUser().getId().equals(userId))
+                        .findFirst())
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndUserId(session.getId(), userId));
+    }
+
+    public List<SessionParticipant> getActiveParticipants(Session session) {
+        return sessionStateRegistry.getParticipants(session.getId())
+                .map(this::filterActive)
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndIsActive(session.getId(), true));
+    }
+
+    public List<SessionParticipant> getActiveParticipantsWithUser(Session session) {
+        return sessionStateRegistry.getParticipants(session.getId())
+                .map(this::filterActive)
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndIsActiveWithUser(session.getId(), true));
+    }
+
+    public List<SessionParticipant> getParticipantsWithRole(Session session, SessionParticipant.Role role) {
+        return sessionStateRegistry.getParticipants(session.getId())
+                .map(participants -> participants.stream().filter(p -> p.getRole() == role).toList())
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndRole(session.getId(), role));
+    }
+
+    private List<SessionParticipant> filterActive(List<SessionParticipant> participants) {
+        return participants.stream()
+                .filter(p -> Boolean.TRUE.equals(p.getIsActive()))
+                .toList();
     }
 
     public List<String> getAvailableRoles(Session session) {
         // Only check ACTIVE participants
-        List<SessionParticipant> activeParticipants = sessionParticipantRepository
-                .findBySessionIdAndIsActive(session.getId(), true);
+        List<SessionParticipant> activeParticipants = getActiveParticipants(session);
         List<SessionParticipant.Role> takenRoles = activeParticipants.stream()
                 .map(SessionParticipant::getRole)
                 .toList();
@@ -214,8 +426,14 @@ public class SessionService {
         return availableRoles;
     }
 
+    /**
+     * Join (or rejoin) a session with a role in a single upsert. DOCTOR and
+     * PATIENT are exclusive per session; the database constraint decides
+     * between concurrent claims, so two joins can never both get the role.
+     */
     public Session joinSessionWithRole(String sessionCode, String role, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Timer.Sample sample = sessionMetrics.start();
+        Optional<Session> sessionOpt = findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             throw new RuntimeException("Session not found");
         }
@@ -225,68 +443,120 @@ public class SessionService {
         // Convert role to uppercase for consistency
         String upperRole = role.toUpperCase();
 
-        // Prevent non-hosts from selecting DOCTOR role
-        if (upperRole.equals("DOCTOR") && !isUserHost(sessionCode, user)) {
-            throw new RuntimeException("Only the session host can be assigned the Doctor role");
+        // Only the host can be the Doctor
+        if (upperRole.equals("DOCTOR")) {
+            if (!isUserHost(sessionCode, user)) {
+                throw new RuntimeException("Only the session host can be assigned the Doctor role");
+            }
+        } else if (!upperRole.equals("PATIENT") && !upperRole.equals("OBSERVER")) {
+            throw new RuntimeException("Role '" + upperRole + "' is not available. Available roles: "
+                    + getAvailableRoles(session));
         }
+        SessionParticipant.Role requestedRole = SessionParticipant.Role.valueOf(upperRole);
 
-        // Check if user has an existing participant record (active or inactive)
-        Optional<SessionParticipant> existingParticipant = sessionParticipantRepository
-                .findBySessionIdAndUserId(session.getId(), user.getId());
+        // Fail fast without a write when the live session already shows the role as taken
+        if (isExclusiveRole(requestedRole) && isRoleHeldByOther(session, requestedRole, user.getId())) {
+            throw new RuntimeException(
+                    "Role '" + upperRole + "' is not available. Available roles: " + getAvailableRoles(session));
+        }
 
-        if (existingParticipant.isPresent()) {
-            // User has an existing record - reactivate and update role if needed
-            SessionParticipant participant = existingParticipant.get();
-            participant.setIsActive(true);
+        Long participantId = upsertParticipant(() -> sessionParticipantRepository.upsertWithRole(
+                session.getId(), user.getId(), upperRole), upperRole);
+        syncJoinedParticipant(session, user, participantId, requestedRole);
 
-            if (!participant.getRole().toString().equals(upperRole)) {
-                // Prevent changing to DOCTOR role if not host
-                if (upperRole.equals("DOCTOR") && !isUserHost(sessionCode, user)) {
-                    throw new RuntimeException("Only the session host can be assigned the Doctor role");
-                }
+        sessionMetrics.stop(sample, SessionMetrics.JOIN, session);
+        return session;
+    }
 
-                // Check if new role is available (except for Observer) - only check among
-                // ACTIVE participants
-                if (!upperRole.equals("OBSERVER")) {
-                    List<String> availableRoles = getAvailableRoles(session);
-                    if (!availableRoles.contains(upperRole)) {
-                        throw new RuntimeException(
-                                "Role '" + upperRole + "' is not available. Available roles: " + availableRoles);
-                    }
-                }
-                participant.setRole(SessionParticipant.Role.valueOf(upperRole));
-            }
-            sessionParticipantRepository.save(participant);
-        } else {
-            // New user joining session
-            // Prevent new users from selecting DOCTOR role
-            if (upperRole.equals("DOCTOR")) {
-                throw new RuntimeException("Only the session host can be assigned the Doctor role");
-            }
+    private static boolean isExclusiveRole(SessionParticipant.Role role) {
+        return role == SessionParticipant.Role.DOCTOR || role == SessionParticipant.Role.PATIENT;
+    }
 
-            // Check if role is available (except for Observer)
-            if (!upperRole.equals("OBSERVER")) {
-                List<String> availableRoles = getAvailableRoles(session);
-                if (!availableRoles.contains(upperRole)) {
-                    throw new RuntimeException(
-                            "Role '" + upperRole + "' is not available. Available roles: " + availableRoles);
-                }
-            }
+    private boolean isRoleHeldByOther(Session session, SessionParticipant.Role role, Long userId) {
+        return sessionStateRegistry.getParticipants(session.getId())
+                .map(participants -> participants.stream()
+                        .anyMatch(p -> Boolean.TRUE.equals(p.getIsActive()) && p.getRole() == role
+                                && p.getUser() != null && !p.getUser().getId().equals(userId)))
+                .orElse(false);
+    }
 
-            // Create new participant
-            SessionParticipant participant = new SessionParticipant();
-            participant.setSession(session);
-            participant.setUser(user);
-            participant.setRole(SessionParticipant.Role.valueOf(upperRole));
-            participant.setIsActive(true);
-            sessionParticipantRepository.save(participant);
+    private Long upsertParticipant(Supplier<Long> upsert, String role) {
+        try {
+            return upsert.get();
+        } catch (DataIntegrityViolationException e) {
+            // uq_session_participants_exclusive_role - another participant holds the role
+            throw new RuntimeException(role != null
+                    ? "Role '" + role + "' is not available"
+                    : "Your previous role in this session has been taken - please choose another role");
         }
+    }
 
-        return session;
+    /**
+     * Mirror a completed upsert into the tracked session. The row is already
+     * written, so the tracked copy is updated without being marked dirty -
+     * but it must match, version included, or a later flush of it would
+     * revert the join.
+     *
+     * @param role the role that was set, or null if an existing role was kept
+     */
+    private void syncJoinedParticipant(Session session, User user, Long participantId, SessionParticipant.Role role) {
+        sessionStateRegistry.writtenThrough(session.getId());
+        Optional<SessionParticipant> tracked = sessionStateRegistry.getParticipants(session.getId())
+                .flatMap(participants -> participants.stream()
+                        .filter(p -> p.getUser() != null && p.getUser().getId().equals(user.getId()))
+                        .findFirst());
+        if (tracked.isPresent()) {
+            tracked.get().setIsActive(true);
+            if (role != null) {
+                tracked.get().setRole(role);
+            }
+            bumpVersion(tracked.get());
+            sessionLobby.participantsChanged(session.getId());
+            logJoin(session, user, tracked.get().getRole());
+            return;
+        }
+
+        SessionParticipant participant = new SessionParticipant();
+        participant.setId(participantId);
+        participant.setSession(session);
+        participant.setUser(user);
+        participant.setRole(role != null ? role : SessionParticipant.Role.PARTICIPANT);
+        participant.setIsActive(true);
+        participant.setVersion(0L);
+        sessionStateRegistry.addParticipant(participant);
+        sessionLobby.participantsChanged(session.getId());
+        logJoin(session, user, participant.getRole());
+    }
+
+    private void logJoin(Session session, User user, SessionParticipant.Role role) {
+        sessionEventLog.append(session.getId(), SessionEventLog.EventType.JOINED, user.getId(), 0,
+                role != null ? role.name() : null);
+    }
+
+    /**
+     * Mark a participant inactive. Written through rather than behind, so a
+     * DOCTOR/PATIENT role it frees can be claimed by the next join right away.
+     * A participant already left through leaveUserFromOtherActiveSessions has
+     * its LEFT event logged there.
+     */
+    public void deactivateParticipant(SessionParticipant participant) {
+        boolean wasActive = Boolean.TRUE.equals(participant.getIsActive());
+        sessionParticipantRepository.deactivate(participant.getId());
+        participant.setIsActive(false);
+        bumpVersion(participant);
+        if (participant.getSession() != null) {
+            sessionStateRegistry.writtenThrough(participant.getSession().getId());
+            sessionLobby.participantsChanged(participant.getSession().getId());
+            if (wasActive) {
+                sessionEventLog.append(participant.getSession().getId(), SessionEventLog.EventType.LEFT,
+                        participant.getUser() != null ? participant.getUser().getId() : -1, 0, null);
+            }
+        }
     }
 
     public Session configureSession(String sessionCode, Map<String, Object> config, Case selectedCase, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Timer.Sample sample = sessionMetrics.start();
+        Optional<Session> sessionOpt = findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             throw new RuntimeException("Session not found");
         }
@@ -330,11 +600,9 @@ public class SessionService {
 
             // Track used case to prevent duplicates
             if (session.getUsedCaseIds() == null) {
-                session.setUsedCaseIds(new ArrayList<>());
-            }
-            if (!session.getUsedCaseIds().contains(selectedCase.getId())) {
-                session.getUsedCaseIds().add(selectedCase.getId());
+                session.setUsedCaseIds(new CaseIdSet());
             }
+            session.getUsedCaseIds().add(selectedCase.getId());
         }
 
         // Store recall date range if provided
@@ -355,23 +623,78 @@ public class SessionService {
             }
         }
 
+        // Shuffle the rest of the case pool once; later rounds draw from this deck
+        caseDeckService.prepareDeck(session);
+
         // Keep session in WAITING phase after configuration
         // Host must explicitly start the session using the start endpoint
         session.setPhase(Session.Phase.WAITING);
 
-        return sessionRepository.save(session);
+        Session savedSession = saveSession(session);
+        sessionMetrics.stop(sample, SessionMetrics.CONFIGURE, savedSession);
+        return savedSession;
     }
 
     public SessionParticipant getParticipantByUserAndSession(User user, Session session) {
-        return sessionParticipantRepository.findBySessionIdAndUserId(session.getId(), user.getId())
-                .orElse(null);
+        return findParticipant(session, user.getId()).orElse(null);
     }
 
     public List<Session> getUserSessions(User user) {
-        List<SessionParticipant> participations = sessionParticipantRepository.findByUserId(user.getId());
-        return participations.stream()
-                .map(SessionParticipant::getSession)
-                .toList();
+        return getUserSessions(user.getId());
+    }
+
+    /**
+     * One page of a user's session history, newest first. Sessions, the user's
+     * role and participant counts are read by a single keyset query on
+     * (created_at, id), so the cost of a page does not grow with the length
+     * of the history.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the
+     *               first page
+     */
+    @Transactional(readOnly = true)
+    public SessionHistoryPageDTO getSessionHistory(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        // One extra row tells whether there is a next page
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<SessionHistoryDTO> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = sessionParticipantRepository.findHistoryFirstPage(userId, pageable);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = sessionParticipantRepository.findHistoryPageBefore(userId, after.createdAt(), after.sessionId(),
+                    pageable);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new SessionHistoryPageDTO(rows, null);
+        }
+        List<SessionHistoryDTO> page = new ArrayList<>(rows.subList(0, pageSize));
+        SessionHistoryDTO last = page.get(pageSize - 1);
+        return new SessionHistoryPageDTO(page, new HistoryCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    /**
+     * Opaque history cursor: the (created_at, id) of the last session on a page.
+     */
+    record HistoryCursor(LocalDateTime createdAt, Long sessionId) {
+
+        String encode() {
+            String value = createdAt + "|" + sessionId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.lastIndexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new RuntimeException("Invalid history cursor");
+            }
+        }
     }
 
     public void deleteSession(Long sessionId, User user) {
@@ -383,7 +706,10 @@ public class SessionService {
             SessionParticipant participant = getParticipantByUserAndSession(user, session);
             if (participant != null && (SessionParticipant.Role.DOCTOR.equals(participant.getRole())
                     || user.getRole().equals(User.Role.ADMIN))) {
+                sessionStateRegistry.remove(session.getCode());
                 sessionRepository.delete(session);
+                sessionLobby.sessionRemoved(session.getId());
+                sessionCodeAllocator.release(session.getCode());
             }
         }
     }
@@ -398,15 +724,16 @@ public class SessionService {
         dto.setStartTime(session.getStartTime());
         dto.setEndTime(session.getEndTime());
 
-        // Set participant count
-        List<SessionParticipant> participants = sessionParticipantRepository.findBySessionId(session.getId());
-        dto.setParticipantCount(participants.size());
+        // Set participant count - a COUNT query unless the session is live in memory
+        dto.setParticipantCount(sessionStateRegistry.getParticipants(session.getId())
+                .map(List::size)
+                .orElseGet(() -> (int) sessionParticipantRepository.countBySessionId(session.getId())));
 
         return dto;
     }
 
     public boolean isUserHost(String sessionCode, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             return false;
         }
@@ -426,7 +753,7 @@ public class SessionService {
 
         // Legacy fallback for existing sessions without createdBy field:
         // Check if user is the first participant (session creator)
-        List<SessionParticipant> allParticipants = sessionParticipantRepository.findBySessionId(session.getId());
+        List<SessionParticipant> allParticipants = getSessionParticipants(session.getId());
         if (!allParticipants.isEmpty()) {
             // Sort by ID to get the first participant (creator)
             SessionParticipant firstParticipant = allParticipants.stream()
@@ -439,7 +766,7 @@ public class SessionService {
     }
 
     public SessionParticipant.Role getUserRoleInSession(String sessionCode, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             return null;
         }
@@ -450,11 +777,17 @@ public class SessionService {
         return (participant != null && participant.getIsActive()) ? participant.getRole() : null;
     }
 
+    /**
+     * Deactivate the user in every other live session they are active in.
+     * The rows are updated here; each affected session's in-memory state is
+     * updated by a command on that session's own mailbox, since callers run
+     * on the mailbox of the session being joined.
+     */
     @Transactional
     public List<Session> leaveUserFromOtherActiveSessions(String currentSessionCode, User user) {
-        // Get user's ACTIVE participations only
+        // Get user's ACTIVE participations only, with their sessions in the same query
         List<SessionParticipant> userActiveParticipations = sessionParticipantRepository
-                .findByUserIdAndIsActive(user.getId(), true);
+                .findByUserIdAndIsActiveWithSessions(user.getId(), true);
         List<Session> otherActiveSessions = userActiveParticipations.stream()
                 .map(SessionParticipant::getSession)
                 .filter(session -> session.getStatus() == Session.Status.CREATED ||
@@ -462,23 +795,118 @@ public class SessionService {
                 .filter(session -> !session.getCode().equals(currentSessionCode)) // Exclude current session
                 .toList();
 
-        // Deactivate user from other active sessions (instead of deleting)
+        if (otherActiveSessions.isEmpty()) {
+            return List.of();
+        }
+
+        // Deactivate user from other active sessions (instead of deleting) in one statement
+        sessionParticipantRepository.deactivateUserInSessions(user.getId(),
+                otherActiveSessions.stream().map(Session::getId).toList());
+
+        // Mirror the update into tracked sessions; prefer the tracked instance so the
+        // in-memory state stays authoritative
         List<Session> leftSessions = new ArrayList<>();
         for (Session session : otherActiveSessions) {
-            Optional<SessionParticipant> participant = sessionParticipantRepository
-                    .findBySessionIdAndUserId(session.getId(), user.getId());
-
-            if (participant.isPresent() && participant.get().getIsActive()) {
-                // Mark as inactive instead of deleting
-                participant.get().setIsActive(false);
-                sessionParticipantRepository.save(participant.get());
-                leftSessions.add(session);
-            }
+            leftSessions.add(userLeft(session, user));
+        }
+
+        return leftSessions;
+    }
+
+    /**
+     * Bulk form of leaveUserFromOtherActiveSessions for users placed in new
+     * sessions together (cohort rosters): one query and one update for all of
+     * them. Returns the sessions each user left, by user id.
+     */
+    @Transactional
+    public Map<Long, List<Session>> leaveUsersFromOtherActiveSessions(Collection<User> users,
+            Collection<Long> keptSessionIds) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, User> usersById = new LinkedHashMap<>();
+        users.forEach(user -> usersById.put(user.getId(), user));
+
+        List<SessionParticipant> leaving = sessionParticipantRepository
+                .findActiveByUserIdInWithSessions(usersById.keySet()).stream()
+                .filter(p -> p.getSession().getStatus() == Session.Status.CREATED
+                        || p.getSession().getStatus() == Session.Status.IN_PROGRESS)
+                .filter(p -> !keptSessionIds.contains(p.getSession().getId()))
+                .toList();
+        if (leaving.isEmpty()) {
+            return Map.of();
         }
 
+        Set<Long> sessionIds = new LinkedHashSet<>();
+        leaving.forEach(p -> sessionIds.add(p.getSession().getId()));
+        sessionParticipantRepository.deactivateUsersInSessions(usersById.keySet(), sessionIds);
+
+        Map<Long, List<Session>> leftSessions = new LinkedHashMap<>();
+        for (SessionParticipant participant : leaving) {
+            User user = usersById.get(participant.getUser().getId());
+            leftSessions.computeIfAbsent(user.getId(), id -> new ArrayList<>())
+                    .add(userLeft(participant.getSession(), user));
+        }
         return leftSessions;
     }
 
+    /**
+     * Mirror a user's deactivation (already written) into a session they
+     * left. Runs on that session's own mailbox, since callers run on the
+     * mailbox of another session. Returns the tracked instance if any.
+     */
+    private Session userLeft(Session session, User user) {
+        sessionStateRegistry.writtenThrough(session.getId());
+        sessionMailbox.execute(session.getCode(), () -> {
+            applyToTrackedParticipants(session.getId(),
+                    p -> Boolean.TRUE.equals(p.getIsActive())
+                            && p.getUser() != null && p.getUser().getId().equals(user.getId()),
+                    p -> p.setIsActive(false));
+            sessionLobby.participantsChanged(session.getId());
+        });
+        sessionEventLog.append(session.getId(), SessionEventLog.EventType.LEFT, user.getId(), 0, null);
+        return sessionStateRegistry.find(session.getCode()).orElse(session);
+    }
+
+    /**
+     * Swap the DOCTOR and PATIENT roles of a session's active participants
+     * with a single update statement.
+     */
+    public void swapDoctorAndPatientRoles(Session session) {
+        sessionParticipantRepository.swapDoctorAndPatientRoles(session.getId());
+        sessionStateRegistry.writtenThrough(session.getId());
+        applyToTrackedParticipants(session.getId(),
+                p -> Boolean.TRUE.equals(p.getIsActive()) && isExclusiveRole(p.getRole()),
+                p -> {
+                    p.setRole(p.getRole() == SessionParticipant.Role.DOCTOR
+                            ? SessionParticipant.Role.PATIENT
+                            : SessionParticipant.Role.DOCTOR);
+                    sessionEventLog.append(session.getId(), SessionEventLog.EventType.ROLE_CHANGED,
+                            p.getUser() != null ? p.getUser().getId() : -1, 0, p.getRole().name());
+                });
+    }
+
+    /**
+     * Apply a change that was already written with a bulk statement to the
+     * tracked in-memory participants, so the registry does not go stale. The
+     * filter must match the statement's WHERE clause: every row it updated
+     * had its version bumped.
+     */
+    private void applyToTrackedParticipants(Long sessionId, Predicate<SessionParticipant> filter,
+            Consumer<SessionParticipant> change) {
+        sessionStateRegistry.getParticipants(sessionId)
+                .ifPresent(participants -> participants.stream().filter(filter).forEach(p -> {
+                    change.accept(p);
+                    bumpVersion(p);
+                }));
+    }
+
+    private static void bumpVersion(SessionParticipant participant) {
+        if (participant.getVersion() != null) {
+            participant.setVersion(participant.getVersion() + 1);
+        }
+    }
+
     /**
      * Start a phase and record the start time
      */
@@ -501,7 +929,7 @@ public class SessionService {
         }
         session.setTimeRemaining(totalTimeSeconds);
 
-        sessionRepository.save(session);
+        saveSession(session);
     }
 
     /**
@@ -540,7 +968,7 @@ public class SessionService {
     public void updateSessionTimerInfo(Session session) {
         int remainingTime = calculateRemainingTime(session);
         session.setTimeRemaining(remainingTime);
-        sessionRepository.save(session);
+        saveSession(session);
     }
 
     /**
@@ -564,8 +992,7 @@ public class SessionService {
         }
 
         Session session = sessionOpt.get();
-        Optional<SessionParticipant> participantOpt = sessionParticipantRepository
-                .findBySessionIdAndUserId(session.getId(), user.getId());
+        Optional<SessionParticipant> participantOpt = findParticipant(session, user.getId());
 
         if (!participantOpt.isPresent()) {
             throw new RuntimeException("User is not a participant in this session");
@@ -573,7 +1000,7 @@ public class SessionService {
 
         SessionParticipant participant = participantOpt.get();
         participant.setHasCompleted(true);
-        sessionParticipantRepository.save(participant);
+        saveParticipant(participant);
     }
 
     @Transactional(readOnly = true)
@@ -584,8 +1011,7 @@ public class SessionService {
         }
 
         Session session = sessionOpt.get();
-        List<SessionParticipant> activeParticipants = sessionParticipantRepository
-                .findBySessionIdAndIsActive(session.getId(), true);
+        List<SessionParticipant> activeParticipants = getActiveParticipants(session);
 
         // Check if all active participants have completed their sessions
         return activeParticipants.stream()
@@ -600,8 +1026,7 @@ public class SessionService {
         }
 
         Session session = sessionOpt.get();
-        List<SessionParticipant> participantsWithRole = sessionParticipantRepository
-                .findBySessionIdAndRole(session.getId(), role);
+        List<SessionParticipant> participantsWithRole = getParticipantsWithRole(session, role);
 
         // Check if any active participant with this role has given feedback for the
         // current round
@@ -636,8 +1061,7 @@ public class SessionService {
         }
 
         Session session = sessionOpt.get();
-        Optional<SessionParticipant> participantOpt = sessionParticipantRepository
-                .findBySessionIdAndUserId(session.getId(), user.getId());
+        Optional<SessionParticipant> participantOpt = findParticipant(session, user.getId());
 
         return participantOpt.map(SessionParticipant::getHasCompleted).orElse(false);
     }
@@ -652,8 +1076,7 @@ public class SessionService {
         }
 
         Session session = sessionOpt.get();
-        Optional<SessionParticipant> participantOpt = sessionParticipantRepository
-                .findBySessionIdAndUserId(session.getId(), user.getId());
+        Optional<SessionParticipant> participantOpt = findParticipant(session, user.getId());
 
         if (!participantOpt.isPresent()) {
             throw new RuntimeException("User is not a participant in this session");
@@ -661,33 +1084,17 @@ public class SessionService {
 
         SessionParticipant participant = participantOpt.get();
         participant.setHasGivenFeedback(true);
-        sessionParticipantRepository.save(participant);
-    }
-
-    private String generateSessionCode() {
-        Random random = new Random();
-        String code;
-        do {
-            code = String.format("%06d", random.nextInt(999999));
-        } while (sessionRepository.findByCode(code).isPresent());
-        return code;
+        saveParticipant(participant);
     }
 
     public Case getRandomCase(List<String> topics) {
         if (topics == null || topics.isEmpty() || topics.contains("Random")) {
-            // Use optimized native query instead of loading all cases
-            Case randomCase = caseRepository.findRandomCase();
-            if (randomCase == null) {
-                throw new RuntimeException("No cases available");
-            }
-            return randomCase;
+            // Pick from the in-memory ID catalog, then load a single row
+            return caseSampler.randomCase(Set.of())
+                    .orElseThrow(() -> new RuntimeException("No cases available"));
         } else {
-            // Use optimized query for category-based selection
-            Case randomCase = caseRepository.findRandomCaseByCategoryNames(topics);
-            if (randomCase == null) {
-                throw new RuntimeException("No cases available for selected topics");
-            }
-            return randomCase;
+            return caseSampler.randomCaseInCategories(topics, Set.of())
+                    .orElseThrow(() -> new RuntimeException("No cases available for selected topics"));
         }
     }
 
@@ -695,12 +1102,13 @@ public class SessionService {
         Session session = findSessionByCode(sessionCode)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
 
-        List<SessionParticipant> participants = sessionParticipantRepository.findBySessionId(session.getId());
-        for (SessionParticipant participant : participants) {
+        // One statement for the whole round, however many participants and observers
+        sessionParticipantRepository.resetRoundFlagsBySessionId(session.getId());
+        sessionStateRegistry.writtenThrough(session.getId());
+        applyToTrackedParticipants(session.getId(), p -> true, participant -> {
             participant.setHasCompleted(false);
             participant.setHasGivenFeedback(false);
-            sessionParticipantRepository.save(participant);
-        }
+        });
     }
 
     // NEW: Optimized version of getUserSessions - prevents N+1 query problem
@@ -719,42 +1127,19 @@ public class SessionService {
     // NEW: Optimized random case selection - no longer loads all cases into memory
     public Case getRandomCaseOptimized(List<String> topics) {
         if (topics == null || topics.isEmpty() || topics.contains("Random")) {
-            // Use optimized native query instead of loading all cases
-            return caseRepository.findRandomCase();
+            return caseSampler.randomCase(Set.of()).orElse(null);
         } else {
-            // Use optimized query for category-based selection
-            return caseRepository.findRandomCaseByCategoryNames(topics);
+            return caseSampler.randomCaseInCategories(topics, Set.of()).orElse(null);
         }
     }
 
-    // NEW: Optimized active sessions fetching
-    public List<Session> getActiveSessionsOptimized() {
-        // For simple lists, we can use the projection to avoid loading heavy data
-        List<Object[]> projections = sessionRepository.findActiveSessionProjections();
-        return projections.stream()
-                .map(this::mapProjectionToSession)
-                .toList();
-    }
-
-    // NEW: Helper method to map projection to Session entity
-    private Session mapProjectionToSession(Object[] projection) {
-        Session session = new Session();
-        session.setId((Long) projection[0]);
-        session.setTitle((String) projection[1]);
-        session.setCode((String) projection[2]);
-        session.setStatus((Session.Status) projection[3]);
-        session.setPhase((Session.Phase) projection[4]);
-        session.setCreatedAt((LocalDateTime) projection[5]);
-        session.setStartTime((LocalDateTime) projection[6]);
-        return session;
-    }
-
     // NEW: Optimized session participant DTOs with reduced queries
     @Transactional(readOnly = true)
     public List<SessionParticipantDTO> getSessionParticipantDTOsOptimized(Long sessionId) {
         // Use the optimized query that already includes users
-        List<SessionParticipant> activeParticipants = sessionParticipantRepository
-                .findBySessionIdAndIsActiveWithUser(sessionId, true);
+        List<SessionParticipant> activeParticipants = sessionStateRegistry.getParticipants(sessionId)
+                .map(this::filterActive)
+                .orElseGet(() -> sessionParticipantRepository.findBySessionIdAndIsActiveWithUser(sessionId, true));
 
         return activeParticipants.stream()
                 .map(participant -> {
@@ -777,17 +1162,21 @@ public class SessionService {
 
     // NEW: Optimized method for getting session with case information
     public Optional<Session> findSessionByCodeWithCase(String code) {
-        return sessionRepository.findByCodeWithCase(code);
+        Optional<Session> cached = sessionStateRegistry.find(code);
+        return cached.isPresent() ? cached : sessionRepository.findByCodeWithCase(code);
     }
 
     // NEW: Optimized method for getting session with creator information
     public Optional<Session> findSessionByCodeWithCreator(String code) {
-        return sessionRepository.findByCodeWithCreator(code);
+        Optional<Session> cached = sessionStateRegistry.find(code);
+        return cached.isPresent() ? cached : sessionRepository.findByCodeWithCreator(code);
     }
 
     // NEW: Optimized case selection for recall sessions
     public Case getRandomRecallCaseOptimized(String startDate, String endDate, List<Long> excludeIds) {
-        return caseRepository.findRandomRecallCaseInDateRange(startDate, endDate, excludeIds);
+        Set<Long> excluded = excludeIds != null ? new HashSet<>(excludeIds) : Set.of();
+        return caseSampler.randomRecallCase(LocalDate.parse(startDate), LocalDate.parse(endDate), excluded)
+                .orElse(null);
     }
 
     // NEW: Count active sessions without loading data
@@ -0,0 +1,637 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative in-memory state for live (CREATED / IN_PROGRESS) sessions.
+ *
+ * Hot-path reads (phase changes, skips, leaves, timer expiry) are answered
+ * from memory. Mutations are only marked dirty here and written back to the
+ * database in batches by {@link #flush()}, so a live session costs one
+ * connection checkout per flush interval instead of one per lookup.
+ *
+ * Callers fall back to the repositories whenever a lookup returns empty, so
+ * sessions that are not tracked (finished, or not yet loaded) keep working.
+ *
+ * With session leases enabled (several replicas) a session is only held here
+ * on the node that owns its lease; every other node reads and writes it
+ * through the database. Sessions whose lease moved away are flushed and then
+ * dropped. A node that writes a session it does not hold sends an
+ * invalidation notice, and the owner drops its copy on the next flush and
+ * reloads it on the next lookup. Sessions and participants are both
+ * versioned, so a write-behind copy that went stale in between is rebased
+ * by {@link #flush()} instead of overwriting the newer row.
+ */
+@Service
+public class SessionStateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionStateRegistry.class);
+
+    // Session properties a rebase never copies from the database row
+    private static final Set<String> UNMERGED_PROPERTIES = Set.of(
+            "class", "id", "version", "code", "participants", "feedbacks", "usedCaseIds");
+    // Participant properties a rebase never copies from the database row
+    private static final Set<String> UNMERGED_PARTICIPANT_PROPERTIES = Set.of(
+            "class", "id", "version", "session", "user");
+
+    // Notice topic carrying the id of a session written by a node that does not hold it
+    static final String INVALIDATE_NOTICE = "session-registry/invalidate";
+
+    private final SessionRepository sessionRepository;
+    private final SessionParticipantRepository participantRepository;
+    private final SessionLeaseManager leaseManager;
+    private final ClusterBroadcaster clusterBroadcaster;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleEvictionMillis;
+
+    // sessionCode -> live session instance shared by every caller
+    private final Map<String, Session> sessionsByCode = new ConcurrentHashMap<>();
+    // sessionId -> code of a tracked session, for lookups by id
+    private final Map<Long, String> codesById = new ConcurrentHashMap<>();
+    // sessionId -> all participants (active and inactive) of a tracked session
+    private final Map<Long, List<SessionParticipant>> participantsBySession = new ConcurrentHashMap<>();
+    // sessionCode -> copy of the session as last loaded or written, the base for rebasing
+    private final Map<String, Session> writtenState = new ConcurrentHashMap<>();
+    // participantId -> copy of the participant as last loaded or written
+    private final Map<Long, SessionParticipant> writtenParticipants = new ConcurrentHashMap<>();
+    // sessionCode -> last time the session was read or written
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+
+    private final Set<String> dirtySessions = ConcurrentHashMap.newKeySet();
+    private final Map<Long, SessionParticipant> dirtyParticipants = new ConcurrentHashMap<>();
+    // Ids of sessions written by other nodes, dropped at the end of the next flush
+    private final Set<Long> invalidatedSessions = ConcurrentHashMap.newKeySet();
+
+    // Striped by session code; serializes phase compare-and-set on a session
+    private final ReentrantLock[] phaseLocks = new ReentrantLock[64];
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public SessionStateRegistry(SessionRepository sessionRepository,
+            SessionParticipantRepository participantRepository,
+            SessionLeaseManager leaseManager,
+            ClusterBroadcaster clusterBroadcaster,
+            PlatformTransactionManager transactionManager,
+            @Value("${session.registry.idle-eviction-minutes:120}") long idleEvictionMinutes) {
+        this.sessionRepository = sessionRepository;
+        this.participantRepository = participantRepository;
+        this.leaseManager = leaseManager;
+        this.clusterBroadcaster = clusterBroadcaster;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleEvictionMillis = TimeUnit.MINUTES.toMillis(idleEvictionMinutes);
+        for (int i = 0; i < phaseLocks.length; i++) {
+            phaseLocks[i] = new ReentrantLock();
+        }
+        clusterBroadcaster.onNotice(INVALIDATE_NOTICE, id -> invalidatedSessions.add(Long.valueOf(id)));
+    }
+
+    /**
+     * Look up a tracked session. Returns empty when the session is not held in
+     * memory; the caller is expected to load it and hand it to {@link #track}.
+     */
+    public Optional<Session> find(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        Session session = sessionsByCode.get(code);
+        if (session != null) {
+            lastAccess.put(code, System.currentTimeMillis());
+        }
+        return Optional.ofNullable(session);
+    }
+
+    /**
+     * Look up a tracked session by id.
+     */
+    public Optional<Session> findById(Long sessionId) {
+        String code = sessionId != null ? codesById.get(sessionId) : null;
+        if (code == null) {
+            return Optional.empty();
+        }
+        return find(code).filter(session -> sessionId.equals(session.getId()));
+    }
+
+    /**
+     * All participants (active and inactive) of a tracked session, or empty
+     * when the session is not tracked.
+     */
+    public Optional<List<SessionParticipant>> getParticipants(Long sessionId) {
+        if (sessionId == null) {
+            return Optional.empty();
+        }
+        List<SessionParticipant> participants = participantsBySession.get(sessionId);
+        return participants == null ? Optional.empty() : Optional.of(Collections.unmodifiableList(participants));
+    }
+
+    /**
+     * Start tracking a session that was just loaded from the database. Only
+     * live sessions owned by this node are tracked; participants are loaded
+     * once with their users so later reads never touch a lazy association.
+     */
+    public void track(Session session) {
+        if (session == null || session.getId() == null || !isLive(session)
+                || sessionsByCode.containsKey(session.getCode()) || !ownedHere(session.getCode())) {
+            return;
+        }
+
+        loadLock.lock();
+        try {
+            if (sessionsByCode.containsKey(session.getCode())) {
+                return;
+            }
+            List<SessionParticipant> participants = participantRepository.findBySessionIdWithUser(session.getId());
+            register(session, participants);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Track a session whose rows were written synchronously (e.g. on create).
+     */
+    public void register(Session session, List<SessionParticipant> participants) {
+        if (session == null || session.getId() == null || !isLive(session) || !ownedHere(session.getCode())) {
+            return;
+        }
+        List<SessionParticipant> tracked = new CopyOnWriteArrayList<>();
+        for (SessionParticipant participant : participants) {
+            participant.setSession(session);
+            tracked.add(participant);
+            writtenParticipants.put(participant.getId(), snapshot(participant));
+        }
+        participantsBySession.put(session.getId(), tracked);
+        writtenState.put(session.getCode(), snapshot(session));
+        sessionsByCode.put(session.getCode(), session);
+        codesById.put(session.getId(), session.getCode());
+        lastAccess.put(session.getCode(), System.currentTimeMillis());
+    }
+
+    /**
+     * Add a participant that has already been inserted (it needs its
+     * generated id before it can be flushed by merge).
+     */
+    public void addParticipant(SessionParticipant participant) {
+        if (participant == null || participant.getId() == null || participant.getSession() == null) {
+            return;
+        }
+        List<SessionParticipant> participants = participantsBySession.get(participant.getSession().getId());
+        if (participants == null) {
+            return;
+        }
+        participants.removeIf(p -> participant.getId().equals(p.getId()));
+        participants.add(participant);
+        writtenParticipants.put(participant.getId(), snapshot(participant));
+    }
+
+    /**
+     * Record that a session's rows were written directly rather than through
+     * this registry. When another node may hold the session, that node is
+     * told to drop its copy.
+     */
+    public void writtenThrough(Long sessionId) {
+        if (sessionId != null && leaseManager.isEnabled() && !participantsBySession.containsKey(sessionId)) {
+            clusterBroadcaster.publishNotice(INVALIDATE_NOTICE, sessionId.toString());
+        }
+    }
+
+    /**
+     * Record that a session changed. Returns false when the session is not
+     * tracked, in which case the caller must persist it itself.
+     */
+    public boolean markDirty(Session session) {
+        if (session == null || session.getCode() == null) {
+            return false;
+        }
+        Session tracked = sessionsByCode.get(session.getCode());
+        if (tracked == null) {
+            return false;
+        }
+        if (tracked != session) {
+            // A caller loaded its own copy; the latest write wins, as with a direct save
+            sessionsByCode.put(session.getCode(), session);
+        }
+        dirtySessions.add(session.getCode());
+        lastAccess.put(session.getCode(), System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Whether {@code session} is the instance tracked for its code.
+     */
+    public boolean isTracked(Session session) {
+        return session != null && session.getCode() != null && sessionsByCode.get(session.getCode()) == session;
+    }
+
+    /**
+     * Move a tracked session from {@code expected} to {@code next} and mark it
+     * dirty - but only if it is still in {@code expected}. Of several callers
+     * racing on the same transition exactly one gets true. Returns false when
+     * the phase has already moved on or the session is not tracked.
+     */
+    public boolean compareAndSetPhase(Session session, Session.Phase expected, Session.Phase next) {
+        if (!isTracked(session)) {
+            return false;
+        }
+        ReentrantLock lock = phaseLocks[Math.floorMod(session.getCode().hashCode(), phaseLocks.length)];
+        lock.lock();
+        try {
+            if (session.getPhase() != expected) {
+                return false;
+            }
+            session.setPhase(next);
+            dirtySessions.add(session.getCode());
+            lastAccess.put(session.getCode(), System.currentTimeMillis());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record that a participant changed. Returns false when its session is not
+     * tracked, in which case the caller must persist it itself.
+     */
+    public boolean markDirty(SessionParticipant participant) {
+        if (participant == null || participant.getId() == null || participant.getSession() == null) {
+            return false;
+        }
+        List<SessionParticipant> participants = participantsBySession.get(participant.getSession().getId());
+        if (participants == null) {
+            return false;
+        }
+        // Identity comparison: the Lombok equals walks lazy associations
+        if (participants.stream().noneMatch(p -> p == participant)) {
+            participants.removeIf(p -> participant.getId().equals(p.getId()));
+            participants.add(participant);
+        }
+        dirtyParticipants.put(participant.getId(), participant);
+        return true;
+    }
+
+    /**
+     * Stop tracking a session without flushing it (used when the row is deleted).
+     */
+    public void remove(String code) {
+        if (code == null) {
+            return;
+        }
+        dirtySessions.remove(code);
+        lastAccess.remove(code);
+        writtenState.remove(code);
+        Session session = sessionsByCode.remove(code);
+        if (session != null) {
+            codesById.remove(session.getId(), code);
+            List<SessionParticipant> participants = participantsBySession.remove(session.getId());
+            if (participants != null) {
+                participants.forEach(p -> {
+                    dirtyParticipants.remove(p.getId());
+                    writtenParticipants.remove(p.getId());
+                });
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the sessions currently held in memory.
+     */
+    public List<Session> trackedSessions() {
+        return List.copyOf(sessionsByCode.values());
+    }
+
+    public int trackedSessionCount() {
+        return sessionsByCode.size();
+    }
+
+    public long countTracked(Session.Phase phase) {
+        return sessionsByCode.values().stream()
+                .filter(session -> session.getPhase() == phase)
+                .count();
+    }
+
+    /**
+     * Write all dirty state back in a single transaction, then drop sessions
+     * that have finished, gone idle, lost their lease or been written by
+     * another node.
+     */
+    @Scheduled(fixedDelayString = "${session.registry.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<String> codes = new ArrayList<>();
+            for (Iterator<String> it = dirtySessions.iterator(); it.hasNext();) {
+                codes.add(it.next());
+                it.remove();
+            }
+            List<SessionParticipant> participants = new ArrayList<>();
+            for (Iterator<SessionParticipant> it = dirtyParticipants.values().iterator(); it.hasNext();) {
+                participants.add(it.next());
+                it.remove();
+            }
+
+            if (!codes.isEmpty() || !participants.isEmpty()) {
+                List<Session> sessions = codes.stream()
+                        .map(sessionsByCode::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+                List<Session> written = sessions.stream().map(SessionStateRegistry::snapshot).toList();
+                List<SessionParticipant> writtenRows = participants.stream().map(SessionStateRegistry::snapshot).toList();
+                try {
+                    List<SessionParticipant> savedRows = new ArrayList<>();
+                    List<Session> saved = transactionTemplate.execute(status -> {
+                        List<Session> result = sessionRepository.saveAll(sessions);
+                        savedRows.addAll(participantRepository.saveAll(participants));
+                        return result;
+                    });
+                    copyVersions(sessions, saved);
+                    copyParticipantVersions(participants, savedRows);
+                    written.forEach(copy -> writtenState.put(copy.getCode(), copy));
+                    writtenRows.forEach(copy -> writtenParticipants.put(copy.getId(), copy));
+                } catch (OptimisticLockingFailureException e) {
+                    // Some rows were changed by another writer - save one by one, rebasing stale copies
+                    flushIndividually(sessions, written, participants);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to flush {} sessions / {} participants, will retry",
+                            sessions.size(), participants.size(), e);
+                    dirtySessions.addAll(codes);
+                    participants.forEach(p -> dirtyParticipants.putIfAbsent(p.getId(), p));
+                    return;
+                }
+
+                for (Session session : sessions) {
+                    if (!isLive(session)) {
+                        evictIfClean(session.getCode());
+                    }
+                }
+            }
+
+            evictNotHeld();
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushIndividually(List<Session> sessions, List<Session> written,
+            List<SessionParticipant> participants) {
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            try {
+                try {
+                    save(session, written.get(i));
+                } catch (OptimisticLockingFailureException e) {
+                    logger.warn("Session {} was changed outside this instance; rebasing the in-memory copy",
+                            session.getCode());
+                    if (rebase(session)) {
+                        save(session, snapshot(session));
+                    }
+                }
+            } catch (OptimisticLockingFailureException e) {
+                logger.warn("Session {} changed again while rebasing, will retry", session.getCode());
+                dirtySessions.add(session.getCode());
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush session {}, will retry", session.getCode(), e);
+                dirtySessions.add(session.getCode());
+            }
+        }
+        for (SessionParticipant participant : participants) {
+            try {
+                try {
+                    save(participant);
+                } catch (OptimisticLockingFailureException e) {
+                    logger.warn("Participant {} was changed outside this instance; rebasing the in-memory copy",
+                            participant.getId());
+                    if (rebase(participant)) {
+                        save(participant);
+                    }
+                }
+            } catch (OptimisticLockingFailureException e) {
+                logger.warn("Participant {} changed again while rebasing, will retry", participant.getId());
+                dirtyParticipants.putIfAbsent(participant.getId(), participant);
+            } catch (RuntimeException e) {
+                logger.error("Failed to flush participant {}, will retry", participant.getId(), e);
+                dirtyParticipants.putIfAbsent(participant.getId(), participant);
+            }
+        }
+    }
+
+    private void save(Session session, Session written) {
+        copyVersions(List.of(session),
+                transactionTemplate.execute(status -> List.of(sessionRepository.save(session))));
+        writtenState.put(session.getCode(), written);
+    }
+
+    private void save(SessionParticipant participant) {
+        SessionParticipant written = snapshot(participant);
+        copyParticipantVersions(List.of(participant),
+                transactionTemplate.execute(status -> List.of(participantRepository.save(participant))));
+        writtenParticipants.put(participant.getId(), written);
+    }
+
+    /**
+     * Reload a session whose write lost the optimistic lock check and re-apply
+     * this instance's unwritten changes on top: properties that differ from
+     * the last written copy keep the in-memory value, all others take the
+     * database value, and used case IDs are merged. The tracked instance is
+     * updated in place and takes the current version. Returns false when the
+     * row is gone, in which case the session is no longer tracked.
+     */
+    private boolean rebase(Session session) {
+        Optional<Session> current = transactionTemplate.execute(
+                status -> sessionRepository.findById(session.getId()));
+        if (current == null || current.isEmpty()) {
+            logger.warn("Session {} was deleted outside this instance; no longer tracking it", session.getCode());
+            remove(session.getCode());
+            return false;
+        }
+        Session fresh = current.get();
+        merge(session, writtenState.get(session.getCode()), fresh, UNMERGED_PROPERTIES);
+        if (fresh.getUsedCaseIds() != null && session.getUsedCaseIds() != null) {
+            session.getUsedCaseIds().addAll(fresh.getUsedCaseIds());
+        }
+        session.setVersion(fresh.getVersion());
+        return true;
+    }
+
+    /**
+     * Same as rebasing a session, for a participant row changed by another
+     * writer. Returns false when the row is gone.
+     */
+    private boolean rebase(SessionParticipant participant) {
+        Optional<SessionParticipant> current = transactionTemplate.execute(
+                status -> participantRepository.findById(participant.getId()));
+        if (current == null || current.isEmpty()) {
+            writtenParticipants.remove(participant.getId());
+            return false;
+        }
+        merge(participant, writtenParticipants.get(participant.getId()), current.get(),
+                UNMERGED_PARTICIPANT_PROPERTIES);
+        participant.setVersion(current.get().getVersion());
+        return true;
+    }
+
+    /**
+     * Three-way merge into {@code mine}: every property still equal to its
+     * value in {@code base} takes the value from {@code theirs}. Without a
+     * base every property counts as changed here.
+     */
+    private static void merge(Object mine, Object base, Object theirs, Set<String> unmerged) {
+        BeanWrapper target = new BeanWrapperImpl(mine);
+        BeanWrapper fresh = new BeanWrapperImpl(theirs);
+        BeanWrapper original = base != null ? new BeanWrapperImpl(base) : null;
+        for (PropertyDescriptor property : target.getPropertyDescriptors()) {
+            String name = property.getName();
+            if (unmerged.contains(name) || !target.isWritableProperty(name)) {
+                continue;
+            }
+            if (original != null && Objects.equals(target.getPropertyValue(name), original.getPropertyValue(name))) {
+                target.setPropertyValue(name, fresh.getPropertyValue(name));
+            }
+        }
+    }
+
+    /**
+     * Copy of a session's own columns, detached from its mutable collections,
+     * so later in-place changes on the tracked instance are visible as diffs.
+     */
+    static Session snapshot(Session session) {
+        Session copy = new Session();
+        BeanUtils.copyProperties(session, copy, "participants", "feedbacks", "usedCaseIds", "caseDeck");
+        copy.setUsedCaseIds(session.getUsedCaseIds() != null ? session.getUsedCaseIds().copy() : null);
+        copy.setCaseDeck(session.getCaseDeck() != null ? new ArrayList<>(session.getCaseDeck()) : null);
+        return copy;
+    }
+
+    static SessionParticipant snapshot(SessionParticipant participant) {
+        SessionParticipant copy = new SessionParticipant();
+        BeanUtils.copyProperties(participant, copy);
+        return copy;
+    }
+
+    /**
+     * Carry the versions assigned by the write back to the tracked instances,
+     * so their next flush passes the optimistic lock check.
+     */
+    private static void copyVersions(List<Session> tracked, List<Session> saved) {
+        if (saved == null) {
+            return;
+        }
+        for (int i = 0; i < Math.min(tracked.size(), saved.size()); i++) {
+            if (saved.get(i) != null && saved.get(i) != tracked.get(i)) {
+                tracked.get(i).setVersion(saved.get(i).getVersion());
+            }
+        }
+    }
+
+    private static void copyParticipantVersions(List<SessionParticipant> tracked, List<SessionParticipant> saved) {
+        for (int i = 0; i < Math.min(tracked.size(), saved.size()); i++) {
+            if (saved.get(i) != null && saved.get(i) != tracked.get(i)) {
+                tracked.get(i).setVersion(saved.get(i).getVersion());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMillis;
+        lastAccess.forEach((code, last) -> {
+            if (last < cutoff) {
+                evictIfClean(code);
+            }
+        });
+    }
+
+    /**
+     * Drop sessions another node wrote to, and - with leases enabled -
+     * sessions whose lease this node no longer holds. Both are reloaded on
+     * their next lookup; dirty ones are kept until they have been written.
+     */
+    private void evictNotHeld() {
+        for (Iterator<Long> it = invalidatedSessions.iterator(); it.hasNext();) {
+            String code = codesById.get(it.next());
+            if (code == null || evictIfClean(code)) {
+                it.remove();
+            }
+        }
+        if (!leaseManager.isEnabled() || sessionsByCode.isEmpty()) {
+            return;
+        }
+        Set<String> codes = Set.copyOf(sessionsByCode.keySet());
+        Set<String> held;
+        try {
+            held = leaseManager.heldAmong(codes);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to check session leases, keeping tracked sessions: {}", e.getMessage());
+            return;
+        }
+        for (String code : codes) {
+            if (!held.contains(code)) {
+                evictIfClean(code);
+            }
+        }
+    }
+
+    private boolean evictIfClean(String code) {
+        if (dirtySessions.contains(code)) {
+            return false;
+        }
+        Session session = sessionsByCode.get(code);
+        if (session != null) {
+            List<SessionParticipant> participants = participantsBySession.get(session.getId());
+            if (participants != null && participants.stream().anyMatch(p -> dirtyParticipants.containsKey(p.getId()))) {
+                return false;
+            }
+            participantsBySession.remove(session.getId());
+            codesById.remove(session.getId(), code);
+            if (participants != null) {
+                participants.forEach(p -> writtenParticipants.remove(p.getId()));
+            }
+        }
+        sessionsByCode.remove(code);
+        writtenState.remove(code);
+        lastAccess.remove(code);
+        return true;
+    }
+
+    private boolean ownedHere(String code) {
+        return !leaseManager.isEnabled() || leaseManager.owns(code);
+    }
+
+    private boolean isLive(Session session) {
+        return session.getStatus() == null
+                || session.getStatus() == Session.Status.CREATED
+                || session.getStatus() == Session.Status.IN_PROGRESS;
+    }
+}
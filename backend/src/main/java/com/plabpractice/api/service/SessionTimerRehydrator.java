@@ -0,0 +1,145 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.dto.SessionTimerStateDTO;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.repository.SessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-arms phase timers after a deploy or restart.
+ *
+ * Timers only live in memory, so on startup every IN_PROGRESS session in
+ * READING, CONSULTATION or FEEDBACK is read in one projection query, its
+ * deadline recomputed from the persisted start of the phase, and the timer
+ * put back on the wheel. Overdue deadlines land in the wheel's next tick and
+ * are transitioned together on the worker pool. This runs as an
+ * ApplicationRunner, i.e. before the application reports ready.
+ *
+ * With several replicas a session's timer is only re-armed by the node that
+ * wins its lease (see {@link SessionLeaseManager}); the leases of all
+ * rehydrated sessions are claimed in bulk. The same runner renews
+ * this node's leases and re-arms the timers of sessions whose owner stopped
+ * renewing.
+ */
+@Component
+public class SessionTimerRehydrator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionTimerRehydrator.class);
+
+    private final SessionRepository sessionRepository;
+    private final SessionWebSocketService webSocketService;
+    private final SessionLeaseManager leaseManager;
+    private final int failoverBatchSize;
+
+    public SessionTimerRehydrator(SessionRepository sessionRepository, SessionWebSocketService webSocketService,
+            SessionLeaseManager leaseManager,
+            @Value("${session.lease.failover-batch-size:500}") int failoverBatchSize) {
+        this.sessionRepository = sessionRepository;
+        this.webSocketService = webSocketService;
+        this.leaseManager = leaseManager;
+        this.failoverBatchSize = failoverBatchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            rehydrate();
+        } catch (Exception e) {
+            logger.error("Failed to re-arm session timers", e);
+        }
+    }
+
+    /**
+     * Re-arm a timer for every running session this node can claim. Returns
+     * the number of timers armed.
+     */
+    public int rehydrate() {
+        return rearm(sessionRepository.findRunningTimerStates());
+    }
+
+    /**
+     * Renew this node's leases, then take over the timers of sessions whose
+     * owner let its lease expire. Leases of sessions that are no longer
+     * running are released.
+     */
+    @Scheduled(fixedDelayString = "${session.lease.renew-interval-ms:5000}")
+    public void maintainLeases() {
+        if (!leaseManager.isEnabled()) {
+            return;
+        }
+        try {
+            leaseManager.renew();
+            List<String> orphaned = leaseManager.claimExpired(failoverBatchSize);
+            if (orphaned.isEmpty()) {
+                return;
+            }
+            List<SessionTimerStateDTO> states = sessionRepository.findRunningTimerStatesByCodes(orphaned);
+            Set<String> running = new HashSet<>();
+            states.forEach(state -> running.add(state.getCode()));
+            orphaned.stream().filter(code -> !running.contains(code)).forEach(leaseManager::release);
+            int armed = rearm(states);
+            logger.info("Took over {} orphaned session leases, re-armed {} timers", orphaned.size(), armed);
+        } catch (Exception e) {
+            logger.error("Session lease maintenance failed", e);
+        }
+    }
+
+    private int rearm(List<SessionTimerStateDTO> states) {
+        long started = System.currentTimeMillis();
+        int armed = 0;
+        int overdue = 0;
+        Set<String> owned = states.isEmpty() ? Set.of()
+                : leaseManager.claimAll(states.stream().map(SessionTimerStateDTO::getCode).toList());
+        for (SessionTimerStateDTO state : states) {
+            if (!owned.contains(state.getCode())) {
+                continue; // Live on another replica
+            }
+            armed++;
+            long deadline = deadline(state, started);
+            if (deadline <= started) {
+                overdue++;
+            }
+            webSocketService.rearmTimer(state.getCode(), state.getPhase(), deadline);
+        }
+        if (armed > 0) {
+            logger.info("Re-armed {} session timers ({} overdue) in {} ms", armed, overdue,
+                    System.currentTimeMillis() - started);
+        }
+        return armed;
+    }
+
+    /**
+     * When the current phase of {@code state} ends. A phase whose start was
+     * never recorded gets its full duration from {@code now}.
+     */
+    static long deadline(SessionTimerStateDTO state, long now) {
+        if (state.getPhase() == Session.Phase.FEEDBACK) {
+            return phaseStart(state, now) + TimeUnit.SECONDS.toMillis(SessionWebSocketService.FEEDBACK_TIMEOUT_SECONDS);
+        }
+        double minutes = state.getPhase() == Session.Phase.READING ? state.getReadingTime()
+                : state.getConsultationTime();
+        // Same rounding as the timer that was originally started
+        long durationMillis = (int) (minutes * 60) * 1000L;
+        Long start = state.getTimerStartTimestamp();
+        return (start != null ? start : phaseStart(state, now)) + durationMillis;
+    }
+
+    private static long phaseStart(SessionTimerStateDTO state, long now) {
+        if (state.getPhaseStartTime() == null) {
+            return now;
+        }
+        return state.getPhaseStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,74 +1,233 @@
 package com.plabpractice.api.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.plabpractice.api.model.Case;
 import com.plabpractice.api.model.Session;
 import com.plabpractice.api.model.SessionParticipant;
 import com.plabpractice.api.model.User;
-import com.plabpractice.api.repository.SessionRepository;
-import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.CaseRepository;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
 @Service
 public class SessionWebSocketService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SessionWebSocketService.class);
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private SessionRepository sessionRepository;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private SessionParticipantRepository participantRepository;
+    private SessionService sessionService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private HashedTimingWheel timingWheel;
 
     @Autowired
-    private SessionService sessionService;
+    private CaseViewCache caseViewCache;
+
+    @Autowired
+    private SessionMetrics sessionMetrics;
+
+    @Autowired
+    private SessionLeaseManager leaseManager;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private SessionMailbox sessionMailbox;
+
+    @Autowired
+    private SessionEventLog sessionEventLog;
+
+    @Autowired
+    private CaseRepository caseRepository;
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
     private final Map<String, Boolean> activeTimers = new ConcurrentHashMap<>();
-    private final Map<String, ScheduledFuture<?>> timerTasks = new ConcurrentHashMap<>();
+    private final Map<String, HashedTimingWheel.Timeout> timerTasks = new ConcurrentHashMap<>();
 
     // User disconnect tracking - sessionCode_userId -> last activity timestamp
     private final Map<String, Long> userLastActivity = new ConcurrentHashMap<>();
-    // User disconnect timeout tasks - sessionCode_userId -> timeout task
-    private final Map<String, ScheduledFuture<?>> disconnectTimeouts = new ConcurrentHashMap<>();
+    // User disconnect timeout tasks - sessionCode_userId -> timeout task (at most one per user)
+    private final Map<String, HashedTimingWheel.Timeout> disconnectTimeouts = new ConcurrentHashMap<>();
 
+    // Last broadcast state per session code - base for SESSION_DELTA messages
+    private final Map<String, BroadcastState> broadcastStates = new ConcurrentHashMap<>();
+
+    static final int FEEDBACK_TIMEOUT_SECONDS = 20 * 60;
     private static final int DISCONNECT_TIMEOUT_MINUTES = 5;
+    private static final long DISCONNECT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(DISCONNECT_TIMEOUT_MINUTES);
+
+    // Snapshot entries that are not diffed as plain fields
+    private static final Set<String> DELTA_EXCLUDED_FIELDS = Set.of("type", "version", "participants",
+            "selectedCase");
+
+    // Notice topic carrying full session snapshots to the other nodes
+    static final String SNAPSHOT_NOTICE = "session-snapshot";
+
+    @PostConstruct
+    void subscribeToForwardedSnapshots() {
+        clusterBroadcaster.onNotice(SNAPSHOT_NOTICE, this::deliverForwardedSnapshot);
+    }
 
     /**
      * Broadcast session update - optimized version that accepts Session object
      * directly.
      * Use this when you already have the session in memory to avoid extra DB query.
+     *
+     * The first broadcast for a session is a full SESSION_UPDATE snapshot; after
+     * that only a SESSION_DELTA with the fields and participants that changed
+     * since the previous broadcast is sent. Every broadcast carries the session
+     * state version, so a client that sees a gap can fetch a fresh snapshot via
+     * getSessionSnapshot - from the node it is connected to, over its
+     * WebSocket, since versions are numbered per node.
+     *
+     * Versions and delta bases are local to this node, so deltas never leave
+     * it: the other nodes (if any) get the full snapshot, with the selected
+     * case as an id, which each of them sends to its own subscribers under its
+     * own next version.
      */
     public void broadcastSessionUpdate(Session session) {
-        Map<String, Object> sessionData = createSessionUpdateMessage(session);
-        messagingTemplate.convertAndSend("/topic/session/" + session.getCode(), sessionData);
+        Map<String, Object> snapshot = createSessionUpdateMessage(session);
+        BroadcastState state = broadcastStates.computeIfAbsent(session.getCode(), code -> new BroadcastState());
+
+        // Deltas must be computed and sent in version order. A lock rather than
+        // synchronized, so a virtual thread blocked in send does not pin its carrier.
+        state.lock.lock();
+        try {
+            Map<String, Object> message;
+            if (state.version == 0 || state.forwarded) {
+                message = snapshot;
+                state.forwarded = false;
+            } else {
+                message = createSessionDeltaMessage(session, state, snapshot);
+                if (message == null) {
+                    return; // Nothing changed since the last broadcast
+                }
+            }
+            state.version++;
+            message.put("version", state.version);
+            state.remember(snapshot);
+            sendLocally(session.getCode(), message);
+            forwardSnapshot(snapshot);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private void forwardSnapshot(Map<String, Object> snapshot) {
+        if (!clusterBroadcaster.hasPeers()) {
+            return;
+        }
+        Map<String, Object> forwarded = new HashMap<>(snapshot);
+        forwarded.remove("version");
+        // Peers load the case themselves rather than receiving its body on every broadcast
+        Object selectedCase = forwarded.remove("selectedCase");
+        if (selectedCase instanceof Case) {
+            forwarded.put("selectedCaseId", ((Case) selectedCase).getId());
+        }
+        try {
+            clusterBroadcaster.publishNotice(SNAPSHOT_NOTICE, objectMapper.writeValueAsString(forwarded));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to forward session snapshot for {}: {}", snapshot.get("sessionCode"),
+                    e.getMessage());
+        }
     }
 
     /**
-     * Broadcast session update by session code - requires DB lookup.
+     * Send a snapshot forwarded by another node to this node's subscribers,
+     * as a full SESSION_UPDATE under this node's next version. The following
+     * local broadcast is a full snapshot too, since this node's delta base no
+     * longer matches what its clients hold. The selected case is loaded here
+     * only when it differs from the one last forwarded.
+     */
+    void deliverForwardedSnapshot(String json) {
+        Map<String, Object> snapshot;
+        try {
+            snapshot = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed session snapshot", e);
+        }
+        String sessionCode = (String) snapshot.get("sessionCode");
+        Object caseId = snapshot.remove("selectedCaseId");
+        BroadcastState state = broadcastStates.computeIfAbsent(sessionCode, code -> new BroadcastState());
+        state.lock.lock();
+        try {
+            if (caseId instanceof Number) {
+                long id = ((Number) caseId).longValue();
+                if (state.forwardedCase == null || !state.forwardedCase.getId().equals(id)) {
+                    state.forwardedCase = caseRepository.findById(id).orElse(null);
+                }
+                if (state.forwardedCase != null) {
+                    snapshot.put("selectedCase", state.forwardedCase);
+                }
+            }
+            state.version++;
+            state.forwarded = true;
+            snapshot.put("version", state.version);
+            sendLocally(sessionCode, snapshot);
+        } finally {
+            state.lock.unlock();
+        }
+        Object status = snapshot.get("status");
+        if (Session.Status.COMPLETED.name().equals(status) || Session.Status.CANCELLED.name().equals(status)) {
+            broadcastStates.remove(sessionCode);
+        }
+    }
+
+    /**
+     * Full SESSION_UPDATE snapshot tagged with the current state version, for
+     * clients that joined late or detected a version gap.
+     */
+    public Map<String, Object> getSessionSnapshot(Session session) {
+        Map<String, Object> snapshot = createSessionUpdateMessage(session);
+        BroadcastState state = broadcastStates.get(session.getCode());
+        long version = 0;
+        if (state != null) {
+            state.lock.lock();
+            try {
+                version = state.version;
+            } finally {
+                state.lock.unlock();
+            }
+        }
+        snapshot.put("version", version);
+        return snapshot;
+    }
+
+    /**
+     * Broadcast session update by session code - resolved through the session state registry.
      * Prefer broadcastSessionUpdate(Session) when session is already available.
      */
     public void broadcastSessionUpdate(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             broadcastSessionUpdate(sessionOpt.get());
         }
@@ -80,7 +239,7 @@ public class SessionWebSocketService {
         roleChangeData.put("message", message);
         roleChangeData.put("sessionCode", sessionCode);
 
-        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, roleChangeData);
+        send(sessionCode, roleChangeData);
 
         // Also broadcast the session update to reflect the new roles
         broadcastSessionUpdate(sessionCode);
@@ -95,16 +254,15 @@ public class SessionWebSocketService {
         topicSelectionData.put("message", "🎉 Congratulations! All cases in " + completedTopic
                 + " have been completed. Choose a new topic to continue:");
 
-        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, topicSelectionData);
+        send(sessionCode, topicSelectionData);
     }
 
     public void broadcastParticipantUpdate(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
             // Only get ACTIVE participants with user data eagerly loaded
-            List<SessionParticipant> activeParticipants = participantRepository
-                    .findBySessionIdAndIsActiveWithUser(session.getId(), true);
+            List<SessionParticipant> activeParticipants = sessionService.getActiveParticipantsWithUser(session);
 
             System.out.println("🔍 Broadcasting participant update for session " + sessionCode);
             System.out.println("   Found " + activeParticipants.size() + " active participants");
@@ -135,7 +293,7 @@ public class SessionWebSocketService {
             participantData.put("participants", participantDetails);
             participantData.put("sessionCode", sessionCode);
 
-            messagingTemplate.convertAndSend("/topic/session/" + sessionCode, participantData);
+            send(sessionCode, participantData);
         }
     }
 
@@ -159,16 +317,23 @@ public class SessionWebSocketService {
             message.put("durationSeconds", 0);
         }
 
-        messagingTemplate.convertAndSend("/topic/session/" + session.getCode(), message);
+        // Every round starts with READING, so that is where its case is recorded
+        if (phase.equalsIgnoreCase("READING") && session.getSelectedCase() != null) {
+            sessionEventLog.append(session.getId(), SessionEventLog.EventType.CASE_ASSIGNED, -1,
+                    session.getSelectedCase().getId(), null);
+        }
+        sessionEventLog.append(session.getId(), SessionEventLog.EventType.PHASE_CHANGED, -1, 0, phase);
+
+        send(session.getCode(), message);
     }
 
     /**
-     * Broadcast phase change by session code - requires DB lookup.
+     * Broadcast phase change by session code - resolved through the session state registry.
      * Prefer broadcastPhaseChange(Session, phase, startTimestamp) when session is
      * already available.
      */
     public void broadcastPhaseChange(String sessionCode, String phase, int durationSeconds, long startTimestamp) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             broadcastPhaseChange(sessionOpt.get(), phase, startTimestamp);
         } else {
@@ -178,7 +343,7 @@ public class SessionWebSocketService {
             message.put("phase", phase);
             message.put("durationSeconds", durationSeconds);
             message.put("startTimestamp", startTimestamp);
-            messagingTemplate.convertAndSend("/topic/session/" + sessionCode, message);
+            send(sessionCode, message);
         }
     }
 
@@ -193,6 +358,9 @@ public class SessionWebSocketService {
         // Stop any existing timer first to prevent conflicts (lightweight operation)
         stopTimerWithoutDbUpdate(sessionCode);
 
+        // The node that starts a phase timer owns the session's timers
+        leaseManager.take(sessionCode);
+
         activeTimers.put(sessionCode, true);
 
         // Calculate phase duration and set start time
@@ -203,7 +371,7 @@ public class SessionWebSocketService {
         session.setTimeRemaining(phaseDurationSeconds);
         session.setPhaseStartTime(LocalDateTime.now());
         session.setTimerStartTimestamp(startTimestamp); // Store the shared timestamp
-        Session savedSession = sessionRepository.save(session);
+        Session savedSession = sessionService.saveSession(session);
 
         // Send TIMER_START event ONCE with all necessary data for client-side countdown
         Map<String, Object> timerStartData = Map.of(
@@ -213,39 +381,67 @@ public class SessionWebSocketService {
                 "startTimestamp", startTimestamp,
                 "sessionCode", sessionCode,
                 "message", "Timer started - clients will handle countdown locally");
-        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, timerStartData);
+        send(sessionCode, timerStartData);
 
         // Store the current phase for comparison in the scheduled task
         final Session.Phase currentPhase = savedSession.getPhase();
 
-        // Schedule SINGLE task to handle phase transition when timer expires
-        ScheduledFuture<?> expiryTask = scheduler.schedule(() -> {
-            if (activeTimers.getOrDefault(sessionCode, false)) {
-                // Reload session to get current state (necessary for scheduled task)
-                Optional<Session> currentSessionOpt = sessionRepository.findByCode(sessionCode);
-                if (currentSessionOpt.isPresent()) {
-                    Session currentSession = currentSessionOpt.get();
-
-                    // Only proceed if the session is still in the same phase
-                    if (currentSession.getPhase() == currentPhase) {
-                        handlePhaseTransition(currentSession);
-                    }
-                }
-            }
-        }, phaseDurationSeconds, TimeUnit.SECONDS);
+        // Schedule SINGLE task to handle phase transition when timer expires.
+        // The deadline is anchored to the shared start timestamp so the server
+        // expires the phase at the same instant the clients' countdown reaches zero.
+        scheduleExpiry(sessionCode, currentPhase, startTimestamp + phaseDurationSeconds * 1000L);
+
+        return savedSession;
+    }
+
+    /**
+     * Re-arm the timer of a session that was running before a restart, using
+     * its persisted deadline. A deadline already in the past fires on the
+     * next wheel tick.
+     */
+    public void rearmTimer(String sessionCode, Session.Phase phase, long deadline) {
+        if (phase == Session.Phase.FEEDBACK) {
+            scheduleFeedbackExpiry(sessionCode, deadline);
+        } else {
+            activeTimers.put(sessionCode, true);
+            scheduleExpiry(sessionCode, phase, deadline);
+        }
+    }
+
+    private void scheduleExpiry(String sessionCode, Session.Phase currentPhase, long deadline) {
+        // Expiry runs as a command on the session's mailbox, in order with joins, skips etc.
+        HashedTimingWheel.Timeout expiryTask = timingWheel.scheduleAt(deadline,
+                () -> sessionMailbox.execute(sessionCode, () -> expirePhase(sessionCode, currentPhase, deadline)));
 
         // Store the expiry task (not a repeating timer)
-        timerTasks.put(sessionCode, expiryTask);
+        HashedTimingWheel.Timeout previous = timerTasks.put(sessionCode, expiryTask);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
 
-        return savedSession;
+    private void expirePhase(String sessionCode, Session.Phase currentPhase, long deadline) {
+        // Another replica may have taken the session over since this timer was armed
+        if (activeTimers.getOrDefault(sessionCode, false) && leaseManager.owns(sessionCode)) {
+            // Resolve the live session state (served from memory while tracked)
+            Optional<Session> currentSessionOpt = sessionService.findSessionByCode(sessionCode);
+            if (currentSessionOpt.isPresent()) {
+                Session currentSession = currentSessionOpt.get();
+
+                // Only proceed if nobody (e.g. a skip) moved the phase on first
+                if (advancePhase(currentSession, currentPhase)) {
+                    sessionMetrics.recordPhaseTransitionLag(currentSession, currentPhase, deadline);
+                }
+            }
+        }
     }
 
     /**
-     * Start timer by session code - requires DB lookup.
+     * Start timer by session code - resolved through the session state registry.
      * Prefer startTimer(Session) when session is already available.
      */
     public void startTimer(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             startTimer(sessionOpt.get());
         }
@@ -259,9 +455,9 @@ public class SessionWebSocketService {
         activeTimers.put(sessionCode, false);
 
         // Cancel the scheduled timer task to prevent overlapping timers
-        ScheduledFuture<?> timerTask = timerTasks.remove(sessionCode);
-        if (timerTask != null && !timerTask.isCancelled()) {
-            timerTask.cancel(false);
+        HashedTimingWheel.Timeout timerTask = timerTasks.remove(sessionCode);
+        if (timerTask != null) {
+            timerTask.cancel();
         }
     }
 
@@ -275,22 +471,22 @@ public class SessionWebSocketService {
 
         // Clear the stored timer start timestamp to prevent stale data
         session.setTimerStartTimestamp(null);
-        sessionRepository.save(session);
+        sessionService.saveSession(session);
     }
 
     /**
-     * Stop timer by session code - requires DB lookup.
+     * Stop timer by session code - resolved through the session state registry.
      * Prefer stopTimer(Session) when session is already available.
      */
     public void stopTimer(String sessionCode) {
         stopTimerWithoutDbUpdate(sessionCode);
 
         // Clear the stored timer start timestamp to prevent stale data
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
             session.setTimerStartTimestamp(null);
-            sessionRepository.save(session);
+            sessionService.saveSession(session);
         }
     }
 
@@ -301,55 +497,84 @@ public class SessionWebSocketService {
      */
     @Transactional
     public void handlePhaseTransition(Session session) {
-        Session.Phase currentPhase = session.getPhase();
-        Session.Phase nextPhase = null;
+        advancePhase(session, session.getPhase());
+    }
 
-        if (currentPhase == Session.Phase.READING) {
-            nextPhase = Session.Phase.CONSULTATION;
-        } else if (currentPhase == Session.Phase.CONSULTATION) {
-            nextPhase = Session.Phase.FEEDBACK;
-        } else if (currentPhase == Session.Phase.FEEDBACK) {
+    /**
+     * Advance the session out of {@code expectedPhase}. The transition is a
+     * compare-and-set, so when a timer expiry and a skip race only one of them
+     * broadcasts and starts the next timer; the other gets false and returns.
+     */
+    private boolean advancePhase(Session session, Session.Phase expectedPhase) {
+        Session.Phase nextPhase = nextPhase(expectedPhase);
+        if (nextPhase == null || !sessionService.transitionPhase(session, expectedPhase, nextPhase)) {
+            return false;
+        }
+
+        if (nextPhase == Session.Phase.COMPLETED) {
             // Feedback phase completed - end the session
             endSession(session, "Session completed successfully");
-            return;
+            return true;
         }
 
-        if (nextPhase != null) {
-            // Update session phase in memory
-            session.setPhase(nextPhase);
-            long startTimestamp = System.currentTimeMillis();
+        long startTimestamp = System.currentTimeMillis();
 
-            // Broadcast phase change IMMEDIATELY using in-memory session (no DB query)
-            broadcastPhaseChange(session, nextPhase.toString(), startTimestamp);
+        // Broadcast phase change IMMEDIATELY using in-memory session (no DB query)
+        broadcastPhaseChange(session, nextPhase.toString(), startTimestamp);
 
-            // Start timer for the new phase (unless transitioning to feedback)
-            if (nextPhase != Session.Phase.FEEDBACK) {
-                // startTimer will save the session - only 1 DB write total
-                startTimer(session);
-            } else {
-                // Save session once for feedback phase
-                sessionRepository.save(session);
-                // Start a timer for feedback phase (e.g., 20 minutes max for feedback)
-                scheduleFeedbackTimeout(session.getCode(), 20 * 60);
-            }
+        // Start timer for the new phase (unless transitioning to feedback)
+        if (nextPhase != Session.Phase.FEEDBACK) {
+            // startTimer will save the session - only 1 DB write total
+            startTimer(session);
+        } else {
+            // Save session once for feedback phase
+            sessionService.saveSession(session);
+            // Start a timer for feedback phase (e.g., 20 minutes max for feedback)
+            scheduleFeedbackTimeout(session.getCode(), FEEDBACK_TIMEOUT_SECONDS);
         }
+        return true;
+    }
+
+    private static Session.Phase nextPhase(Session.Phase phase) {
+        if (phase == Session.Phase.READING) {
+            return Session.Phase.CONSULTATION;
+        } else if (phase == Session.Phase.CONSULTATION) {
+            return Session.Phase.FEEDBACK;
+        } else if (phase == Session.Phase.FEEDBACK) {
+            return Session.Phase.COMPLETED;
+        }
+        return null;
     }
 
     private void scheduleFeedbackTimeout(String sessionCode, int timeoutSeconds) {
         // Schedule automatic session completion after feedback timeout
-        ScheduledFuture<?> feedbackTask = scheduler.schedule(() -> {
-            Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
-            if (sessionOpt.isPresent()) {
-                Session session = sessionOpt.get();
-                if (session.getPhase() == Session.Phase.FEEDBACK &&
-                        session.getStatus() != Session.Status.COMPLETED) {
-                    endSession(sessionCode, "Feedback phase timeout - session auto-completed");
-                }
-            }
-        }, timeoutSeconds, TimeUnit.SECONDS);
+        scheduleFeedbackExpiry(sessionCode, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds));
+    }
+
+    private void scheduleFeedbackExpiry(String sessionCode, long deadline) {
+        HashedTimingWheel.Timeout feedbackTask = timingWheel.scheduleAt(deadline,
+                () -> sessionMailbox.execute(sessionCode, () -> expireFeedback(sessionCode, deadline)));
 
         // Store the task for potential cancellation
-        timerTasks.put(sessionCode + "_feedback", feedbackTask);
+        HashedTimingWheel.Timeout previous = timerTasks.put(sessionCode + "_feedback", feedbackTask);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void expireFeedback(String sessionCode, long deadline) {
+        if (!leaseManager.owns(sessionCode)) {
+            return;
+        }
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
+        if (sessionOpt.isPresent()) {
+            Session session = sessionOpt.get();
+            if (session.getStatus() != Session.Status.COMPLETED
+                    && sessionService.transitionPhase(session, Session.Phase.FEEDBACK, Session.Phase.COMPLETED)) {
+                sessionMetrics.recordPhaseTransitionLag(session, Session.Phase.FEEDBACK, deadline);
+                endSession(session, "Feedback phase timeout - session auto-completed");
+            }
+        }
     }
 
     /**
@@ -357,14 +582,14 @@ public class SessionWebSocketService {
      * Uses in-memory session object to minimize DB queries.
      */
     public void skipPhase(String sessionCode, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Timer.Sample sample = sessionMetrics.start();
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent())
             return;
         Session session = sessionOpt.get();
 
         // Check if user has permission (is doctor or admin)
-        Optional<SessionParticipant> participantOpt = participantRepository.findBySessionIdAndUserId(session.getId(),
-                user.getId());
+        Optional<SessionParticipant> participantOpt = sessionService.findParticipant(session, user.getId());
         if (!participantOpt.isPresent()) {
             return;
         }
@@ -375,20 +600,15 @@ public class SessionWebSocketService {
         }
 
         Session.Phase currentPhase = session.getPhase();
-        Session.Phase nextPhase = null;
-
-        if (currentPhase == Session.Phase.READING) {
-            nextPhase = Session.Phase.CONSULTATION;
-        } else if (currentPhase == Session.Phase.CONSULTATION) {
-            nextPhase = Session.Phase.FEEDBACK;
-        }
+        Session.Phase nextPhase = nextPhase(currentPhase);
 
-        if (nextPhase != null) {
+        // Skipping never completes the session; the transition itself is a
+        // compare-and-set so a concurrent timer expiry or second skip loses
+        if (nextPhase != null && nextPhase != Session.Phase.COMPLETED
+                && sessionService.transitionPhase(session, currentPhase, nextPhase)) {
             // Stop timer without DB update (lightweight)
             stopTimerWithoutDbUpdate(sessionCode);
 
-            // Update the session phase in memory
-            session.setPhase(nextPhase);
             long startTimestamp = System.currentTimeMillis();
 
             // Broadcast phase change IMMEDIATELY using in-memory session (no DB query)
@@ -400,22 +620,22 @@ public class SessionWebSocketService {
                 startTimer(session);
             } else {
                 // Save session once for feedback phase
-                sessionRepository.save(session);
+                sessionService.saveSession(session);
             }
+            sessionMetrics.stop(sample, SessionMetrics.SKIP, session);
         }
     }
 
     @Transactional
     public void handleUserLeave(String sessionCode, User user) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             return;
         }
         Session session = sessionOpt.get();
 
         // Find and remove the participant
-        Optional<SessionParticipant> participantOpt = participantRepository.findBySessionIdAndUserId(session.getId(),
-                user.getId());
+        Optional<SessionParticipant> participantOpt = sessionService.findParticipant(session, user.getId());
         if (!participantOpt.isPresent()) {
             return;
         }
@@ -423,8 +643,7 @@ public class SessionWebSocketService {
         SessionParticipant participant = participantOpt.get();
 
         // Mark participant as inactive instead of deleting
-        participant.setIsActive(false);
-        participantRepository.save(participant);
+        sessionService.deactivateParticipant(participant);
 
         // Broadcast user left message
         Map<String, Object> userLeftData = new HashMap<>();
@@ -433,11 +652,10 @@ public class SessionWebSocketService {
         userLeftData.put("userId", user.getId());
         userLeftData.put("userName", user.getName());
         userLeftData.put("userRole", participant.getRole().toString().toLowerCase());
-        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, userLeftData);
+        send(sessionCode, userLeftData);
 
         // Check remaining ACTIVE participants only
-        List<SessionParticipant> remainingParticipants = participantRepository
-                .findBySessionIdAndIsActive(session.getId(), true);
+        List<SessionParticipant> remainingParticipants = sessionService.getActiveParticipants(session);
 
         // Only end session if there are insufficient participants for a meaningful
         // session
@@ -465,6 +683,7 @@ public class SessionWebSocketService {
      */
     @Transactional
     public void endSession(Session session, String reason) {
+        Timer.Sample sample = sessionMetrics.start();
         String sessionCode = session.getCode();
 
         // Stop any active timers (lightweight - no DB)
@@ -475,7 +694,7 @@ public class SessionWebSocketService {
         session.setStatus(Session.Status.COMPLETED);
         session.setEndTime(LocalDateTime.now());
         session.setTimerStartTimestamp(null);
-        sessionRepository.save(session);
+        sessionService.saveSession(session);
 
         // Broadcast session ended message to all participants
         Map<String, Object> sessionEndedData = new HashMap<>();
@@ -483,16 +702,22 @@ public class SessionWebSocketService {
         sessionEndedData.put("sessionCode", sessionCode);
         sessionEndedData.put("reason", reason);
         sessionEndedData.put("timestamp", LocalDateTime.now());
-        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, sessionEndedData);
+        send(sessionCode, sessionEndedData);
+        sessionEventLog.append(session.getId(), SessionEventLog.EventType.SESSION_ENDED, -1, 0, null);
+
+        // No further deltas or timers for a finished session
+        broadcastStates.remove(sessionCode);
+        leaseManager.release(sessionCode);
+        sessionMetrics.stop(sample, SessionMetrics.END, session);
     }
 
     /**
-     * End session by session code - requires DB lookup.
+     * End session by session code - resolved through the session state registry.
      * Prefer endSession(Session, reason) when session is already available.
      */
     @Transactional
     public void endSession(String sessionCode, String reason) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             endSession(sessionOpt.get(), reason);
         }
@@ -502,7 +727,7 @@ public class SessionWebSocketService {
      * Check if session can start - optimized version that accepts Session object.
      */
     public boolean canStartSession(Session session) {
-        List<SessionParticipant> participants = participantRepository.findBySessionId(session.getId());
+        List<SessionParticipant> participants = sessionService.getSessionParticipants(session.getId());
 
         // Need at least 1 participant (host is always DOCTOR)
         if (participants.size() < 1)
@@ -518,10 +743,10 @@ public class SessionWebSocketService {
     }
 
     /**
-     * Check if session can start by session code - requires DB lookup.
+     * Check if session can start by session code - resolved through the session state registry.
      */
     public boolean canStartSession(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent())
             return false;
         return canStartSession(sessionOpt.get());
@@ -531,7 +756,7 @@ public class SessionWebSocketService {
      * Check session start condition - reuses session from canStartSession check.
      */
     public void checkSessionStartCondition(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent()) {
             return;
         }
@@ -563,9 +788,7 @@ public class SessionWebSocketService {
         data.put("config", config);
 
         // Get only ACTIVE participants and format them properly
-        List<SessionParticipant> activeParticipants = participantRepository.findBySessionIdAndIsActiveWithUser(
-                session.getId(),
-                true);
+        List<SessionParticipant> activeParticipants = sessionService.getActiveParticipantsWithUser(session);
 
         // Enhanced participant data with user information - same format as
         // broadcastParticipantUpdate
@@ -601,6 +824,97 @@ public class SessionWebSocketService {
         return data;
     }
 
+    /**
+     * Build a SESSION_DELTA against the previous broadcast, or null if nothing
+     * changed. Top-level fields are sent by value; participants are sent as
+     * upserts (full participant entries) and removals (participant ids). The
+     * selected case is only included when a different case was selected.
+     */
+    private Map<String, Object> createSessionDeltaMessage(Session session, BroadcastState state,
+            Map<String, Object> snapshot) {
+        Map<String, Object> changes = new HashMap<>();
+        for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+            String key = entry.getKey();
+            if (DELTA_EXCLUDED_FIELDS.contains(key)) {
+                continue;
+            }
+            if (!state.fields.containsKey(key) || !Objects.equals(state.fields.get(key), entry.getValue())) {
+                changes.put(key, entry.getValue());
+            }
+        }
+
+        Map<String, Map<String, Object>> currentParticipants = participantsById(snapshot);
+        List<Map<String, Object>> upserted = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : currentParticipants.entrySet()) {
+            if (!entry.getValue().equals(state.participants.get(entry.getKey()))) {
+                upserted.add(entry.getValue());
+            }
+        }
+        List<String> removed = state.participants.keySet().stream()
+                .filter(id -> !currentParticipants.containsKey(id))
+                .toList();
+
+        Long caseId = session.getSelectedCase() != null ? session.getSelectedCase().getId() : null;
+        boolean caseChanged = !Objects.equals(caseId, state.selectedCaseId);
+
+        if (changes.isEmpty() && upserted.isEmpty() && removed.isEmpty() && !caseChanged) {
+            return null;
+        }
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("type", "SESSION_DELTA");
+        delta.put("sessionCode", session.getCode());
+        delta.put("baseVersion", state.version);
+        delta.put("changes", changes);
+        if (!upserted.isEmpty()) {
+            delta.put("participantsUpserted", upserted);
+        }
+        if (!removed.isEmpty()) {
+            delta.put("participantsRemoved", removed);
+        }
+        if (caseChanged) {
+            // null tells the client the case was cleared
+            delta.put("selectedCase", session.getSelectedCase());
+        }
+        return delta;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> participantsById(Map<String, Object> snapshot) {
+        Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+        List<Map<String, Object>> participants = (List<Map<String, Object>>) snapshot.get("participants");
+        if (participants != null) {
+            for (Map<String, Object> participant : participants) {
+                byId.put((String) participant.get("id"), participant);
+            }
+        }
+        return byId;
+    }
+
+    /**
+     * What was last broadcast for one session. Guarded by its own monitor.
+     */
+    private static final class BroadcastState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long version;
+        // The last message sent was a snapshot forwarded by another node
+        private boolean forwarded;
+        // Selected case of the last forwarded snapshot, reused while it stays selected
+        private Case forwardedCase;
+        private Map<String, Object> fields = Map.of();
+        private Map<String, Map<String, Object>> participants = Map.of();
+        private Long selectedCaseId;
+
+        void remember(Map<String, Object> snapshot) {
+            Map<String, Object> remembered = new HashMap<>(snapshot);
+            DELTA_EXCLUDED_FIELDS.forEach(remembered::remove);
+            fields = remembered;
+            participants = participantsById(snapshot);
+            Object selectedCase = snapshot.get("selectedCase");
+            selectedCaseId = selectedCase instanceof Case ? ((Case) selectedCase).getId() : null;
+        }
+    }
+
     private int getCurrentPhaseTime(Session session) {
         if (session.getPhase() == Session.Phase.READING) {
             return (int) (session.getReadingTime() * 60);
@@ -611,53 +925,64 @@ public class SessionWebSocketService {
     }
 
     public void sendMessageToUser(String sessionCode, String userId, Object message) {
-        messagingTemplate.convertAndSendToUser(userId, "/queue/session/" + sessionCode, message);
+        String type = message instanceof Map<?, ?> map && map.get("type") != null ? map.get("type").toString() : null;
+        sendToUser(sessionCode, userId, type, message);
+    }
+
+    /**
+     * Send to all subscribers of the session topic. The converted payload is
+     * counted per message type for the broadcast metrics.
+     */
+    private void send(String sessionCode, Map<String, Object> message) {
+        Object type = message.get("type");
+        String destination = "/topic/session/" + sessionCode;
+        messagingTemplate.convertAndSend(destination, message, converted -> {
+            sessionMetrics.recordBroadcast(type != null ? type.toString() : null, converted.getPayload());
+            // Same converted bytes to subscribers on the other nodes
+            clusterBroadcaster.publish(destination, converted);
+            return converted;
+        });
+    }
+
+    /**
+     * Send to this node's subscribers of the session topic only.
+     */
+    private void sendLocally(String sessionCode, Map<String, Object> message) {
+        Object type = message.get("type");
+        messagingTemplate.convertAndSend("/topic/session/" + sessionCode, message, converted -> {
+            sessionMetrics.recordBroadcast(type != null ? type.toString() : null, converted.getPayload());
+            return converted;
+        });
+    }
+
+    private void sendToUser(String sessionCode, String userId, String type, Object message) {
+        messagingTemplate.convertAndSendToUser(userId, "/queue/session/" + sessionCode, message, converted -> {
+            sessionMetrics.recordBroadcast(type, converted.getPayload());
+            // The user may be connected to another node
+            clusterBroadcaster.publish("/user/" + userId + "/queue/session/" + sessionCode, converted);
+            return converted;
+        });
     }
 
     public void sendCaseDataToAllParticipants(String sessionCode) {
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (!sessionOpt.isPresent())
             return;
         Session session = sessionOpt.get();
         if (session.getSelectedCase() == null)
             return;
 
-        List<SessionParticipant> participants = participantRepository.findBySessionId(session.getId());
+        List<SessionParticipant> participants = sessionService.getSessionParticipants(session.getId());
 
-        // Send case data to all participants (Doctor, Patient, Observer)
+        // Send case data to all participants (Doctor, Patient, Observer) - one
+        // cached, pre-serialized payload per role
         for (SessionParticipant participant : participants) {
             if (participant.getRole().equals(SessionParticipant.Role.DOCTOR) ||
                     participant.getRole().equals(SessionParticipant.Role.PATIENT) ||
                     participant.getRole().equals(SessionParticipant.Role.OBSERVER)) {
 
-                Object caseToSend;
-                if (participant.getRole().equals(SessionParticipant.Role.DOCTOR)) {
-                    // Filter case for doctors - remove title
-                    Map<String, Object> filteredCase = new HashMap<>();
-                    Case fullCase = session.getSelectedCase();
-                    filteredCase.put("id", fullCase.getId());
-                    // Don't include title for doctors
-                    filteredCase.put("description", fullCase.getDescription());
-                    // Add role-specific content based on participant role
-                    if (participant.getRole().equals("DOCTOR")) {
-                        filteredCase.put("sections", fullCase.getDoctorSections());
-                    } else {
-                        filteredCase.put("sections", fullCase.getPatientSections());
-                    }
-                    filteredCase.put("doctorNotes", fullCase.getDoctorNotes());
-                    filteredCase.put("patientNotes", fullCase.getPatientNotes());
-                    filteredCase.put("imageUrl", fullCase.getImageUrl());
-                    filteredCase.put("feedbackCriteria", fullCase.getFeedbackCriteria());
-                    caseToSend = filteredCase;
-                } else {
-                    // For non-doctor roles, send full case
-                    caseToSend = session.getSelectedCase();
-                }
-
-                Map<String, Object> caseData = Map.of(
-                        "type", "CASE_DATA",
-                        "case", caseToSend);
-                sendMessageToUser(sessionCode, participant.getUser().getId().toString(), caseData);
+                String caseData = caseViewCache.getCaseDataMessage(session.getSelectedCase(), participant.getRole());
+                sendToUser(sessionCode, participant.getUser().getId().toString(), "CASE_DATA", caseData);
             }
         }
     }
@@ -669,22 +994,41 @@ public class SessionWebSocketService {
     }
 
     // User Activity Tracking Methods
+
+    /**
+     * Record activity for a user. Pings only bump the last-activity timestamp;
+     * a single disconnect timeout per user is armed lazily and, when it fires,
+     * re-arms itself for the remainder if the user has been active since.
+     */
     public void trackUserActivity(String sessionCode, Long userId) {
         String userKey = sessionCode + "_" + userId;
-        userLastActivity.put(userKey, System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        userLastActivity.put(userKey, now);
+        disconnectTimeouts.computeIfAbsent(userKey,
+                key -> scheduleDisconnectCheck(sessionCode, userId, now + DISCONNECT_TIMEOUT_MILLIS));
+    }
 
-        // Cancel existing disconnect timeout for this user
-        ScheduledFuture<?> existingTimeout = disconnectTimeouts.remove(userKey);
-        if (existingTimeout != null && !existingTimeout.isCancelled()) {
-            existingTimeout.cancel(false);
+    private HashedTimingWheel.Timeout scheduleDisconnectCheck(String sessionCode, Long userId, long deadline) {
+        return timingWheel.scheduleAt(deadline, () -> checkUserDisconnect(sessionCode, userId));
+    }
+
+    private void checkUserDisconnect(String sessionCode, Long userId) {
+        String userKey = sessionCode + "_" + userId;
+        Long lastActivity = userLastActivity.get(userKey);
+        if (lastActivity == null) {
+            // Tracking was stopped
+            disconnectTimeouts.remove(userKey);
+            return;
         }
 
-        // Schedule new disconnect timeout
-        ScheduledFuture<?> timeoutTask = scheduler.schedule(() -> {
-            handleUserDisconnectTimeout(sessionCode, userId);
-        }, DISCONNECT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        long deadline = lastActivity + DISCONNECT_TIMEOUT_MILLIS;
+        if (deadline > System.currentTimeMillis()) {
+            // User was active since this check was armed - wait for the remainder
+            disconnectTimeouts.put(userKey, scheduleDisconnectCheck(sessionCode, userId, deadline));
+            return;
+        }
 
-        disconnectTimeouts.put(userKey, timeoutTask);
+        sessionMailbox.execute(sessionCode, () -> handleUserDisconnectTimeout(sessionCode, userId));
     }
 
     public void handleUserDisconnectTimeout(String sessionCode, Long userId) {
@@ -695,7 +1039,7 @@ public class SessionWebSocketService {
         disconnectTimeouts.remove(userKey);
 
         // Find and remove user from session
-        Optional<Session> sessionOpt = sessionRepository.findByCode(sessionCode);
+        Optional<Session> sessionOpt = sessionService.findSessionByCode(sessionCode);
         if (sessionOpt.isPresent()) {
             Session session = sessionOpt.get();
 
@@ -704,8 +1048,7 @@ public class SessionWebSocketService {
                 return;
             }
 
-            Optional<SessionParticipant> participantOpt = participantRepository
-                    .findBySessionIdAndUserId(session.getId(), userId);
+            Optional<SessionParticipant> participantOpt = sessionService.findParticipant(session, userId);
 
             if (participantOpt.isPresent()) {
                 SessionParticipant participant = participantOpt.get();
@@ -726,9 +1069,9 @@ public class SessionWebSocketService {
         userLastActivity.remove(userKey);
 
         // Cancel timeout task
-        ScheduledFuture<?> timeoutTask = disconnectTimeouts.remove(userKey);
-        if (timeoutTask != null && !timeoutTask.isCancelled()) {
-            timeoutTask.cancel(false);
+        HashedTimingWheel.Timeout timeoutTask = disconnectTimeouts.remove(userKey);
+        if (timeoutTask != null) {
+            timeoutTask.cancel();
         }
     }
 
@@ -736,37 +1079,16 @@ public class SessionWebSocketService {
     public void cleanup() {
 
         // Cancel all active timer tasks
-        timerTasks.values().forEach(task -> {
-            if (task != null && !task.isCancelled()) {
-                task.cancel(false);
-            }
-        });
+        timerTasks.values().forEach(HashedTimingWheel.Timeout::cancel);
 
         // Cancel all disconnect timeout tasks
-        disconnectTimeouts.values().forEach(task -> {
-            if (task != null && !task.isCancelled()) {
-                task.cancel(false);
-            }
-        });
+        disconnectTimeouts.values().forEach(HashedTimingWheel.Timeout::cancel);
 
-        // Clear all maps
+        // Clear all maps - the timing wheel itself is stopped by its bean definition
         activeTimers.clear();
         timerTasks.clear();
         userLastActivity.clear();
         disconnectTimeouts.clear();
-
-        // Shutdown scheduler gracefully
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    System.err.println("SessionWebSocketService scheduler did not terminate");
-                }
-            }
-        } catch (InterruptedException ie) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        broadcastStates.clear();
     }
 }
\ No newline at end of file
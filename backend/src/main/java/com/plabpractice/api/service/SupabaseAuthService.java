@@ -2,6 +2,8 @@ package com.plabpractice.api.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -18,7 +20,12 @@ public class SupabaseAuthService {
     @Value("${supabase.service_key}")
     private String serviceKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -44,7 +51,8 @@ public class SupabaseAuthService {
                 headers.setContentType(MediaType.APPLICATION_JSON);
 
                 HttpEntity<String> entity = new HttpEntity<>(headers);
-                ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+                ResponseEntity<String> response = downstreamLimiter.call(Downstream.SUPABASE_AUTH,
+                        () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
 
                 if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                     JsonNode root = objectMapper.readTree(response.getBody());
@@ -2,6 +2,8 @@ package com.plabpractice.api.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -40,7 +42,12 @@ public class SupabaseStorageService {
     @Value("${supabase.signed_url_ttl_seconds:604800}")
     private long signedUrlTtlSeconds;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public String uploadImageAndGetUrl(MultipartFile file) {
@@ -86,8 +93,8 @@ public class SupabaseStorageService {
             headers.setContentType(MediaType.parseMediaType(detectedContentType));
 
             HttpEntity<byte[]> requestEntity = new HttpEntity<>(file.getBytes(), headers);
-            ResponseEntity<String> uploadResponse = restTemplate.exchange(uploadUrl, HttpMethod.POST, requestEntity,
-                    String.class);
+            ResponseEntity<String> uploadResponse = downstreamLimiter.call(Downstream.SUPABASE_STORAGE,
+                    () -> restTemplate.exchange(uploadUrl, HttpMethod.POST, requestEntity, String.class));
 
             if (!uploadResponse.getStatusCode().is2xxSuccessful()) {
                 throw new RestClientException("Supabase upload failed with status: " + uploadResponse.getStatusCode());
@@ -109,8 +116,8 @@ public class SupabaseStorageService {
             String payload = "{\"expiresIn\":" + signedUrlTtlSeconds + "}";
             HttpEntity<String> signEntity = new HttpEntity<>(payload, signHeaders);
 
-            ResponseEntity<String> signResponse = restTemplate.exchange(signUrl, HttpMethod.POST, signEntity,
-                    String.class);
+            ResponseEntity<String> signResponse = downstreamLimiter.call(Downstream.SUPABASE_STORAGE,
+                    () -> restTemplate.exchange(signUrl, HttpMethod.POST, signEntity, String.class));
             if (!signResponse.getStatusCode().is2xxSuccessful() || signResponse.getBody() == null) {
                 throw new RestClientException("Failed to create signed URL: " + signResponse.getStatusCode());
             }
@@ -0,0 +1,3 @@
+-- Last-modified timestamp for cases, used to key cached role-specific case views
+ALTER TABLE cases ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+UPDATE cases SET updated_at = NOW() WHERE updated_at IS NULL;
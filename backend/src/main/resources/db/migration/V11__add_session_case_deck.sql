@@ -0,0 +1,3 @@
+-- Per-session shuffled deck of remaining case IDs (comma-separated)
+ALTER TABLE sessions ADD COLUMN IF NOT EXISTS case_deck TEXT;
+ALTER TABLE sessions ADD COLUMN IF NOT EXISTS case_deck_source VARCHAR(255);
@@ -0,0 +1,5 @@
+-- Keyset pagination of session history on (created_at, id), newest first
+CREATE INDEX IF NOT EXISTS idx_session_created_at_id ON sessions (created_at DESC, id DESC);
+
+-- A user's participations; the (session_id, user_id) unique index leads with session_id
+CREATE INDEX IF NOT EXISTS idx_session_participants_user_session ON session_participants (user_id, session_id);
@@ -0,0 +1,2 @@
+-- Optimistic locking for sessions; phase transitions compare-and-set on (id, phase)
+ALTER TABLE sessions ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
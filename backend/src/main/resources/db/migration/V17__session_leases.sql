@@ -0,0 +1,8 @@
+-- Timer ownership per session for multi-replica deployments (SessionLeaseManager)
+CREATE TABLE IF NOT EXISTS session_leases (
+    session_code VARCHAR(255) PRIMARY KEY,
+    owner_id VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_session_leases_owner ON session_leases (owner_id);
+CREATE INDEX IF NOT EXISTS idx_session_leases_expires_at ON session_leases (expires_at);
@@ -0,0 +1,7 @@
+-- Broadcast payloads too large for a NOTIFY (PostgresBroadcastTransport); rows live a few minutes
+CREATE TABLE IF NOT EXISTS broadcast_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_broadcast_outbox_created_at ON broadcast_outbox (created_at);
@@ -0,0 +1,2 @@
+-- Optimistic locking for participants; the lease owner writes them behind, other nodes write through
+ALTER TABLE session_participants ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
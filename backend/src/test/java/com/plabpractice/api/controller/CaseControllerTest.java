@@ -6,6 +6,7 @@ import com.plabpractice.api.model.Category;
 import com.plabpractice.api.repository.CaseRepository;
 import com.plabpractice.api.repository.CategoryRepository;
 import com.plabpractice.api.repository.SessionRepository;
+import com.plabpractice.api.service.CaseSampler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +18,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -46,11 +48,17 @@ class CaseControllerTest {
     @MockBean
     private SessionRepository sessionRepository;
 
+    @Autowired
+    private CaseSampler caseSampler;
+
     private Category testCategory;
     private Case testCase;
 
     @BeforeEach
     void setUp() {
+        // Catalog is cached in the shared context; reload from this test's mocks
+        caseSampler.invalidate();
+
         testCategory = new Category();
         testCategory.setId(1L);
         testCategory.setName("Cardiology");
@@ -194,7 +202,10 @@ class CaseControllerTest {
     @WithMockUser(username = "test@example.com", roles = {"USER"})
     void getRandomCase_Success() throws Exception {
         // Arrange
-        when(caseRepository.findAll()).thenReturn(Arrays.asList(testCase));
+        List<Object[]> catalogRows = new ArrayList<>();
+        catalogRows.add(new Object[] { 1L, 1L, "Cardiology" });
+        when(caseRepository.findSamplerRows()).thenReturn(catalogRows);
+        when(caseRepository.findById(1L)).thenReturn(Optional.of(testCase));
 
         // Act & Assert
         mockMvc.perform(get("/api/cases/random"))
@@ -120,8 +120,8 @@ class FeedbackControllerTest {
         ));
 
         when(userRepository.findByEmail("patient@example.com")).thenReturn(Optional.of(senderUser));
-        when(sessionRepository.findByCode("123456")).thenReturn(Optional.of(testSession));
-        when(participantRepository.findBySessionIdAndRole(1L, SessionParticipant.Role.DOCTOR))
+        when(sessionService.findSessionByCode("123456")).thenReturn(Optional.of(testSession));
+        when(sessionService.getParticipantsWithRole(testSession, SessionParticipant.Role.DOCTOR))
                 .thenReturn(List.of(doctorParticipant));
         when(caseRepository.findById(1L)).thenReturn(Optional.of(testCase));
         when(feedbackService.saveFeedback(any())).thenAnswer(invocation -> {
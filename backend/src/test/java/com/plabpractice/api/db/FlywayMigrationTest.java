@@ -0,0 +1,98 @@
+package com.plabpractice.api.db;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the shared and H2 migrations the way application.properties configures
+ * Flyway - baseline an existing schema at version 0, then migrate - against a
+ * database holding the pre-migration schema.
+ */
+class FlywayMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migrations-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setDriverClassName("org.h2.Driver");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2-baseline-schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void migrate_UpgradesExistingSchemaToLatestVersion() {
+        // Arrange - a user who joined the same session twice, from before participants were unique
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password, role) VALUES (1, 'A', 'a@test.com', 'x', 'USER')");
+        jdbcTemplate.update("INSERT INTO sessions (id, title, session_code, status, created_at, used_case_ids) "
+                + "VALUES (1, 'S', '123456', 'CREATED', CURRENT_TIMESTAMP, '[1,2]')");
+        jdbcTemplate.update("INSERT INTO session_participants (id, session_id, user_id, role, is_active) "
+                + "VALUES (1, 1, 1, 'DOCTOR', FALSE), (2, 1, 1, 'DOCTOR', TRUE)");
+
+        // Act
+        MigrateResult result = flyway().migrate();
+
+        // Assert
+        assertTrue(result.success);
+        assertEquals("20", result.targetSchemaVersion);
+        assertEquals(12, result.migrationsExecuted);
+
+        assertColumn("SESSIONS", "VERSION");
+        assertColumn("SESSIONS", "CASE_DECK");
+        assertColumn("SESSION_PARTICIPANTS", "VERSION");
+        assertColumn("CASES", "UPDATED_AT");
+        assertColumn("USERS", "SUPABASE_ID");
+        for (String table : new String[] { "SESSION_LEASES", "BROADCAST_OUTBOX", "CASE_RECALL_DATES",
+                "SESSIONS_ARCHIVE", "SESSION_PARTICIPANTS_ARCHIVE" }) {
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = ?", Integer.class, table),
+                    table);
+        }
+        assertEquals("BINARY VARYING", jdbcTemplate.queryForObject("SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = 'SESSIONS' AND COLUMN_NAME = 'USED_CASE_IDS'", String.class));
+
+        // V13 keeps the newest row of a duplicated participant
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT id FROM session_participants", Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT version FROM session_participants", Long.class));
+    }
+
+    @Test
+    void migrate_IsANoOpOnceApplied() {
+        // Arrange
+        flyway().migrate();
+
+        // Act
+        MigrateResult again = flyway().migrate();
+
+        // Assert
+        assertEquals(0, again.migrationsExecuted);
+        assertTrue(flyway().validateWithResult().validationSuccessful);
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .locations("classpath:db/migration", "classpath:db/vendor/h2")
+                .outOfOrder(true)
+                .load();
+    }
+
+    private void assertColumn(String table, String column) {
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = ? AND COLUMN_NAME = ?", Integer.class, table, column), table + "." + column);
+    }
+}
@@ -0,0 +1,230 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.CaseIdListConverter;
+import com.plabpractice.api.model.CaseIdSet;
+import com.plabpractice.api.model.CaseIdSetConverter;
+import com.plabpractice.api.model.Category;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.repository.CaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CaseDeckServiceTest {
+
+    @Mock
+    private CaseRepository caseRepository;
+
+    @Mock
+    private RecallDateIndex recallDateIndex;
+
+    @InjectMocks
+    private CaseDeckService caseDeckService;
+
+    private Category category;
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setId(3L);
+        category.setName("Cardiology");
+
+        session = new Session();
+        session.setCode("123456");
+        session.setSessionType(Session.SessionType.TOPIC);
+        session.setSelectedCase(caseWithId(1L));
+        session.setUsedCaseIds(CaseIdSet.of(1L));
+    }
+
+    @Test
+    void prepareDeck_ExcludesUsedCases() {
+        // Arrange
+        when(caseRepository.findIdsByCategoryId(3L)).thenReturn(List.of(1L, 2L, 3L, 4L));
+
+        // Act
+        caseDeckService.prepareDeck(session);
+
+        // Assert
+        assertEquals(Set.of(2L, 3L, 4L), new HashSet<>(session.getCaseDeck()));
+        assertEquals("category:3", session.getCaseDeckSource());
+    }
+
+    @Test
+    void drawNextCase_DrawsEachCaseOnceWithoutRequerying() {
+        // Arrange
+        when(caseRepository.findIdsByCategoryId(3L)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(caseRepository.findById(anyLong())).thenAnswer(inv -> Optional.of(caseWithId(inv.getArgument(0))));
+        caseDeckService.prepareDeck(session);
+
+        // Act
+        Set<Long> drawn = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            Case next = caseDeckService.drawNextCase(session).orElseThrow();
+            drawn.add(next.getId());
+            session.getUsedCaseIds().add(next.getId());
+            session.setSelectedCase(next);
+        }
+
+        // Assert
+        assertEquals(Set.of(2L, 3L, 4L), drawn);
+        verify(caseRepository, times(1)).findIdsByCategoryId(3L);
+    }
+
+    @Test
+    void drawNextCase_SkipsDeletedCases() {
+        // Arrange
+        session.setCaseDeck(new ArrayList<>(List.of(2L, 5L)));
+        session.setCaseDeckSource("category:3");
+        when(caseRepository.findById(5L)).thenReturn(Optional.empty());
+        when(caseRepository.findById(2L)).thenReturn(Optional.of(caseWithId(2L)));
+
+        // Act
+        Optional<Case> next = caseDeckService.drawNextCase(session);
+
+        // Assert
+        assertEquals(2L, next.orElseThrow().getId());
+        assertTrue(session.getCaseDeck().isEmpty());
+    }
+
+    @Test
+    void drawNextCase_RefillsWhenDeckIsExhausted() {
+        // Arrange - deck is empty, but a case was added to the category since it was built
+        session.setCaseDeck(new ArrayList<>());
+        session.setCaseDeckSource("category:3");
+        when(caseRepository.findIdsByCategoryId(3L)).thenReturn(List.of(1L, 6L));
+        when(caseRepository.findById(6L)).thenReturn(Optional.of(caseWithId(6L)));
+
+        // Act
+        Optional<Case> next = caseDeckService.drawNextCase(session);
+
+        // Assert
+        assertEquals(6L, next.orElseThrow().getId());
+    }
+
+    @Test
+    void drawNextCase_EmptyWhenPoolIsUsedUp() {
+        // Arrange
+        session.setCaseDeck(new ArrayList<>());
+        session.setCaseDeckSource("category:3");
+        when(caseRepository.findIdsByCategoryId(3L)).thenReturn(List.of(1L));
+
+        // Act & Assert
+        assertTrue(caseDeckService.drawNextCase(session).isEmpty());
+    }
+
+    @Test
+    void drawNextCase_RebuildsDeckWhenRecallRangeChanges() {
+        // Arrange
+        session.setSessionType(Session.SessionType.RECALL);
+        session.setRecallStartDate(LocalDate.of(2024, 1, 1));
+        session.setRecallEndDate(LocalDate.of(2024, 3, 31));
+        session.setCaseDeck(new ArrayList<>(List.of(9L)));
+        session.setCaseDeckSource("category:3");
+        when(recallDateIndex.caseIdsInRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)))
+                .thenReturn(Set.of(7L));
+        when(caseRepository.findById(7L)).thenReturn(Optional.of(caseWithId(7L)));
+
+        // Act
+        Optional<Case> next = caseDeckService.drawNextCase(session);
+
+        // Assert
+        assertEquals(7L, next.orElseThrow().getId());
+        assertEquals("recall:2024-01-01:2024-03-31", session.getCaseDeckSource());
+    }
+
+    @Test
+    void caseIdListConverter_RoundTrips() {
+        // Arrange
+        CaseIdListConverter converter = new CaseIdListConverter();
+
+        // Act
+        String column = converter.convertToDatabaseColumn(List.of(12L, 7L, 33L));
+
+        // Assert
+        assertEquals("12,7,33", column);
+        assertEquals(List.of(12L, 7L, 33L), converter.convertToEntityAttribute(column));
+        assertTrue(converter.convertToEntityAttribute("").isEmpty());
+    }
+
+    @Test
+    void caseIdSet_TracksSparseAndDenseIdsAndRoundTrips() {
+        // Arrange - one sparse container and one past the 4096-entry array limit
+        CaseIdSet ids = new CaseIdSet();
+        CaseIdSetConverter converter = new CaseIdSetConverter();
+
+        // Act
+        for (long id = 0; id < 10_000; id += 2) {
+            ids.add(id);
+        }
+        boolean addedAgain = ids.add(4L);
+        ids.add(1L << 40);
+        ids.add(70_000L);
+
+        // Assert
+        assertFalse(addedAgain);
+        assertEquals(5002, ids.size());
+        assertTrue(ids.contains(9998L));
+        assertFalse(ids.contains(9999L));
+        assertTrue(ids.contains(Long.valueOf(1L << 40)));
+        assertFalse(ids.contains(-1L));
+        assertEquals(List.of(9998L, 70_000L, 1L << 40),
+                ids.stream().skip(4999).toList());
+
+        CaseIdSet restored = converter.convertToEntityAttribute(converter.convertToDatabaseColumn(ids));
+        assertEquals(ids, restored);
+        assertNotSame(ids, restored);
+        assertNull(converter.convertToDatabaseColumn(new CaseIdSet()));
+        assertTrue(converter.convertToEntityAttribute(null).isEmpty());
+    }
+
+    @Test
+    void caseIdSet_ReadsTheArrayOnlyLayoutWrittenByTheMigration() {
+        // Arrange - V19 writes every container as an array, even past 4096 entries
+        ByteBuffer column = ByteBuffer.allocate(1 + 4 + (4 + 1 + 2 + 2 * 2) + (4 + 1 + 2 + 5000 * 2));
+        column.put((byte) 1).putInt(2);
+        column.putInt(0).put((byte) 0).putChar((char) 1).putChar((char) 7).putChar((char) 12);
+        column.putInt(1).put((byte) 0).putChar((char) 4999);
+        for (int low = 0; low < 5000; low++) {
+            column.putChar((char) low);
+        }
+
+        // Act
+        CaseIdSet ids = CaseIdSet.fromBytes(column.array());
+
+        // Assert
+        assertEquals(5002, ids.size());
+        assertTrue(ids.contains(7L));
+        assertTrue(ids.contains(65_536L + 4999));
+        assertFalse(ids.contains(65_536L + 5000));
+        assertEquals(ids, CaseIdSet.fromBytes(ids.toBytes()));
+        assertThrows(IllegalArgumentException.class,
+                () -> CaseIdSet.fromBytes(Arrays.copyOf(column.array(), 20)));
+    }
+
+    private Case caseWithId(Long id) {
+        Case c = new Case();
+        c.setId(id);
+        c.setTitle("Case " + id);
+        c.setCategory(category);
+        return c;
+    }
+}
@@ -0,0 +1,141 @@
+package com.plabpractice.api.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares ORDER BY RANDOM() LIMIT 1 against CaseSampler-style selection
+ * (pick an ID from the in-memory catalog, then load one row by primary key)
+ * on an H2 cases table of 10k and 100k rows.
+ *
+ * Excluded from the regular test run; run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class CaseSamplerBenchmarkTest {
+
+    private static final int CATEGORIES = 20;
+    private static final int RANDOM_QUERY_ITERATIONS = 50;
+    private static final int SAMPLER_ITERATIONS = 2_000;
+
+    @ParameterizedTest(name = "{0} cases")
+    @ValueSource(ints = { 10_000, 100_000 })
+    void samplerVersusOrderByRandom(int caseCount) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:mem:sampler_bench_" + caseCount + ";DB_CLOSE_DELAY=0", "sa", "")) {
+            createCases(connection, caseCount);
+
+            // Current approach: full scan + sort per pick
+            double orderByRandomAll = timePerOp(RANDOM_QUERY_ITERATIONS,
+                    () -> queryOne(connection, "SELECT * FROM cases ORDER BY RANDOM() LIMIT 1", null));
+            double orderByRandomCategory = timePerOp(RANDOM_QUERY_ITERATIONS,
+                    () -> queryOne(connection,
+                            "SELECT * FROM cases WHERE category_id = ? ORDER BY RANDOM() LIMIT 1",
+                            (long) ThreadLocalRandom.current().nextInt(CATEGORIES)));
+
+            // Sampler: one ID-only catalog load, then O(1) pick + primary key lookup
+            long loadStart = System.nanoTime();
+            CaseSampler.Catalog catalog = loadCatalog(connection);
+            double catalogLoadMillis = (System.nanoTime() - loadStart) / 1_000_000.0;
+
+            Set<Long> excluded = Set.of(1L, 2L, 3L);
+            double samplerAll = timePerOp(SAMPLER_ITERATIONS,
+                    () -> queryOne(connection, "SELECT * FROM cases WHERE id = ?",
+                            CaseSampler.pick(catalog.allIds, excluded)));
+            double samplerCategory = timePerOp(SAMPLER_ITERATIONS,
+                    () -> queryOne(connection, "SELECT * FROM cases WHERE id = ?",
+                            CaseSampler.pick(catalog.idsByCategory.get(
+                                    (long) ThreadLocalRandom.current().nextInt(CATEGORIES)), excluded)));
+
+            System.out.printf("%n=== %,d cases ===%n", caseCount);
+            System.out.printf("ORDER BY RANDOM() (all)        %10.3f ms/pick%n", orderByRandomAll);
+            System.out.printf("ORDER BY RANDOM() (category)   %10.3f ms/pick%n", orderByRandomCategory);
+            System.out.printf("CaseSampler (all)              %10.3f ms/pick%n", samplerAll);
+            System.out.printf("CaseSampler (category)         %10.3f ms/pick%n", samplerCategory);
+            System.out.printf("CaseSampler catalog load       %10.3f ms (once per refresh)%n", catalogLoadMillis);
+
+            assertTrue(samplerAll < orderByRandomAll,
+                    "sampler should beat ORDER BY RANDOM() on the full table");
+        }
+    }
+
+    private void createCases(Connection connection, int caseCount) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE cases (
+                        id BIGINT PRIMARY KEY,
+                        category_id BIGINT NOT NULL,
+                        title VARCHAR(255) NOT NULL,
+                        description VARCHAR(2000)
+                    )""");
+            statement.execute("CREATE INDEX idx_cases_category ON cases(category_id)");
+        }
+
+        // Case bodies are large text in production; 1 KB per row here
+        String description = "x".repeat(1024);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO cases (id, category_id, title, description) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= caseCount; i++) {
+                insert.setLong(1, i);
+                insert.setLong(2, i % CATEGORIES);
+                insert.setString(3, "Case " + i);
+                insert.setString(4, description);
+                insert.addBatch();
+                if (i % 1_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private CaseSampler.Catalog loadCatalog(Connection connection) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT id, category_id FROM cases")) {
+            while (rs.next()) {
+                long categoryId = rs.getLong(2);
+                rows.add(new Object[] { rs.getLong(1), categoryId, "Category " + categoryId });
+            }
+        }
+        return CaseSampler.Catalog.load(rows);
+    }
+
+    private void queryOne(Connection connection, String sql, Long parameter) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                statement.setLong(1, parameter);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private double timePerOp(int iterations, Runnable op) {
+        // Warm-up
+        for (int i = 0; i < Math.min(10, iterations); i++) {
+            op.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / iterations;
+    }
+}
@@ -0,0 +1,198 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.repository.CaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CaseSamplerTest {
+
+    @Mock
+    private CaseRepository caseRepository;
+
+    @Mock
+    private RecallDateIndex recallDateIndex;
+
+    @InjectMocks
+    private CaseSampler caseSampler;
+
+    private List<Object[]> catalogRows;
+
+    @BeforeEach
+    void setUp() {
+        catalogRows = new ArrayList<>();
+        catalogRows.add(new Object[] { 1L, 10L, "Cardiology" });
+        catalogRows.add(new Object[] { 2L, 10L, "Cardiology" });
+        catalogRows.add(new Object[] { 3L, 20L, "Neurology" });
+        catalogRows.add(new Object[] { 4L, null, null });
+    }
+
+    private void stubCatalog() {
+        when(caseRepository.findSamplerRows()).thenReturn(catalogRows);
+        lenient().when(caseRepository.findById(anyLong()))
+                .thenAnswer(inv -> Optional.of(caseWithId(inv.getArgument(0))));
+    }
+
+    @Test
+    void randomCaseInCategory_OnlyPicksFromThatCategory() {
+        // Arrange
+        stubCatalog();
+
+        // Act & Assert
+        for (int i = 0; i < 50; i++) {
+            long id = caseSampler.randomCaseInCategory(10L, Set.of()).orElseThrow().getId();
+            assertTrue(id == 1L || id == 2L);
+        }
+        verify(caseRepository, times(1)).findSamplerRows();
+    }
+
+    @Test
+    void randomCaseInCategories_RespectsExclusions() {
+        // Arrange
+        stubCatalog();
+
+        // Act
+        Optional<Case> picked = caseSampler.randomCaseInCategories(List.of("Cardiology", "Neurology"),
+                Set.of(1L, 2L));
+
+        // Assert
+        assertEquals(3L, picked.orElseThrow().getId());
+    }
+
+    @Test
+    void randomCase_EmptyWhenEverythingExcluded() {
+        // Arrange
+        stubCatalog();
+
+        // Act & Assert
+        assertTrue(caseSampler.randomCase(Set.of(1L, 2L, 3L, 4L)).isEmpty());
+        verify(caseRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void randomRecallCase_PicksFromRecallDateIndex() {
+        // Arrange
+        LocalDate start = LocalDate.of(2024, 2, 1);
+        LocalDate end = LocalDate.of(2024, 12, 31);
+        when(recallDateIndex.randomCaseIdInRange(start, end, Set.of(2L))).thenReturn(OptionalLong.of(3L));
+        when(caseRepository.findById(3L)).thenReturn(Optional.of(caseWithId(3L)));
+
+        // Act
+        Optional<Case> picked = caseSampler.randomRecallCase(start, end, Set.of(2L));
+
+        // Assert
+        assertEquals(3L, picked.orElseThrow().getId());
+        verify(caseRepository, never()).findSamplerRows();
+    }
+
+    @Test
+    void randomRecallCase_DropsDeletedCaseFromIndex() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        when(recallDateIndex.randomCaseIdInRange(date, date, Set.of()))
+                .thenReturn(OptionalLong.of(5L), OptionalLong.empty());
+        when(caseRepository.findById(5L)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Case> picked = caseSampler.randomRecallCase(date, date, Set.of());
+
+        // Assert
+        assertTrue(picked.isEmpty());
+        verify(recallDateIndex).remove(5L);
+    }
+
+    @Test
+    void randomCase_ReloadsCatalogWhenPickedCaseWasDeleted() {
+        // Arrange - catalog still lists case 1, which has been deleted
+        List<Object[]> single = new ArrayList<>();
+        single.add(new Object[] { 1L, 10L, "Cardiology" });
+        List<Object[]> reloaded = new ArrayList<>();
+        reloaded.add(new Object[] { 2L, 10L, "Cardiology" });
+        when(caseRepository.findSamplerRows()).thenReturn(single, reloaded);
+        when(caseRepository.findById(1L)).thenReturn(Optional.empty());
+        when(caseRepository.findById(2L)).thenReturn(Optional.of(caseWithId(2L)));
+
+        // Act
+        Optional<Case> picked = caseSampler.randomCase(Set.of());
+
+        // Assert
+        assertEquals(2L, picked.orElseThrow().getId());
+    }
+
+    @Test
+    void invalidate_ReloadsCatalogOnNextPick() {
+        // Arrange
+        stubCatalog();
+        caseSampler.randomCase(Set.of());
+
+        // Act
+        caseSampler.invalidate();
+        caseSampler.randomCase(Set.of());
+
+        // Assert
+        verify(caseRepository, times(2)).findSamplerRows();
+    }
+
+    @Test
+    void invalidate_DuringLoadDiscardsThatLoad() {
+        // Arrange - a case is saved (and the sampler invalidated) while the catalog query runs
+        List<Object[]> beforeSave = List.of(new Object[] { 1L, 10L, "Cardiology" });
+        when(caseRepository.findSamplerRows())
+                .thenAnswer(inv -> {
+                    caseSampler.invalidate();
+                    return beforeSave;
+                })
+                .thenReturn(catalogRows);
+        when(caseRepository.findById(anyLong())).thenAnswer(inv -> Optional.of(caseWithId(inv.getArgument(0))));
+
+        // Act
+        Optional<Case> picked = caseSampler.randomCaseInCategory(20L, Set.of());
+
+        // Assert - the stale catalog is not used; the reload sees the new case
+        assertEquals(3L, picked.orElseThrow().getId());
+        verify(caseRepository, times(2)).findSamplerRows();
+    }
+
+    @Test
+    void pick_IsRoughlyUniform() {
+        // Arrange
+        long[] ids = { 1, 2, 3, 4 };
+        Map<Long, Integer> counts = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 40_000; i++) {
+            counts.merge(CaseSampler.pick(ids, Set.of(4L)), 1, Integer::sum);
+        }
+
+        // Assert - excluded ID never picked, others ~13,333 each
+        assertNull(counts.get(4L));
+        for (long id = 1; id <= 3; id++) {
+            assertTrue(Math.abs(counts.get(id) - 13_333) < 1_000, "count for " + id + ": " + counts.get(id));
+        }
+    }
+
+    private Case caseWithId(Long id) {
+        Case c = new Case();
+        c.setId(id);
+        c.setTitle("Case " + id);
+        return c;
+    }
+}
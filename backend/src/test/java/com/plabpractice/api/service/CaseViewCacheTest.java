@@ -0,0 +1,100 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.SessionParticipant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseViewCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private CaseViewCache caseViewCache;
+    private Case testCase;
+
+    @BeforeEach
+    void setUp() {
+        caseViewCache = new CaseViewCache(objectMapper);
+
+        testCase = new Case();
+        testCase.setId(1L);
+        testCase.setTitle("Chest Pain");
+        testCase.setDescription("55 year old with chest pain");
+        testCase.setDoctorSections(List.of(new Case.CaseSection("d1", "Doctor", "Take a history", 1)));
+        testCase.setPatientSections(List.of(new Case.CaseSection("p1", "Patient", "You are anxious", 1)));
+        testCase.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void getCaseDataMessage_DoctorViewHasDoctorSectionsAndNoTitle() throws Exception {
+        // Act
+        JsonNode message = objectMapper.readTree(
+                caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.DOCTOR));
+
+        // Assert
+        assertEquals("CASE_DATA", message.get("type").asText());
+        assertFalse(message.get("case").has("title"));
+        assertEquals("d1", message.get("case").get("sections").get(0).get("id").asText());
+    }
+
+    @Test
+    void getCaseDataMessage_PatientViewIsFullCase() throws Exception {
+        // Act
+        JsonNode message = objectMapper.readTree(
+                caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.PATIENT));
+
+        // Assert
+        assertEquals("Chest Pain", message.get("case").get("title").asText());
+        assertEquals("p1", message.get("case").get("patientSections").get(0).get("id").asText());
+    }
+
+    @Test
+    void getCaseDataMessage_ReusesSerializedPayload() {
+        // Act
+        String first = caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.OBSERVER);
+        String second = caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.OBSERVER);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, caseViewCache.size());
+    }
+
+    @Test
+    void getCaseDataMessage_NewLastModifiedBuildsNewView() {
+        // Arrange
+        String before = caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.PATIENT);
+        testCase.setTitle("Chest Pain (revised)");
+        testCase.setUpdatedAt(LocalDateTime.of(2024, 1, 2, 12, 0));
+
+        // Act
+        String after = caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.PATIENT);
+
+        // Assert
+        assertNotEquals(before, after);
+        assertTrue(after.contains("Chest Pain (revised)"));
+    }
+
+    @Test
+    void evict_RemovesAllRolesForCase() {
+        // Arrange
+        caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.DOCTOR);
+        caseViewCache.getCaseDataMessage(testCase, SessionParticipant.Role.PATIENT);
+        Case otherCase = new Case();
+        otherCase.setId(2L);
+        caseViewCache.getCaseDataMessage(otherCase, SessionParticipant.Role.PATIENT);
+
+        // Act
+        caseViewCache.evict(1L);
+
+        // Assert
+        assertEquals(1, caseViewCache.size());
+    }
+}
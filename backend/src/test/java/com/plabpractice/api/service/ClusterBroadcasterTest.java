@@ -0,0 +1,123 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.service.BroadcastTransport.BroadcastEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterBroadcasterTest {
+
+    @Mock
+    private SimpMessagingTemplate templateA;
+
+    @Mock
+    private SimpMessagingTemplate templateB;
+
+    private LoopbackBroadcastTransport transport;
+    private ClusterBroadcaster nodeA;
+    private ClusterBroadcaster nodeB;
+
+    @BeforeEach
+    void setUp() {
+        // Two nodes sharing one channel
+        transport = new LoopbackBroadcastTransport();
+        nodeA = new ClusterBroadcaster(transport, templateA, "node-a");
+        nodeB = new ClusterBroadcaster(transport, templateB, "node-b");
+    }
+
+    @Test
+    void publish_DeliversToOtherNodesOnly() {
+        // Act
+        nodeA.publish("/topic/session/123456", json("{\"type\":\"PHASE_CHANGE\"}"));
+
+        // Assert
+        ArgumentCaptor<Message<?>> delivered = messageCaptor();
+        verify(templateB).send(eq("/topic/session/123456"), delivered.capture());
+        assertArrayEquals("{\"type\":\"PHASE_CHANGE\"}".getBytes(StandardCharsets.UTF_8),
+                (byte[]) delivered.getValue().getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, delivered.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        verifyNoInteractions(templateA);
+    }
+
+    @Test
+    void hasPeers_OnlyWhenAnotherNodeSharesTheTransport() {
+        // Arrange
+        ClusterBroadcaster single = new ClusterBroadcaster(new LoopbackBroadcastTransport(), templateA, "node-c");
+
+        // Act / Assert
+        assertTrue(nodeA.hasPeers());
+        assertFalse(single.hasPeers());
+    }
+
+    @Test
+    void receive_DropsDuplicates() {
+        // Arrange
+        nodeA.publish("/topic/session/123456", json("{\"n\":1}"));
+        BroadcastEvent replay = new BroadcastEvent(origin(), 1, "/topic/session/123456",
+                "{\"n\":1}".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        nodeB.receive(replay);
+
+        // Assert
+        verify(templateB, times(1)).send(anyString(), any(Message.class));
+    }
+
+    @Test
+    void publish_KeepsPerSessionOrder() {
+        // Act
+        for (int i = 1; i <= 3; i++) {
+            nodeA.publish("/topic/session/123456", json("{\"n\":" + i + "}"));
+        }
+
+        // Assert
+        ArgumentCaptor<Message<?>> delivered = messageCaptor();
+        verify(templateB, times(3)).send(eq("/topic/session/123456"), delivered.capture());
+        List<String> bodies = delivered.getAllValues().stream()
+                .map(m -> new String((byte[]) m.getPayload(), StandardCharsets.UTF_8))
+                .toList();
+        assertEquals(List.of("{\"n\":1}", "{\"n\":2}", "{\"n\":3}"), bodies);
+    }
+
+    @Test
+    void publish_TransportFailureDoesNotPropagate() {
+        // Arrange
+        BroadcastTransport failing = mock(BroadcastTransport.class);
+        doThrow(new IllegalStateException("connection refused")).when(failing).publish(any());
+        ClusterBroadcaster broadcaster = new ClusterBroadcaster(failing, templateA, "node-a");
+
+        // Act & Assert
+        assertDoesNotThrow(() -> broadcaster.publish("/topic/session/123456", json("{}")));
+    }
+
+    private String origin() {
+        return nodeA.getNodeId();
+    }
+
+    private static Message<byte[]> json(String body) {
+        return MessageBuilder.withPayload(body.getBytes(StandardCharsets.UTF_8)).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Message<?>> messageCaptor() {
+        return ArgumentCaptor.forClass((Class<Message<?>>) (Class<?>) Message.class);
+    }
+}
@@ -0,0 +1,72 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import com.plabpractice.api.service.DownstreamLimiter.DownstreamBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DownstreamLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // One permit for Supabase storage, short acquire timeout
+        limiter = new DownstreamLimiter(meterRegistry, 1, 4, 4, 4, 50);
+    }
+
+    @Test
+    void call_ReturnsResultAndReleasesPermit() throws Exception {
+        // Act
+        String result = limiter.call(Downstream.SUPABASE_STORAGE, () -> "uploaded");
+
+        // Assert
+        assertEquals("uploaded", result);
+        assertEquals(1, limiter.availablePermits(Downstream.SUPABASE_STORAGE));
+    }
+
+    @Test
+    void call_ReleasesPermitWhenCallFails() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> limiter.call(Downstream.SUPABASE_STORAGE, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(1, limiter.availablePermits(Downstream.SUPABASE_STORAGE));
+    }
+
+    @Test
+    void call_RejectsWhenDownstreamIsSaturated() throws Exception {
+        // Arrange - a slow call holds the only permit
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowCall = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.call(Downstream.SUPABASE_STORAGE, () -> {
+                    started.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // Act & Assert - storage is busy, other downstreams are not affected
+        assertThrows(DownstreamBusyException.class, () -> limiter.call(Downstream.SUPABASE_STORAGE, () -> "late"));
+        assertEquals("ok", limiter.call(Downstream.GOOGLE, () -> "ok"));
+        assertEquals(1.0, meterRegistry.get("plab.outbound.rejected").tag("downstream", "supabase_storage")
+                .counter().count());
+
+        release.countDown();
+        slowCall.join();
+        assertEquals(1, limiter.availablePermits(Downstream.SUPABASE_STORAGE));
+    }
+}
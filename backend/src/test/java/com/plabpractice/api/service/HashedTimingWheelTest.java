@@ -0,0 +1,174 @@
+package com.plabpractice.api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HashedTimingWheel("test-timer", 10, 64, 4, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void schedule_FiresAfterDelay() throws InterruptedException {
+        // Arrange
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Act
+        wheel.schedule(fired::countDown, 100, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void cancel_PreventsExecution() throws InterruptedException {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        HashedTimingWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        // Act
+        boolean cancelled = timeout.cancel();
+        Thread.sleep(200);
+
+        // Assert
+        assertTrue(cancelled);
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void scheduleAt_NeverFiresBeforeWallClockDeadline() throws InterruptedException {
+        // Arrange
+        long deadline = System.currentTimeMillis() + 150;
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+
+        // Act
+        wheel.scheduleAt(deadline, () -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+
+        // Assert
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() >= deadline);
+    }
+
+    @Test
+    void scheduleAt_PastDeadlineFiresOnNextTick() throws InterruptedException {
+        // Arrange
+        CountDownLatch fired = new CountDownLatch(1);
+
+        // Act
+        wheel.scheduleAt(System.currentTimeMillis() - 5_000, fired::countDown);
+
+        // Assert
+        assertTrue(fired.await(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void schedule_HandlesManyPendingTimeouts() throws InterruptedException {
+        // Arrange - delays span several wheel rotations (64 ticks x 10ms)
+        AtomicInteger runs = new AtomicInteger();
+        List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            timeouts.add(wheel.schedule(runs::incrementAndGet, 200 + (i % 1500), TimeUnit.MILLISECONDS));
+        }
+
+        // Act - cancel every other timeout
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            timeouts.get(i).cancel();
+        }
+        assertEquals(100_000, wheel.pendingTimeouts());
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (runs.get() < 100_000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(100_000, runs.get());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void slowTask_DoesNotDelayTicking() throws InterruptedException {
+        // Arrange - one task blocks a worker for a long time
+        CountDownLatch release = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch fired = new CountDownLatch(1);
+
+        // Act
+        wheel.schedule(fired::countDown, 100, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void virtualWorkers_RunTasksOnVirtualThreadsWithinLimit() throws InterruptedException {
+        // Arrange - at most 2 tasks at once
+        HashedTimingWheel virtualWheel = new HashedTimingWheel("test-vtimer", 10, 64, 2, 1000, true);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger platformThreads = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+
+        try {
+            // Act
+            for (int i = 0; i < 6; i++) {
+                virtualWheel.schedule(() -> {
+                    if (!Thread.currentThread().isVirtual()) {
+                        platformThreads.incrementAndGet();
+                    }
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }, 10, TimeUnit.MILLISECONDS);
+            }
+
+            // Assert
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(0, platformThreads.get());
+            assertTrue(maxRunning.get() <= 2);
+            assertEquals(0, virtualWheel.queuedTasks());
+        } finally {
+            virtualWheel.stop();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.CategoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.core.MessagePostProcessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatchmakingServiceTest {
+
+    private static final SessionParticipant.Role DOCTOR = SessionParticipant.Role.DOCTOR;
+    private static final SessionParticipant.Role PATIENT = SessionParticipant.Role.PATIENT;
+    private static final SessionParticipant.Role OBSERVER = SessionParticipant.Role.OBSERVER;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private SessionWebSocketService webSocketService;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Mock
+    private SessionMailbox sessionMailbox;
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<Runnable> startedSessions;
+    private MatchmakingService matchmakingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        startedSessions = Collections.synchronizedList(new ArrayList<>());
+        matchmakingService = new MatchmakingService(sessionService, categoryRepository, webSocketService,
+                sessionMailbox, messagingTemplate, clusterBroadcaster, meterRegistry, startedSessions::add);
+        lenient().when(categoryRepository.findNamesIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            return names.stream().filter(name -> name.equals("Cardiology") || name.equals("Neurology")
+                    || name.startsWith("Topic")).toList();
+        });
+    }
+
+    @Test
+    void enqueue_FormsTriadOnceEveryRoleIsWaiting() {
+        // Act
+        matchmakingService.enqueue(user(1L), DOCTOR, List.of("Cardiology"));
+        matchmakingService.enqueue(user(2L), PATIENT, List.of("Cardiology"));
+
+        // Assert - no observer yet
+        assertTrue(startedSessions.isEmpty());
+        assertEquals(2, matchmakingService.waitingUsers());
+
+        // Act
+        matchmakingService.enqueue(user(3L), OBSERVER, List.of("Cardiology"));
+
+        // Assert
+        assertEquals(1, startedSessions.size());
+        assertEquals(0, matchmakingService.waitingUsers());
+        assertTrue(matchmakingService.getStatus(user(1L)).isEmpty());
+        assertEquals(1.0, meterRegistry.get("plab.matchmaking.matches").counter().count());
+    }
+
+    @Test
+    void enqueue_MatchesOnlyWithinASharedTopic() {
+        // Act
+        matchmakingService.enqueue(user(1L), DOCTOR, List.of("Cardiology"));
+        matchmakingService.enqueue(user(2L), PATIENT, List.of("Neurology", "Cardiology"));
+        matchmakingService.enqueue(user(3L), OBSERVER, List.of("Neurology"));
+
+        // Assert
+        assertTrue(startedSessions.isEmpty());
+
+        // Act
+        matchmakingService.enqueue(user(4L), DOCTOR, List.of("Neurology"));
+
+        // Assert - the patient is matched once, and drops out of Cardiology
+        assertEquals(1, startedSessions.size());
+        assertEquals(1, matchmakingService.waitingUsers());
+        matchmakingService.enqueue(user(5L), OBSERVER, List.of("Cardiology"));
+        assertEquals(1, startedSessions.size());
+    }
+
+    @Test
+    void cancel_AndRequeue_ReplaceTheWaitingTicket() {
+        // Arrange
+        matchmakingService.enqueue(user(1L), DOCTOR, List.of());
+        matchmakingService.enqueue(user(1L), PATIENT, List.of());
+
+        // Act - user 1 now waits as patient only
+        matchmakingService.enqueue(user(2L), DOCTOR, List.of());
+        matchmakingService.enqueue(user(3L), OBSERVER, List.of());
+
+        // Assert
+        assertEquals(1, startedSessions.size());
+
+        // Act
+        matchmakingService.enqueue(user(4L), DOCTOR, List.of("Random"));
+        boolean cancelled = matchmakingService.cancel(user(4L));
+
+        // Assert
+        assertTrue(cancelled);
+        assertFalse(matchmakingService.cancel(user(4L)));
+        assertEquals(0, matchmakingService.waitingUsers());
+        assertEquals(0.0, meterRegistry.get("plab.matchmaking.waiting").gauge().value());
+    }
+
+    @Test
+    void enqueue_RejectsRolesOutsideTheTriad() {
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> matchmakingService.enqueue(user(1L), SessionParticipant.Role.HOST, List.of()));
+        assertEquals(0, matchmakingService.waitingUsers());
+    }
+
+    @Test
+    void enqueue_RejectsTopicsThatAreNotCategories() {
+        // Act & Assert
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> matchmakingService.enqueue(user(1L), DOCTOR, List.of("Cardiology", "Made Up", "Random")));
+        assertEquals("Unknown topics: Made Up", error.getMessage());
+        assertEquals(0, matchmakingService.waitingUsers());
+        verify(categoryRepository).findNamesIn(Set.of("Cardiology", "Made Up"));
+    }
+
+    @Test
+    void startSession_DoctorCreatesOthersJoinAndEveryoneIsNotified() {
+        // Arrange
+        MatchmakingService synchronous = new MatchmakingService(sessionService, categoryRepository, webSocketService,
+                sessionMailbox, messagingTemplate, clusterBroadcaster, new SimpleMeterRegistry(), Runnable::run);
+        Session session = new Session();
+        session.setCode("123456");
+        when(sessionService.createSessionWithConfig(eq("Practice: Cardiology"), eq("TOPIC"), any(), any(),
+                eq("COUNTDOWN"), eq(List.of("Cardiology")), any())).thenReturn(session);
+        when(sessionMailbox.call(eq("123456"), any())).thenAnswer(invocation -> {
+            Supplier<?> command = invocation.getArgument(1);
+            return command.get();
+        });
+        when(sessionService.leaveUserFromOtherActiveSessions(eq("123456"), any())).thenReturn(List.of());
+
+        // Act
+        synchronous.enqueue(user(1L), DOCTOR, List.of("Cardiology"));
+        synchronous.enqueue(user(2L), PATIENT, List.of("Cardiology"));
+        synchronous.enqueue(user(3L), OBSERVER, List.of("Cardiology"));
+
+        // Assert
+        verify(sessionService).createSessionWithConfig(anyString(), anyString(), any(), any(), anyString(), anyList(),
+                argThat(u -> u.getId() == 1L));
+        verify(sessionService).joinSessionWithRole(eq("123456"), eq("PATIENT"), argThat(u -> u.getId() == 2L));
+        verify(sessionService).joinSessionWithRole(eq("123456"), eq("OBSERVER"), argThat(u -> u.getId() == 3L));
+        verify(sessionService, never()).joinSessionWithRole(any(), eq("DOCTOR"), any());
+        verify(webSocketService).broadcastParticipantUpdate("123456");
+        verify(messagingTemplate).convertAndSendToUser(eq("user1@test.com"),
+                eq(MatchmakingService.QUEUE_DESTINATION),
+                argThat(message -> "123456".equals(((Map<?, ?>) message).get("sessionCode"))),
+                any(MessagePostProcessor.class));
+        verify(messagingTemplate, times(3)).convertAndSendToUser(anyString(),
+                eq(MatchmakingService.QUEUE_DESTINATION), argThat(message -> "MATCH_FOUND".equals(
+                        ((Map<?, ?>) message).get("type"))), any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void enqueue_ConcurrentUsersAreEachMatchedExactlyOnce() throws InterruptedException {
+        // Arrange - 3000 users, 1000 per role, queuing from 12 threads; all share one topic
+        int perRole = 1000;
+        ExecutorService callers = Executors.newFixedThreadPool(12);
+        CountDownLatch queued = new CountDownLatch(perRole * 3);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        SessionParticipant.Role[] roles = { DOCTOR, PATIENT, OBSERVER };
+
+        // Act
+        for (int i = 0; i < perRole * 3; i++) {
+            long id = i;
+            SessionParticipant.Role role = roles[i % 3];
+            List<String> topics = List.of("Topic" + (i % 4), "Cardiology");
+            callers.execute(() -> {
+                try {
+                    matchmakingService.enqueue(user(id), role, topics);
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    queued.countDown();
+                }
+            });
+        }
+        assertTrue(queued.await(30, TimeUnit.SECONDS));
+        callers.shutdown();
+        matchmakingService.sweep();
+
+        // Assert - everybody matched, nobody twice, one of each role per triad
+        assertTrue(failures.isEmpty(), () -> failures.peek().toString());
+        assertEquals(0, matchmakingService.waitingUsers());
+        assertEquals(perRole, startedSessions.size());
+        assertEquals(perRole, (long) meterRegistry.get("plab.matchmaking.matches").counter().count());
+    }
+
+    @Test
+    void enqueue_MatchingStaysFastWithTenThousandQueuedUsers() {
+        // Arrange - 10k doctors and patients waiting, no observers
+        for (long id = 0; id < 10_000; id++) {
+            matchmakingService.enqueue(user(id), id % 2 == 0 ? DOCTOR : PATIENT, List.of("Cardiology"));
+        }
+        for (long id = 10_000; id < 11_000; id++) {
+            // Warm up
+            matchmakingService.enqueue(user(id), OBSERVER, List.of("Cardiology"));
+        }
+
+        // Act - each observer completes a triad
+        long started = System.nanoTime();
+        for (long id = 11_000; id < 12_000; id++) {
+            matchmakingService.enqueue(user(id), OBSERVER, List.of("Cardiology"));
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        // Assert - well under a millisecond per match on average
+        assertEquals(2000, startedSessions.size());
+        assertEquals(6000, matchmakingService.waitingUsers());
+        assertTrue(elapsedNanos / 1000 < TimeUnit.MILLISECONDS.toNanos(1),
+                "Average match took " + elapsedNanos / 1000 + " ns");
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@test.com");
+        return user;
+    }
+}
@@ -0,0 +1,126 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.repository.CaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecallDateIndexTest {
+
+    private static final LocalDate JAN_15 = LocalDate.of(2024, 1, 15);
+    private static final LocalDate MAR_01 = LocalDate.of(2024, 3, 1);
+    private static final LocalDate JUN_01_2023 = LocalDate.of(2023, 6, 1);
+
+    @Mock
+    private CaseRepository caseRepository;
+
+    @InjectMocks
+    private RecallDateIndex recallDateIndex;
+
+    private List<Object[]> recallRows;
+
+    @BeforeEach
+    void setUp() {
+        recallRows = new ArrayList<>();
+        recallRows.add(new Object[] { 1L, JAN_15 });
+        recallRows.add(new Object[] { 2L, JUN_01_2023 });
+        recallRows.add(new Object[] { 2L, MAR_01 });
+        recallRows.add(new Object[] { 3L, JAN_15 });
+        when(caseRepository.findRecallDateRows()).thenReturn(recallRows);
+    }
+
+    @Test
+    void caseIdsOn_ReturnsCasesForThatDate() {
+        // Act & Assert
+        assertEquals(Set.of(1L, 3L), recallDateIndex.caseIdsOn(JAN_15));
+        assertTrue(recallDateIndex.caseIdsOn(LocalDate.of(2024, 1, 16)).isEmpty());
+        verify(caseRepository, times(1)).findRecallDateRows();
+    }
+
+    @Test
+    void caseIdsInRange_MatchesAnyDateInRange() {
+        // Act & Assert
+        assertEquals(Set.of(1L, 2L, 3L), recallDateIndex.caseIdsInRange(JAN_15, MAR_01));
+        assertEquals(Set.of(2L), recallDateIndex.caseIdsInRange(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 12, 31)));
+        assertTrue(recallDateIndex.caseIdsInRange(MAR_01, JAN_15).isEmpty());
+    }
+
+    @Test
+    void dates_AreDistinctAndSorted() {
+        // Act & Assert
+        assertEquals(List.of(JUN_01_2023, JAN_15, MAR_01), recallDateIndex.dates());
+    }
+
+    @Test
+    void histogram_CountsCasesPerDate() {
+        // Act
+        Map<LocalDate, Integer> counts = recallDateIndex.histogram(LocalDate.of(2024, 1, 1), null);
+
+        // Assert
+        assertEquals(Map.of(JAN_15, 2, MAR_01, 1), counts);
+    }
+
+    @Test
+    void randomCaseIdInRange_RespectsExclusions() {
+        // Act & Assert
+        assertEquals(3L, recallDateIndex.randomCaseIdInRange(JAN_15, JAN_15, Set.of(1L)).getAsLong());
+        assertTrue(recallDateIndex.randomCaseIdInRange(JAN_15, JAN_15, Set.of(1L, 3L)).isEmpty());
+    }
+
+    @Test
+    void index_MovesUpdatedCaseToItsNewDates() {
+        // Arrange
+        recallDateIndex.dates();
+        Case updated = new Case();
+        updated.setId(1L);
+        updated.setIsRecallCase(true);
+        updated.setRecallDates(List.of("2024-03-01", "not-a-date"));
+
+        // Act
+        recallDateIndex.index(updated);
+
+        // Assert
+        assertEquals(Set.of(3L), recallDateIndex.caseIdsOn(JAN_15));
+        assertEquals(Set.of(1L, 2L), recallDateIndex.caseIdsOn(MAR_01));
+        assertEquals(Set.of(MAR_01), updated.getRecallDateValues());
+    }
+
+    @Test
+    void remove_DropsCaseAndEmptyDates() {
+        // Arrange
+        recallDateIndex.dates();
+
+        // Act
+        recallDateIndex.remove(2L);
+
+        // Assert
+        assertEquals(List.of(JAN_15), recallDateIndex.dates());
+    }
+
+    @Test
+    void scheduledRefresh_ReloadsOnNextLookup() {
+        // Arrange
+        recallDateIndex.dates();
+
+        // Act
+        recallDateIndex.scheduledRefresh();
+        recallDateIndex.dates();
+
+        // Assert
+        verify(caseRepository, times(2)).findRecallDateRows();
+    }
+}
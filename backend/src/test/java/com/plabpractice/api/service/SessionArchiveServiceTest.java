@@ -0,0 +1,141 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.ArchivedSession;
+import com.plabpractice.api.model.ArchivedSessionParticipant;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.repository.ArchivedSessionParticipantRepository;
+import com.plabpractice.api.repository.ArchivedSessionRepository;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionArchiveServiceTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionParticipantRepository participantRepository;
+
+    @Mock
+    private ArchivedSessionRepository archivedSessionRepository;
+
+    @Mock
+    private ArchivedSessionParticipantRepository archivedParticipantRepository;
+
+    @Mock
+    private SessionCodeAllocator sessionCodeAllocator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        archiveService = new SessionArchiveService(sessionRepository, participantRepository,
+                archivedSessionRepository, archivedParticipantRepository, sessionCodeAllocator, transactionManager,
+                meterRegistry, 90, 2);
+    }
+
+    @Test
+    void archiveFinishedSessions_MovesRowsChunkByChunk() {
+        // Arrange
+        when(sessionRepository.findArchivableIds(anyCollection(), any(), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(archivedParticipantRepository.copyFromParticipants(anyList())).thenReturn(4, 2);
+        when(archivedSessionRepository.copyFromSessions(anyList())).thenReturn(2, 1);
+        when(sessionRepository.findCodesByIdIn(anyList())).thenReturn(List.of("111111", "222222"), List.of("333333"));
+
+        // Act
+        SessionArchiveService.ArchiveResult result = archiveService.archiveFinishedSessions();
+
+        // Assert
+        assertEquals(new SessionArchiveService.ArchiveResult(3, 6, 2), result);
+        InOrder order = inOrder(archivedParticipantRepository, participantRepository, archivedSessionRepository,
+                sessionRepository);
+        order.verify(archivedParticipantRepository).copyFromParticipants(List.of(1L, 2L));
+        order.verify(participantRepository).deleteAllBySessionIdIn(List.of(1L, 2L));
+        order.verify(archivedSessionRepository).copyFromSessions(List.of(1L, 2L));
+        order.verify(sessionRepository).deleteAllByIdIn(List.of(1L, 2L));
+        verify(sessionRepository).deleteAllByIdIn(List.of(3L));
+        verify(sessionCodeAllocator).release("111111");
+        verify(sessionCodeAllocator).release("222222");
+        verify(sessionCodeAllocator).release("333333");
+        assertEquals(3.0, meterRegistry.get("plab.archive.rows").tag("table", "sessions").counter().count());
+        assertEquals(6.0,
+                meterRegistry.get("plab.archive.rows").tag("table", "session_participants").counter().count());
+    }
+
+    @Test
+    void archiveFinishedSessions_NothingToArchive() {
+        // Arrange
+        when(sessionRepository.findArchivableIds(anyCollection(), any(), any())).thenReturn(List.of());
+
+        // Act
+        SessionArchiveService.ArchiveResult result = archiveService.archiveFinishedSessions();
+
+        // Assert
+        assertEquals(0, result.chunks());
+        verifyNoInteractions(archivedSessionRepository, archivedParticipantRepository, sessionCodeAllocator);
+    }
+
+    @Test
+    void archiveFinishedSessions_KeepsCodesOfAFailedChunk() {
+        // Arrange
+        when(sessionRepository.findArchivableIds(anyCollection(), any(), any())).thenReturn(List.of(1L));
+        when(sessionRepository.findCodesByIdIn(List.of(1L))).thenReturn(List.of("111111"));
+        when(archivedParticipantRepository.copyFromParticipants(anyList()))
+                .thenThrow(new RuntimeException("disk full"));
+
+        // Act
+        assertThrows(RuntimeException.class, () -> archiveService.archiveFinishedSessions());
+
+        // Assert
+        verifyNoInteractions(sessionCodeAllocator);
+    }
+
+    @Test
+    void findSession_ResolvesArchivedSessionWithRole() {
+        // Arrange
+        ArchivedSession archived = new ArchivedSession();
+        archived.setId(7L);
+        archived.setCode("123456");
+        archived.setTitle("Old Session");
+        archived.setStatus(Session.Status.COMPLETED);
+        ArchivedSessionParticipant doctor = new ArchivedSessionParticipant();
+        doctor.setRole(SessionParticipant.Role.DOCTOR);
+        when(archivedSessionRepository.findById(7L)).thenReturn(Optional.of(archived));
+        when(archivedParticipantRepository.findFirstBySessionIdAndUserId(7L, 3L)).thenReturn(Optional.of(doctor));
+
+        // Act
+        Session session = archiveService.findSession(7L).orElseThrow();
+
+        // Assert
+        assertEquals("123456", session.getCode());
+        assertEquals(Session.Phase.COMPLETED, session.getPhase());
+        assertEquals(Optional.of(SessionParticipant.Role.DOCTOR), archiveService.findRole(7L, 3L));
+    }
+}
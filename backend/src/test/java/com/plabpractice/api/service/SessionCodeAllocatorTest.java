@@ -0,0 +1,114 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.repository.SessionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionCodeAllocatorTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Test
+    void allocate_SkipsCodesLoadedAtStartup() {
+        // Arrange - every code but one is taken
+        SessionCodeAllocator allocator = new SessionCodeAllocator(sessionRepository, false);
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < SessionCodeAllocator.CODE_SPACE; i++) {
+            if (i != 424242) {
+                taken.add(String.format("%06d", i));
+            }
+        }
+        when(sessionRepository.findAllCodes()).thenReturn(taken);
+        allocator.load();
+
+        // Act
+        String code = allocator.allocate();
+
+        // Assert
+        assertEquals("424242", code);
+        assertEquals(0, allocator.availableCodes());
+        assertThrows(RuntimeException.class, allocator::allocate);
+    }
+
+    @Test
+    void allocateBatch_ReturnsDistinctCodes() {
+        // Arrange
+        SessionCodeAllocator allocator = new SessionCodeAllocator(sessionRepository, false);
+        when(sessionRepository.findAllCodes()).thenReturn(List.of("000001", "999999"));
+        allocator.load();
+
+        // Act
+        List<String> codes = allocator.allocateBatch(5_000);
+
+        // Assert
+        Set<String> unique = new HashSet<>(codes);
+        assertEquals(5_000, unique.size());
+        assertFalse(unique.contains("000001"));
+        assertFalse(unique.contains("999999"));
+        assertEquals(SessionCodeAllocator.CODE_SPACE - 5_002, allocator.availableCodes());
+        verify(sessionRepository, times(1)).findAllCodes();
+    }
+
+    @Test
+    void release_ReturnsCodeToPool() {
+        // Arrange
+        SessionCodeAllocator allocator = new SessionCodeAllocator(sessionRepository, false);
+        when(sessionRepository.findAllCodes()).thenReturn(List.of("123456"));
+        allocator.load();
+
+        // Act
+        allocator.release("123456");
+
+        // Assert
+        assertEquals(SessionCodeAllocator.CODE_SPACE, allocator.availableCodes());
+    }
+
+    @Test
+    void checkDigit_DetectsTyposAndTranspositions() {
+        // Arrange
+        SessionCodeAllocator allocator = new SessionCodeAllocator(sessionRepository, true);
+        when(sessionRepository.findAllCodes()).thenReturn(List.of());
+        allocator.load();
+
+        // Act
+        String code = allocator.allocate();
+        char[] transposed = code.toCharArray();
+        char tmp = transposed[1];
+        transposed[1] = transposed[2];
+        transposed[2] = tmp;
+        String typo = code.substring(0, 3) + (char) ('0' + (code.charAt(3) - '0' + 1) % 10) + code.substring(4);
+
+        // Assert
+        assertEquals(7, code.length());
+        assertFalse(allocator.hasInvalidCheckDigit(code));
+        assertTrue(allocator.hasInvalidCheckDigit(typo));
+        if (transposed[1] != transposed[2]) {
+            assertTrue(allocator.hasInvalidCheckDigit(new String(transposed)));
+        }
+        // Legacy six-digit codes are still accepted
+        assertFalse(allocator.hasInvalidCheckDigit("123456"));
+        assertTrue(allocator.hasInvalidCheckDigit("12345a7"));
+    }
+
+    @Test
+    void checkDigit_DisabledAcceptsEverything() {
+        // Arrange
+        SessionCodeAllocator allocator = new SessionCodeAllocator(sessionRepository, false);
+
+        // Act & Assert
+        assertFalse(allocator.hasInvalidCheckDigit("1234567"));
+        assertFalse(allocator.hasInvalidCheckDigit("123456"));
+    }
+}
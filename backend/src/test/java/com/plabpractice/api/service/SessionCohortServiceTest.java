@@ -0,0 +1,221 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.dto.CohortSessionRequest;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionCohortServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SessionCodeAllocator sessionCodeAllocator;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SessionLobby sessionLobby;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private SessionWebSocketService webSocketService;
+
+    @Mock
+    private SessionMailbox sessionMailbox;
+
+    @Mock
+    private SessionEventLog sessionEventLog;
+
+    private SessionCohortService cohortService;
+    private User instructor;
+
+    @BeforeEach
+    void setUp() {
+        cohortService = new SessionCohortService(jdbcTemplate, transactionManager, sessionCodeAllocator,
+                userRepository, sessionLobby, sessionService, webSocketService, sessionMailbox, sessionEventLog,
+                new ObjectMapper(), 200);
+        instructor = user(1L, "instructor@test.com");
+    }
+
+    @Test
+    void createCohort_InsertsSessionsAndParticipantsInTwoBatches() throws Exception {
+        // Arrange
+        CohortSessionRequest request = new CohortSessionRequest();
+        request.setTitle("Cardiology");
+        request.setCount(3);
+        request.setRoster(List.of(new CohortSessionRequest.Triad("doc@test.com", "pat@test.com", null)));
+        User doctor = user(2L, "doc@test.com");
+        when(userRepository.findAllByEmailIn(anyCollection()))
+                .thenReturn(List.of(doctor, user(3L, "pat@test.com")));
+        Session earlier = new Session();
+        earlier.setCode("900001");
+        when(sessionService.leaveUsersFromOtherActiveSessions(anyCollection(), eq(List.of(11L, 12L, 13L))))
+                .thenReturn(Map.of(2L, List.of(earlier)));
+        when(sessionCodeAllocator.allocateBatch(3)).thenReturn(List.of("100001", "100002", "100003"));
+        ResultSet rows = mock(ResultSet.class);
+        when(rows.getString("session_code")).thenReturn("100001", "100002", "100003");
+        when(rows.getLong("id")).thenReturn(11L, 12L, 13L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(rows);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, session_code"), anyMap(), any(RowCallbackHandler.class));
+
+        // Act
+        List<SessionCohortService.CohortSession> created = cohortService.createCohort(request, instructor);
+
+        // Assert
+        assertEquals(List.of("100001", "100002", "100003"),
+                created.stream().map(SessionCohortService.CohortSession::code).toList());
+        assertEquals(new SessionCohortService.CohortSession(11L, "100001", "Cardiology 1", "doc@test.com",
+                "pat@test.com", null), created.get(0));
+        assertEquals(13L, created.get(2).id());
+
+        ArgumentCaptor<SqlParameterSource[]> sessionRows = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO sessions"), sessionRows.capture());
+        assertEquals(3, sessionRows.getValue().length);
+        assertEquals("Cardiology 2", sessionRows.getValue()[1].getValue("title"));
+        assertEquals("CREATED", sessionRows.getValue()[1].getValue("status"));
+        assertEquals(1L, sessionRows.getValue()[1].getValue("createdBy"));
+
+        // Triad (doctor + patient) in the first session, the instructor hosts the other two
+        ArgumentCaptor<SqlParameterSource[]> participantRows = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO session_participants"), participantRows.capture());
+        SqlParameterSource[] participants = participantRows.getValue();
+        assertEquals(4, participants.length);
+        assertEquals(11L, participants[0].getValue("sessionId"));
+        assertEquals(2L, participants[0].getValue("userId"));
+        assertEquals("DOCTOR", participants[0].getValue("role"));
+        assertEquals(3L, participants[1].getValue("userId"));
+        assertEquals("PATIENT", participants[1].getValue("role"));
+        assertEquals(12L, participants[2].getValue("sessionId"));
+        assertEquals(1L, participants[2].getValue("userId"));
+        assertEquals("DOCTOR", participants[2].getValue("role"));
+
+        verify(sessionLobby).sessionCreated(argThat(s -> "100001".equals(s.getCode()) && s.getId() == 11L), eq(2L));
+        verify(sessionLobby, times(2)).sessionCreated(argThat(s -> s.getStatus() == Session.Status.CREATED),
+                eq(1L));
+        verify(transactionManager).commit(any());
+
+        // Everyone placed in a session has a JOINED event, the instructor where it hosts alone
+        verify(sessionEventLog).append(11L, SessionEventLog.EventType.JOINED, 2L, 0, "DOCTOR");
+        verify(sessionEventLog).append(11L, SessionEventLog.EventType.JOINED, 3L, 0, "PATIENT");
+        verify(sessionEventLog).append(12L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+        verify(sessionEventLog).append(13L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+
+        // The doctor's earlier session hears of the leave on its own mailbox
+        ArgumentCaptor<Runnable> leave = ArgumentCaptor.forClass(Runnable.class);
+        verify(sessionMailbox).execute(eq("900001"), leave.capture());
+        leave.getValue().run();
+        verify(webSocketService).handleUserLeave("900001", doctor);
+    }
+
+    @Test
+    void createCohort_FailedInsertReleasesCodes() {
+        // Arrange
+        CohortSessionRequest request = new CohortSessionRequest();
+        request.setCount(2);
+        when(sessionCodeAllocator.allocateBatch(2)).thenReturn(List.of("100001", "100002"));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO sessions"), any(SqlParameterSource[].class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> cohortService.createCohort(request, instructor));
+        verify(sessionCodeAllocator).release("100001");
+        verify(sessionCodeAllocator).release("100002");
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(sessionLobby, sessionService);
+    }
+
+    @Test
+    void createCohort_RejectsUnknownOrRepeatedRosterUsersBeforeAllocating() {
+        // Arrange
+        CohortSessionRequest unknown = new CohortSessionRequest();
+        unknown.setCount(2);
+        unknown.setRoster(List.of(new CohortSessionRequest.Triad("doc@test.com", "ghost@test.com", null)));
+        when(userRepository.findAllByEmailIn(anyCollection())).thenReturn(List.of(user(2L, "doc@test.com")));
+
+        CohortSessionRequest repeated = new CohortSessionRequest();
+        repeated.setCount(2);
+        repeated.setRoster(List.of(new CohortSessionRequest.Triad("doc@test.com", null, null),
+                new CohortSessionRequest.Triad(null, "doc@test.com", null)));
+
+        // Act & Assert
+        RuntimeException unknownError = assertThrows(RuntimeException.class,
+                () -> cohortService.createCohort(unknown, instructor));
+        assertEquals("Unknown roster users: ghost@test.com", unknownError.getMessage());
+        RuntimeException repeatedError = assertThrows(RuntimeException.class,
+                () -> cohortService.createCohort(repeated, instructor));
+        assertEquals("doc@test.com appears more than once in the roster", repeatedError.getMessage());
+        verify(sessionCodeAllocator, never()).allocateBatch(anyInt());
+    }
+
+    @Test
+    void createCohort_RejectsEmptyTriads() {
+        // Arrange
+        CohortSessionRequest request = new CohortSessionRequest();
+        request.setCount(2);
+        request.setRoster(List.of(new CohortSessionRequest.Triad("doc@test.com", null, null),
+                new CohortSessionRequest.Triad(null, null, null)));
+
+        // Act & Assert
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> cohortService.createCohort(request, instructor));
+        assertEquals("Roster triads need at least one user", error.getMessage());
+        verifyNoInteractions(sessionCodeAllocator, jdbcTemplate);
+    }
+
+    @Test
+    void createCohort_RejectsCountOutsideLimit() {
+        // Arrange
+        CohortSessionRequest request = new CohortSessionRequest();
+        request.setCount(201);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> cohortService.createCohort(request, instructor));
+        verifyNoInteractions(sessionCodeAllocator, jdbcTemplate);
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,176 @@
+package com.plabpractice.api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    private SessionEventLog eventLog;
+
+    @AfterEach
+    void tearDown() {
+        if (eventLog != null) {
+            eventLog.close();
+        }
+    }
+
+    @Test
+    void timeline_ReplaysOnlyTheSessionsEventsInOrder() {
+        // Arrange
+        eventLog = open(1024 * 1024);
+
+        // Act
+        eventLog.append(1L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+        eventLog.append(2L, SessionEventLog.EventType.JOINED, 9L, 0, "HOST");
+        eventLog.append(1L, SessionEventLog.EventType.CASE_ASSIGNED, -1, 42L, null);
+        eventLog.append(1L, SessionEventLog.EventType.PHASE_CHANGED, -1, 0, "READING");
+        eventLog.append(1L, SessionEventLog.EventType.FEEDBACK_SUBMITTED, 2L, 1L, null);
+
+        // Assert
+        List<SessionEventLog.SessionEvent> timeline = eventLog.timeline(1L);
+        assertEquals(List.of(SessionEventLog.EventType.JOINED, SessionEventLog.EventType.CASE_ASSIGNED,
+                SessionEventLog.EventType.PHASE_CHANGED, SessionEventLog.EventType.FEEDBACK_SUBMITTED),
+                timeline.stream().map(SessionEventLog.SessionEvent::type).toList());
+        assertEquals("DOCTOR", timeline.get(0).detail());
+        assertEquals(42L, timeline.get(1).value());
+        assertEquals(2L, timeline.get(3).userId());
+        assertEquals(1, eventLog.timeline(2L).size());
+        assertTrue(eventLog.timeline(3L).isEmpty());
+    }
+
+    @Test
+    void append_RollsOverToNewSegmentsWhenFull() {
+        // Arrange - room for roughly 20 events per segment
+        eventLog = open(1024);
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            eventLog.append(i % 2 == 0 ? 1L : 2L, SessionEventLog.EventType.PHASE_CHANGED, i, i,
+                    "CONSULTATION");
+        }
+
+        // Assert
+        assertTrue(eventLog.segmentCount() > 5);
+        List<SessionEventLog.SessionEvent> timeline = eventLog.timeline(2L);
+        assertEquals(100, timeline.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2L * i + 1, timeline.get(i).value());
+        }
+    }
+
+    @Test
+    void open_RecoversEventsAndDropsTornTailAfterCrash() throws IOException {
+        // Arrange - a previous run that was never closed, with a torn final record
+        SessionEventLog crashed = open(64 * 1024);
+        crashed.append(1L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+        crashed.append(1L, SessionEventLog.EventType.JOINED, 2L, 0, "PATIENT");
+        crashed.sync();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer secondRecordCrc = ByteBuffer.allocate(4).putInt(0, 12345);
+            int firstRecordLength = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt(0) + 8;
+            channel.write(secondRecordCrc, firstRecordLength + 4);
+        }
+
+        // Act
+        eventLog = open(64 * 1024);
+        eventLog.append(1L, SessionEventLog.EventType.JOINED, 3L, 0, "OBSERVER");
+
+        // Assert - the corrupt record is dropped, the trimmed segment stays readable
+        List<SessionEventLog.SessionEvent> timeline = eventLog.timeline(1L);
+        assertEquals(List.of(1L, 3L), timeline.stream().map(SessionEventLog.SessionEvent::userId).toList());
+        assertEquals(2, eventLog.segmentCount());
+        assertTrue(Files.size(segment) < 64 * 1024);
+    }
+
+    @Test
+    void applyRetention_DeletesOldSegmentsAndForgetsTheirSessions() throws IOException {
+        // Arrange - first session in an old closed segment, second in the active one
+        SessionEventLog previous = open(64 * 1024);
+        previous.append(1L, SessionEventLog.EventType.SESSION_ENDED, -1, 0, null);
+        previous.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            Path old = files.findFirst().orElseThrow();
+            Files.setLastModifiedTime(old, FileTime.fromMillis(
+                    System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31)));
+        }
+        eventLog = open(64 * 1024);
+        eventLog.append(2L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+        assertEquals(1, eventLog.timeline(1L).size());
+
+        // Act
+        eventLog.applyRetention();
+
+        // Assert
+        assertTrue(eventLog.timeline(1L).isEmpty());
+        assertEquals(1, eventLog.timeline(2L).size());
+        assertEquals(1, eventLog.segmentCount());
+    }
+
+    @Test
+    void applyRetention_KeepsEventsInTheActiveSegment() throws IOException {
+        // Arrange - a session with events in an old closed segment and in the active one
+        SessionEventLog previous = open(64 * 1024);
+        previous.append(1L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+        previous.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            Path old = files.findFirst().orElseThrow();
+            Files.setLastModifiedTime(old, FileTime.fromMillis(
+                    System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31)));
+        }
+        eventLog = open(64 * 1024);
+        eventLog.append(2L, SessionEventLog.EventType.JOINED, 9L, 0, "HOST");
+        eventLog.append(1L, SessionEventLog.EventType.SESSION_ENDED, -1, 0, null);
+
+        // Act
+        eventLog.applyRetention();
+
+        // Assert
+        List<SessionEventLog.SessionEvent> timeline = eventLog.timeline(1L);
+        assertEquals(List.of(SessionEventLog.EventType.SESSION_ENDED),
+                timeline.stream().map(SessionEventLog.SessionEvent::type).toList());
+        assertEquals(1, eventLog.timeline(2L).size());
+    }
+
+    @Test
+    void append_IsANoOpWhenDisabled() throws IOException {
+        // Arrange
+        eventLog = new SessionEventLog(false, directory.toString(), 64 * 1024, 30);
+        eventLog.open();
+
+        // Act
+        eventLog.append(1L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+
+        // Assert
+        assertTrue(eventLog.timeline(1L).isEmpty());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private SessionEventLog open(int segmentBytes) {
+        SessionEventLog log = new SessionEventLog(true, directory.toString(), segmentBytes, 30);
+        log.open();
+        return log;
+    }
+}
@@ -0,0 +1,123 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.repository.SessionLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionLeaseManagerTest {
+
+    @Mock
+    private SessionLeaseRepository leaseRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SessionLeaseManager leaseManager;
+
+    @BeforeEach
+    void setUp() {
+        leaseManager = new SessionLeaseManager(leaseRepository, transactionManager, true, "node-a", 15000);
+    }
+
+    @Test
+    void claim_InsertsLeaseForNewSession() {
+        // Arrange
+        when(leaseRepository.claim(eq("123456"), eq("node-a"), any(), any())).thenReturn(0);
+        when(leaseRepository.insert(eq("123456"), eq("node-a"), any())).thenReturn(1);
+
+        // Act & Assert
+        assertTrue(leaseManager.claim("123456"));
+    }
+
+    @Test
+    void claim_LosesToLiveLeaseOfAnotherNode() {
+        // Arrange
+        when(leaseRepository.claim(eq("123456"), eq("node-a"), any(), any())).thenReturn(0);
+        when(leaseRepository.insert(eq("123456"), eq("node-a"), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act & Assert
+        assertFalse(leaseManager.claim("123456"));
+    }
+
+    @Test
+    void take_TransfersExistingLeaseWithoutInsert() {
+        // Arrange
+        when(leaseRepository.transfer(eq("123456"), eq("node-a"), any())).thenReturn(1);
+
+        // Act
+        leaseManager.take("123456");
+
+        // Assert
+        verify(leaseRepository, never()).insert(anyString(), anyString(), any());
+    }
+
+    @Test
+    void claimExpired_ReturnsOnlyLeasesWon() {
+        // Arrange
+        when(leaseRepository.findExpiredCodes(any(), eq(PageRequest.of(0, 10)))).thenReturn(List.of("111111", "222222"));
+        when(leaseRepository.claim(eq("111111"), eq("node-a"), any(), any())).thenReturn(1);
+        when(leaseRepository.claim(eq("222222"), eq("node-a"), any(), any())).thenReturn(0);
+
+        // Act & Assert
+        assertEquals(List.of("111111"), leaseManager.claimExpired(10));
+    }
+
+    @Test
+    void claimAll_ClaimsAndInsertsInBulk() {
+        // Arrange
+        List<String> codes = List.of("111111", "222222", "333333");
+        when(leaseRepository.findCodesHeldBy(eq(codes), eq("node-a"), any())).thenReturn(List.of("111111", "333333"));
+
+        // Act
+        Set<String> owned = leaseManager.claimAll(codes);
+
+        // Assert
+        assertEquals(Set.of("111111", "333333"), owned);
+        verify(leaseRepository, times(1)).claimAll(eq(codes), eq("node-a"), any(), any());
+        verify(leaseRepository, times(1)).insertMissing(eq(codes), eq("node-a"), any());
+        verify(leaseRepository, never()).claim(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void claimAll_KeepsLeasesWonDespiteConcurrentInsert() {
+        // Arrange
+        List<String> codes = List.of("111111", "222222");
+        when(leaseRepository.insertMissing(eq(codes), eq("node-a"), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(leaseRepository.findCodesHeldBy(eq(codes), eq("node-a"), any())).thenReturn(List.of("111111"));
+
+        // Act & Assert
+        assertEquals(Set.of("111111"), leaseManager.claimAll(codes));
+    }
+
+    @Test
+    void disabled_OwnsEverySessionWithoutTouchingTheDatabase() {
+        // Arrange
+        SessionLeaseManager single = new SessionLeaseManager(leaseRepository, transactionManager, false, "", 15000);
+
+        // Act & Assert
+        assertTrue(single.owns("123456"));
+        assertTrue(single.claim("123456"));
+        assertEquals(Set.of("123456"), single.claimAll(List.of("123456")));
+        single.take("123456");
+        assertEquals(0, single.renew());
+        verifyNoInteractions(leaseRepository);
+    }
+}
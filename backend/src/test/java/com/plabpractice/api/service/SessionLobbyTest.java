@@ -0,0 +1,205 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.dto.LobbySessionDTO;
+import com.plabpractice.api.dto.LobbySnapshotDTO;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionLobbyTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionParticipantRepository participantRepository;
+
+    @Mock
+    private SessionStateRegistry sessionStateRegistry;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private SessionLobby sessionLobby;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> projections = new ArrayList<>();
+        projections.add(new Object[] { 1L, "Older", "111111", Session.Status.IN_PROGRESS, Session.Phase.READING,
+                CREATED_AT, CREATED_AT });
+        projections.add(new Object[] { 2L, "Newer", "222222", Session.Status.CREATED, Session.Phase.WAITING,
+                CREATED_AT.plusHours(1), CREATED_AT.plusHours(1) });
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] { 1L, 2L });
+        when(sessionRepository.findActiveSessionProjections()).thenReturn(projections);
+        when(participantRepository.countActiveParticipantsInActiveSessions()).thenReturn(counts);
+        when(sessionStateRegistry.trackedSessions()).thenReturn(List.of());
+    }
+
+    @Test
+    void snapshot_LoadsOnceNewestFirst() {
+        // Act
+        sessionLobby.snapshot();
+        LobbySnapshotDTO snapshot = sessionLobby.snapshot();
+
+        // Assert
+        assertEquals(List.of(2L, 1L), snapshot.getSessions().stream().map(LobbySessionDTO::getId).toList());
+        assertEquals(2L, snapshot.getSessions().get(1).getParticipantCount());
+        assertEquals(0L, snapshot.getVersion());
+        verify(sessionRepository, times(1)).findActiveSessionProjections();
+    }
+
+    @Test
+    void sessionChanged_AddsNewSessionAndPublishesDelta() {
+        // Arrange
+        sessionLobby.snapshot();
+        Session created = session(3L, Session.Status.CREATED);
+        when(sessionStateRegistry.getParticipants(3L)).thenReturn(Optional.of(List.of(participant(true))));
+
+        // Act
+        sessionLobby.sessionChanged(created);
+
+        // Assert
+        Map<String, Object> delta = publishedDelta();
+        assertEquals("LOBBY_SESSION_ADDED", delta.get("type"));
+        assertEquals(1L, delta.get("version"));
+        assertEquals(1L, ((LobbySessionDTO) delta.get("session")).getParticipantCount());
+        assertEquals(3, sessionLobby.snapshot().getSessions().size());
+    }
+
+    @Test
+    void sessionChanged_RemovesCompletedSession() {
+        // Arrange
+        sessionLobby.snapshot();
+
+        // Act
+        sessionLobby.sessionChanged(session(1L, Session.Status.COMPLETED));
+
+        // Assert
+        Map<String, Object> delta = publishedDelta();
+        assertEquals("LOBBY_SESSION_REMOVED", delta.get("type"));
+        assertEquals(1L, delta.get("sessionId"));
+        assertEquals(List.of(2L), sessionLobby.snapshot().getSessions().stream().map(LobbySessionDTO::getId).toList());
+    }
+
+    @Test
+    void participantsChanged_PublishesOnlyWhenCountChanges() {
+        // Arrange
+        sessionLobby.snapshot();
+        when(sessionStateRegistry.getParticipants(1L))
+                .thenReturn(Optional.of(List.of(participant(true), participant(true))))
+                .thenReturn(Optional.of(List.of(participant(true), participant(false))));
+
+        // Act
+        sessionLobby.participantsChanged(1L);
+        sessionLobby.participantsChanged(1L);
+
+        // Assert
+        Map<String, Object> delta = publishedDelta();
+        assertEquals("LOBBY_SESSION_UPDATED", delta.get("type"));
+        assertEquals(1L, ((LobbySessionDTO) delta.get("session")).getParticipantCount());
+        assertEquals(1L, sessionLobby.snapshot().getVersion());
+    }
+
+    @Test
+    void changesBeforeFirstSnapshot_AreLeftToTheLoad() {
+        // Act
+        sessionLobby.sessionChanged(session(3L, Session.Status.CREATED));
+
+        // Assert
+        verifyNoInteractions(messagingTemplate);
+        assertEquals(2, sessionLobby.snapshot().getSessions().size());
+    }
+
+    @Test
+    void sessionChanged_ForwardsChangeToOtherNodes() throws Exception {
+        // Arrange
+        sessionLobby.snapshot();
+        when(clusterBroadcaster.hasPeers()).thenReturn(true);
+
+        // Act
+        sessionLobby.sessionChanged(session(1L, Session.Status.COMPLETED));
+
+        // Assert
+        ArgumentCaptor<String> forwarded = ArgumentCaptor.forClass(String.class);
+        verify(clusterBroadcaster).publishNotice(eq(SessionLobby.CHANGE_NOTICE), forwarded.capture());
+        SessionLobby.PeerChange change = objectMapper.readValue(forwarded.getValue(), SessionLobby.PeerChange.class);
+        assertNull(change.session());
+        assertEquals(1L, change.removedSessionId());
+    }
+
+    @Test
+    void applyPeerChange_UpdatesLobbyWithoutForwardingAgain() throws Exception {
+        // Arrange
+        sessionLobby.snapshot();
+        LobbySessionDTO entry = new LobbySessionDTO(5L, "Elsewhere", "555555", Session.Status.CREATED,
+                Session.Phase.WAITING, CREATED_AT.plusHours(5), null, 1L);
+        String json = objectMapper.writeValueAsString(new SessionLobby.PeerChange(entry, null));
+
+        // Act
+        sessionLobby.applyPeerChange(json);
+
+        // Assert
+        Map<String, Object> delta = publishedDelta();
+        assertEquals("LOBBY_SESSION_ADDED", delta.get("type"));
+        assertEquals(1L, delta.get("version"));
+        assertEquals(entry, sessionLobby.snapshot().getSessions().get(0));
+        verify(clusterBroadcaster, never()).publishNotice(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> publishedDelta() {
+        ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq(SessionLobby.TOPIC), message.capture());
+        return (Map<String, Object>) message.getValue();
+    }
+
+    private static Session session(Long id, Session.Status status) {
+        Session session = new Session();
+        session.setId(id);
+        session.setTitle("Session " + id);
+        session.setCode("00000" + id);
+        session.setStatus(status);
+        session.setPhase(Session.Phase.WAITING);
+        session.setCreatedAt(CREATED_AT.plusHours(id));
+        return session;
+    }
+
+    private static SessionParticipant participant(boolean active) {
+        SessionParticipant participant = new SessionParticipant();
+        participant.setIsActive(active);
+        return participant;
+    }
+}
@@ -0,0 +1,202 @@
+package com.plabpractice.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionMailboxTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SessionMailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mailbox = new SessionMailbox(meterRegistry, Executors.newFixedThreadPool(8), 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailbox.shutdown();
+    }
+
+    @Test
+    void execute_RunsCommandsOfOneSessionInSubmissionOrder() throws InterruptedException {
+        // Arrange
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            int value = i;
+            mailbox.execute("123456", () -> order.add(value));
+        }
+        mailbox.execute("123456", done::countDown);
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(500, order.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void execute_RunsDifferentSessionsInParallel() throws InterruptedException {
+        // Arrange - each session's command waits for the other one to start
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch bothDone = new CountDownLatch(2);
+
+        // Act
+        mailbox.execute("111111", () -> {
+            firstStarted.countDown();
+            await(secondStarted);
+            bothDone.countDown();
+        });
+        mailbox.execute("222222", () -> {
+            secondStarted.countDown();
+            await(firstStarted);
+            bothDone.countDown();
+        });
+
+        // Assert
+        assertTrue(bothDone.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void call_ReturnsResultAndRethrowsCommandFailure() {
+        // Act & Assert
+        assertEquals("ok", mailbox.call("123456", () -> "ok"));
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> mailbox.call("123456", () -> {
+                    throw new RuntimeException("Session not found");
+                }));
+        assertEquals("Session not found", thrown.getMessage());
+    }
+
+    @Test
+    void call_FromOwnSessionRunsInline_FromOtherSessionIsRejected() {
+        // Act
+        String nested = mailbox.call("123456", () -> mailbox.call("123456", () -> "inline"));
+
+        // Assert
+        assertEquals("inline", nested);
+        assertThrows(IllegalStateException.class,
+                () -> mailbox.call("123456", () -> mailbox.call("654321", () -> "deadlock?")));
+    }
+
+    @Test
+    void call_TimesOutWhenSessionIsBusy() throws InterruptedException {
+        // Arrange
+        SessionMailbox impatient = new SessionMailbox(new SimpleMeterRegistry(), Executors.newFixedThreadPool(2), 50);
+        CountDownLatch release = new CountDownLatch(1);
+        impatient.execute("123456", () -> await(release));
+
+        try {
+            // Act & Assert
+            RuntimeException thrown = assertThrows(RuntimeException.class, () -> impatient.call("123456", () -> "late"));
+            assertEquals("Session is busy - please try again", thrown.getMessage());
+        } finally {
+            release.countDown();
+            impatient.shutdown();
+        }
+    }
+
+    @Test
+    void execute_ThousandsOfConcurrentSessions_NoLostOrReorderedUpdates() throws InterruptedException {
+        // Arrange - unsynchronized per-session state, mutated from many submitting threads
+        int sessions = 2000;
+        int producers = 8;
+        int commandsPerProducer = 10;
+        SessionState[] states = new SessionState[sessions];
+        for (int s = 0; s < sessions; s++) {
+            states[s] = new SessionState(producers);
+        }
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger reorders = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(sessions * producers * commandsPerProducer);
+        ExecutorService submitters = Executors.newFixedThreadPool(producers);
+
+        // Act
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            submitters.execute(() -> {
+                for (int seq = 0; seq < commandsPerProducer; seq++) {
+                    for (int s = 0; s < sessions; s++) {
+                        SessionState state = states[s];
+                        int expectedSeq = seq;
+                        mailbox.execute(String.valueOf(100000 + s), () -> {
+                            if (state.running) {
+                                overlaps.incrementAndGet();
+                            }
+                            state.running = true;
+                            if (state.lastSeq[producer] != expectedSeq - 1) {
+                                reorders.incrementAndGet();
+                            }
+                            state.lastSeq[producer] = expectedSeq;
+                            int value = state.counter;
+                            Thread.yield();
+                            state.counter = value + 1;
+                            state.running = false;
+                            completed.countDown();
+                        });
+                    }
+                }
+            });
+        }
+
+        // Assert
+        assertTrue(completed.await(60, TimeUnit.SECONDS));
+        submitters.shutdown();
+        assertEquals(0, overlaps.get());
+        assertEquals(0, reorders.get());
+        for (SessionState state : states) {
+            assertEquals(producers * commandsPerProducer, state.counter);
+        }
+        assertEquals((long) sessions * producers * commandsPerProducer,
+                meterRegistry.get("plab.session.mailbox.depth").summary().count());
+        waitForIdleMailboxes();
+        assertEquals(0, mailbox.activeMailboxes());
+        assertEquals(0, mailbox.pendingCommands());
+        assertEquals(0.0, meterRegistry.get("plab.session.mailbox.pending").gauge().value());
+    }
+
+    private void waitForIdleMailboxes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mailbox.activeMailboxes() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class SessionState {
+        private int counter;
+        private boolean running;
+        private final int[] lastSeq;
+
+        private SessionState(int producers) {
+            lastSeq = new int[producers];
+            Arrays.fill(lastSeq, -1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionMetricsTest {
+
+    @Mock
+    private SessionStateRegistry sessionStateRegistry;
+
+    @Mock
+    private HashedTimingWheel timingWheel;
+
+    private SimpleMeterRegistry registry;
+    private SessionMetrics sessionMetrics;
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        sessionMetrics = new SessionMetrics(registry, sessionStateRegistry, timingWheel);
+
+        session = new Session();
+        session.setCode("123456");
+        session.setSessionType(Session.SessionType.RECALL);
+        session.setTimingType(Session.TimingType.STOPWATCH);
+    }
+
+    @Test
+    void stop_RecordsOperationTaggedBySessionAndTimingType() {
+        // Arrange
+        Timer.Sample sample = sessionMetrics.start();
+
+        // Act
+        sessionMetrics.stop(sample, SessionMetrics.CONFIGURE, session);
+
+        // Assert
+        Timer timer = registry.get("plab.session.operation")
+                .tag("operation", "configure")
+                .tag("sessionType", "RECALL")
+                .tag("timingType", "STOPWATCH")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void recordPhaseTransitionLag_RecordsDelayPastDeadline() {
+        // Act
+        sessionMetrics.recordPhaseTransitionLag(session, Session.Phase.READING, System.currentTimeMillis() - 250);
+
+        // Assert
+        Timer lag = registry.get("plab.session.phase.transition.lag").tag("phase", "READING").timer();
+        assertEquals(1, lag.count());
+        assertTrue(lag.totalTime(TimeUnit.MILLISECONDS) >= 250);
+    }
+
+    @Test
+    void recordBroadcast_CountsMessagesAndPayloadBytesPerType() {
+        // Act
+        sessionMetrics.recordBroadcast("SESSION_DELTA", new byte[120]);
+        sessionMetrics.recordBroadcast("SESSION_DELTA", new byte[80]);
+
+        // Assert
+        assertEquals(2, registry.get("plab.session.broadcast.messages").tag("type", "SESSION_DELTA")
+                .counter().count());
+        DistributionSummary payload = registry.get("plab.session.broadcast.payload")
+                .tag("type", "SESSION_DELTA").summary();
+        assertEquals(200, payload.totalAmount());
+    }
+
+    @Test
+    void gauges_ReportActiveSessionsByPhaseAndPendingTimers() {
+        // Arrange
+        when(sessionStateRegistry.countTracked(Session.Phase.READING)).thenReturn(3L);
+        when(timingWheel.pendingTimeouts()).thenReturn(7L);
+
+        // Act & Assert
+        assertEquals(3, registry.get("plab.sessions.active").tag("phase", "READING").gauge().value());
+        assertEquals(7, registry.get("plab.session.timers.pending").gauge().value());
+    }
+}
@@ -1,5 +1,7 @@
 package com.plabpractice.api.service;
 
+import com.plabpractice.api.dto.SessionHistoryDTO;
+import com.plabpractice.api.dto.SessionHistoryPageDTO;
 import com.plabpractice.api.model.Session;
 import com.plabpractice.api.model.SessionParticipant;
 import com.plabpractice.api.model.User;
@@ -9,16 +11,27 @@ import com.plabpractice.api.repository.SessionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +46,33 @@ class SessionServiceTest {
     @Mock
     private CaseRepository caseRepository;
 
+    @Mock
+    private SessionStateRegistry sessionStateRegistry;
+
+    @Mock
+    private SessionCodeAllocator sessionCodeAllocator;
+
+    @Mock
+    private CaseDeckService caseDeckService;
+
+    @Mock
+    private CaseSampler caseSampler;
+
+    @Mock
+    private SessionLobby sessionLobby;
+
+    @Mock
+    private SessionMetrics sessionMetrics;
+
+    @Mock
+    private SessionEventLog sessionEventLog;
+
+    @Mock
+    private SessionMailbox sessionMailbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private SessionService sessionService;
 
@@ -60,6 +100,7 @@ class SessionServiceTest {
     @Test
     void createSession_Success() {
         // Arrange
+        when(sessionCodeAllocator.allocate()).thenReturn("482913");
         when(sessionRepository.save(any(Session.class))).thenAnswer(invocation -> {
             Session s = invocation.getArgument(0);
             s.setId(1L);
@@ -82,18 +123,52 @@ class SessionServiceTest {
         assertEquals(6, result.getCode().length());
         verify(sessionRepository, times(1)).save(any(Session.class));
         verify(sessionParticipantRepository, times(1)).save(any(SessionParticipant.class));
+        verify(sessionEventLog).append(1L, SessionEventLog.EventType.JOINED, 1L, 0, "DOCTOR");
+    }
+
+    @Test
+    void createSession_RetriesWithNewCodeWhenAnotherNodeTookTheCode() {
+        // Arrange
+        when(sessionCodeAllocator.allocate()).thenReturn("111111", "222222");
+        when(sessionRepository.save(any(Session.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key session_code"))
+                .thenAnswer(invocation -> {
+                    Session s = invocation.getArgument(0);
+                    s.setId(2L);
+                    return s;
+                });
+        when(sessionRepository.findByCode("111111")).thenReturn(Optional.of(testSession));
+
+        // Act
+        Session result = sessionService.createSession("New Session", testUser);
+
+        // Assert - the taken code stays occupied, the session gets the fresh one
+        assertEquals("222222", result.getCode());
+        verify(sessionCodeAllocator, never()).release(anyString());
+        verify(sessionStateRegistry).register(eq(result), any());
+    }
+
+    @Test
+    void createSession_ReleasesCodeWhenInsertFails() {
+        // Arrange
+        when(sessionCodeAllocator.allocate()).thenReturn("111111");
+        when(sessionRepository.save(any(Session.class)))
+                .thenThrow(new DataIntegrityViolationException("null value in column title"));
+        when(sessionRepository.findByCode("111111")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class,
+                () -> sessionService.createSession(null, testUser));
+        verify(sessionCodeAllocator).release("111111");
+        verify(sessionCodeAllocator, times(1)).allocate();
+        verifyNoInteractions(sessionStateRegistry, sessionLobby);
     }
 
     @Test
     void joinSession_Success() {
         // Arrange
         when(sessionRepository.findByCode("123456")).thenReturn(Optional.of(testSession));
-        when(sessionParticipantRepository.findBySessionIdAndUserId(1L, 2L)).thenReturn(Optional.empty());
-        when(sessionParticipantRepository.save(any(SessionParticipant.class))).thenAnswer(invocation -> {
-            SessionParticipant p = invocation.getArgument(0);
-            p.setId(2L);
-            return p;
-        });
+        when(sessionParticipantRepository.upsertKeepingRole(1L, 2L, "PARTICIPANT")).thenReturn(2L);
 
         User newUser = new User();
         newUser.setId(2L);
@@ -106,7 +181,8 @@ class SessionServiceTest {
         // Assert
         assertTrue(result.isPresent());
         assertEquals(testSession.getId(), result.get().getId());
-        verify(sessionParticipantRepository, times(1)).save(any(SessionParticipant.class));
+        verify(sessionParticipantRepository, times(1)).upsertKeepingRole(1L, 2L, "PARTICIPANT");
+        verify(sessionParticipantRepository, never()).save(any(SessionParticipant.class));
     }
 
     @Test
@@ -119,7 +195,55 @@ class SessionServiceTest {
 
         // Assert
         assertTrue(result.isEmpty());
-        verify(sessionParticipantRepository, never()).save(any(SessionParticipant.class));
+        verify(sessionParticipantRepository, never()).upsertKeepingRole(anyLong(), anyLong(), anyString());
+    }
+
+    @Test
+    void joinSessionWithRole_ClaimsRoleInOneUpsert() {
+        // Arrange
+        User patient = userWithId(2L);
+        when(sessionRepository.findByCode("123456")).thenReturn(Optional.of(testSession));
+        when(sessionParticipantRepository.upsertWithRole(1L, 2L, "PATIENT")).thenReturn(5L);
+
+        // Act
+        Session result = sessionService.joinSessionWithRole("123456", "patient", patient);
+
+        // Assert
+        assertSame(testSession, result);
+        verify(sessionParticipantRepository, times(1)).upsertWithRole(1L, 2L, "PATIENT");
+        verify(sessionStateRegistry).addParticipant(argThat(p -> p.getId().equals(5L)
+                && p.getRole() == SessionParticipant.Role.PATIENT && p.getIsActive()));
+    }
+
+    @Test
+    void joinSessionWithRole_RoleTakenByConcurrentJoin() {
+        // Arrange
+        User patient = userWithId(2L);
+        when(sessionRepository.findByCode("123456")).thenReturn(Optional.of(testSession));
+        when(sessionParticipantRepository.upsertWithRole(1L, 2L, "PATIENT"))
+                .thenThrow(new DataIntegrityViolationException("uq_session_participants_exclusive_role"));
+
+        // Act & Assert
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> sessionService.joinSessionWithRole("123456", "PATIENT", patient));
+        assertTrue(e.getMessage().contains("not available"));
+    }
+
+    @Test
+    void joinSessionWithRole_RejectsTakenRoleWithoutWriting() {
+        // Arrange
+        SessionParticipant existingPatient = new SessionParticipant();
+        existingPatient.setId(3L);
+        existingPatient.setUser(userWithId(3L));
+        existingPatient.setRole(SessionParticipant.Role.PATIENT);
+        existingPatient.setIsActive(true);
+        when(sessionStateRegistry.find("123456")).thenReturn(Optional.of(testSession));
+        when(sessionStateRegistry.getParticipants(1L)).thenReturn(Optional.of(List.of(existingPatient)));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> sessionService.joinSessionWithRole("123456", "PATIENT", userWithId(2L)));
+        verify(sessionParticipantRepository, never()).upsertWithRole(anyLong(), anyLong(), anyString());
     }
 
     @Test
@@ -227,6 +351,21 @@ class SessionServiceTest {
         verify(sessionRepository, times(1)).save(testSession);
     }
 
+    @Test
+    void startSession_UpdatesTheTrackedInstance() {
+        // Arrange
+        when(sessionStateRegistry.findById(1L)).thenReturn(Optional.of(testSession));
+        when(sessionStateRegistry.markDirty(testSession)).thenReturn(true);
+
+        // Act
+        sessionService.startSession(1L);
+
+        // Assert
+        assertEquals(Session.Status.IN_PROGRESS, testSession.getStatus());
+        verify(sessionRepository, never()).findById(anyLong());
+        verify(sessionRepository, never()).save(any(Session.class));
+    }
+
     @Test
     void endSession_Success() {
         // Arrange
@@ -271,6 +410,179 @@ class SessionServiceTest {
         // Assert
         assertEquals(120, remainingSeconds);
     }
-}
 
+    @Test
+    void getSessionHistory_ReturnsCursorWhenMoreRowsExist() {
+        // Arrange
+        LocalDateTime newest = LocalDateTime.of(2024, 5, 2, 10, 0);
+        List<SessionHistoryDTO> rows = List.of(historyRow(30L, newest), historyRow(20L, newest.minusDays(1)),
+                historyRow(10L, newest.minusDays(2)));
+        when(sessionParticipantRepository.findHistoryFirstPage(eq(1L), any(Pageable.class))).thenReturn(rows);
+
+        // Act
+        SessionHistoryPageDTO page = sessionService.getSessionHistory(1L, null, 2);
+
+        // Assert
+        assertEquals(List.of(30L, 20L), page.getSessions().stream().map(SessionHistoryDTO::getId).toList());
+        assertNotNull(page.getNextCursor());
+        verify(sessionParticipantRepository).findHistoryFirstPage(1L, PageRequest.of(0, 3));
+    }
+
+    @Test
+    void getSessionHistory_CursorContinuesAfterLastRow() {
+        // Arrange
+        LocalDateTime lastCreatedAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(sessionParticipantRepository.findHistoryFirstPage(eq(1L), any(Pageable.class)))
+                .thenReturn(List.of(historyRow(30L, lastCreatedAt.plusDays(1)), historyRow(20L, lastCreatedAt),
+                        historyRow(10L, lastCreatedAt.minusDays(1))));
+        String cursor = sessionService.getSessionHistory(1L, null, 2).getNextCursor();
+        when(sessionParticipantRepository.findHistoryPageBefore(eq(1L), eq(lastCreatedAt), eq(20L),
+                any(Pageable.class))).thenReturn(List.of(historyRow(10L, lastCreatedAt.minusDays(1))));
+
+        // Act
+        SessionHistoryPageDTO page = sessionService.getSessionHistory(1L, cursor, 2);
+
+        // Assert
+        assertEquals(1, page.getSessions().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getSessionHistory_InvalidCursor() {
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> sessionService.getSessionHistory(1L, "not-a-cursor", 20));
+        verify(sessionParticipantRepository, never()).findHistoryPageBefore(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void transitionPhase_UntrackedSessionWinsConditionalUpdate() {
+        // Arrange
+        testSession.setPhase(Session.Phase.READING);
+        testSession.setVersion(3L);
+        when(sessionRepository.compareAndSetPhase(eq(1L), eq(Session.Phase.READING),
+                eq(Session.Phase.CONSULTATION), any())).thenReturn(1);
+
+        // Act
+        boolean won = sessionService.transitionPhase(testSession, Session.Phase.READING, Session.Phase.CONSULTATION);
+
+        // Assert
+        assertTrue(won);
+        assertEquals(Session.Phase.CONSULTATION, testSession.getPhase());
+        assertEquals(4L, testSession.getVersion());
+        verify(sessionLobby).sessionChanged(testSession);
+    }
+
+    @Test
+    void transitionPhase_LoserReturnsWithoutReloading() {
+        // Arrange
+        testSession.setPhase(Session.Phase.READING);
+        when(sessionRepository.compareAndSetPhase(eq(1L), eq(Session.Phase.READING),
+                eq(Session.Phase.CONSULTATION), any())).thenReturn(0);
+
+        // Act
+        boolean won = sessionService.transitionPhase(testSession, Session.Phase.READING, Session.Phase.CONSULTATION);
+
+        // Assert
+        assertFalse(won);
+        assertEquals(Session.Phase.READING, testSession.getPhase());
+        verify(sessionRepository, never()).findByCode(anyString());
+        verify(sessionRepository, never()).findById(anyLong());
+        verifyNoInteractions(sessionLobby);
+    }
+
+    @Test
+    void leaveUserFromOtherActiveSessions_UpdatesEachSessionOnItsOwnMailbox() {
+        // Arrange - the user is active in session 123456 and joins another one
+        SessionParticipant participant = new SessionParticipant();
+        participant.setId(7L);
+        participant.setUser(testUser);
+        participant.setSession(testSession);
+        participant.setIsActive(true);
+        participant.setVersion(0L);
+        when(sessionParticipantRepository.findByUserIdAndIsActiveWithSessions(1L, true))
+                .thenReturn(List.of(participant));
+        when(sessionStateRegistry.getParticipants(1L)).thenReturn(Optional.of(List.of(participant)));
+        when(sessionStateRegistry.find("123456")).thenReturn(Optional.of(testSession));
+
+        // Act
+        List<Session> left = sessionService.leaveUserFromOtherActiveSessions("654321", testUser);
+
+        // Assert - the row is written at once, the tracked copy only by the queued command
+        assertEquals(List.of(testSession), left);
+        verify(sessionParticipantRepository).deactivateUserInSessions(1L, List.of(1L));
+        assertTrue(participant.getIsActive());
+        ArgumentCaptor<Runnable> command = ArgumentCaptor.forClass(Runnable.class);
+        verify(sessionMailbox).execute(eq("123456"), command.capture());
+
+        command.getValue().run();
+        assertFalse(participant.getIsActive());
+        assertEquals(1L, participant.getVersion());
+        verify(sessionLobby).participantsChanged(1L);
+        verify(sessionEventLog).append(1L, SessionEventLog.EventType.LEFT, 1L, 0, null);
+    }
+
+    @Test
+    void deactivateParticipant_LogsLeftOnlyForActiveParticipants() {
+        // Arrange - the second participant was already left by leaveUserFromOtherActiveSessions
+        SessionParticipant active = new SessionParticipant();
+        active.setId(7L);
+        active.setUser(testUser);
+        active.setSession(testSession);
+        active.setIsActive(true);
+        SessionParticipant alreadyLeft = new SessionParticipant();
+        alreadyLeft.setId(8L);
+        alreadyLeft.setUser(userWithId(2L));
+        alreadyLeft.setSession(testSession);
+        alreadyLeft.setIsActive(false);
 
+        // Act
+        sessionService.deactivateParticipant(active);
+        sessionService.deactivateParticipant(alreadyLeft);
+
+        // Assert
+        verify(sessionEventLog).append(1L, SessionEventLog.EventType.LEFT, 1L, 0, null);
+        verify(sessionEventLog, never()).append(1L, SessionEventLog.EventType.LEFT, 2L, 0, null);
+        verify(sessionParticipantRepository).deactivate(8L);
+    }
+
+    @Test
+    void leaveUsersFromOtherActiveSessions_DeactivatesRosterUsersInOneUpdate() {
+        // Arrange - user 1 is active in session 123456 and in new cohort session 2
+        SessionParticipant earlier = new SessionParticipant();
+        earlier.setUser(testUser);
+        earlier.setSession(testSession);
+        earlier.setIsActive(true);
+        Session cohortSession = new Session();
+        cohortSession.setId(2L);
+        cohortSession.setStatus(Session.Status.CREATED);
+        SessionParticipant cohort = new SessionParticipant();
+        cohort.setUser(testUser);
+        cohort.setSession(cohortSession);
+        cohort.setIsActive(true);
+        User other = userWithId(5L);
+        when(sessionParticipantRepository.findActiveByUserIdInWithSessions(Set.of(1L, 5L)))
+                .thenReturn(List.of(earlier, cohort));
+        when(sessionStateRegistry.find("123456")).thenReturn(Optional.empty());
+
+        // Act
+        Map<Long, List<Session>> left = sessionService.leaveUsersFromOtherActiveSessions(
+                List.of(testUser, other), List.of(2L));
+
+        // Assert - the cohort session is kept, the earlier one left
+        assertEquals(Map.of(1L, List.of(testSession)), left);
+        verify(sessionParticipantRepository).deactivateUsersInSessions(Set.of(1L, 5L), Set.of(1L));
+        verify(sessionMailbox).execute(eq("123456"), any(Runnable.class));
+    }
+
+    private SessionHistoryDTO historyRow(Long id, LocalDateTime createdAt) {
+        return new SessionHistoryDTO(id, "Session " + id, "12345" + id, Session.Status.COMPLETED,
+                Session.SessionType.TOPIC, createdAt, createdAt, null, SessionParticipant.Role.PATIENT, 2);
+    }
+
+    private User userWithId(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User " + id);
+        return user;
+    }
+}
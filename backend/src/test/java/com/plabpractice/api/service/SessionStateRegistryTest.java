@@ -0,0 +1,359 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.SessionParticipantRepository;
+import com.plabpractice.api.repository.SessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionStateRegistryTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionParticipantRepository participantRepository;
+
+    @Mock
+    private SessionLeaseManager leaseManager;
+
+    @Mock
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SessionStateRegistry registry;
+    private Session testSession;
+    private SessionParticipant doctor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionStateRegistry(sessionRepository, participantRepository, leaseManager,
+                clusterBroadcaster, transactionManager, 120);
+
+        testSession = new Session();
+        testSession.setId(1L);
+        testSession.setCode("123456");
+        testSession.setStatus(Session.Status.IN_PROGRESS);
+        testSession.setPhase(Session.Phase.READING);
+
+        User user = new User();
+        user.setId(10L);
+        doctor = new SessionParticipant();
+        doctor.setId(100L);
+        doctor.setUser(user);
+        doctor.setRole(SessionParticipant.Role.DOCTOR);
+        doctor.setVersion(0L);
+    }
+
+    @Test
+    void track_LoadsParticipantsOnce() {
+        // Arrange
+        when(participantRepository.findBySessionIdWithUser(1L)).thenReturn(List.of(doctor));
+
+        // Act
+        registry.track(testSession);
+        registry.track(testSession);
+
+        // Assert
+        assertSame(testSession, registry.find("123456").orElseThrow());
+        assertEquals(1, registry.getParticipants(1L).orElseThrow().size());
+        verify(participantRepository, times(1)).findBySessionIdWithUser(1L);
+    }
+
+    @Test
+    void track_IgnoresFinishedSessions() {
+        // Arrange
+        testSession.setStatus(Session.Status.COMPLETED);
+
+        // Act
+        registry.track(testSession);
+
+        // Assert
+        assertEquals(Optional.empty(), registry.find("123456"));
+        verifyNoInteractions(participantRepository);
+    }
+
+    @Test
+    void findById_FindsOnlyTrackedSessions() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+
+        // Act
+        Optional<Session> tracked = registry.findById(1L);
+        registry.remove("123456");
+
+        // Assert
+        assertSame(testSession, tracked.orElseThrow());
+        assertTrue(registry.findById(1L).isEmpty());
+        assertTrue(registry.findById(2L).isEmpty());
+    }
+
+    @Test
+    void markDirty_UntrackedSessionReturnsFalse() {
+        // Act & Assert
+        assertFalse(registry.markDirty(testSession));
+    }
+
+    @Test
+    void flush_WritesDirtyStateInOneBatch() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+        testSession.setPhase(Session.Phase.CONSULTATION);
+        doctor.setHasCompleted(true);
+
+        // Act
+        assertTrue(registry.markDirty(testSession));
+        assertTrue(registry.markDirty(doctor));
+        registry.flush();
+
+        // Assert
+        verify(sessionRepository, times(1)).saveAll(List.of(testSession));
+        verify(participantRepository, times(1)).saveAll(List.of(doctor));
+        assertTrue(registry.find("123456").isPresent());
+    }
+
+    @Test
+    void flush_EvictsCompletedSessions() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+        testSession.setStatus(Session.Status.COMPLETED);
+        registry.markDirty(testSession);
+
+        // Act
+        registry.flush();
+
+        // Assert
+        assertTrue(registry.find("123456").isEmpty());
+        assertTrue(registry.getParticipants(1L).isEmpty());
+    }
+
+    @Test
+    void flush_RequeuesOnFailure() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+        registry.markDirty(testSession);
+        when(sessionRepository.saveAll(anyList())).thenThrow(new RuntimeException("connection refused"));
+
+        // Act
+        registry.flush();
+        reset(sessionRepository);
+        registry.flush();
+
+        // Assert
+        verify(sessionRepository, times(1)).saveAll(List.of(testSession));
+    }
+
+    @Test
+    void compareAndSetPhase_OnlyFirstCallerWins() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+
+        // Act
+        boolean first = registry.compareAndSetPhase(testSession, Session.Phase.READING, Session.Phase.CONSULTATION);
+        boolean second = registry.compareAndSetPhase(testSession, Session.Phase.READING, Session.Phase.CONSULTATION);
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(Session.Phase.CONSULTATION, testSession.getPhase());
+    }
+
+    @Test
+    void compareAndSetPhase_UntrackedSessionReturnsFalse() {
+        // Act & Assert
+        assertFalse(registry.compareAndSetPhase(testSession, Session.Phase.READING, Session.Phase.CONSULTATION));
+        assertEquals(Session.Phase.READING, testSession.getPhase());
+    }
+
+    @Test
+    void flush_CopiesSavedVersionBack() {
+        // Arrange
+        testSession.setVersion(0L);
+        registry.register(testSession, List.of(doctor));
+        registry.markDirty(testSession);
+        Session saved = new Session();
+        saved.setVersion(1L);
+        when(sessionRepository.saveAll(anyList())).thenReturn(List.of(saved));
+
+        // Act
+        registry.flush();
+
+        // Assert
+        assertEquals(1L, testSession.getVersion());
+    }
+
+    @Test
+    void flush_RebasesSessionChangedElsewhere() {
+        // Arrange - this instance moves the phase, another writer changes the round
+        testSession.setVersion(3L);
+        testSession.setCurrentRound(1);
+        registry.register(testSession, List.of(doctor));
+        testSession.setPhase(Session.Phase.CONSULTATION);
+        registry.markDirty(testSession);
+        Session current = new Session();
+        current.setId(1L);
+        current.setCode("123456");
+        current.setVersion(4L);
+        current.setStatus(Session.Status.IN_PROGRESS);
+        current.setPhase(Session.Phase.READING);
+        current.setCurrentRound(2);
+        when(sessionRepository.saveAll(anyList()))
+                .thenThrow(new OptimisticLockingFailureException("stale session"));
+        when(sessionRepository.save(testSession))
+                .thenThrow(new OptimisticLockingFailureException("stale session"))
+                .thenReturn(testSession);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(current));
+
+        // Act
+        registry.flush();
+
+        // Assert - both changes survive and the copy is still tracked
+        assertSame(testSession, registry.find("123456").orElseThrow());
+        assertEquals(Session.Phase.CONSULTATION, testSession.getPhase());
+        assertEquals(2, testSession.getCurrentRound());
+        assertEquals(4L, testSession.getVersion());
+        verify(sessionRepository, times(2)).save(testSession);
+    }
+
+    @Test
+    void flush_KeepsSessionDirtyWhenRebaseLosesAgain() {
+        // Arrange
+        registry.register(testSession, List.of(doctor));
+        registry.markDirty(testSession);
+        when(sessionRepository.saveAll(anyList()))
+                .thenThrow(new OptimisticLockingFailureException("stale session"));
+        when(sessionRepository.save(testSession))
+                .thenThrow(new OptimisticLockingFailureException("stale session"));
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(testSession));
+
+        // Act
+        registry.flush();
+        reset(sessionRepository);
+        registry.flush();
+
+        // Assert - nothing dropped, the next flush writes it again
+        assertTrue(registry.find("123456").isPresent());
+        verify(sessionRepository, times(1)).saveAll(List.of(testSession));
+    }
+
+    @Test
+    void flush_RebasesParticipantChangedElsewhere() {
+        // Arrange - this instance completes the round, another node deactivated the doctor
+        registry.register(testSession, List.of(doctor));
+        doctor.setHasCompleted(true);
+        registry.markDirty(doctor);
+        SessionParticipant current = new SessionParticipant();
+        current.setId(100L);
+        current.setRole(SessionParticipant.Role.DOCTOR);
+        current.setIsActive(false);
+        current.setHasCompleted(false);
+        current.setVersion(1L);
+        when(participantRepository.saveAll(anyList()))
+                .thenThrow(new OptimisticLockingFailureException("stale participant"));
+        when(participantRepository.save(doctor))
+                .thenThrow(new OptimisticLockingFailureException("stale participant"))
+                .thenReturn(doctor);
+        when(participantRepository.findById(100L)).thenReturn(Optional.of(current));
+
+        // Act
+        registry.flush();
+
+        // Assert - both changes survive
+        assertTrue(doctor.getHasCompleted());
+        assertFalse(doctor.getIsActive());
+        assertEquals(1L, doctor.getVersion());
+        verify(participantRepository, times(2)).save(doctor);
+    }
+
+    @Test
+    void track_SkipsSessionsLeasedToAnotherNode() {
+        // Arrange
+        when(leaseManager.isEnabled()).thenReturn(true);
+        when(leaseManager.owns("123456")).thenReturn(false);
+
+        // Act
+        registry.track(testSession);
+
+        // Assert
+        assertTrue(registry.find("123456").isEmpty());
+        verifyNoInteractions(participantRepository);
+    }
+
+    @Test
+    void flush_DropsSessionsWhoseLeaseMovedAway() {
+        // Arrange
+        when(leaseManager.isEnabled()).thenReturn(true);
+        when(leaseManager.owns("123456")).thenReturn(true);
+        registry.register(testSession, List.of(doctor));
+        registry.markDirty(testSession);
+        when(leaseManager.heldAmong(Set.of("123456"))).thenReturn(Set.of());
+
+        // Act
+        registry.flush();
+
+        // Assert - written first, then dropped
+        verify(sessionRepository).saveAll(List.of(testSession));
+        assertTrue(registry.find("123456").isEmpty());
+    }
+
+    @Test
+    void flush_DropsSessionsWrittenByAnotherNode() {
+        // Arrange
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(clusterBroadcaster).onNotice(eq(SessionStateRegistry.INVALIDATE_NOTICE), listener.capture());
+        registry.register(testSession, List.of(doctor));
+
+        // Act
+        listener.getValue().accept("1");
+        registry.flush();
+
+        // Assert
+        assertTrue(registry.find("123456").isEmpty());
+        assertTrue(registry.getParticipants(1L).isEmpty());
+        assertTrue(registry.findById(1L).isEmpty());
+    }
+
+    @Test
+    void writtenThrough_NotifiesTheNodeHoldingTheSession() {
+        // Arrange
+        when(leaseManager.isEnabled()).thenReturn(true);
+
+        // Act
+        registry.writtenThrough(1L);
+
+        // Assert
+        verify(clusterBroadcaster).publishNotice(SessionStateRegistry.INVALIDATE_NOTICE, "1");
+    }
+
+    @Test
+    void writtenThrough_SingleNodeSendsNothing() {
+        // Act
+        registry.writtenThrough(1L);
+
+        // Assert
+        verify(clusterBroadcaster, never()).publishNotice(any(), any());
+    }
+}
@@ -0,0 +1,129 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.dto.SessionTimerStateDTO;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.repository.SessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionTimerRehydratorTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionWebSocketService webSocketService;
+
+    @Mock
+    private SessionLeaseManager leaseManager;
+
+    private SessionTimerRehydrator rehydrator;
+
+    @BeforeEach
+    void setUp() {
+        rehydrator = new SessionTimerRehydrator(sessionRepository, webSocketService, leaseManager, 100);
+    }
+
+    @Test
+    void rehydrate_RearmsEveryRunningSessionFromOneQuery() {
+        // Arrange
+        long startTimestamp = System.currentTimeMillis() - 30_000;
+        when(sessionRepository.findRunningTimerStates()).thenReturn(List.of(
+                new SessionTimerStateDTO("111111", Session.Phase.READING, 2.0, 8.0, null, startTimestamp),
+                new SessionTimerStateDTO("222222", Session.Phase.CONSULTATION, 2.0, 8.0, null,
+                        startTimestamp - 3_600_000)));
+        when(leaseManager.claimAll(List.of("111111", "222222"))).thenReturn(Set.of("111111", "222222"));
+
+        // Act
+        int armed = rehydrator.rehydrate();
+
+        // Assert
+        assertEquals(2, armed);
+        verify(leaseManager, never()).claim(anyString());
+        verify(webSocketService).rearmTimer("111111", Session.Phase.READING, startTimestamp + 120_000);
+        // Overdue: the deadline is kept, so the wheel fires it on its next tick
+        verify(webSocketService).rearmTimer("222222", Session.Phase.CONSULTATION, startTimestamp - 3_600_000 + 480_000);
+        verify(sessionRepository, times(1)).findRunningTimerStates();
+    }
+
+    @Test
+    void rehydrate_SkipsSessionsLeasedByAnotherReplica() {
+        // Arrange
+        when(sessionRepository.findRunningTimerStates()).thenReturn(List.of(
+                new SessionTimerStateDTO("111111", Session.Phase.READING, 2.0, 8.0, null, 1_000L)));
+        when(leaseManager.claimAll(List.of("111111"))).thenReturn(Set.of());
+
+        // Act
+        int armed = rehydrator.rehydrate();
+
+        // Assert
+        assertEquals(0, armed);
+        verifyNoInteractions(webSocketService);
+    }
+
+    @Test
+    void maintainLeases_TakesOverOrphanedSessions() {
+        // Arrange
+        when(leaseManager.isEnabled()).thenReturn(true);
+        when(leaseManager.claimExpired(100)).thenReturn(List.of("111111", "999999"));
+        when(sessionRepository.findRunningTimerStatesByCodes(List.of("111111", "999999"))).thenReturn(List.of(
+                new SessionTimerStateDTO("111111", Session.Phase.CONSULTATION, 2.0, 8.0, null, 1_000L)));
+        when(leaseManager.claimAll(List.of("111111"))).thenReturn(Set.of("111111"));
+
+        // Act
+        rehydrator.maintainLeases();
+
+        // Assert
+        verify(leaseManager).renew();
+        verify(webSocketService).rearmTimer("111111", Session.Phase.CONSULTATION, 481_000L);
+        // Session no longer running - its lease is dropped
+        verify(leaseManager).release("999999");
+    }
+
+    @Test
+    void deadline_FeedbackRunsFromPhaseStart() {
+        // Arrange
+        LocalDateTime phaseStart = LocalDateTime.of(2024, 1, 1, 12, 0);
+        long phaseStartMillis = phaseStart.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        SessionTimerStateDTO state = new SessionTimerStateDTO("333333", Session.Phase.FEEDBACK, 2.0, 8.0,
+                phaseStart, phaseStartMillis - 480_000);
+
+        // Act & Assert
+        assertEquals(phaseStartMillis + SessionWebSocketService.FEEDBACK_TIMEOUT_SECONDS * 1000L,
+                SessionTimerRehydrator.deadline(state, System.currentTimeMillis()));
+    }
+
+    @Test
+    void deadline_MissingStartGetsFullDurationFromNow() {
+        // Arrange
+        SessionTimerStateDTO state = new SessionTimerStateDTO("444444", Session.Phase.READING, 1.5, 8.0, null, null);
+
+        // Act & Assert
+        assertEquals(1_000 + 90_000, SessionTimerRehydrator.deadline(state, 1_000));
+    }
+
+    @Test
+    void run_SwallowsFailuresSoStartupContinues() {
+        // Arrange
+        when(sessionRepository.findRunningTimerStates()).thenThrow(new RuntimeException("connection refused"));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> rehydrator.run(null));
+        verify(webSocketService, never()).rearmTimer(anyString(), any(), anyLong());
+    }
+}
@@ -0,0 +1,285 @@
+package com.plabpractice.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plabpractice.api.model.Case;
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.model.SessionParticipant;
+import com.plabpractice.api.model.User;
+import com.plabpractice.api.repository.CaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.core.MessagePostProcessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionWebSocketServiceTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private SessionMetrics sessionMetrics;
+
+    @Mock
+    private SessionLeaseManager leaseManager;
+
+    @Mock
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Mock
+    private SessionMailbox sessionMailbox;
+
+    @Mock
+    private SessionEventLog sessionEventLog;
+
+    @Mock
+    private CaseRepository caseRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private SessionWebSocketService webSocketService;
+
+    private Session testSession;
+    private List<SessionParticipant> participants;
+
+    @BeforeEach
+    void setUp() {
+        testSession = new Session();
+        testSession.setId(1L);
+        testSession.setTitle("Test Session");
+        testSession.setCode("123456");
+        testSession.setStatus(Session.Status.IN_PROGRESS);
+        testSession.setPhase(Session.Phase.READING);
+
+        participants = new ArrayList<>();
+        participants.add(participant(1L, "Doctor User", SessionParticipant.Role.DOCTOR));
+        participants.add(participant(2L, "Patient User", SessionParticipant.Role.PATIENT));
+
+        when(sessionService.getActiveParticipantsWithUser(testSession)).thenAnswer(inv -> List.copyOf(participants));
+    }
+
+    @Test
+    void broadcastSessionUpdate_FirstBroadcastIsFullSnapshot() {
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert
+        Map<String, Object> message = captureMessages(1).get(0);
+        assertEquals("SESSION_UPDATE", message.get("type"));
+        assertEquals(1L, message.get("version"));
+        assertEquals(2, ((List<?>) message.get("participants")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void broadcastSessionUpdate_SendsOnlyChangedFieldsAsDelta() {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+        testSession.setPhase(Session.Phase.CONSULTATION);
+        participants.get(1).setHasCompleted(true);
+
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert
+        Map<String, Object> delta = captureMessages(2).get(1);
+        assertEquals("SESSION_DELTA", delta.get("type"));
+        assertEquals(1L, delta.get("baseVersion"));
+        assertEquals(2L, delta.get("version"));
+
+        Map<String, Object> changes = (Map<String, Object>) delta.get("changes");
+        assertEquals(Session.Phase.CONSULTATION, changes.get("phase"));
+        assertFalse(changes.containsKey("title"));
+        assertFalse(delta.containsKey("selectedCase"));
+
+        List<Map<String, Object>> upserted = (List<Map<String, Object>>) delta.get("participantsUpserted");
+        assertEquals(1, upserted.size());
+        assertEquals("2", upserted.get(0).get("id"));
+    }
+
+    @Test
+    void broadcastSessionUpdate_ReportsRemovedParticipants() {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+        participants.remove(1);
+
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert
+        Map<String, Object> delta = captureMessages(2).get(1);
+        assertEquals(List.of("2"), delta.get("participantsRemoved"));
+        assertFalse(delta.containsKey("participantsUpserted"));
+    }
+
+    @Test
+    void broadcastSessionUpdate_SkipsBroadcastWhenNothingChanged() {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/session/123456"), any(Object.class),
+                any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void getSessionSnapshot_CarriesCurrentVersion() {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+        testSession.setPhase(Session.Phase.CONSULTATION);
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Act
+        Map<String, Object> snapshot = webSocketService.getSessionSnapshot(testSession);
+
+        // Assert
+        assertEquals("SESSION_UPDATE", snapshot.get("type"));
+        assertEquals(2L, snapshot.get("version"));
+        assertEquals(Session.Phase.CONSULTATION, snapshot.get("phase"));
+    }
+
+    @Test
+    void broadcastSessionUpdate_RecordsMessageTypeAndPayloadSize() {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/session/123456"), any(Object.class),
+                postProcessor.capture());
+        byte[] payload = "{\"type\":\"SESSION_UPDATE\"}".getBytes();
+
+        // Act
+        postProcessor.getValue().postProcessMessage(MessageBuilder.withPayload(payload).build());
+
+        // Assert
+        verify(sessionMetrics).recordBroadcast("SESSION_UPDATE", payload);
+        verify(clusterBroadcaster, never()).publish(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void broadcastSessionUpdate_ForwardsFullSnapshotsInsteadOfDeltas() throws Exception {
+        // Arrange
+        when(clusterBroadcaster.hasPeers()).thenReturn(true);
+        testSession.setSelectedCase(testCase(7L));
+        webSocketService.broadcastSessionUpdate(testSession);
+        testSession.setPhase(Session.Phase.CONSULTATION);
+
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert - both forwards are complete snapshots without this node's version
+        ArgumentCaptor<String> forwarded = ArgumentCaptor.forClass(String.class);
+        verify(clusterBroadcaster, times(2)).publishNotice(eq(SessionWebSocketService.SNAPSHOT_NOTICE),
+                forwarded.capture());
+        Map<String, Object> snapshot = new ObjectMapper().readValue(forwarded.getAllValues().get(1), Map.class);
+        assertEquals("SESSION_UPDATE", snapshot.get("type"));
+        assertEquals("CONSULTATION", snapshot.get("phase"));
+        assertEquals(2, ((List<?>) snapshot.get("participants")).size());
+        assertFalse(snapshot.containsKey("version"));
+        assertFalse(snapshot.containsKey("selectedCase"));
+        assertEquals(7, snapshot.get("selectedCaseId"));
+    }
+
+    @Test
+    void broadcastSessionUpdate_DoesNotForwardWithoutPeers() {
+        // Arrange
+        when(clusterBroadcaster.hasPeers()).thenReturn(false);
+
+        // Act
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert
+        verify(clusterBroadcaster, never()).publishNotice(any(), any());
+    }
+
+    @Test
+    void deliverForwardedSnapshot_LoadsTheSelectedCaseOnlyWhenItChanges() throws Exception {
+        // Arrange
+        Case selected = testCase(7L);
+        when(caseRepository.findById(7L)).thenReturn(Optional.of(selected));
+        String forwarded = new ObjectMapper().writeValueAsString(
+                Map.of("type", "SESSION_UPDATE", "sessionCode", "123456", "selectedCaseId", 7));
+
+        // Act
+        webSocketService.deliverForwardedSnapshot(forwarded);
+        webSocketService.deliverForwardedSnapshot(forwarded);
+
+        // Assert
+        verify(caseRepository, times(1)).findById(7L);
+        List<Map<String, Object>> messages = captureMessages(2);
+        assertSame(selected, messages.get(1).get("selectedCase"));
+        assertFalse(messages.get(1).containsKey("selectedCaseId"));
+    }
+
+    @Test
+    void deliverForwardedSnapshot_SendsItUnderThisNodesVersion() throws Exception {
+        // Arrange
+        webSocketService.broadcastSessionUpdate(testSession);
+        String forwarded = new ObjectMapper().writeValueAsString(
+                Map.of("type", "SESSION_UPDATE", "sessionCode", "123456", "phase", "CONSULTATION"));
+
+        // Act
+        webSocketService.deliverForwardedSnapshot(forwarded);
+        webSocketService.broadcastSessionUpdate(testSession);
+
+        // Assert - the next local broadcast is a full snapshot again
+        List<Map<String, Object>> messages = captureMessages(3);
+        assertEquals(2L, messages.get(1).get("version"));
+        assertEquals("CONSULTATION", messages.get(1).get("phase"));
+        assertEquals("SESSION_UPDATE", messages.get(2).get("type"));
+        assertEquals(3L, messages.get(2).get("version"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> captureMessages(int expected) {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(expected)).convertAndSend(eq("/topic/session/123456"), captor.capture(),
+                any(MessagePostProcessor.class));
+        return captor.getAllValues().stream().map(m -> (Map<String, Object>) m).toList();
+    }
+
+    private Case testCase(Long id) {
+        Case testCase = new Case();
+        testCase.setId(id);
+        testCase.setTitle("Chest Pain");
+        return testCase;
+    }
+
+    private SessionParticipant participant(Long userId, String name, SessionParticipant.Role role) {
+        User user = new User();
+        user.setId(userId);
+        user.setName(name);
+
+        SessionParticipant participant = new SessionParticipant();
+        participant.setId(userId);
+        participant.setUser(user);
+        participant.setSession(testSession);
+        participant.setRole(role);
+        return participant;
+    }
+}
@@ -0,0 +1,189 @@
+package com.plabpractice.api.service;
+
+import com.plabpractice.api.model.Session;
+import com.plabpractice.api.service.DownstreamLimiter.Downstream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Detects carrier-thread pinning: a virtual thread that blocks inside a
+ * {@code synchronized} block (or native frame) holds on to its carrier, and a
+ * handful of those starve every other virtual thread. Runs blocking work on
+ * the code paths that execute on virtual threads and fails on any
+ * {@code jdk.VirtualThreadPinned} JFR event.
+ */
+class VirtualThreadPinningTest {
+
+    private static final Duration BLOCK = Duration.ofMillis(50);
+
+    private RecordingStream recording;
+    private final List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startRecording() {
+        recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(10)).withStackTrace();
+        recording.onEvent("jdk.VirtualThreadPinned", pinnedEvents::add);
+        recording.startAsync();
+    }
+
+    @AfterEach
+    void closeRecording() {
+        recording.close();
+    }
+
+    @Test
+    void detector_CatchesSynchronizedAroundBlockingCall() throws Exception {
+        // Arrange
+        assumeTrue(Runtime.version().feature() < 24, "synchronized no longer pins since JDK 24 (JEP 491)");
+        Object monitor = new Object();
+
+        // Act
+        runOnVirtualThreads(2, () -> {
+            synchronized (monitor) {
+                sleep(BLOCK);
+            }
+        });
+
+        // Assert - guards against a detector that silently never fires
+        assertFalse(stopAndCollectPinned().isEmpty(), "Expected synchronized + sleep to pin the carrier");
+    }
+
+    @Test
+    void broadcastSessionUpdate_DoesNotPinWhileSending() throws Exception {
+        // Arrange - a broker channel that blocks on every send
+        SessionWebSocketService webSocketService = new SessionWebSocketService();
+        SessionService sessionService = mock(SessionService.class);
+        when(sessionService.getActiveParticipantsWithUser(any())).thenReturn(List.of());
+        ReflectionTestUtils.setField(webSocketService, "sessionService", sessionService);
+        ReflectionTestUtils.setField(webSocketService, "sessionMetrics", mock(SessionMetrics.class));
+        ReflectionTestUtils.setField(webSocketService, "clusterBroadcaster", mock(ClusterBroadcaster.class));
+        ReflectionTestUtils.setField(webSocketService, "messagingTemplate", new SimpMessagingTemplate(
+                (message, timeout) -> {
+                    sleep(BLOCK);
+                    return true;
+                }));
+        Session session = new Session();
+        session.setId(1L);
+        session.setCode("123456");
+        session.setStatus(Session.Status.IN_PROGRESS);
+        session.setPhase(Session.Phase.READING);
+
+        // Act - concurrent broadcasts for the same session contend on its broadcast lock
+        runOnVirtualThreads(4, () -> webSocketService.broadcastSessionUpdate(session));
+
+        // Assert
+        assertNoPinning();
+    }
+
+    @Test
+    void downstreamLimiter_DoesNotPinWhileCallingOrWaiting() throws Exception {
+        // Arrange - 2 permits, 6 callers, each call blocks
+        DownstreamLimiter limiter = new DownstreamLimiter(new SimpleMeterRegistry(), 2, 2, 2, 2, 5_000);
+
+        // Act
+        runOnVirtualThreads(6, () -> {
+            try {
+                limiter.call(Downstream.SUPABASE_STORAGE, () -> {
+                    sleep(BLOCK);
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Assert
+        assertNoPinning();
+    }
+
+    @Test
+    void timingWheelVirtualWorkers_DoNotPinOnBlockingTasks() throws Exception {
+        // Arrange
+        HashedTimingWheel wheel = new HashedTimingWheel("pinning-test", 10, 64, 2, 100, true);
+        CountDownLatch done = new CountDownLatch(4);
+
+        try {
+            // Act
+            for (int i = 0; i < 4; i++) {
+                wheel.schedule(() -> {
+                    sleep(BLOCK);
+                    done.countDown();
+                }, 10, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            wheel.stop();
+        }
+
+        // Assert
+        assertNoPinning();
+    }
+
+    private void assertNoPinning() {
+        List<RecordedEvent> pinned = stopAndCollectPinned();
+        assertTrue(pinned.isEmpty(), () -> "Virtual thread pinned its carrier:\n" + pinned.stream()
+                .map(VirtualThreadPinningTest::describe)
+                .collect(Collectors.joining("\n---\n")));
+    }
+
+    private List<RecordedEvent> stopAndCollectPinned() {
+        // stop() flushes and waits until all recorded events have been dispatched
+        recording.stop();
+        return new ArrayList<>(pinnedEvents);
+    }
+
+    private static void runOnVirtualThreads(int count, Runnable task) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < count; i++) {
+            threads.add(Thread.ofVirtual().uncaughtExceptionHandler((t, e) -> failures.add(e)).start(task));
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        assertTrue(failures.isEmpty(), () -> "Task failed: " + failures);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return event.toString();
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(15)
+                .map(VirtualThreadPinningTest::describe)
+                .collect(Collectors.joining("\n  at "));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,46 @@
+-- The schema as it stood before the first Flyway migration (V9), trimmed to the
+-- tables and columns the migrations touch. FlywayMigrationTest upgrades it.
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE categories (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE cases (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    category_id BIGINT REFERENCES categories(id),
+    is_recall_case BOOLEAN NOT NULL DEFAULT FALSE,
+    recall_dates VARCHAR(4000)
+);
+
+CREATE TABLE sessions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    session_code VARCHAR(255) NOT NULL UNIQUE,
+    status VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    used_case_ids VARCHAR(4000),
+    created_by BIGINT REFERENCES users(id)
+);
+
+CREATE TABLE session_participants (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id BIGINT NOT NULL REFERENCES sessions(id),
+    user_id BIGINT REFERENCES users(id),
+    role VARCHAR(255) NOT NULL,
+    is_active BOOLEAN NOT NULL
+);
+
+CREATE TABLE feedbacks (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id BIGINT,
+    comment VARCHAR(4000)
+);
@@ -85,6 +85,39 @@ const getAuthToken = (): string | null => {
   return localStorage.getItem('token');
 };
 
+// Last full session state received over the WebSocket - base for SESSION_DELTA messages
+let sessionState: any = null;
+let resyncInFlight = false;
+// Ask again if a resync request goes unanswered (e.g. not a participant any more)
+const RESYNC_TIMEOUT_MS = 5000;
+
+// Apply a SESSION_DELTA to the last known state. Returns null if the delta
+// does not follow directly on from that state (a version gap).
+const applySessionDelta = (state: any, delta: any) => {
+  if (!state || state.version !== delta.baseVersion) {
+    return null;
+  }
+  const merged = { ...state, ...delta.changes, version: delta.version };
+
+  const removed = new Set<string>(delta.participantsRemoved || []);
+  const upserted = new Map<string, any>(
+    (delta.participantsUpserted || []).map((p: any) => [p.id, p])
+  );
+  const participants = (state.participants || [])
+    .filter((p: any) => !removed.has(p.id))
+    .map((p: any) => {
+      const updated = upserted.get(p.id);
+      upserted.delete(p.id);
+      return updated || p;
+    });
+  merged.participants = [...participants, ...upserted.values()];
+
+  if ('selectedCase' in delta) {
+    merged.selectedCase = delta.selectedCase ?? undefined;
+  }
+  return merged;
+};
+
 export const connectWebSocket = (sessionCode: string, handlers: {
   onSessionUpdate?: (data: any) => void;
   onParticipantUpdate?: (participants: any[]) => void;
@@ -107,6 +140,8 @@ export const connectWebSocket = (sessionCode: string, handlers: {
     return null;
   }
 
+  sessionState = null;
+
   // Clean up existing connection
   if (stompClient) {
     stompClient.deactivate();
@@ -155,8 +190,25 @@ export const connectWebSocket = (sessionCode: string, handlers: {
           
           switch (data.type) {
             case 'SESSION_UPDATE':
+              sessionState = data;
               handlers.onSessionUpdate?.(data);
               break;
+            case 'SESSION_DELTA': {
+              const merged = applySessionDelta(sessionState, data);
+              if (merged) {
+                sessionState = merged;
+                handlers.onSessionUpdate?.(merged);
+              } else if (!resyncInFlight) {
+                // Missed an update (or joined mid-session) - ask this connection's node for a full
+                // snapshot; versions are numbered per node, so a REST call could reach another one
+                resyncInFlight = true;
+                stompClient?.publish({ destination: `/app/session/${sessionCode}/state` });
+                setTimeout(() => {
+                  resyncInFlight = false;
+                }, RESYNC_TIMEOUT_MS);
+              }
+              break;
+            }
             case 'PARTICIPANT_UPDATE':
               handlers.onParticipantUpdate?.(data.participants);
               break;
@@ -186,6 +238,21 @@ export const connectWebSocket = (sessionCode: string, handlers: {
         }
       });
 
+      // Resync snapshots, sent on this connection only
+      stompClient?.subscribe('/user/queue/session-state', (message) => {
+        try {
+          const data = JSON.parse(message.body);
+          if (data.sessionCode === sessionCode && (!sessionState || data.version >= sessionState.version)) {
+            sessionState = data;
+            handlers.onSessionUpdate?.(data);
+          }
+        } catch (error) {
+          console.error('Failed to resync session state:', error);
+        } finally {
+          resyncInFlight = false;
+        }
+      });
+
       // Subscribe to session messages
       if (handlers.onMessage) {
         const subscription2 = stompClient?.subscribe(`/topic/session/${sessionCode}/messages`, (message) => {
@@ -286,6 +353,9 @@ export const startSession = (sessionCode: string) =>
 export const getSessionByCode = (sessionCode: string) =>
   api.get(`/sessions/${sessionCode}`);
 
+export const getSessionState = (sessionCode: string) =>
+  api.get(`/sessions/${sessionCode}/state`);
+
 export const skipPhase = (sessionCode: string) =>
   api.post(`/sessions/${sessionCode}/skip-phase`);
 